@@ -0,0 +1,73 @@
+package org.kettle.beam.core;
+
+import org.apache.beam.sdk.coders.DefaultCoder;
+import org.kettle.beam.core.coder.KettleKeyCoder;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The key of a group or join: the key values of a row in a canonical, order preserving binary form.
+ * Equal key values always give the same bytes so runners can hash and sort keys without decoding them.
+ * Use KettleKeyEncoder to go from row values to a key and back.
+ */
+@DefaultCoder( KettleKeyCoder.class )
+public class KettleKey implements Serializable, Comparable<KettleKey> {
+
+  private byte[] bytes;
+
+  public KettleKey() {
+  }
+
+  public KettleKey( byte[] bytes ) {
+    this.bytes = bytes;
+  }
+
+  @Override public boolean equals( Object obj ) {
+    if ( !( obj instanceof KettleKey ) ) {
+      return false;
+    }
+    if ( this == obj ) {
+      return true;
+    }
+    return Arrays.equals( bytes, ( (KettleKey) obj ).getBytes() );
+  }
+
+  @Override public int hashCode() {
+    return Arrays.hashCode( bytes );
+  }
+
+  /**
+   * Compare the keys byte by byte (unsigned), this follows the sort order of the key values.
+   *
+   * @param other the key to compare with
+   * @return a negative number, 0 or a positive number if this key sorts before, the same as or after the other key
+   */
+  @Override public int compareTo( KettleKey other ) {
+    byte[] otherBytes = other.getBytes();
+    int length = Math.min( bytes.length, otherBytes.length );
+    for ( int i = 0; i < length; i++ ) {
+      int cmp = ( bytes[ i ] & 0xFF ) - ( otherBytes[ i ] & 0xFF );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return bytes.length - otherBytes.length;
+  }
+
+  /**
+   * Gets bytes
+   *
+   * @return value of bytes
+   */
+  public byte[] getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @param bytes The bytes to set
+   */
+  public void setBytes( byte[] bytes ) {
+    this.bytes = bytes;
+  }
+}
@@ -0,0 +1,33 @@
+package org.kettle.beam.core.coder;
+
+import org.apache.beam.sdk.coders.AtomicCoder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.kettle.beam.core.util.BloomFilter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Writes a BloomFilter, see BloomFilter.write()
+ */
+public class BloomFilterCoder extends AtomicCoder<BloomFilter> {
+
+  private static final BloomFilterCoder INSTANCE = new BloomFilterCoder();
+
+  public static BloomFilterCoder of() {
+    return INSTANCE;
+  }
+
+  @Override public void encode( BloomFilter value, OutputStream outStream ) throws CoderException, IOException {
+    DataOutputStream out = new DataOutputStream( outStream );
+    value.write( out );
+    out.flush();
+  }
+
+  @Override public BloomFilter decode( InputStream inStream ) throws CoderException, IOException {
+    return BloomFilter.read( new DataInputStream( inStream ) );
+  }
+}
@@ -0,0 +1,63 @@
+package org.kettle.beam.core.coder;
+
+import org.apache.beam.sdk.coders.AtomicCoder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CoderProvider;
+import org.apache.beam.sdk.coders.CoderProviders;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.sdk.values.TypeDescriptor;
+import org.kettle.beam.core.KettleKey;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Writes the canonical bytes of a KettleKey with a length prefix.
+ * Since the key bytes are canonical this coder is deterministic and consistent with equals.
+ */
+public class KettleKeyCoder extends AtomicCoder<KettleKey> {
+
+  private static final KettleKeyCoder INSTANCE = new KettleKeyCoder();
+
+  public static KettleKeyCoder of() {
+    return INSTANCE;
+  }
+
+  /**
+   * Used by the @DefaultCoder annotation on KettleKey
+   *
+   * @return a coder provider for KettleKey
+   */
+  public static CoderProvider getCoderProvider() {
+    return CoderProviders.forCoder( TypeDescriptor.of( KettleKey.class ), INSTANCE );
+  }
+
+  @Override public void encode( KettleKey value, OutputStream outStream ) throws CoderException, IOException {
+    byte[] bytes = value.getBytes();
+    VarInt.encode( bytes.length, outStream );
+    outStream.write( bytes );
+  }
+
+  @Override public KettleKey decode( InputStream inStream ) throws CoderException, IOException {
+    byte[] bytes = new byte[ VarInt.decodeInt( inStream ) ];
+    int offset = 0;
+    while ( offset < bytes.length ) {
+      int read = inStream.read( bytes, offset, bytes.length - offset );
+      if ( read < 0 ) {
+        throw new EOFException( "Unexpected end of stream reading a key of " + bytes.length + " bytes" );
+      }
+      offset += read;
+    }
+    return new KettleKey( bytes );
+  }
+
+  @Override public void verifyDeterministic() throws NonDeterministicException {
+    // The key bytes are canonical
+  }
+
+  @Override public boolean consistentWithEquals() {
+    return true;
+  }
+}
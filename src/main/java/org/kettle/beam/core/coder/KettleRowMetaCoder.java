@@ -0,0 +1,293 @@
+package org.kettle.beam.core.coder;
+
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.util.VarInt;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.kettle.beam.core.KettleRow;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * A compact coder for Kettle rows where the data types of the values are known up front.
+ * The row metadata (JSON, see JsonRowMeta) determines how every value is written so we don't need to write type information per value.
+ *
+ * Layout of an encoded row:
+ * <ul>
+ *   <li>varint: row length + 1 (0 means a null row)</li>
+ *   <li>null bitmap: one bit per field in the row metadata, set when the value is null</li>
+ *   <li>the non-null values, Integer and Date as zigzag varints, Strings as length prefixed UTF-8, ...</li>
+ * </ul>
+ *
+ * Slots in the row beyond the row metadata (over-allocation) are expected to be null.
+ */
+public class KettleRowMetaCoder extends CustomCoder<KettleRow> {
+
+  private static final long serialVersionUID = 95700000000000101L;
+
+  private String rowMetaJson;
+
+  private transient int[] valueTypes;
+
+  public KettleRowMetaCoder() {
+  }
+
+  public KettleRowMetaCoder( String rowMetaJson ) {
+    this.rowMetaJson = rowMetaJson;
+  }
+
+  @Override public void encode( KettleRow value, OutputStream outStream ) throws CoderException, IOException {
+    int[] types = getValueTypes();
+
+    Object[] row = value.getRow();
+    if ( row == null ) {
+      VarInt.encode( 0, outStream );
+      return;
+    }
+    VarInt.encode( row.length + 1, outStream );
+
+    int nrFields = Math.min( row.length, types.length );
+
+    // Anything beyond the row metadata has to be empty
+    //
+    for ( int i = nrFields; i < row.length; i++ ) {
+      if ( row[ i ] != null ) {
+        throw new CoderException( "Value at index " + i + " is not described by the row metadata of this coder: " + row[ i ] );
+      }
+    }
+
+    // The null bitmap
+    //
+    int bitmapSize = ( nrFields + 7 ) / 8;
+    for ( int b = 0; b < bitmapSize; b++ ) {
+      int bits = 0;
+      for ( int bit = 0; bit < 8; bit++ ) {
+        int index = b * 8 + bit;
+        if ( index < nrFields && row[ index ] == null ) {
+          bits |= 1 << bit;
+        }
+      }
+      outStream.write( bits );
+    }
+
+    // The values
+    //
+    for ( int i = 0; i < nrFields; i++ ) {
+      Object object = row[ i ];
+      if ( object != null ) {
+        write( outStream, types[ i ], object, i );
+      }
+    }
+  }
+
+  @Override public KettleRow decode( InputStream inStream ) throws CoderException, IOException {
+    int[] types = getValueTypes();
+
+    int length = VarInt.decodeInt( inStream ) - 1;
+    if ( length < 0 ) {
+      return new KettleRow( null );
+    }
+    Object[] row = new Object[ length ];
+
+    int nrFields = Math.min( length, types.length );
+    int bitmapSize = ( nrFields + 7 ) / 8;
+    byte[] bitmap = new byte[ bitmapSize ];
+    readFully( inStream, bitmap );
+
+    for ( int i = 0; i < nrFields; i++ ) {
+      boolean isNull = ( bitmap[ i / 8 ] & ( 1 << ( i % 8 ) ) ) != 0;
+      if ( !isNull ) {
+        row[ i ] = read( inStream, types[ i ] );
+      }
+    }
+
+    return new KettleRow( row );
+  }
+
+  @Override public void verifyDeterministic() throws NonDeterministicException {
+    // The same values always produce the same bytes
+  }
+
+  private void write( OutputStream out, int valueType, Object object, int index ) throws IOException {
+    try {
+      switch ( valueType ) {
+        case ValueMetaInterface.TYPE_STRING:
+          writeBytes( out, ( (String) object ).getBytes( StandardCharsets.UTF_8 ) );
+          break;
+        case ValueMetaInterface.TYPE_INTEGER:
+          writeZigZag( out, (Long) object );
+          break;
+        case ValueMetaInterface.TYPE_DATE:
+          writeZigZag( out, ( (Date) object ).getTime() );
+          break;
+        case ValueMetaInterface.TYPE_TIMESTAMP:
+          Timestamp timestamp = (Timestamp) object;
+          writeZigZag( out, timestamp.getTime() );
+          VarInt.encode( timestamp.getNanos(), out );
+          break;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          out.write( ( (Boolean) object ) ? 1 : 0 );
+          break;
+        case ValueMetaInterface.TYPE_NUMBER:
+          writeLongBits( out, Double.doubleToLongBits( (Double) object ) );
+          break;
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+          BigDecimal bd = (BigDecimal) object;
+          writeZigZag( out, bd.scale() );
+          writeBytes( out, bd.unscaledValue().toByteArray() );
+          break;
+        case ValueMetaInterface.TYPE_BINARY:
+          writeBytes( out, (byte[]) object );
+          break;
+        default:
+          throw new CoderException( "Data type not supported yet: " + valueType + " - " + object.toString() );
+      }
+    } catch ( ClassCastException e ) {
+      throw new CoderException( "Value at index " + index + " of class " + object.getClass().getName() + " doesn't match data type " + valueType + " of the row metadata", e );
+    }
+  }
+
+  private Object read( InputStream in, int valueType ) throws IOException {
+    switch ( valueType ) {
+      case ValueMetaInterface.TYPE_STRING:
+        return new String( readBytes( in ), StandardCharsets.UTF_8 );
+      case ValueMetaInterface.TYPE_INTEGER:
+        return readZigZag( in );
+      case ValueMetaInterface.TYPE_DATE:
+        return new Date( readZigZag( in ) );
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        Timestamp timestamp = new Timestamp( readZigZag( in ) );
+        timestamp.setNanos( VarInt.decodeInt( in ) );
+        return timestamp;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        int b = in.read();
+        if ( b < 0 ) {
+          throw new EOFException( "Unexpected end of stream reading a boolean" );
+        }
+        return b != 0;
+      case ValueMetaInterface.TYPE_NUMBER:
+        return Double.longBitsToDouble( readLongBits( in ) );
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        int scale = (int) readZigZag( in );
+        return new BigDecimal( new BigInteger( readBytes( in ) ), scale );
+      case ValueMetaInterface.TYPE_BINARY:
+        return readBytes( in );
+      default:
+        throw new CoderException( "Data type not supported yet: " + valueType );
+    }
+  }
+
+  private static void writeZigZag( OutputStream out, long value ) throws IOException {
+    VarInt.encode( ( value << 1 ) ^ ( value >> 63 ), out );
+  }
+
+  private static long readZigZag( InputStream in ) throws IOException {
+    long encoded = VarInt.decodeLong( in );
+    return ( encoded >>> 1 ) ^ -( encoded & 1 );
+  }
+
+  private static void writeBytes( OutputStream out, byte[] bytes ) throws IOException {
+    VarInt.encode( bytes.length, out );
+    out.write( bytes );
+  }
+
+  private static byte[] readBytes( InputStream in ) throws IOException {
+    byte[] bytes = new byte[ VarInt.decodeInt( in ) ];
+    readFully( in, bytes );
+    return bytes;
+  }
+
+  private static void writeLongBits( OutputStream out, long bits ) throws IOException {
+    for ( int shift = 56; shift >= 0; shift -= 8 ) {
+      out.write( (int) ( bits >>> shift ) & 0xFF );
+    }
+  }
+
+  private static long readLongBits( InputStream in ) throws IOException {
+    long bits = 0L;
+    for ( int i = 0; i < 8; i++ ) {
+      int b = in.read();
+      if ( b < 0 ) {
+        throw new EOFException( "Unexpected end of stream reading a number" );
+      }
+      bits = ( bits << 8 ) | b;
+    }
+    return bits;
+  }
+
+  private static void readFully( InputStream in, byte[] bytes ) throws IOException {
+    int offset = 0;
+    while ( offset < bytes.length ) {
+      int read = in.read( bytes, offset, bytes.length - offset );
+      if ( read < 0 ) {
+        throw new EOFException( "Unexpected end of stream, expected " + bytes.length + " bytes but got " + offset );
+      }
+      offset += read;
+    }
+  }
+
+  /**
+   * We only need the data types from the row metadata.
+   * Parsing the JSON ourselves keeps the Kettle plugin registry out of the coder.
+   *
+   * @return the Kettle data types of the values in the row
+   * @throws CoderException in case the row metadata JSON can't be parsed
+   */
+  private int[] getValueTypes() throws CoderException {
+    if ( valueTypes == null ) {
+      try {
+        JSONObject jRowMeta = (JSONObject) new JSONParser().parse( rowMetaJson );
+        JSONArray jValues = (JSONArray) jRowMeta.get( "values" );
+        int[] types = new int[ jValues.size() ];
+        for ( int v = 0; v < types.length; v++ ) {
+          JSONObject jValue = (JSONObject) jValues.get( v );
+          types[ v ] = (int) (long) jValue.get( "type" );
+        }
+        valueTypes = types;
+      } catch ( Exception e ) {
+        throw new CoderException( "Unable to parse row metadata JSON : " + rowMetaJson, e );
+      }
+    }
+    return valueTypes;
+  }
+
+  @Override public boolean equals( Object obj ) {
+    if ( !( obj instanceof KettleRowMetaCoder ) ) {
+      return false;
+    }
+    String otherJson = ( (KettleRowMetaCoder) obj ).rowMetaJson;
+    return rowMetaJson == null ? otherJson == null : rowMetaJson.equals( otherJson );
+  }
+
+  @Override public int hashCode() {
+    return rowMetaJson == null ? 0 : rowMetaJson.hashCode();
+  }
+
+  /**
+   * Gets rowMetaJson
+   *
+   * @return value of rowMetaJson
+   */
+  public String getRowMetaJson() {
+    return rowMetaJson;
+  }
+
+  /**
+   * @param rowMetaJson The rowMetaJson to set
+   */
+  public void setRowMetaJson( String rowMetaJson ) {
+    this.rowMetaJson = rowMetaJson;
+    this.valueTypes = null;
+  }
+}
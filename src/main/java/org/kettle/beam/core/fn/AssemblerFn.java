@@ -5,8 +5,11 @@ import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.values.KV;
 import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleKey;
 import org.kettle.beam.core.KettleRow;
 import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.KettleKeyEncoder;
+import org.kettle.beam.util.BeamConst;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.slf4j.Logger;
@@ -14,22 +17,28 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 
-public class AssemblerFn extends DoFn<KV<KettleRow, KV<KettleRow, KettleRow>>, KettleRow> {
+public class AssemblerFn extends DoFn<KV<KettleKey, KV<KettleRow, KettleRow>>, KettleRow> {
+
+  // The value of the missing side of an outer join.
+  // A row without data can't be mistaken for a matched row which happens to have only null values.
+  //
+  public static final KettleRow UNMATCHED = new KettleRow();
 
   private String outputRowMetaJson;
-  private String leftKRowMetaJson;
-  private String leftVRowMetaJson;
-  private String rightVRowMetaJson;
+  private String keyRowMetaJson;
+  private int[] sourceSides; // per output field, 0 for the left side and 1 for the right side
+  private boolean[] sourceKeys; // per output field, is it a key field (or a value field)?
+  private int[] sourceIndexes; // per output field, the index in the key or value row
   private String counterName;
   private List<String> stepPluginClasses;
   private List<String>xpPluginClasses;
+  private String saltedSide; // left or right if the keys are salted, see SaltKeyFn
+  private boolean replicatedOuter; // Does the join keep the unmatched rows of the replicated (not salted) side?
 
   private static final Logger LOG = LoggerFactory.getLogger( AssemblerFn.class );
 
   private transient RowMetaInterface outputRowMeta;
-  private transient RowMetaInterface leftKRowMeta;
-  private transient RowMetaInterface leftVRowMeta;
-  private transient RowMetaInterface rightVRowMeta;
+  private transient RowMetaInterface keyRowMeta;
 
   private transient Counter initCounter;
   private transient Counter writtenCounter;
@@ -38,17 +47,25 @@ public class AssemblerFn extends DoFn<KV<KettleRow, KV<KettleRow, KettleRow>>, K
   public AssemblerFn() {
   }
 
-  public AssemblerFn( String outputRowMetaJson, String leftKRowMetaJson, String leftVRowMetaJson, String rightVRowMetaJson, String counterName,
+  public AssemblerFn( String outputRowMetaJson, String keyRowMetaJson, int[] sourceSides, boolean[] sourceKeys, int[] sourceIndexes, String counterName,
                       List<String> stepPluginClasses, List<String>xpPluginClasses) {
     this.outputRowMetaJson = outputRowMetaJson;
-    this.leftKRowMetaJson = leftKRowMetaJson;
-    this.leftVRowMetaJson = leftVRowMetaJson;
-    this.rightVRowMetaJson = rightVRowMetaJson;
+    this.keyRowMetaJson = keyRowMetaJson;
+    this.sourceSides = sourceSides;
+    this.sourceKeys = sourceKeys;
+    this.sourceIndexes = sourceIndexes;
     this.counterName = counterName;
     this.stepPluginClasses = stepPluginClasses;
     this.xpPluginClasses = xpPluginClasses;
   }
 
+  public AssemblerFn( String outputRowMetaJson, String keyRowMetaJson, int[] sourceSides, boolean[] sourceKeys, int[] sourceIndexes, String counterName,
+                      List<String> stepPluginClasses, List<String>xpPluginClasses, String saltedSide, boolean replicatedOuter) {
+    this( outputRowMetaJson, keyRowMetaJson, sourceSides, sourceKeys, sourceIndexes, counterName, stepPluginClasses, xpPluginClasses );
+    this.saltedSide = saltedSide;
+    this.replicatedOuter = replicatedOuter;
+  }
+
   @Setup
   public void setUp() {
     try {
@@ -59,9 +76,7 @@ public class AssemblerFn extends DoFn<KV<KettleRow, KV<KettleRow, KettleRow>>, K
       //
       BeamKettle.init( stepPluginClasses, xpPluginClasses );
       outputRowMeta = JsonRowMeta.fromJson( outputRowMetaJson );
-      leftKRowMeta = JsonRowMeta.fromJson( leftKRowMetaJson );
-      leftVRowMeta = JsonRowMeta.fromJson( leftVRowMetaJson );
-      rightVRowMeta = JsonRowMeta.fromJson( rightVRowMetaJson );
+      keyRowMeta = JsonRowMeta.fromJson( keyRowMetaJson );
 
       Metrics.counter( "init", counterName ).inc();
     } catch(Exception e) {
@@ -76,56 +91,38 @@ public class AssemblerFn extends DoFn<KV<KettleRow, KV<KettleRow, KettleRow>>, K
 
     try {
 
-      KV<KettleRow, KV<KettleRow, KettleRow>> element = processContext.element();
+      KV<KettleKey, KV<KettleRow, KettleRow>> element = processContext.element();
       KV<KettleRow, KettleRow> value = element.getValue();
-
-      KettleRow key = element.getKey();
       KettleRow leftValue = value.getKey();
       KettleRow rightValue = value.getValue();
 
-      Object[] outputRow = RowDataUtil.allocateRowData( outputRowMeta.size() );
-      int index = 0;
-
-      // Kettle style, first the left values
-      //
-      if (leftValue.allNull()) {
-        index+=leftVRowMeta.size();
-      } else {
-        for ( int i = 0; i < leftVRowMeta.size(); i++ ) {
-          outputRow[ index++ ] = leftValue.getRow()[ i ];
-        }
-      }
-
-      // Now the left key
-      //
-      if (leftValue.allNull()) {
-        index+=leftKRowMeta.size();
-      } else {
-        for ( int i = 0; i < leftKRowMeta.size(); i++ ) {
-          outputRow[ index++ ] = key.getRow()[ i ];
-        }
-      }
-
-      // Then the right key
-      //
-      if (rightValue.allNull()) {
-        // No right key given if the value is null
+      KettleKey key = element.getKey();
+      if ( saltedSide != null ) {
+        // The rows of a hot key on the other side were replicated for every salt.
+        // They only count as unmatched if they didn't meet a row of the salted side anywhere, which can't happen for a hot key.
         //
-        index+=leftKRowMeta.size();
-      } else {
-        for ( int i = 0; i < leftKRowMeta.size(); i++ ) {
-          outputRow[ index++ ] = key.getRow()[ i ];
+        int salt = KettleKeyEncoder.getSalt( key );
+        key = KettleKeyEncoder.unsaltKey( key );
+        if ( salt > 0 && replicatedOuter ) {
+          KettleRow saltedValue = BeamConst.STRING_JOIN_SIDE_LEFT.equals( saltedSide ) ? leftValue : rightValue;
+          if ( isUnmatched( saltedValue ) ) {
+            return;
+          }
         }
       }
 
-      // Finally the right values
+      Object[] keyRow = KettleKeyEncoder.decodeKey( keyRowMeta, key );
+
+      // Kettle style, all the left fields followed by all the right fields.
+      // The fields of the unmatched side of an outer join are null, keys included.
       //
-      if (rightValue.allNull()) {
-        index+=rightVRowMeta.size();
-      } else {
-        for ( int i = 0; i < rightVRowMeta.size(); i++ ) {
-          outputRow[ index++ ] = rightValue.getRow()[ i ];
+      Object[] outputRow = RowDataUtil.allocateRowData( outputRowMeta.size() );
+      for ( int i = 0; i < sourceSides.length; i++ ) {
+        KettleRow sideValue = sourceSides[ i ] == 0 ? leftValue : rightValue;
+        if ( isUnmatched( sideValue ) ) {
+          continue;
         }
+        outputRow[ i ] = sourceKeys[ i ] ? keyRow[ sourceIndexes[ i ] ] : sideValue.getRow()[ sourceIndexes[ i ] ];
       }
 
       // System.out.println("Assembled row : "+outputRowMeta.getString(outputRow));
@@ -139,5 +136,8 @@ public class AssemblerFn extends DoFn<KV<KettleRow, KV<KettleRow, KettleRow>>, K
       throw new RuntimeException( "Error assembling output KV<row, KV<row, row>>", e );
     }
   }
-}
 
+  private static boolean isUnmatched( KettleRow value ) {
+    return value.getRow() == null;
+  }
+}
@@ -3,7 +3,6 @@ package org.kettle.beam.core.fn;
 import com.google.api.services.bigquery.model.TableFieldSchema;
 import com.google.api.services.bigquery.model.TableSchema;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.avro.util.Utf8;
 import org.apache.beam.sdk.io.gcp.bigquery.SchemaAndRecord;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Metrics;
@@ -17,8 +16,15 @@ import org.pentaho.di.core.row.ValueMetaInterface;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * BigQuery Avro SchemaRecord to KettleRow
@@ -39,6 +45,7 @@ public class BQSchemaAndRecordToKettleFn implements SerializableFunction<SchemaA
   private static final Logger LOG = LoggerFactory.getLogger( BQSchemaAndRecordToKettleFn.class );
 
   private transient RowMetaInterface rowMeta;
+  private transient AvroType[] avroTypes;
   private transient SimpleDateFormat simpleDateTimeFormat;
   private transient SimpleDateFormat simpleDateFormat;
 
@@ -68,6 +75,7 @@ public class BQSchemaAndRecordToKettleFn implements SerializableFunction<SchemaA
         rowMeta = JsonRowMeta.fromJson( rowMetaJson );
 
         int[] valueTypes = new int[rowMeta.size()];
+        avroTypes = new AvroType[rowMeta.size()];
 
         List<TableFieldSchema> fields = tableSchema.getFields();
         for (int i=0;i<fields.size();i++) {
@@ -81,6 +89,7 @@ public class BQSchemaAndRecordToKettleFn implements SerializableFunction<SchemaA
             try {
               AvroType avroType = AvroType.valueOf( avroTypeString );
               valueTypes[index] = avroType.getKettleType();
+              avroTypes[index] = avroType;
             } catch(IllegalArgumentException e) {
               throw new RuntimeException( "Unable to recognize data type '"+avroTypeString+"'", e );
             }
@@ -126,14 +135,7 @@ public class BQSchemaAndRecordToKettleFn implements SerializableFunction<SchemaA
               row[index] = (Boolean)srcData;
               break;
             case ValueMetaInterface.TYPE_DATE:
-              // We get a Long back
-              //
-              String datetimeString = ((Utf8) srcData).toString();
-              if (datetimeString.length()==10) {
-                row[index] = simpleDateFormat.parse( datetimeString );
-              } else {
-                row[ index ] = simpleDateTimeFormat.parse( datetimeString );
-              }
+              row[index] = toDate( srcData, avroTypes[index] );
               break;
             default:
               throw new RuntimeException("Conversion from Avro JSON to Kettle is not yet supported for Kettle data type '"+valueMeta.getTypeDesc()+"'");
@@ -154,6 +156,37 @@ public class BQSchemaAndRecordToKettleFn implements SerializableFunction<SchemaA
     }
   }
 
+  /**
+   * An export gives dates as strings.  A direct read (BigQuery Storage API) uses the Avro logical types:
+   * DATE is an int with the number of days since the epoch, TIMESTAMP a long with the microseconds since the epoch
+   * and TIME a long with the microseconds since midnight.  DATETIME is a string in both cases.
+   * Like the strings, dates and times without a time zone are taken in the local time zone.
+   *
+   * @param srcData  the Avro value
+   * @param avroType the type of the BigQuery column
+   * @return the date
+   * @throws ParseException if a date string can't be parsed
+   */
+  private Date toDate( Object srcData, AvroType avroType ) throws ParseException {
+    if ( srcData instanceof Integer ) {
+      return Date.from( LocalDate.ofEpochDay( (Integer) srcData ).atStartOfDay( ZoneId.systemDefault() ).toInstant() );
+    }
+    if ( srcData instanceof Long ) {
+      long micros = (Long) srcData;
+      if ( avroType == AvroType.TIME ) {
+        LocalDateTime time = LocalDate.ofEpochDay( 0 ).atTime( LocalTime.ofNanoOfDay( TimeUnit.MICROSECONDS.toNanos( micros ) ) );
+        return Date.from( time.atZone( ZoneId.systemDefault() ).toInstant() );
+      }
+      return new Date( TimeUnit.MICROSECONDS.toMillis( micros ) );
+    }
+    String datetimeString = srcData.toString();
+    if ( datetimeString.length() == 10 ) {
+      return simpleDateFormat.parse( datetimeString );
+    } else {
+      return simpleDateTimeFormat.parse( datetimeString );
+    }
+  }
+
   //  From:
   //         https://cloud.google.com/dataprep/docs/html/BigQuery-Data-Type-Conversions_102563896
   //
@@ -0,0 +1,62 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.coders.CannotProvideCoderException;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.values.KV;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.BloomFilterCoder;
+import org.kettle.beam.core.util.BloomFilter;
+import org.kettle.beam.core.util.HyperLogLog;
+
+// Build a Bloom filter over the keys of one side of a join
+// Every worker builds a filter over its part of the keys, these are merged by OR-ing the bits.
+//
+public class BloomFilterCombineFn extends Combine.CombineFn<KV<KettleKey, KettleRow>, BloomFilter, BloomFilter> {
+
+  private long expectedKeys;
+  private double falsePositiveRate;
+
+  public BloomFilterCombineFn() {
+  }
+
+  public BloomFilterCombineFn( long expectedKeys, double falsePositiveRate ) {
+    this.expectedKeys = expectedKeys;
+    this.falsePositiveRate = falsePositiveRate;
+  }
+
+  @Override public BloomFilter createAccumulator() {
+    return new BloomFilter( expectedKeys, falsePositiveRate );
+  }
+
+  @Override public BloomFilter addInput( BloomFilter accumulator, KV<KettleKey, KettleRow> input ) {
+    accumulator.add( HyperLogLog.hashBytes( input.getKey().getBytes() ) );
+    return accumulator;
+  }
+
+  @Override public BloomFilter mergeAccumulators( Iterable<BloomFilter> accumulators ) {
+    BloomFilter merged = null;
+    for ( BloomFilter accumulator : accumulators ) {
+      if ( merged == null ) {
+        merged = accumulator;
+      } else {
+        merged.merge( accumulator );
+      }
+    }
+    return merged == null ? createAccumulator() : merged;
+  }
+
+  @Override public BloomFilter extractOutput( BloomFilter accumulator ) {
+    return accumulator;
+  }
+
+  @Override public Coder<BloomFilter> getAccumulatorCoder( CoderRegistry registry, Coder<KV<KettleKey, KettleRow>> inputCoder ) throws CannotProvideCoderException {
+    return BloomFilterCoder.of();
+  }
+
+  @Override public Coder<BloomFilter> getDefaultOutputCoder( CoderRegistry registry, Coder<KV<KettleKey, KettleRow>> inputCoder ) throws CannotProvideCoderException {
+    return BloomFilterCoder.of();
+  }
+}
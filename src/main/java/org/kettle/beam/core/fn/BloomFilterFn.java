@@ -0,0 +1,53 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.util.BloomFilter;
+import org.kettle.beam.core.util.HyperLogLog;
+
+import java.util.List;
+
+// Drop the rows of one side of a join with a key which isn't in the Bloom filter over the keys of the other side.
+// These rows can't match anything so they don't need to be shuffled.
+// A few rows without a match pass the filter (false positives), the join itself still takes care of those.
+// Outside of the global window there is no filter for a window without keys on the other side: nothing can match there.
+//
+public class BloomFilterFn extends DoFn<KV<KettleKey, KettleRow>, KV<KettleKey, KettleRow>> {
+
+  private String counterName;
+  private PCollectionView<List<BloomFilter>> bloomFilterView;
+
+  private transient Counter passedCounter;
+  private transient Counter filteredCounter;
+
+  public BloomFilterFn() {
+  }
+
+  public BloomFilterFn( String counterName, PCollectionView<List<BloomFilter>> bloomFilterView ) {
+    this.counterName = counterName;
+    this.bloomFilterView = bloomFilterView;
+  }
+
+  @Setup
+  public void setUp() {
+    passedCounter = Metrics.counter( "passed", counterName );
+    filteredCounter = Metrics.counter( "filtered", counterName );
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+    KV<KettleKey, KettleRow> element = processContext.element();
+    List<BloomFilter> bloomFilters = processContext.sideInput( bloomFilterView );
+    if ( !bloomFilters.isEmpty() && bloomFilters.get( 0 ).mightContain( HyperLogLog.hashBytes( element.getKey().getBytes() ) ) ) {
+      processContext.output( element );
+      passedCounter.inc();
+    } else {
+      filteredCounter.inc();
+    }
+  }
+}
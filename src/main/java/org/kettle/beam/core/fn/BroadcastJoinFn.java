@@ -0,0 +1,166 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.KettleKeyEncoder;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+
+// Join the rows of the main (large) side of a Merge Join with the rows of the small side in a multimap side input.
+// The output has the same layout as the shuffled join: all the left fields followed by all the right fields, see AssemblerFn
+// Only inner joins and outer joins which keep the unmatched rows of the main side can be done this way.
+//
+public class BroadcastJoinFn extends DoFn<KettleRow, KettleRow> {
+
+  private String mainRowMetaJson;
+  private String[] mainKeyFields;
+  private boolean mainLeft; // Is the main side the left side of the join?
+  private boolean outer; // Keep the main rows without a match?
+  private String outputRowMetaJson;
+  private int[] sourceSides; // per output field, 0 for the left side and 1 for the right side
+  private boolean[] sourceKeys; // per output field, is it a key field (or a value field)?
+  private int[] sourceIndexes; // per output field, the index in the key or value row
+  private String counterName;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+  private PCollectionView<Map<KettleKey, Iterable<KettleRow>>> sideView;
+
+  private static final Logger LOG = LoggerFactory.getLogger( BroadcastJoinFn.class );
+
+  private transient RowMetaInterface mainRowMeta;
+  private transient RowMetaInterface outputRowMeta;
+  private transient int[] keyIndexes;
+  private transient int[] valueIndexes;
+
+  private transient Counter readCounter;
+  private transient Counter writtenCounter;
+  private transient Counter matchedCounter;
+  private transient Counter errorCounter;
+
+  public BroadcastJoinFn() {
+  }
+
+  public BroadcastJoinFn( String mainRowMetaJson, String[] mainKeyFields, boolean mainLeft, boolean outer, String outputRowMetaJson,
+                          int[] sourceSides, boolean[] sourceKeys, int[] sourceIndexes, String counterName, List<String> stepPluginClasses, List<String> xpPluginClasses,
+                          PCollectionView<Map<KettleKey, Iterable<KettleRow>>> sideView ) {
+    this.mainRowMetaJson = mainRowMetaJson;
+    this.mainKeyFields = mainKeyFields;
+    this.mainLeft = mainLeft;
+    this.outer = outer;
+    this.outputRowMetaJson = outputRowMetaJson;
+    this.sourceSides = sourceSides;
+    this.sourceKeys = sourceKeys;
+    this.sourceIndexes = sourceIndexes;
+    this.counterName = counterName;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+    this.sideView = sideView;
+  }
+
+  @Setup
+  public void setUp() {
+    try {
+      readCounter = Metrics.counter( "read", counterName );
+      writtenCounter = Metrics.counter( "written", counterName );
+      matchedCounter = Metrics.counter( "matched", counterName );
+      errorCounter = Metrics.counter( "error", counterName );
+
+      // Initialize Kettle Beam
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+      mainRowMeta = JsonRowMeta.fromJson( mainRowMetaJson );
+      outputRowMeta = JsonRowMeta.fromJson( outputRowMetaJson );
+
+      keyIndexes = new int[ mainKeyFields.length ];
+      for ( int i = 0; i < mainKeyFields.length; i++ ) {
+        keyIndexes[ i ] = mainRowMeta.indexOfValue( mainKeyFields[ i ] );
+        if ( keyIndexes[ i ] < 0 ) {
+          throw new KettleException( "Unable to find key field '" + mainKeyFields[ i ] + "' in input " + mainRowMeta.toString() );
+        }
+      }
+
+      // The values are all the fields which are not keys, in the order of the input row
+      //
+      valueIndexes = new int[ mainRowMeta.size() - mainKeyFields.length ];
+      int index = 0;
+      for ( int i = 0; i < mainRowMeta.size(); i++ ) {
+        if ( Const.indexOfString( mainRowMeta.getValueMeta( i ).getName(), mainKeyFields ) < 0 ) {
+          valueIndexes[ index++ ] = i;
+        }
+      }
+
+      Metrics.counter( "init", counterName ).inc();
+    } catch ( Exception e ) {
+      errorCounter.inc();
+      LOG.error( "Error initializing broadcast join", e );
+      throw new RuntimeException( "Error initializing broadcast join", e );
+    }
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+
+    try {
+      Object[] mainRow = processContext.element().getRow();
+      readCounter.inc();
+
+      KettleKey key = KettleKeyEncoder.encodeKey( mainRowMeta, mainRow, keyIndexes );
+      Map<KettleKey, Iterable<KettleRow>> sideMap = processContext.sideInput( sideView );
+      Iterable<KettleRow> sideRows = sideMap.get( key );
+
+      boolean matched = false;
+      if ( sideRows != null ) {
+        for ( KettleRow sideRow : sideRows ) {
+          processContext.output( new KettleRow( assembleRow( mainRow, sideRow.getRow() ) ) );
+          writtenCounter.inc();
+          matched = true;
+        }
+      }
+
+      if ( matched ) {
+        matchedCounter.inc();
+      } else if ( outer ) {
+        processContext.output( new KettleRow( assembleRow( mainRow, null ) ) );
+        writtenCounter.inc();
+      }
+
+    } catch ( Exception e ) {
+      errorCounter.inc();
+      LOG.error( "Error joining rows", e );
+      throw new RuntimeException( "Unable to join rows", e );
+    }
+  }
+
+  private Object[] assembleRow( Object[] mainRow, Object[] sideRow ) {
+    Object[] outputRow = RowDataUtil.allocateRowData( outputRowMeta.size() );
+    int mainSide = mainLeft ? 0 : 1;
+
+    // The keys are the same on both sides, the side fields are null without a match
+    //
+    for ( int i = 0; i < sourceSides.length; i++ ) {
+      if ( sourceKeys[ i ] ) {
+        if ( sourceSides[ i ] == mainSide || sideRow != null ) {
+          outputRow[ i ] = mainRow[ keyIndexes[ sourceIndexes[ i ] ] ];
+        }
+      } else if ( sourceSides[ i ] == mainSide ) {
+        outputRow[ i ] = mainRow[ valueIndexes[ sourceIndexes[ i ] ] ];
+      } else if ( sideRow != null ) {
+        outputRow[ i ] = sideRow[ sourceIndexes[ i ] ];
+      }
+    }
+    return outputRow;
+  }
+}
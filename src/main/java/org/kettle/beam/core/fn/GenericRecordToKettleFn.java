@@ -0,0 +1,86 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.util.AvroRowMeta;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+public class GenericRecordToKettleFn extends DoFn<GenericRecord, KettleRow> {
+
+  private String stepname;
+  private String rowMetaJson;
+  private String schemaJson;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  private transient Counter inputCounter;
+  private transient Counter writtenCounter;
+
+  // Log and count parse errors.
+  private static final Logger LOG = LoggerFactory.getLogger( GenericRecordToKettleFn.class );
+
+  private transient RowMetaInterface rowMeta;
+  private transient int[] fieldPositions;
+
+  /**
+   * @param rowMetaJson The layout of the rows to produce
+   * @param schemaJson  The Avro schema the records are read with.  The fields of the rows which are not in there stay null.
+   */
+  public GenericRecordToKettleFn( String stepname, String rowMetaJson, String schemaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    this.stepname = stepname;
+    this.rowMetaJson = rowMetaJson;
+    this.schemaJson = schemaJson;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  @Setup
+  public void setUp() {
+    try {
+      inputCounter = Metrics.counter( "input", stepname );
+      writtenCounter = Metrics.counter( "written", stepname );
+
+      // Initialize Kettle Beam
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+      rowMeta = JsonRowMeta.fromJson( rowMetaJson );
+
+      // All records have the reader schema so the fields are only looked up once
+      //
+      fieldPositions = AvroRowMeta.getFieldPositions( rowMeta, new Schema.Parser().parse( schemaJson ) );
+
+      Metrics.counter( "init", stepname ).inc();
+    } catch ( Exception e ) {
+      Metrics.counter( "error", stepname ).inc();
+      LOG.error( "Error in setup of converting Avro records into Kettle rows : " + e.getMessage() );
+      throw new RuntimeException( "Error in setup of converting Avro records into Kettle rows", e );
+    }
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+
+    try {
+      GenericRecord record = processContext.element();
+      inputCounter.inc();
+
+      processContext.output( new KettleRow( AvroRowMeta.toRow( rowMeta, record, fieldPositions ) ) );
+      writtenCounter.inc();
+
+    } catch ( Exception e ) {
+      Metrics.counter( "error", stepname ).inc();
+      LOG.error( "Error converting Avro record into a Kettle row, " + e.getMessage() );
+      throw new RuntimeException( "Error converting Avro record into a Kettle row", e );
+    }
+  }
+}
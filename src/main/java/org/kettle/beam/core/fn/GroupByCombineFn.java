@@ -0,0 +1,719 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.coders.CannotProvideCoderException;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.util.VarInt;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
+import org.kettle.beam.core.shared.AggregationType;
+import org.kettle.beam.core.util.HyperLogLog;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.KettleKeyEncoder;
+import org.kettle.beam.core.util.QuantileSketch;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aggregates the subject rows of a group.
+ * The accumulator keeps the intermediate results and a count per aggregation so runners can pre-aggregate before the shuffle
+ * and merge the partial results afterwards.
+ *
+ * The way a column is aggregated is decided once per aggregation and data type, see ColumnAggregator.
+ * Integer and Number sums and counts are kept in primitive arrays so adding a row doesn't allocate anything.
+ * BigNumber sums are exact.
+ * COUNT_DISTINCT (HyperLogLog), MEDIAN and PERCENTILE (quantile sketch) are approximations which keep a sketch per group
+ * instead of all the values.
+ *
+ * The output row contains the aggregation results, see GroupByTransform.getResultRowMeta() for the layout.
+ */
+public class GroupByCombineFn extends Combine.CombineFn<KettleRow, GroupByCombineFn.Accumulator, KettleRow> {
+
+  private String subjectRowMetaJson; // The data types of the subject fields
+  private String resultRowMetaJson; // The data types of the results
+  private String[] aggregations; // The aggregation types
+  private String[] aggregationParameters; // The percentile for PERCENTILE
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  private transient ColumnAggregator[] aggregators;
+
+  public GroupByCombineFn() {
+  }
+
+  public GroupByCombineFn( String subjectRowMetaJson, String resultRowMetaJson, String[] aggregations, String[] aggregationParameters,
+                           List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    this.subjectRowMetaJson = subjectRowMetaJson;
+    this.resultRowMetaJson = resultRowMetaJson;
+    this.aggregations = aggregations;
+    this.aggregationParameters = aggregationParameters;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  /**
+   * The intermediate results per aggregation.
+   * Which of the arrays is used for a column depends on its ColumnAggregator.
+   */
+  public static class Accumulator {
+    private long[] longs; // Integer sums and counts
+    private double[] doubles; // Number sums
+    private Object[] values; // BigNumber sums, minimum, maximum, first and last values, sketches
+    private long[] counts; // The number of values seen
+
+    public Accumulator( int size ) {
+      this.longs = new long[ size ];
+      this.doubles = new double[ size ];
+      this.values = new Object[ size ];
+      this.counts = new long[ size ];
+    }
+
+    public Accumulator( long[] longs, double[] doubles, Object[] values, long[] counts ) {
+      this.longs = longs;
+      this.doubles = doubles;
+      this.values = values;
+      this.counts = counts;
+    }
+  }
+
+  private void initialize() {
+    if ( aggregators != null ) {
+      return;
+    }
+    try {
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+      RowMetaInterface subjectRowMeta = JsonRowMeta.fromJson( subjectRowMetaJson );
+      ColumnAggregator[] columnAggregators = new ColumnAggregator[ aggregations.length ];
+      for ( int i = 0; i < columnAggregators.length; i++ ) {
+        String parameter = aggregationParameters != null && i < aggregationParameters.length ? aggregationParameters[ i ] : null;
+        columnAggregators[ i ] = createAggregator( AggregationType.getTypeFromName( aggregations[ i ] ), subjectRowMeta.getValueMeta( i ), parameter );
+      }
+      aggregators = columnAggregators;
+    } catch ( Exception e ) {
+      throw new RuntimeException( "Unable to initialize group by aggregation", e );
+    }
+  }
+
+  private static ColumnAggregator createAggregator( AggregationType aggregationType, ValueMetaInterface subjectValueMeta, String parameter ) throws KettleException {
+    switch ( aggregationType ) {
+      case AVERAGE:
+      case SUM:
+        boolean average = aggregationType == AggregationType.AVERAGE;
+        switch ( subjectValueMeta.getType() ) {
+          case ValueMetaInterface.TYPE_INTEGER:
+            return new IntegerSumAggregator( average );
+          case ValueMetaInterface.TYPE_NUMBER:
+            return new NumberSumAggregator( average );
+          case ValueMetaInterface.TYPE_BIGNUMBER:
+            return new BigNumberSumAggregator( average );
+          default:
+            throw new KettleException( aggregationType.name() + " aggregation not yet implemented for field and data type : " + subjectValueMeta.toString() );
+        }
+      case COUNT_ALL:
+        return new CountAggregator();
+      case MIN:
+        return new CompareAggregator( subjectValueMeta, -1 );
+      case MAX:
+        return new CompareAggregator( subjectValueMeta, 1 );
+      case FIRST_INCL_NULL:
+        return new FirstAggregator( true );
+      case FIRST:
+        return new FirstAggregator( false );
+      case LAST_INCL_NULL:
+        return new LastAggregator( true );
+      case LAST:
+        return new LastAggregator( false );
+      case COUNT_DISTINCT:
+        return new DistinctCountAggregator( subjectValueMeta );
+      case MEDIAN:
+        return new QuantileAggregator( subjectValueMeta, 0.5 );
+      case PERCENTILE:
+        double percentile = Const.toDouble( parameter, -1.0 );
+        if ( percentile < 0.0 || percentile > 100.0 ) {
+          throw new KettleException( "Please specify a percentile between 0 and 100 for field " + subjectValueMeta.getName() + ", not '" + parameter + "'" );
+        }
+        return new QuantileAggregator( subjectValueMeta, percentile / 100.0 );
+      default:
+        throw new KettleException( "Sorry, aggregation type yet: " + aggregationType.name() + " isn't implemented yet" );
+    }
+  }
+
+  @Override public Accumulator createAccumulator() {
+    initialize();
+    return new Accumulator( aggregators.length );
+  }
+
+  @Override public Accumulator addInput( Accumulator accumulator, KettleRow input ) {
+    initialize();
+    Object[] subjectRow = input.getRow();
+    for ( int i = 0; i < aggregators.length; i++ ) {
+      aggregators[ i ].add( accumulator, i, subjectRow[ i ] );
+    }
+    return accumulator;
+  }
+
+  @Override public Accumulator mergeAccumulators( Iterable<Accumulator> accumulators ) {
+    initialize();
+    Accumulator merged = createAccumulator();
+    for ( Accumulator accumulator : accumulators ) {
+      for ( int i = 0; i < aggregators.length; i++ ) {
+        aggregators[ i ].merge( merged, i, accumulator );
+      }
+    }
+    return merged;
+  }
+
+  @Override public KettleRow extractOutput( Accumulator accumulator ) {
+    initialize();
+    Object[] resultRow = RowDataUtil.allocateRowData( aggregators.length );
+    for ( int i = 0; i < aggregators.length; i++ ) {
+      resultRow[ i ] = aggregators[ i ].extract( accumulator, i );
+    }
+    return new KettleRow( resultRow );
+  }
+
+  @Override public Coder<Accumulator> getAccumulatorCoder( CoderRegistry registry, Coder<KettleRow> inputCoder ) throws CannotProvideCoderException {
+    return new AccumulatorCoder( resultRowMetaJson );
+  }
+
+  @Override public Coder<KettleRow> getDefaultOutputCoder( CoderRegistry registry, Coder<KettleRow> inputCoder ) throws CannotProvideCoderException {
+    return new KettleRowMetaCoder( resultRowMetaJson );
+  }
+
+  /**
+   * Adds values and partial results of one aggregation (column) to an accumulator
+   */
+  private interface ColumnAggregator {
+    void add( Accumulator accumulator, int i, Object value );
+
+    void merge( Accumulator accumulator, int i, Accumulator other );
+
+    Object extract( Accumulator accumulator, int i );
+  }
+
+  private static class IntegerSumAggregator implements ColumnAggregator {
+    private final boolean average;
+
+    public IntegerSumAggregator( boolean average ) {
+      this.average = average;
+    }
+
+    @Override public void add( Accumulator accumulator, int i, Object value ) {
+      if ( value != null ) {
+        accumulator.longs[ i ] += (Long) value;
+        accumulator.counts[ i ]++;
+      }
+    }
+
+    @Override public void merge( Accumulator accumulator, int i, Accumulator other ) {
+      accumulator.longs[ i ] += other.longs[ i ];
+      accumulator.counts[ i ] += other.counts[ i ];
+    }
+
+    @Override public Object extract( Accumulator accumulator, int i ) {
+      long count = accumulator.counts[ i ];
+      if ( count == 0 ) {
+        return null;
+      }
+      return average ? accumulator.longs[ i ] / count : accumulator.longs[ i ];
+    }
+  }
+
+  private static class NumberSumAggregator implements ColumnAggregator {
+    private final boolean average;
+
+    public NumberSumAggregator( boolean average ) {
+      this.average = average;
+    }
+
+    @Override public void add( Accumulator accumulator, int i, Object value ) {
+      if ( value != null ) {
+        accumulator.doubles[ i ] += (Double) value;
+        accumulator.counts[ i ]++;
+      }
+    }
+
+    @Override public void merge( Accumulator accumulator, int i, Accumulator other ) {
+      accumulator.doubles[ i ] += other.doubles[ i ];
+      accumulator.counts[ i ] += other.counts[ i ];
+    }
+
+    @Override public Object extract( Accumulator accumulator, int i ) {
+      long count = accumulator.counts[ i ];
+      if ( count == 0 ) {
+        return null;
+      }
+      return average ? accumulator.doubles[ i ] / count : accumulator.doubles[ i ];
+    }
+  }
+
+  private static class BigNumberSumAggregator implements ColumnAggregator {
+    private final boolean average;
+
+    public BigNumberSumAggregator( boolean average ) {
+      this.average = average;
+    }
+
+    @Override public void add( Accumulator accumulator, int i, Object value ) {
+      if ( value != null ) {
+        BigDecimal sum = (BigDecimal) accumulator.values[ i ];
+        accumulator.values[ i ] = sum == null ? value : sum.add( (BigDecimal) value );
+        accumulator.counts[ i ]++;
+      }
+    }
+
+    @Override public void merge( Accumulator accumulator, int i, Accumulator other ) {
+      if ( other.counts[ i ] > 0 ) {
+        BigDecimal sum = (BigDecimal) accumulator.values[ i ];
+        BigDecimal otherSum = (BigDecimal) other.values[ i ];
+        accumulator.values[ i ] = sum == null ? otherSum : sum.add( otherSum );
+        accumulator.counts[ i ] += other.counts[ i ];
+      }
+    }
+
+    @Override public Object extract( Accumulator accumulator, int i ) {
+      long count = accumulator.counts[ i ];
+      if ( count == 0 ) {
+        return null;
+      }
+      BigDecimal sum = (BigDecimal) accumulator.values[ i ];
+      // The sum is exact, the average can have an infinite number of decimals so we round it
+      //
+      return average ? sum.divide( BigDecimal.valueOf( count ), MathContext.DECIMAL128 ) : sum;
+    }
+  }
+
+  private static class CountAggregator implements ColumnAggregator {
+    @Override public void add( Accumulator accumulator, int i, Object value ) {
+      if ( value != null ) {
+        accumulator.longs[ i ]++;
+      }
+    }
+
+    @Override public void merge( Accumulator accumulator, int i, Accumulator other ) {
+      accumulator.longs[ i ] += other.longs[ i ];
+    }
+
+    @Override public Object extract( Accumulator accumulator, int i ) {
+      long count = accumulator.longs[ i ];
+      return count == 0 ? null : count;
+    }
+  }
+
+  // Minimum (sign -1) or maximum (sign 1)
+  //
+  private static class CompareAggregator implements ColumnAggregator {
+    private final ValueMetaInterface valueMeta;
+    private final int sign;
+
+    public CompareAggregator( ValueMetaInterface valueMeta, int sign ) {
+      this.valueMeta = valueMeta;
+      this.sign = sign;
+    }
+
+    @Override public void add( Accumulator accumulator, int i, Object value ) {
+      try {
+        Object result = accumulator.values[ i ];
+        if ( valueMeta.isNull( result ) || ( !valueMeta.isNull( value ) && sign * valueMeta.compare( value, result ) > 0 ) ) {
+          accumulator.values[ i ] = value;
+        }
+      } catch ( KettleException e ) {
+        throw new RuntimeException( "Error comparing values of " + valueMeta.toString(), e );
+      }
+    }
+
+    @Override public void merge( Accumulator accumulator, int i, Accumulator other ) {
+      add( accumulator, i, other.values[ i ] );
+    }
+
+    @Override public Object extract( Accumulator accumulator, int i ) {
+      return accumulator.values[ i ];
+    }
+  }
+
+  // The count tells us if we've seen a value (or partial result) before
+  //
+  private static class FirstAggregator implements ColumnAggregator {
+    private final boolean includeNulls;
+
+    public FirstAggregator( boolean includeNulls ) {
+      this.includeNulls = includeNulls;
+    }
+
+    @Override public void add( Accumulator accumulator, int i, Object value ) {
+      if ( accumulator.counts[ i ] == 0 && ( includeNulls || value != null ) ) {
+        accumulator.values[ i ] = value;
+        accumulator.counts[ i ] = 1L;
+      }
+    }
+
+    @Override public void merge( Accumulator accumulator, int i, Accumulator other ) {
+      if ( accumulator.counts[ i ] == 0 && other.counts[ i ] > 0 ) {
+        accumulator.values[ i ] = other.values[ i ];
+        accumulator.counts[ i ] = 1L;
+      }
+    }
+
+    @Override public Object extract( Accumulator accumulator, int i ) {
+      return accumulator.values[ i ];
+    }
+  }
+
+  private static class LastAggregator implements ColumnAggregator {
+    private final boolean includeNulls;
+
+    public LastAggregator( boolean includeNulls ) {
+      this.includeNulls = includeNulls;
+    }
+
+    @Override public void add( Accumulator accumulator, int i, Object value ) {
+      if ( includeNulls || value != null ) {
+        accumulator.values[ i ] = value;
+        accumulator.counts[ i ] = 1L;
+      }
+    }
+
+    @Override public void merge( Accumulator accumulator, int i, Accumulator other ) {
+      if ( other.counts[ i ] > 0 ) {
+        accumulator.values[ i ] = other.values[ i ];
+        accumulator.counts[ i ] = 1L;
+      }
+    }
+
+    @Override public Object extract( Accumulator accumulator, int i ) {
+      return accumulator.values[ i ];
+    }
+  }
+
+  // Approximate number of distinct non-null values
+  //
+  private static class DistinctCountAggregator implements ColumnAggregator {
+    private final ValueMetaInterface valueMeta;
+    private final RowMetaInterface keyRowMeta;
+
+    public DistinctCountAggregator( ValueMetaInterface valueMeta ) {
+      this.valueMeta = valueMeta;
+      this.keyRowMeta = new RowMeta();
+      this.keyRowMeta.addValueMeta( valueMeta );
+    }
+
+    @Override public void add( Accumulator accumulator, int i, Object value ) {
+      if ( value == null ) {
+        return;
+      }
+      HyperLogLog hyperLogLog = (HyperLogLog) accumulator.values[ i ];
+      if ( hyperLogLog == null ) {
+        hyperLogLog = new HyperLogLog();
+        accumulator.values[ i ] = hyperLogLog;
+      }
+      hyperLogLog.add( hash( value ) );
+    }
+
+    private long hash( Object value ) {
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_INTEGER:
+          return HyperLogLog.hashLong( (Long) value );
+        case ValueMetaInterface.TYPE_STRING:
+          return HyperLogLog.hashString( (String) value );
+        default:
+          // Equal values have equal key bytes
+          //
+          try {
+            return HyperLogLog.hashBytes( KettleKeyEncoder.encodeKey( keyRowMeta, new Object[] { value } ).getBytes() );
+          } catch ( KettleException e ) {
+            throw new RuntimeException( "Unable to count distinct values of " + valueMeta.toString(), e );
+          }
+      }
+    }
+
+    @Override public void merge( Accumulator accumulator, int i, Accumulator other ) {
+      HyperLogLog otherHyperLogLog = (HyperLogLog) other.values[ i ];
+      if ( otherHyperLogLog == null ) {
+        return;
+      }
+      HyperLogLog hyperLogLog = (HyperLogLog) accumulator.values[ i ];
+      if ( hyperLogLog == null ) {
+        hyperLogLog = new HyperLogLog();
+        accumulator.values[ i ] = hyperLogLog;
+      }
+      hyperLogLog.merge( otherHyperLogLog );
+    }
+
+    @Override public Object extract( Accumulator accumulator, int i ) {
+      HyperLogLog hyperLogLog = (HyperLogLog) accumulator.values[ i ];
+      return hyperLogLog == null ? null : hyperLogLog.estimate();
+    }
+  }
+
+  // Approximate median or percentile of the non-null numeric values
+  //
+  private static class QuantileAggregator implements ColumnAggregator {
+    private final ValueMetaInterface valueMeta;
+    private final double quantile;
+
+    public QuantileAggregator( ValueMetaInterface valueMeta, double quantile ) throws KettleException {
+      if ( !valueMeta.isNumeric() ) {
+        throw new KettleException( "Median and percentiles can only be calculated on numeric fields, not on " + valueMeta.toString() );
+      }
+      this.valueMeta = valueMeta;
+      this.quantile = quantile;
+    }
+
+    @Override public void add( Accumulator accumulator, int i, Object value ) {
+      if ( value == null ) {
+        return;
+      }
+      QuantileSketch sketch = (QuantileSketch) accumulator.values[ i ];
+      if ( sketch == null ) {
+        sketch = new QuantileSketch();
+        accumulator.values[ i ] = sketch;
+      }
+      try {
+        sketch.add( valueMeta.getNumber( value ) );
+      } catch ( KettleException e ) {
+        throw new RuntimeException( "Unable to get number from " + valueMeta.toString(), e );
+      }
+    }
+
+    @Override public void merge( Accumulator accumulator, int i, Accumulator other ) {
+      QuantileSketch otherSketch = (QuantileSketch) other.values[ i ];
+      if ( otherSketch == null ) {
+        return;
+      }
+      QuantileSketch sketch = (QuantileSketch) accumulator.values[ i ];
+      if ( sketch == null ) {
+        sketch = new QuantileSketch();
+        accumulator.values[ i ] = sketch;
+      }
+      sketch.merge( otherSketch );
+    }
+
+    @Override public Object extract( Accumulator accumulator, int i ) {
+      QuantileSketch sketch = (QuantileSketch) accumulator.values[ i ];
+      return sketch == null ? null : sketch.getQuantile( quantile );
+    }
+  }
+
+  /**
+   * The first combine of the rows of hot keys: the accumulator is the output so it can be merged with the other salts.
+   */
+  public static class PartialCombineFn extends Combine.CombineFn<KettleRow, Accumulator, Accumulator> {
+
+    private GroupByCombineFn combineFn;
+
+    public PartialCombineFn() {
+    }
+
+    public PartialCombineFn( GroupByCombineFn combineFn ) {
+      this.combineFn = combineFn;
+    }
+
+    @Override public Accumulator createAccumulator() {
+      return combineFn.createAccumulator();
+    }
+
+    @Override public Accumulator addInput( Accumulator accumulator, KettleRow input ) {
+      return combineFn.addInput( accumulator, input );
+    }
+
+    @Override public Accumulator mergeAccumulators( Iterable<Accumulator> accumulators ) {
+      return combineFn.mergeAccumulators( accumulators );
+    }
+
+    @Override public Accumulator extractOutput( Accumulator accumulator ) {
+      return accumulator;
+    }
+
+    @Override public Coder<Accumulator> getAccumulatorCoder( CoderRegistry registry, Coder<KettleRow> inputCoder ) throws CannotProvideCoderException {
+      return new AccumulatorCoder( combineFn.resultRowMetaJson );
+    }
+
+    @Override public Coder<Accumulator> getDefaultOutputCoder( CoderRegistry registry, Coder<KettleRow> inputCoder ) throws CannotProvideCoderException {
+      return new AccumulatorCoder( combineFn.resultRowMetaJson );
+    }
+  }
+
+  /**
+   * The final combine merging the accumulators of the partially combined hot keys and the other keys into the results.
+   */
+  public static class FinalCombineFn extends Combine.CombineFn<Accumulator, Accumulator, KettleRow> {
+
+    private GroupByCombineFn combineFn;
+
+    public FinalCombineFn() {
+    }
+
+    public FinalCombineFn( GroupByCombineFn combineFn ) {
+      this.combineFn = combineFn;
+    }
+
+    @Override public Accumulator createAccumulator() {
+      return combineFn.createAccumulator();
+    }
+
+    @Override public Accumulator addInput( Accumulator accumulator, Accumulator input ) {
+      return combineFn.mergeAccumulators( Arrays.asList( accumulator, input ) );
+    }
+
+    @Override public Accumulator mergeAccumulators( Iterable<Accumulator> accumulators ) {
+      return combineFn.mergeAccumulators( accumulators );
+    }
+
+    @Override public KettleRow extractOutput( Accumulator accumulator ) {
+      return combineFn.extractOutput( accumulator );
+    }
+
+    @Override public Coder<Accumulator> getAccumulatorCoder( CoderRegistry registry, Coder<Accumulator> inputCoder ) throws CannotProvideCoderException {
+      return new AccumulatorCoder( combineFn.resultRowMetaJson );
+    }
+
+    @Override public Coder<KettleRow> getDefaultOutputCoder( CoderRegistry registry, Coder<Accumulator> inputCoder ) throws CannotProvideCoderException {
+      return new KettleRowMetaCoder( combineFn.resultRowMetaJson );
+    }
+  }
+
+  /**
+   * Writes the counts, the primitive intermediate results and the other intermediate results.
+   * The values have the same data types as the final results (BigNumber sums, minimum, maximum, ...)
+   * or are null when a primitive array is used for the column.
+   * Sketches are written separately after the values.
+   */
+  public static class AccumulatorCoder extends CustomCoder<Accumulator> {
+
+    private static final byte SKETCH_NONE = 0;
+    private static final byte SKETCH_HYPERLOGLOG = 1;
+    private static final byte SKETCH_QUANTILE = 2;
+
+    private KettleRowMetaCoder valuesCoder;
+
+    public AccumulatorCoder( String resultRowMetaJson ) {
+      this.valuesCoder = new KettleRowMetaCoder( resultRowMetaJson );
+    }
+
+    @Override public void encode( Accumulator value, OutputStream outStream ) throws CoderException, IOException {
+      int size = value.counts.length;
+      VarInt.encode( size, outStream );
+      for ( int i = 0; i < size; i++ ) {
+        VarInt.encode( value.counts[ i ], outStream );
+        VarInt.encode( value.longs[ i ], outStream );
+      }
+
+      // Most columns don't use the doubles, only write the ones which are set
+      //
+      DataOutputStream dataOutputStream = new DataOutputStream( outStream );
+      for ( int i = 0; i < size; i++ ) {
+        if ( value.doubles[ i ] == 0.0 ) {
+          dataOutputStream.writeBoolean( false );
+        } else {
+          dataOutputStream.writeBoolean( true );
+          dataOutputStream.writeDouble( value.doubles[ i ] );
+        }
+      }
+      dataOutputStream.flush();
+
+      Object[] values = value.values.clone();
+      for ( int i = 0; i < size; i++ ) {
+        if ( values[ i ] instanceof HyperLogLog || values[ i ] instanceof QuantileSketch ) {
+          values[ i ] = null;
+        }
+      }
+      valuesCoder.encode( new KettleRow( values ), outStream );
+
+      for ( int i = 0; i < size; i++ ) {
+        if ( value.values[ i ] instanceof HyperLogLog ) {
+          dataOutputStream.writeByte( SKETCH_HYPERLOGLOG );
+          ( (HyperLogLog) value.values[ i ] ).write( dataOutputStream );
+        } else if ( value.values[ i ] instanceof QuantileSketch ) {
+          dataOutputStream.writeByte( SKETCH_QUANTILE );
+          ( (QuantileSketch) value.values[ i ] ).write( dataOutputStream );
+        } else {
+          dataOutputStream.writeByte( SKETCH_NONE );
+        }
+      }
+      dataOutputStream.flush();
+    }
+
+    @Override public Accumulator decode( InputStream inStream ) throws CoderException, IOException {
+      int size = VarInt.decodeInt( inStream );
+      long[] counts = new long[ size ];
+      long[] longs = new long[ size ];
+      for ( int i = 0; i < size; i++ ) {
+        counts[ i ] = VarInt.decodeLong( inStream );
+        longs[ i ] = VarInt.decodeLong( inStream );
+      }
+
+      double[] doubles = new double[ size ];
+      DataInputStream dataInputStream = new DataInputStream( inStream );
+      for ( int i = 0; i < size; i++ ) {
+        if ( dataInputStream.readBoolean() ) {
+          doubles[ i ] = dataInputStream.readDouble();
+        }
+      }
+
+      Object[] values = valuesCoder.decode( inStream ).getRow();
+      for ( int i = 0; i < size; i++ ) {
+        switch ( dataInputStream.readByte() ) {
+          case SKETCH_HYPERLOGLOG:
+            values[ i ] = HyperLogLog.read( dataInputStream );
+            break;
+          case SKETCH_QUANTILE:
+            values[ i ] = QuantileSketch.read( dataInputStream );
+            break;
+          default:
+            break;
+        }
+      }
+      return new Accumulator( longs, doubles, values, counts );
+    }
+  }
+
+  /**
+   * Gets aggregations
+   *
+   * @return value of aggregations
+   */
+  public String[] getAggregations() {
+    return aggregations;
+  }
+
+  /**
+   * @param aggregations The aggregations to set
+   */
+  public void setAggregations( String[] aggregations ) {
+    this.aggregations = aggregations;
+  }
+
+  /**
+   * Gets aggregationParameters
+   *
+   * @return value of aggregationParameters
+   */
+  public String[] getAggregationParameters() {
+    return aggregationParameters;
+  }
+
+  /**
+   * @param aggregationParameters The aggregationParameters to set
+   */
+  public void setAggregationParameters( String[] aggregationParameters ) {
+    this.aggregationParameters = aggregationParameters;
+  }
+}
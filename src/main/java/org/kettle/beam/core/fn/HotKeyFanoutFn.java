@@ -0,0 +1,74 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.util.KettleKeyEncoder;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Spread the rows of the hot keys of a Group By step before the combine.
+// The rows of hot keys get a random salt between 1 and fanout and go to the hot output to be partially combined first.
+// The rows of all other keys are turned into an accumulator right away and go straight to the final combine.
+//
+public class HotKeyFanoutFn extends DoFn<KV<KettleKey, KettleRow>, KV<KettleKey, GroupByCombineFn.Accumulator>> {
+
+  private String counterName;
+  private int fanout;
+  private GroupByCombineFn combineFn;
+  private PCollectionView<List<KettleKey>> hotKeysView;
+  private TupleTag<KV<KettleKey, KettleRow>> hotTupleTag;
+
+  private transient Counter fanoutCounter;
+
+  private transient List<KettleKey> hotKeysList;
+  private transient Set<KettleKey> hotKeys;
+
+  public HotKeyFanoutFn() {
+  }
+
+  public HotKeyFanoutFn( String counterName, int fanout, GroupByCombineFn combineFn, PCollectionView<List<KettleKey>> hotKeysView,
+                         TupleTag<KV<KettleKey, KettleRow>> hotTupleTag ) {
+    this.counterName = counterName;
+    this.fanout = fanout;
+    this.combineFn = combineFn;
+    this.hotKeysView = hotKeysView;
+    this.hotTupleTag = hotTupleTag;
+  }
+
+  @Setup
+  public void setUp() {
+    fanoutCounter = Metrics.counter( "fanout", counterName );
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+    KV<KettleKey, KettleRow> element = processContext.element();
+
+    // Only build a new set when we get a different list (window) of hot keys
+    //
+    List<KettleKey> list = processContext.sideInput( hotKeysView );
+    if ( list != hotKeysList ) {
+      hotKeys = new HashSet<>( list );
+      hotKeysList = list;
+    }
+
+    KettleKey key = element.getKey();
+    if ( hotKeys.contains( key ) ) {
+      int salt = 1 + ThreadLocalRandom.current().nextInt( fanout );
+      processContext.output( hotTupleTag, KV.of( KettleKeyEncoder.saltKey( key, salt ), element.getValue() ) );
+      fanoutCounter.inc();
+    } else {
+      GroupByCombineFn.Accumulator accumulator = combineFn.addInput( combineFn.createAccumulator(), element.getValue() );
+      processContext.output( KV.of( key, accumulator ) );
+    }
+  }
+}
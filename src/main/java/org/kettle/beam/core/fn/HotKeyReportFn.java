@@ -0,0 +1,81 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.KettleKeyEncoder;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+// Passes the hot (skewed) keys found by HotKeysTransform through unchanged.
+// They are counted in the metrics and the key values are written to the log.
+//
+public class HotKeyReportFn extends DoFn<KettleKey, KettleKey> {
+
+  private static final int MAX_KEY_DESCRIPTION_LENGTH = 200;
+
+  private String counterName;
+  private String keyRowMetaJson; // The data types of the key fields
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  private static final Logger LOG = LoggerFactory.getLogger( HotKeyReportFn.class );
+
+  private transient RowMetaInterface keyRowMeta;
+
+  private transient Counter hotKeysCounter;
+
+  public HotKeyReportFn() {
+  }
+
+  public HotKeyReportFn( String counterName, String keyRowMetaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    this.counterName = counterName;
+    this.keyRowMetaJson = keyRowMetaJson;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  @Setup
+  public void setUp() {
+    try {
+      hotKeysCounter = Metrics.counter( "hotKeys", counterName );
+
+      // Initialize Kettle Beam
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+      keyRowMeta = JsonRowMeta.fromJson( keyRowMetaJson );
+    } catch ( Exception e ) {
+      LOG.error( "Error setting up hot key reporting", e );
+      throw new RuntimeException( "Unable to set up hot key reporting", e );
+    }
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+    KettleKey key = processContext.element();
+    processContext.output( key );
+    hotKeysCounter.inc();
+
+    // Reporting is informational, don't fail the pipeline over it
+    //
+    try {
+      LOG.warn( "Hot key found in step '" + counterName + "' : " + describeKey( key ) );
+    } catch ( Exception e ) {
+      LOG.error( "Error describing hot key", e );
+    }
+  }
+
+  private String describeKey( KettleKey key ) throws Exception {
+    String description = keyRowMeta.getString( KettleKeyEncoder.decodeKey( keyRowMeta, key ) );
+    if ( description.length() > MAX_KEY_DESCRIPTION_LENGTH ) {
+      description = description.substring( 0, MAX_KEY_DESCRIPTION_LENGTH ) + "...";
+    }
+    return description;
+  }
+}
@@ -5,8 +5,10 @@ import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.values.KV;
 import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleKey;
 import org.kettle.beam.core.KettleRow;
 import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.KettleKeyEncoder;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -16,8 +18,9 @@ import org.slf4j.LoggerFactory;
 import java.util.List;
 
 // Split a Kettle row into key and values parts
+// The key is encoded into canonical bytes so equal values always end up in the same group
 //
-public class KettleKeyValueFn extends DoFn<KettleRow, KV<KettleRow, KettleRow>> {
+public class KettleKeyValueFn extends DoFn<KettleRow, KV<KettleKey, KettleRow>> {
 
   private String inputRowMetaJson;
   private List<String> stepPluginClasses;
@@ -25,12 +28,15 @@ public class KettleKeyValueFn extends DoFn<KettleRow, KV<KettleRow, KettleRow>>
   private String[] keyFields;
   private String[] valueFields;
   private String counterName;
+  private String keyRowMetaJson;
 
   private static final Logger LOG = LoggerFactory.getLogger( KettleKeyValueFn.class );
 
   private transient RowMetaInterface inputRowMeta;
   private transient int[] keyIndexes;
   private transient int[] valueIndexes;
+  private transient RowMetaInterface keyRowMeta;
+  private transient boolean[] keyConversions;
 
   private transient Counter initCounter;
   private transient Counter readCounter;
@@ -49,6 +55,16 @@ public class KettleKeyValueFn extends DoFn<KettleRow, KV<KettleRow, KettleRow>>
     this.counterName = counterName;
   }
 
+  /**
+   * Split rows into key and value where the key values are converted to the given data types first.
+   * This way keys from streams with different data types can still match.
+   */
+  public KettleKeyValueFn( String inputRowMetaJson, List<String> stepPluginClasses, List<String> xpPluginClasses,
+                           String[] keyFields, String[] valueFields, String counterName, String keyRowMetaJson ) {
+    this( inputRowMetaJson, stepPluginClasses, xpPluginClasses, keyFields, valueFields, counterName );
+    this.keyRowMetaJson = keyRowMetaJson;
+  }
+
   @Setup
   public void setUp() {
     try {
@@ -83,6 +99,19 @@ public class KettleKeyValueFn extends DoFn<KettleRow, KV<KettleRow, KettleRow>>
         }
       }
 
+      // Optionally convert the key values to other data types
+      //
+      if ( keyRowMetaJson != null ) {
+        keyRowMeta = JsonRowMeta.fromJson( keyRowMetaJson );
+        if ( keyRowMeta.size() != keyIndexes.length ) {
+          throw new KettleException( "The key row layout "+keyRowMeta.toString()+" doesn't match the key fields" );
+        }
+        keyConversions = new boolean[ keyIndexes.length ];
+        for ( int i = 0; i < keyIndexes.length; i++ ) {
+          keyConversions[ i ] = keyRowMeta.getValueMeta( i ).getType() != inputRowMeta.getValueMeta( keyIndexes[ i ] ).getType();
+        }
+      }
+
       // Now that we know everything, we can split the row...
       //
       Metrics.counter( "init", counterName ).inc();
@@ -106,11 +135,21 @@ public class KettleKeyValueFn extends DoFn<KettleRow, KV<KettleRow, KettleRow>>
 
       Object[] inputRow = inputKettleRow.getRow();
 
-      // Copy over the data...
+      // Encode the key values...
       //
-      Object[] keyRow = RowDataUtil.allocateRowData( keyIndexes.length );
-      for ( int i = 0; i< keyIndexes.length; i++) {
-        keyRow[i] = inputRow[ keyIndexes[i]];
+      KettleKey key;
+      if ( keyRowMeta == null ) {
+        key = KettleKeyEncoder.encodeKey( inputRowMeta, inputRow, keyIndexes );
+      } else {
+        Object[] keyRow = RowDataUtil.allocateRowData( keyIndexes.length );
+        for ( int i = 0; i < keyIndexes.length; i++ ) {
+          Object keyValue = inputRow[ keyIndexes[ i ] ];
+          if ( keyConversions[ i ] ) {
+            keyValue = keyRowMeta.getValueMeta( i ).convertData( inputRowMeta.getValueMeta( keyIndexes[ i ] ), keyValue );
+          }
+          keyRow[ i ] = keyValue;
+        }
+        key = KettleKeyEncoder.encodeKey( keyRowMeta, keyRow );
       }
 
       // Copy over the values...
@@ -120,7 +159,7 @@ public class KettleKeyValueFn extends DoFn<KettleRow, KV<KettleRow, KettleRow>>
         valueRow[i] = inputRow[ valueIndexes[i]];
       }
 
-      KV<KettleRow, KettleRow> keyValue = KV.of( new KettleRow(keyRow), new KettleRow( valueRow ) );
+      KV<KettleKey, KettleRow> keyValue = KV.of( key, new KettleRow( valueRow ) );
       processContext.output( keyValue );
 
     } catch(Exception e) {
@@ -0,0 +1,82 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.util.AvroRowMeta;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+public class KettleToGenericRecordFn extends DoFn<KettleRow, GenericRecord> {
+
+  private String stepname;
+  private String rowMetaJson;
+  private String schemaJson;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  private transient Counter inputCounter;
+  private transient Counter writtenCounter;
+
+  // Log and count errors.
+  private static final Logger LOG = LoggerFactory.getLogger( KettleToGenericRecordFn.class );
+
+  private transient RowMetaInterface rowMeta;
+  private transient Schema schema;
+
+  /**
+   * @param schemaJson The Avro schema created for the row metadata with AvroRowMeta.toSchema()
+   */
+  public KettleToGenericRecordFn( String stepname, String rowMetaJson, String schemaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    this.stepname = stepname;
+    this.rowMetaJson = rowMetaJson;
+    this.schemaJson = schemaJson;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  @Setup
+  public void setUp() {
+    try {
+      inputCounter = Metrics.counter( "input", stepname );
+      writtenCounter = Metrics.counter( "written", stepname );
+
+      // Initialize Kettle Beam
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+      rowMeta = JsonRowMeta.fromJson( rowMetaJson );
+      schema = new Schema.Parser().parse( schemaJson );
+
+      Metrics.counter( "init", stepname ).inc();
+    } catch ( Exception e ) {
+      Metrics.counter( "error", stepname ).inc();
+      LOG.error( "Error in setup of converting Kettle rows into Avro records : " + e.getMessage() );
+      throw new RuntimeException( "Error in setup of converting Kettle rows into Avro records", e );
+    }
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+
+    try {
+      KettleRow kettleRow = processContext.element();
+      inputCounter.inc();
+
+      processContext.output( AvroRowMeta.toRecord( schema, rowMeta, kettleRow.getRow() ) );
+      writtenCounter.inc();
+
+    } catch ( Exception e ) {
+      Metrics.counter( "error", stepname ).inc();
+      LOG.error( "Error converting Kettle row into an Avro record, " + e.getMessage() );
+      throw new RuntimeException( "Error converting Kettle row into an Avro record", e );
+    }
+  }
+}
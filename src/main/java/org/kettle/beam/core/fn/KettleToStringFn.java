@@ -8,6 +8,7 @@ import org.kettle.beam.core.BeamKettle;
 import org.kettle.beam.core.KettleRow;
 import org.kettle.beam.core.util.JsonRowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +25,9 @@ public class KettleToStringFn extends DoFn<KettleRow, String> {
   private List<String> xpPluginClasses;
 
   private transient RowMetaInterface rowMeta;
+  private transient int[] formats;
+  private transient boolean enclosing;
+  private transient StringBuilder line;
   private transient Counter initCounter;
   private transient Counter readCounter;
   private transient Counter outputCounter;
@@ -32,6 +36,12 @@ public class KettleToStringFn extends DoFn<KettleRow, String> {
   // Log and count parse errors.
   private static final Logger LOG = LoggerFactory.getLogger( KettleToStringFn.class );
 
+  // How a column is turned into a string
+  //
+  private static final int FORMAT_VALUE_META = 0;
+  private static final int FORMAT_STRING = 1;
+  private static final int FORMAT_INTEGER = 2;
+
   public KettleToStringFn( String counterName, String outputLocation, String separator, String enclosure, String rowMetaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
     this.counterName = counterName;
     this.outputLocation = outputLocation;
@@ -54,6 +64,23 @@ public class KettleToStringFn extends DoFn<KettleRow, String> {
       BeamKettle.init( stepPluginClasses, xpPluginClasses );
       rowMeta = JsonRowMeta.fromJson( rowMetaJson );
 
+      // Strings without trimming and integers without a format mask don't need the value metadata
+      //
+      formats = new int[ rowMeta.size() ];
+      for ( int i = 0; i < rowMeta.size(); i++ ) {
+        ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+        formats[ i ] = FORMAT_VALUE_META;
+        if ( valueMeta.getStorageType() == ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+          if ( valueMeta.getType() == ValueMetaInterface.TYPE_STRING && valueMeta.getTrimType() == ValueMetaInterface.TRIM_TYPE_NONE ) {
+            formats[ i ] = FORMAT_STRING;
+          } else if ( valueMeta.getType() == ValueMetaInterface.TYPE_INTEGER && StringUtils.isEmpty( valueMeta.getConversionMask() ) && valueMeta.getLength() <= 0 ) {
+            formats[ i ] = FORMAT_INTEGER;
+          }
+        }
+      }
+      enclosing = StringUtils.isNotEmpty( enclosure );
+      line = new StringBuilder( 256 );
+
       Metrics.counter( "init", counterName ).inc();
     } catch ( Exception e ) {
       errorCounter.inc();
@@ -70,30 +97,35 @@ public class KettleToStringFn extends DoFn<KettleRow, String> {
       KettleRow inputRow = processContext.element();
       readCounter.inc();
 
-      // Just a quick and dirty output for now...
-      // TODO: refine with multiple output formats, Avro, Parquet, ...
+      // The builder is reused for every line
       //
-      StringBuffer line = new StringBuffer();
+      Object[] row = inputRow.getRow();
+      line.setLength( 0 );
 
-      for ( int i = 0; i < rowMeta.size(); i++ ) {
+      for ( int i = 0; i < formats.length; i++ ) {
 
         if ( i > 0 ) {
           line.append( separator );
         }
 
-        String valueString = rowMeta.getString( inputRow.getRow(), i );
+        String valueString;
+        switch ( formats[ i ] ) {
+          case FORMAT_STRING:
+            valueString = (String) row[ i ];
+            break;
+          case FORMAT_INTEGER:
+            valueString = row[ i ] == null ? null : row[ i ].toString();
+            break;
+          default:
+            valueString = rowMeta.getString( row, i );
+            break;
+        }
 
         if ( valueString != null ) {
-          boolean enclose = false;
-          if ( StringUtils.isNotEmpty( enclosure ) ) {
-            enclose = valueString.contains( enclosure );
-          }
-          if ( enclose ) {
-            line.append( enclosure );
-          }
-          line.append( valueString );
-          if ( enclose ) {
-            line.append( enclosure );
+          if ( enclosing && valueString.contains( enclosure ) ) {
+            line.append( enclosure ).append( valueString ).append( enclosure );
+          } else {
+            line.append( valueString );
           }
         }
       }
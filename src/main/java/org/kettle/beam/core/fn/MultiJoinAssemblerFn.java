@@ -0,0 +1,153 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.join.CoGbkResult;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.TupleTag;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.KettleKeyEncoder;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Assemble the output rows of a chain of Merge Join steps on the same key from a single CoGroupByKey.
+// Dimension 0 is the left side of the first join, dimensions 1..N are the right sides of the joins in the chain.
+// Every output field comes from a value or a key field of one of the dimensions, see the source arrays.
+// A right side without rows for a key gives nulls (left outer join) or no output at all (inner join).
+//
+public class MultiJoinAssemblerFn extends DoFn<KV<KettleKey, CoGbkResult>, KettleRow> {
+
+  private String outputRowMetaJson;
+  private String keyRowMetaJson;
+  private List<TupleTag<KettleRow>> tupleTags;
+  private boolean[] outerJoins; // per dimension, keep the rows without a match?
+  private int[] sourceDimensions; // per output field
+  private boolean[] sourceKeys; // per output field, is it a key field (or a value field)?
+  private int[] sourceIndexes; // per output field, the index in the key or value row
+  private String counterName;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  private static final Logger LOG = LoggerFactory.getLogger( MultiJoinAssemblerFn.class );
+
+  private transient RowMetaInterface outputRowMeta;
+  private transient RowMetaInterface keyRowMeta;
+
+  private transient Counter writtenCounter;
+  private transient Counter errorCounter;
+
+  public MultiJoinAssemblerFn() {
+  }
+
+  public MultiJoinAssemblerFn( String outputRowMetaJson, String keyRowMetaJson, List<TupleTag<KettleRow>> tupleTags, boolean[] outerJoins,
+                               int[] sourceDimensions, boolean[] sourceKeys, int[] sourceIndexes,
+                               String counterName, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    this.outputRowMetaJson = outputRowMetaJson;
+    this.keyRowMetaJson = keyRowMetaJson;
+    this.tupleTags = tupleTags;
+    this.outerJoins = outerJoins;
+    this.sourceDimensions = sourceDimensions;
+    this.sourceKeys = sourceKeys;
+    this.sourceIndexes = sourceIndexes;
+    this.counterName = counterName;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  @Setup
+  public void setUp() {
+    try {
+      writtenCounter = Metrics.counter( "written", counterName );
+      errorCounter = Metrics.counter( "error", counterName );
+
+      // Initialize Kettle Beam
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+      outputRowMeta = JsonRowMeta.fromJson( outputRowMetaJson );
+      keyRowMeta = JsonRowMeta.fromJson( keyRowMetaJson );
+
+      Metrics.counter( "init", counterName ).inc();
+    } catch ( Exception e ) {
+      errorCounter.inc();
+      LOG.error( "Error initializing assembling multi join rows", e );
+      throw new RuntimeException( "Error initializing assembling multi join rows", e );
+    }
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+
+    try {
+      KV<KettleKey, CoGbkResult> element = processContext.element();
+      CoGbkResult result = element.getValue();
+
+      // The right sides are usually small, keep them in memory.
+      // A null value row means there was no match for this dimension.
+      //
+      int nrDimensions = tupleTags.size();
+      List<List<Object[]>> dimensionRows = new ArrayList<>( nrDimensions );
+      dimensionRows.add( null );
+      for ( int d = 1; d < nrDimensions; d++ ) {
+        List<Object[]> rows = new ArrayList<>();
+        for ( KettleRow kettleRow : result.getAll( tupleTags.get( d ) ) ) {
+          rows.add( kettleRow.getRow() );
+        }
+        if ( rows.isEmpty() ) {
+          if ( !outerJoins[ d ] ) {
+            return;
+          }
+          rows.add( null );
+        }
+        dimensionRows.add( rows );
+      }
+
+      Object[] keyRow = null;
+      Object[][] combination = new Object[ nrDimensions ][];
+      for ( KettleRow leftRow : result.getAll( tupleTags.get( 0 ) ) ) {
+        if ( keyRow == null ) {
+          keyRow = KettleKeyEncoder.decodeKey( keyRowMeta, element.getKey() );
+        }
+        combination[ 0 ] = leftRow.getRow();
+        outputCombinations( processContext, keyRow, dimensionRows, combination, 1 );
+      }
+
+    } catch ( Exception e ) {
+      errorCounter.inc();
+      LOG.error( "Error assembling multi join rows", e );
+      throw new RuntimeException( "Error assembling multi join rows", e );
+    }
+  }
+
+  private void outputCombinations( ProcessContext processContext, Object[] keyRow, List<List<Object[]>> dimensionRows, Object[][] combination, int dimension ) {
+    if ( dimension == combination.length ) {
+      processContext.output( new KettleRow( assembleRow( keyRow, combination ) ) );
+      writtenCounter.inc();
+      return;
+    }
+    for ( Object[] row : dimensionRows.get( dimension ) ) {
+      combination[ dimension ] = row;
+      outputCombinations( processContext, keyRow, dimensionRows, combination, dimension + 1 );
+    }
+  }
+
+  private Object[] assembleRow( Object[] keyRow, Object[][] combination ) {
+    Object[] outputRow = RowDataUtil.allocateRowData( outputRowMeta.size() );
+    for ( int i = 0; i < sourceDimensions.length; i++ ) {
+      Object[] dimensionRow = combination[ sourceDimensions[ i ] ];
+      if ( dimensionRow == null ) {
+        continue; // No match: both the key and the values of the dimension are null
+      }
+      outputRow[ i ] = sourceKeys[ i ] ? keyRow[ sourceIndexes[ i ] ] : dimensionRow[ sourceIndexes[ i ] ];
+    }
+    return outputRow;
+  }
+}
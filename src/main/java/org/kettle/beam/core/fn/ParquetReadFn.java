@@ -0,0 +1,104 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.util.AvroRowMeta;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.ParquetChannelInputFile;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+public class ParquetReadFn extends DoFn<FileIO.ReadableFile, KettleRow> {
+
+  private String stepname;
+  private String rowMetaJson;
+  private String projectionSchemaJson;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  private transient Counter inputCounter;
+  private transient Counter writtenCounter;
+
+  // Log and count parse errors.
+  private static final Logger LOG = LoggerFactory.getLogger( ParquetReadFn.class );
+
+  private transient RowMetaInterface rowMeta;
+  private transient Schema projectionSchema;
+  private transient int[] fieldPositions;
+
+  /**
+   * @param rowMetaJson          The layout of the rows to produce
+   * @param projectionSchemaJson The Avro schema of the columns to read.  The fields of the rows which are not in there stay null.
+   */
+  public ParquetReadFn( String stepname, String rowMetaJson, String projectionSchemaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    this.stepname = stepname;
+    this.rowMetaJson = rowMetaJson;
+    this.projectionSchemaJson = projectionSchemaJson;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  @Setup
+  public void setUp() {
+    try {
+      inputCounter = Metrics.counter( "input", stepname );
+      writtenCounter = Metrics.counter( "written", stepname );
+
+      // Initialize Kettle Beam
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+      rowMeta = JsonRowMeta.fromJson( rowMetaJson );
+      projectionSchema = new Schema.Parser().parse( projectionSchemaJson );
+      fieldPositions = AvroRowMeta.getFieldPositions( rowMeta, projectionSchema );
+
+      Metrics.counter( "init", stepname ).inc();
+    } catch ( Exception e ) {
+      Metrics.counter( "error", stepname ).inc();
+      LOG.error( "Error in setup of reading Parquet files : " + e.getMessage() );
+      throw new RuntimeException( "Error in setup of reading Parquet files", e );
+    }
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+
+    FileIO.ReadableFile file = processContext.element();
+    try {
+
+      // Only the column chunks of the projected columns are read from the file
+      //
+      Configuration configuration = new Configuration();
+      AvroReadSupport.setRequestedProjection( configuration, projectionSchema );
+      AvroReadSupport.setAvroReadSchema( configuration, projectionSchema );
+
+      ParquetChannelInputFile inputFile = new ParquetChannelInputFile( file.openSeekable() );
+      try ( ParquetReader<GenericRecord> reader = AvroParquetReader.<GenericRecord>builder( inputFile ).withDataModel( GenericData.get() ).withConf( configuration ).build() ) {
+        GenericRecord record;
+        while ( ( record = reader.read() ) != null ) {
+          inputCounter.inc();
+          processContext.output( new KettleRow( AvroRowMeta.toRow( rowMeta, record, fieldPositions ) ) );
+          writtenCounter.inc();
+        }
+      }
+
+    } catch ( Exception e ) {
+      Metrics.counter( "error", stepname ).inc();
+      LOG.error( "Error reading Parquet file " + file.getMetadata().resourceId() + ", " + e.getMessage() );
+      throw new RuntimeException( "Error reading Parquet file", e );
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.kettle.beam.core.KettleRow;
+
+// Clear the fields which no step downstream reads.
+// The row layout stays the same, so the Kettle steps still find their fields at the expected index,
+// but a null value only costs a single byte when the row is shuffled or serialized.
+//
+public class ProjectFieldsFn extends DoFn<KettleRow, KettleRow> {
+
+  private int[] unusedIndexes;
+  private String counterName;
+
+  private transient Counter projectedCounter;
+
+  public ProjectFieldsFn() {
+  }
+
+  public ProjectFieldsFn( int[] unusedIndexes, String counterName ) {
+    this.unusedIndexes = unusedIndexes;
+    this.counterName = counterName;
+  }
+
+  @Setup
+  public void setUp() {
+    projectedCounter = Metrics.counter( "projected", counterName );
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+    Object[] row = processContext.element().getRow();
+    if ( row == null ) {
+      processContext.output( processContext.element() );
+      return;
+    }
+
+    // Never modify the input element, it can be shared with other consumers
+    //
+    Object[] projectedRow = row.clone();
+    for ( int index : unusedIndexes ) {
+      if ( index < projectedRow.length ) {
+        projectedRow[ index ] = null;
+      }
+    }
+    processContext.output( new KettleRow( projectedRow ) );
+    projectedCounter.inc();
+  }
+}
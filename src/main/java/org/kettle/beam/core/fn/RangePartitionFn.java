@@ -0,0 +1,42 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+
+import java.util.Collections;
+import java.util.List;
+
+// Send every row to the range of sort keys it belongs to.
+// The side input holds the sampled quantiles of the sort keys: the lowest key, the range boundaries and the highest key.
+// Range i has the keys after boundary i-1 up to and including boundary i so all the rows with the same key end up in the same range.
+// A window without sampled keys has no quantiles, all its rows go to the first range.
+//
+public class RangePartitionFn extends DoFn<KV<KettleKey, KettleRow>, KV<Integer, KV<KettleKey, KettleRow>>> {
+
+  private PCollectionView<List<List<KettleKey>>> quantilesView;
+
+  public RangePartitionFn() {
+  }
+
+  public RangePartitionFn( PCollectionView<List<List<KettleKey>>> quantilesView ) {
+    this.quantilesView = quantilesView;
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+    KV<KettleKey, KettleRow> element = processContext.element();
+    List<List<KettleKey>> quantilesList = processContext.sideInput( quantilesView );
+
+    int range = 0;
+    if ( !quantilesList.isEmpty() && quantilesList.get( 0 ).size() > 2 ) {
+      List<KettleKey> quantiles = quantilesList.get( 0 );
+      List<KettleKey> boundaries = quantiles.subList( 1, quantiles.size() - 1 );
+      int index = Collections.binarySearch( boundaries, element.getKey() );
+      range = index >= 0 ? index : -index - 1;
+    }
+    processContext.output( KV.of( range, element ) );
+  }
+}
@@ -0,0 +1,80 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.util.KettleKeyEncoder;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Salt the keys of one side of a join, see KettleKeyEncoder.saltKey()
+// The rows of hot keys on the large side get a random salt between 1 and nrSalts.
+// The rows of hot keys on the other side are replicated once for every salt.
+// All other keys get salt 0 so they still meet in the same group.
+//
+public class SaltKeyFn extends DoFn<KV<KettleKey, KettleRow>, KV<KettleKey, KettleRow>> {
+
+  private String counterName;
+  private int nrSalts;
+  private boolean replicate;
+  private PCollectionView<List<KettleKey>> hotKeysView;
+
+  private transient Counter saltedCounter;
+  private transient Counter replicatedCounter;
+
+  private transient List<KettleKey> hotKeysList;
+  private transient Set<KettleKey> hotKeys;
+
+  public SaltKeyFn() {
+  }
+
+  public SaltKeyFn( String counterName, int nrSalts, boolean replicate, PCollectionView<List<KettleKey>> hotKeysView ) {
+    this.counterName = counterName;
+    this.nrSalts = nrSalts;
+    this.replicate = replicate;
+    this.hotKeysView = hotKeysView;
+  }
+
+  @Setup
+  public void setUp() {
+    saltedCounter = Metrics.counter( "salted", counterName );
+    replicatedCounter = Metrics.counter( "replicated", counterName );
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+    KV<KettleKey, KettleRow> element = processContext.element();
+
+    // Only build a new set when we get a different list (window) of hot keys
+    //
+    List<KettleKey> list = processContext.sideInput( hotKeysView );
+    if ( list != hotKeysList ) {
+      hotKeys = new HashSet<>( list );
+      hotKeysList = list;
+    }
+
+    KettleKey key = element.getKey();
+    if ( !hotKeys.contains( key ) ) {
+      processContext.output( KV.of( KettleKeyEncoder.saltKey( key, 0 ), element.getValue() ) );
+      return;
+    }
+
+    if ( replicate ) {
+      for ( int salt = 1; salt <= nrSalts; salt++ ) {
+        processContext.output( KV.of( KettleKeyEncoder.saltKey( key, salt ), element.getValue() ) );
+      }
+      replicatedCounter.inc();
+    } else {
+      int salt = 1 + ThreadLocalRandom.current().nextInt( nrSalts );
+      processContext.output( KV.of( KettleKeyEncoder.saltKey( key, salt ), element.getValue() ) );
+      saltedCounter.inc();
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.KV;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Emit the key of roughly 1 in sampleEvery rows with a count of 1
+// Summing these per key gives an estimate of the key frequencies (divided by sampleEvery)
+//
+public class SampleKeyFn extends DoFn<KV<KettleKey, KettleRow>, KV<KettleKey, Long>> {
+
+  private String counterName;
+  private int sampleEvery;
+
+  private transient Counter sampledCounter;
+
+  public SampleKeyFn() {
+  }
+
+  public SampleKeyFn( String counterName, int sampleEvery ) {
+    this.counterName = counterName;
+    this.sampleEvery = sampleEvery;
+  }
+
+  @Setup
+  public void setUp() {
+    sampledCounter = Metrics.counter( "sampled", counterName );
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+    if ( ThreadLocalRandom.current().nextInt( sampleEvery ) == 0 ) {
+      processContext.output( KV.of( processContext.element().getKey(), 1L ) );
+      sampledCounter.inc();
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.coders.CannotProvideCoderException;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.util.VarInt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Count the lines and bytes which are going to be written and calculate how many files are needed
+// so that no file gets more than the maximum number of records or bytes.
+// The lines are spread randomly over the files so the maximums are approximate.
+//
+public class ShardCountCombineFn extends Combine.CombineFn<String, ShardCountCombineFn.Accumulator, Integer> {
+
+  private long maxRecordsPerFile; // 0 or less: no maximum
+  private long maxBytesPerFile; // 0 or less: no maximum
+
+  public ShardCountCombineFn() {
+  }
+
+  public ShardCountCombineFn( long maxRecordsPerFile, long maxBytesPerFile ) {
+    this.maxRecordsPerFile = maxRecordsPerFile;
+    this.maxBytesPerFile = maxBytesPerFile;
+  }
+
+  public static class Accumulator {
+    private long records;
+    private long bytes;
+
+    public Accumulator( long records, long bytes ) {
+      this.records = records;
+      this.bytes = bytes;
+    }
+  }
+
+  @Override public Accumulator createAccumulator() {
+    return new Accumulator( 0L, 0L );
+  }
+
+  @Override public Accumulator addInput( Accumulator accumulator, String input ) {
+    accumulator.records++;
+    if ( maxBytesPerFile > 0 ) {
+      accumulator.bytes += utf8Length( input ) + 1; // The newline
+    }
+    return accumulator;
+  }
+
+  @Override public Accumulator mergeAccumulators( Iterable<Accumulator> accumulators ) {
+    Accumulator merged = createAccumulator();
+    for ( Accumulator accumulator : accumulators ) {
+      merged.records += accumulator.records;
+      merged.bytes += accumulator.bytes;
+    }
+    return merged;
+  }
+
+  @Override public Integer extractOutput( Accumulator accumulator ) {
+    long shards = 1;
+    if ( maxRecordsPerFile > 0 ) {
+      shards = Math.max( shards, ( accumulator.records + maxRecordsPerFile - 1 ) / maxRecordsPerFile );
+    }
+    if ( maxBytesPerFile > 0 ) {
+      shards = Math.max( shards, ( accumulator.bytes + maxBytesPerFile - 1 ) / maxBytesPerFile );
+    }
+    return (int) Math.min( shards, Integer.MAX_VALUE );
+  }
+
+  @Override public Coder<Accumulator> getAccumulatorCoder( CoderRegistry registry, Coder<String> inputCoder ) throws CannotProvideCoderException {
+    return new AccumulatorCoder();
+  }
+
+  /**
+   * The number of bytes of the string in UTF-8 without encoding it
+   */
+  private static long utf8Length( String string ) {
+    long length = 0;
+    for ( int i = 0; i < string.length(); i++ ) {
+      char c = string.charAt( i );
+      if ( c < 0x80 ) {
+        length++;
+      } else if ( c < 0x800 ) {
+        length += 2;
+      } else if ( Character.isHighSurrogate( c ) ) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Writes the record count followed by the byte count
+   */
+  public static class AccumulatorCoder extends CustomCoder<Accumulator> {
+
+    @Override public void encode( Accumulator value, OutputStream outStream ) throws CoderException, IOException {
+      VarInt.encode( value.records, outStream );
+      VarInt.encode( value.bytes, outStream );
+    }
+
+    @Override public Accumulator decode( InputStream inStream ) throws CoderException, IOException {
+      long records = VarInt.decodeLong( inStream );
+      long bytes = VarInt.decodeLong( inStream );
+      return new Accumulator( records, bytes );
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.KV;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.KettleKeyEncoder;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+// Put the sort key in front of a Kettle row, see KettleKeyEncoder.encodeSortKey()
+// The unsigned byte order of the keys is the order in which the rows should be sorted.
+//
+public class SortKeyFn extends DoFn<KettleRow, KV<KettleKey, KettleRow>> {
+
+  private String inputRowMetaJson;
+  private String[] sortFields;
+  private boolean[] ascending;
+  private boolean[] caseSensitive;
+  private String counterName;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  private static final Logger LOG = LoggerFactory.getLogger( SortKeyFn.class );
+
+  private transient RowMetaInterface inputRowMeta;
+  private transient int[] sortIndexes;
+
+  private transient Counter readCounter;
+  private transient Counter errorCounter;
+
+  public SortKeyFn() {
+  }
+
+  public SortKeyFn( String inputRowMetaJson, String[] sortFields, boolean[] ascending, boolean[] caseSensitive,
+                    String counterName, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    this.inputRowMetaJson = inputRowMetaJson;
+    this.sortFields = sortFields;
+    this.ascending = ascending;
+    this.caseSensitive = caseSensitive;
+    this.counterName = counterName;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  @Setup
+  public void setUp() {
+    try {
+      readCounter = Metrics.counter( "read", counterName );
+      errorCounter = Metrics.counter( "error", counterName );
+
+      // Initialize Kettle Beam
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+      inputRowMeta = JsonRowMeta.fromJson( inputRowMetaJson );
+
+      sortIndexes = new int[ sortFields.length ];
+      for ( int i = 0; i < sortFields.length; i++ ) {
+        sortIndexes[ i ] = inputRowMeta.indexOfValue( sortFields[ i ] );
+        if ( sortIndexes[ i ] < 0 ) {
+          throw new KettleException( "Unable to find sort field '" + sortFields[ i ] + "' in input " + inputRowMeta.toString() );
+        }
+      }
+
+      Metrics.counter( "init", counterName ).inc();
+    } catch ( Exception e ) {
+      errorCounter.inc();
+      LOG.error( "Error initializing sort key", e );
+      throw new RuntimeException( "Error initializing sort key", e );
+    }
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+    try {
+      KettleRow kettleRow = processContext.element();
+      readCounter.inc();
+
+      KettleKey sortKey = KettleKeyEncoder.encodeSortKey( inputRowMeta, kettleRow.getRow(), sortIndexes, ascending, caseSensitive );
+      processContext.output( KV.of( sortKey, kettleRow ) );
+    } catch ( Exception e ) {
+      errorCounter.inc();
+      LOG.error( "Error calculating sort key", e );
+      throw new RuntimeException( "Error calculating sort key", e );
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.KV;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
+import org.kettle.beam.core.util.ExternalSorter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+
+// Sort the rows of a range of sort keys and output them in order.
+// Large ranges are sorted with an ExternalSorter which spills sorted runs to disk.
+// Optionally only the first row of every sort key is passed.
+//
+public class SortRangeFn extends DoFn<KV<Integer, Iterable<KV<KettleKey, KettleRow>>>, KettleRow> {
+
+  private String rowMetaJson;
+  private int maxRowsInMemory;
+  private boolean compress;
+  private boolean onlyUnique;
+  private String counterName;
+
+  private static final Logger LOG = LoggerFactory.getLogger( SortRangeFn.class );
+
+  private transient KettleRowMetaCoder rowCoder;
+
+  private transient Counter writtenCounter;
+  private transient Counter spilledCounter;
+  private transient Counter errorCounter;
+
+  public SortRangeFn() {
+  }
+
+  public SortRangeFn( String rowMetaJson, int maxRowsInMemory, boolean compress, boolean onlyUnique, String counterName ) {
+    this.rowMetaJson = rowMetaJson;
+    this.maxRowsInMemory = maxRowsInMemory;
+    this.compress = compress;
+    this.onlyUnique = onlyUnique;
+    this.counterName = counterName;
+  }
+
+  @Setup
+  public void setUp() {
+    rowCoder = new KettleRowMetaCoder( rowMetaJson );
+    writtenCounter = Metrics.counter( "written", counterName );
+    spilledCounter = Metrics.counter( "spilled", counterName );
+    errorCounter = Metrics.counter( "error", counterName );
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+    try ( ExternalSorter sorter = new ExternalSorter( maxRowsInMemory, compress ) ) {
+
+      for ( KV<KettleKey, KettleRow> element : processContext.element().getValue() ) {
+        sorter.add( element.getKey().getBytes(), CoderUtils.encodeToByteArray( rowCoder, element.getValue() ) );
+      }
+      spilledCounter.inc( sorter.getNrRuns() );
+
+      byte[] previousKey = null;
+      Iterator<ExternalSorter.Entry> iterator = sorter.sortedIterator();
+      while ( iterator.hasNext() ) {
+        ExternalSorter.Entry entry = iterator.next();
+        if ( onlyUnique && previousKey != null && ExternalSorter.compareBytes( previousKey, entry.getKey() ) == 0 ) {
+          continue;
+        }
+        previousKey = entry.getKey();
+        processContext.output( CoderUtils.decodeFromByteArray( rowCoder, entry.getValue() ) );
+        writtenCounter.inc();
+      }
+
+    } catch ( Exception e ) {
+      errorCounter.inc();
+      LOG.error( "Error sorting rows", e );
+      throw new RuntimeException( "Error sorting rows", e );
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.KettleKeyEncoder;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+
+// Look up values for the rows of the main stream in a multimap side input
+// The side input is keyed by the encoded lookup key values, the values are the lookup value fields
+//
+public class StreamLookupFn extends DoFn<KettleRow, KettleRow> {
+
+  private String inputRowMetaJson;
+  private String lookupValueRowMetaJson;
+  private String outputRowMetaJson;
+  private String[] keyFields;
+  private String[] defaultValues;
+  private String counterName;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+  private PCollectionView<Map<KettleKey, Iterable<KettleRow>>> lookupView;
+
+  private static final Logger LOG = LoggerFactory.getLogger( StreamLookupFn.class );
+
+  private transient RowMetaInterface inputRowMeta;
+  private transient RowMetaInterface lookupValueRowMeta;
+  private transient RowMetaInterface outputRowMeta;
+  private transient int[] keyIndexes;
+  private transient boolean[] valueConversions;
+  private transient Object[] defaultRow;
+
+  private transient Counter readCounter;
+  private transient Counter writtenCounter;
+  private transient Counter matchedCounter;
+  private transient Counter errorCounter;
+
+  public StreamLookupFn() {
+  }
+
+  public StreamLookupFn( String inputRowMetaJson, String lookupValueRowMetaJson, String outputRowMetaJson, String[] keyFields, String[] defaultValues,
+                         String counterName, List<String> stepPluginClasses, List<String> xpPluginClasses,
+                         PCollectionView<Map<KettleKey, Iterable<KettleRow>>> lookupView ) {
+    this.inputRowMetaJson = inputRowMetaJson;
+    this.lookupValueRowMetaJson = lookupValueRowMetaJson;
+    this.outputRowMetaJson = outputRowMetaJson;
+    this.keyFields = keyFields;
+    this.defaultValues = defaultValues;
+    this.counterName = counterName;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+    this.lookupView = lookupView;
+  }
+
+  @Setup
+  public void setUp() {
+    try {
+      readCounter = Metrics.counter( "read", counterName );
+      writtenCounter = Metrics.counter( "written", counterName );
+      matchedCounter = Metrics.counter( "matched", counterName );
+      errorCounter = Metrics.counter( "error", counterName );
+
+      // Initialize Kettle Beam
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+      inputRowMeta = JsonRowMeta.fromJson( inputRowMetaJson );
+      lookupValueRowMeta = JsonRowMeta.fromJson( lookupValueRowMetaJson );
+      outputRowMeta = JsonRowMeta.fromJson( outputRowMetaJson );
+
+      keyIndexes = new int[ keyFields.length ];
+      for ( int i = 0; i < keyFields.length; i++ ) {
+        keyIndexes[ i ] = inputRowMeta.indexOfValue( keyFields[ i ] );
+        if ( keyIndexes[ i ] < 0 ) {
+          throw new KettleException( "Unable to find key field '" + keyFields[ i ] + "' in input " + inputRowMeta.toString() );
+        }
+      }
+
+      // The looked up values are added to the end of the input row.
+      // Convert them if the data type of the output is different.
+      // The default values are given as strings and converted to the output data type as well.
+      //
+      valueConversions = new boolean[ lookupValueRowMeta.size() ];
+      defaultRow = RowDataUtil.allocateRowData( lookupValueRowMeta.size() );
+      for ( int i = 0; i < lookupValueRowMeta.size(); i++ ) {
+        ValueMetaInterface outputValueMeta = outputRowMeta.getValueMeta( inputRowMeta.size() + i );
+        valueConversions[ i ] = outputValueMeta.getType() != lookupValueRowMeta.getValueMeta( i ).getType();
+
+        if ( defaultValues != null && i < defaultValues.length && defaultValues[ i ] != null && defaultValues[ i ].length() > 0 ) {
+          ValueMetaInterface stringMeta = new ValueMetaString( outputValueMeta.getName() );
+          stringMeta.setConversionMask( outputValueMeta.getConversionMask() );
+          defaultRow[ i ] = outputValueMeta.convertData( stringMeta, defaultValues[ i ] );
+        }
+      }
+
+      Metrics.counter( "init", counterName ).inc();
+    } catch ( Exception e ) {
+      errorCounter.inc();
+      LOG.error( "Error initializing stream lookup", e );
+      throw new RuntimeException( "Error initializing stream lookup", e );
+    }
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+
+    try {
+      KettleRow inputKettleRow = processContext.element();
+      readCounter.inc();
+
+      Object[] inputRow = inputKettleRow.getRow();
+
+      // Find the lookup rows for the key
+      //
+      KettleKey key = KettleKeyEncoder.encodeKey( inputRowMeta, inputRow, keyIndexes );
+      Map<KettleKey, Iterable<KettleRow>> lookupMap = processContext.sideInput( lookupView );
+      Iterable<KettleRow> lookupRows = lookupMap.get( key );
+
+      // The Stream Lookup step keeps the last row of a duplicate key but the order of the side input rows is not defined.
+      // To get the same result on every run and worker the row with the highest values wins, compared field by field.
+      //
+      Object[] lookupRow = null;
+      if ( lookupRows != null ) {
+        for ( KettleRow lookupKettleRow : lookupRows ) {
+          Object[] candidateRow = lookupKettleRow.getRow();
+          if ( lookupRow == null || lookupValueRowMeta.compare( candidateRow, lookupRow ) > 0 ) {
+            lookupRow = candidateRow;
+          }
+        }
+      }
+
+      Object[] outputRow = RowDataUtil.createResizedCopy( inputRow, outputRowMeta.size() );
+      int index = inputRowMeta.size();
+      if ( lookupRow == null ) {
+        for ( int i = 0; i < defaultRow.length; i++ ) {
+          outputRow[ index++ ] = defaultRow[ i ];
+        }
+      } else {
+        matchedCounter.inc();
+        for ( int i = 0; i < lookupValueRowMeta.size(); i++ ) {
+          Object value = lookupRow[ i ];
+          if ( valueConversions[ i ] ) {
+            value = outputRowMeta.getValueMeta( index ).convertData( lookupValueRowMeta.getValueMeta( i ), value );
+          }
+          outputRow[ index++ ] = value;
+        }
+      }
+
+      processContext.output( new KettleRow( outputRow ) );
+      writtenCounter.inc();
+
+    } catch ( Exception e ) {
+      errorCounter.inc();
+      LOG.error( "Error looking up values", e );
+      throw new RuntimeException( "Unable to look up values", e );
+    }
+  }
+}
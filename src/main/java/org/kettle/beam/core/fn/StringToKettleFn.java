@@ -3,15 +3,19 @@ package org.kettle.beam.core.fn;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.commons.lang.StringUtils;
 import org.kettle.beam.core.BeamKettle;
 import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.util.CsvTokenizer;
 import org.kettle.beam.core.util.JsonRowMeta;
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.xml.XMLHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,21 +26,41 @@ public class StringToKettleFn extends DoFn<String, KettleRow> {
   private String stepname;
   private String rowMetaJson;
   private String separator;
+  private String enclosure;
+  private String filterConditionXml;
   private List<String> stepPluginClasses;
   private List<String> xpPluginClasses;
 
   private transient Counter inputCounter;
   private transient Counter writtenCounter;
+  private transient Counter filteredCounter;
 
   // Log and count parse errors.
   private static final Logger LOG = LoggerFactory.getLogger( StringToKettleFn.class );
 
   private transient RowMetaInterface rowMeta;
+  private transient CsvTokenizer tokenizer;
+  private transient String[] components;
+  private transient ValueMetaInterface[] sourceMetas;
+  private transient boolean[] plainIntegers;
+  private transient Condition filterCondition;
+  private transient boolean[] filterFields;
 
   public StringToKettleFn( String stepname, String rowMetaJson, String separator, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    this( stepname, rowMetaJson, separator, null, null, stepPluginClasses, xpPluginClasses );
+  }
+
+  /**
+   * @param enclosure          The enclosure of the fields, null or empty if there is none
+   * @param filterConditionXml The XML of a condition the rows need to match or null if all rows are passed.
+   *                           Only the fields used in the condition are converted for the rows which don't match.
+   */
+  public StringToKettleFn( String stepname, String rowMetaJson, String separator, String enclosure, String filterConditionXml, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
     this.stepname = stepname;
     this.rowMetaJson = rowMetaJson;
     this.separator = separator;
+    this.enclosure = enclosure;
+    this.filterConditionXml = filterConditionXml;
     this.stepPluginClasses = stepPluginClasses;
     this.xpPluginClasses = xpPluginClasses;
   }
@@ -46,12 +70,44 @@ public class StringToKettleFn extends DoFn<String, KettleRow> {
     try {
       inputCounter = Metrics.counter( "input", stepname );
       writtenCounter = Metrics.counter( "written", stepname );
+      filteredCounter = Metrics.counter( "filtered", stepname );
 
       // Initialize Kettle Beam
       //
       BeamKettle.init( stepPluginClasses, xpPluginClasses );
       rowMeta = JsonRowMeta.fromJson( rowMetaJson );
 
+      // The tokens are only read up to the last field we need
+      //
+      tokenizer = new CsvTokenizer( separator, enclosure );
+      components = new String[ rowMeta.size() ];
+
+      // One source string metadata per field, it keeps the parsed conversion mask around
+      //
+      sourceMetas = new ValueMetaInterface[ rowMeta.size() ];
+      plainIntegers = new boolean[ rowMeta.size() ];
+      for ( int i = 0; i < rowMeta.size(); i++ ) {
+        ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+        sourceMetas[ i ] = new ValueMetaString( "SourceString" );
+        sourceMetas[ i ].setConversionMask( valueMeta.getConversionMask() );
+        plainIntegers[ i ] = valueMeta.getType() == ValueMetaInterface.TYPE_INTEGER && StringUtils.isEmpty( valueMeta.getConversionMask() );
+      }
+
+      if ( StringUtils.isNotEmpty( filterConditionXml ) ) {
+        filterCondition = new Condition( XMLHandler.loadXMLString( filterConditionXml, Condition.XML_TAG ) );
+        filterFields = new boolean[ rowMeta.size() ];
+        for ( String usedField : filterCondition.getUsedFields() ) {
+          int index = rowMeta.indexOfValue( usedField );
+          if ( index < 0 ) {
+            // Leave it to the Filter Rows step to complain
+            //
+            filterCondition = null;
+            break;
+          }
+          filterFields[ index ] = true;
+        }
+      }
+
       Metrics.counter( "init", stepname ).inc();
     } catch ( Exception e ) {
       Metrics.counter( "error", stepname ).inc();
@@ -68,24 +124,28 @@ public class StringToKettleFn extends DoFn<String, KettleRow> {
       String inputString = processContext.element();
       inputCounter.inc();
 
-      String[] components = inputString.split( separator, -1 );
+      int nrFields = tokenizer.tokenize( inputString, components );
 
-      // TODO: implement enclosure in FileDefinition
+      Object[] row = RowDataUtil.allocateRowData( rowMeta.size() );
+
+      // Only convert the fields of the filter condition to see if we need the row at all
       //
+      if ( filterCondition != null ) {
+        for ( int index = 0; index < nrFields; index++ ) {
+          if ( filterFields[ index ] ) {
+            row[ index ] = convertField( index, components[ index ] );
+          }
+        }
+        if ( !filterCondition.evaluate( rowMeta, row ) ) {
+          filteredCounter.inc();
+          return;
+        }
+      }
 
-      Object[] row = RowDataUtil.allocateRowData( rowMeta.size() );
-      int index = 0;
-      while ( index < rowMeta.size() && index < components.length ) {
-        String sourceString = components[ index ];
-        ValueMetaInterface valueMeta = rowMeta.getValueMeta( index );
-        ValueMetaInterface stringMeta = new ValueMetaString( "SourceString" );
-        stringMeta.setConversionMask( valueMeta.getConversionMask() );
-        try {
-          row[ index ] = valueMeta.convertDataFromString( sourceString, stringMeta, null, null, ValueMetaInterface.TRIM_TYPE_NONE );
-        } catch ( KettleValueException ve ) {
-          throw new KettleException( "Unable to convert value '" + sourceString + "' to value : " + valueMeta.toStringMeta(), ve );
+      for ( int index = 0; index < nrFields; index++ ) {
+        if ( filterCondition == null || !filterFields[ index ] ) {
+          row[ index ] = convertField( index, components[ index ] );
         }
-        index++;
       }
 
       // Pass the row to the process context
@@ -101,5 +161,37 @@ public class StringToKettleFn extends DoFn<String, KettleRow> {
     }
   }
 
+  private Object convertField( int index, String sourceString ) throws KettleException {
+    // Integers without a mask are by far the most common numbers, skip the decimal format
+    //
+    if ( plainIntegers[ index ] && isPlainInteger( sourceString ) ) {
+      return Long.parseLong( sourceString );
+    }
+    ValueMetaInterface valueMeta = rowMeta.getValueMeta( index );
+    try {
+      return valueMeta.convertDataFromString( sourceString, sourceMetas[ index ], null, null, ValueMetaInterface.TRIM_TYPE_NONE );
+    } catch ( KettleValueException ve ) {
+      throw new KettleException( "Unable to convert value '" + sourceString + "' to value : " + valueMeta.toStringMeta(), ve );
+    }
+  }
+
+  /**
+   * @return true if the string is an optional minus sign followed by 1 to 18 digits, always a valid long
+   */
+  private static boolean isPlainInteger( String string ) {
+    int start = string.startsWith( "-" ) ? 1 : 0;
+    int length = string.length() - start;
+    if ( length < 1 || length > 18 ) {
+      return false;
+    }
+    for ( int i = start; i < string.length(); i++ ) {
+      char c = string.charAt( i );
+      if ( c < '0' || c > '9' ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
 
 }
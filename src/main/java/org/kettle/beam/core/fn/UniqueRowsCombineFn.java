@@ -0,0 +1,111 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.coders.CannotProvideCoderException;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.util.VarInt;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
+import org.pentaho.di.core.row.RowDataUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Keep one row per key of compared fields and count the duplicates
+// Since this is a combine every bundle is deduplicated before the shuffle, only one row per key and bundle is sent.
+// Optionally the number of rows with the key is added to the end of the row.
+//
+public class UniqueRowsCombineFn extends Combine.CombineFn<KettleRow, UniqueRowsCombineFn.Accumulator, KettleRow> {
+
+  private String rowMetaJson; // The layout of the input rows
+  private String outputRowMetaJson; // The layout of the output rows: the input row with the optional count
+  private int rowSize; // The number of fields in the input rows
+  private boolean countRows;
+
+  public UniqueRowsCombineFn() {
+  }
+
+  public UniqueRowsCombineFn( String rowMetaJson, String outputRowMetaJson, int rowSize, boolean countRows ) {
+    this.rowMetaJson = rowMetaJson;
+    this.outputRowMetaJson = outputRowMetaJson;
+    this.rowSize = rowSize;
+    this.countRows = countRows;
+  }
+
+  public static class Accumulator {
+    private Object[] row; // The row to keep, null if no row was seen yet
+    private long count; // The number of rows seen
+
+    public Accumulator( Object[] row, long count ) {
+      this.row = row;
+      this.count = count;
+    }
+  }
+
+  @Override public Accumulator createAccumulator() {
+    return new Accumulator( null, 0L );
+  }
+
+  @Override public Accumulator addInput( Accumulator accumulator, KettleRow input ) {
+    if ( accumulator.row == null ) {
+      accumulator.row = input.getRow();
+    }
+    accumulator.count++;
+    return accumulator;
+  }
+
+  @Override public Accumulator mergeAccumulators( Iterable<Accumulator> accumulators ) {
+    Accumulator merged = createAccumulator();
+    for ( Accumulator accumulator : accumulators ) {
+      if ( merged.row == null ) {
+        merged.row = accumulator.row;
+      }
+      merged.count += accumulator.count;
+    }
+    return merged;
+  }
+
+  @Override public KettleRow extractOutput( Accumulator accumulator ) {
+    if ( !countRows ) {
+      return new KettleRow( accumulator.row );
+    }
+    Object[] outputRow = RowDataUtil.createResizedCopy( accumulator.row, rowSize + 1 );
+    outputRow[ rowSize ] = accumulator.count;
+    return new KettleRow( outputRow );
+  }
+
+  @Override public Coder<Accumulator> getAccumulatorCoder( CoderRegistry registry, Coder<KettleRow> inputCoder ) throws CannotProvideCoderException {
+    return new AccumulatorCoder( rowMetaJson );
+  }
+
+  @Override public Coder<KettleRow> getDefaultOutputCoder( CoderRegistry registry, Coder<KettleRow> inputCoder ) throws CannotProvideCoderException {
+    return new KettleRowMetaCoder( outputRowMetaJson );
+  }
+
+  /**
+   * Writes the count followed by the row
+   */
+  public static class AccumulatorCoder extends CustomCoder<Accumulator> {
+
+    private KettleRowMetaCoder rowCoder;
+
+    public AccumulatorCoder( String rowMetaJson ) {
+      this.rowCoder = new KettleRowMetaCoder( rowMetaJson );
+    }
+
+    @Override public void encode( Accumulator value, OutputStream outStream ) throws CoderException, IOException {
+      VarInt.encode( value.count, outStream );
+      rowCoder.encode( new KettleRow( value.row ), outStream );
+    }
+
+    @Override public Accumulator decode( InputStream inStream ) throws CoderException, IOException {
+      long count = VarInt.decodeLong( inStream );
+      Object[] row = rowCoder.decode( inStream ).getRow();
+      return new Accumulator( row, count );
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.TupleTag;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.pentaho.di.core.row.RowDataUtil;
+
+// Pass the first row of every group of rows with the same compared fields and send the others to the duplicates output.
+// The duplicates get the values of the error fields of the step appended.
+// Optionally the number of rows in the group is added to the end of the unique row.
+//
+public class UniqueRowsFn extends DoFn<KV<KettleKey, Iterable<KettleRow>>, KettleRow> {
+
+  private int rowSize; // The number of fields in the input rows
+  private boolean countRows;
+  private Object[] errorValues; // The error fields for the duplicate rows
+  private TupleTag<KettleRow> mainTag;
+  private TupleTag<KettleRow> duplicatesTag;
+  private String counterName;
+
+  private transient Counter writtenCounter;
+  private transient Counter duplicatesCounter;
+
+  public UniqueRowsFn() {
+  }
+
+  public UniqueRowsFn( int rowSize, boolean countRows, Object[] errorValues, TupleTag<KettleRow> mainTag, TupleTag<KettleRow> duplicatesTag, String counterName ) {
+    this.rowSize = rowSize;
+    this.countRows = countRows;
+    this.errorValues = errorValues;
+    this.mainTag = mainTag;
+    this.duplicatesTag = duplicatesTag;
+    this.counterName = counterName;
+  }
+
+  @Setup
+  public void setUp() {
+    writtenCounter = Metrics.counter( "written", counterName );
+    duplicatesCounter = Metrics.counter( "duplicates", counterName );
+  }
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+    Object[] uniqueRow = null;
+    long count = 0;
+    for ( KettleRow kettleRow : processContext.element().getValue() ) {
+      if ( uniqueRow == null ) {
+        uniqueRow = kettleRow.getRow();
+      } else {
+        Object[] duplicateRow = RowDataUtil.createResizedCopy( kettleRow.getRow(), rowSize + errorValues.length );
+        System.arraycopy( errorValues, 0, duplicateRow, rowSize, errorValues.length );
+        processContext.output( duplicatesTag, new KettleRow( duplicateRow ) );
+        duplicatesCounter.inc();
+      }
+      count++;
+    }
+    if ( uniqueRow == null ) {
+      return;
+    }
+    if ( countRows ) {
+      uniqueRow = RowDataUtil.createResizedCopy( uniqueRow, rowSize + 1 );
+      uniqueRow[ rowSize ] = count;
+    }
+    processContext.output( mainTag, new KettleRow( uniqueRow ) );
+    writtenCounter.inc();
+  }
+}
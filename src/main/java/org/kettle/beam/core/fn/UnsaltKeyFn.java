@@ -0,0 +1,17 @@
+package org.kettle.beam.core.fn;
+
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.values.KV;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.util.KettleKeyEncoder;
+
+// Remove the salt from the keys of the partially combined hot keys, see KettleKeyEncoder.unsaltKey()
+//
+public class UnsaltKeyFn extends DoFn<KV<KettleKey, GroupByCombineFn.Accumulator>, KV<KettleKey, GroupByCombineFn.Accumulator>> {
+
+  @ProcessElement
+  public void processElement( ProcessContext processContext ) {
+    KV<KettleKey, GroupByCombineFn.Accumulator> element = processContext.element();
+    processContext.output( KV.of( KettleKeyEncoder.unsaltKey( element.getKey() ), element.getValue() ) );
+  }
+}
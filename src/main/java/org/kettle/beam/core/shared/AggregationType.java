@@ -4,6 +4,10 @@ import org.pentaho.di.core.exception.KettleException;
 
 public enum AggregationType {
   SUM, AVERAGE, COUNT_ALL, MIN, MAX, FIRST_INCL_NULL, LAST_INCL_NULL, FIRST, LAST,
+
+  // Approximations: HyperLogLog and quantile sketches
+  //
+  COUNT_DISTINCT, MEDIAN, PERCENTILE,
   ;
 
   public static final AggregationType getTypeFromName( String name) throws KettleException {
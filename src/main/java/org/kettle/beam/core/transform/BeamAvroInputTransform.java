@@ -0,0 +1,83 @@
+package org.kettle.beam.core.transform;
+
+import org.apache.beam.sdk.io.AvroIO;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PBegin;
+import org.apache.beam.sdk.values.PCollection;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
+import org.kettle.beam.core.fn.GenericRecordToKettleFn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+public class BeamAvroInputTransform extends PTransform<PBegin, PCollection<KettleRow>> {
+
+  // These non-transient privates get serialized to spread across nodes
+  //
+  private String stepname;
+  private String inputLocation;
+  private String rowMetaJson;
+  private String readerSchemaJson;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  // Log and count errors.
+  private static final Logger LOG = LoggerFactory.getLogger( BeamAvroInputTransform.class );
+  private static final Counter numErrors = Metrics.counter( "main", "BeamAvroInputError" );
+
+  public BeamAvroInputTransform() {
+  }
+
+  /**
+   * @param readerSchemaJson The Avro schema to read with.  Avro schema resolution skips the fields of the files which are not in there.
+   */
+  public BeamAvroInputTransform( @Nullable String name, String stepname, String inputLocation, String rowMetaJson, String readerSchemaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    super( name );
+    this.stepname = stepname;
+    this.inputLocation = inputLocation;
+    this.rowMetaJson = rowMetaJson;
+    this.readerSchemaJson = readerSchemaJson;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  @Override public PCollection<KettleRow> expand( PBegin input ) {
+
+    try {
+      // Only initialize once on this node/vm
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+
+      PCollection<KettleRow> output = input
+
+        // Avro container files are split on their sync markers so large files are read in parallel
+        //
+        .apply( stepname + " READ FILE", AvroIO.readGenericRecords( readerSchemaJson ).from( inputLocation ) )
+
+        // Convert the records into Kettle rows
+        //
+        .apply( stepname, ParDo.of( new GenericRecordToKettleFn( stepname, rowMetaJson, readerSchemaJson, stepPluginClasses, xpPluginClasses ) ) )
+
+        // The layout of the rows is known, encode them compactly
+        //
+        .setCoder( new KettleRowMetaCoder( rowMetaJson ) );
+
+      return output;
+
+    } catch ( Exception e ) {
+      numErrors.inc();
+      LOG.error( "Error in beam avro input transform", e );
+      throw new RuntimeException( "Error in beam avro input transform", e );
+    }
+
+  }
+
+
+}
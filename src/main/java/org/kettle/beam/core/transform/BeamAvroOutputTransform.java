@@ -0,0 +1,100 @@
+package org.kettle.beam.core.transform;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.coders.AvroCoder;
+import org.apache.beam.sdk.io.AvroIO;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PDone;
+import org.apache.commons.lang.StringUtils;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.fn.KettleToGenericRecordFn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.List;
+
+public class BeamAvroOutputTransform extends PTransform<PCollection<KettleRow>, PDone> {
+
+  // These non-transient privates get serialized to spread across nodes
+  //
+  private String stepname;
+  private String outputLocation;
+  private String filePrefix;
+  private String fileSuffix;
+  private String codec;
+  private String rowMetaJson;
+  private String schemaJson;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  // Log and count errors.
+  private static final Logger LOG = LoggerFactory.getLogger( BeamAvroOutputTransform.class );
+  private static final Counter numErrors = Metrics.counter( "main", "BeamAvroOutputError" );
+
+  public BeamAvroOutputTransform() {
+  }
+
+  /**
+   * @param codec The Avro codec (null, deflate, snappy, bzip2, xz), empty means the AvroIO default
+   */
+  public BeamAvroOutputTransform( String stepname, String outputLocation, String filePrefix, String fileSuffix, String codec, String rowMetaJson, String schemaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    this.stepname = stepname;
+    this.outputLocation = outputLocation;
+    this.filePrefix = filePrefix;
+    this.fileSuffix = fileSuffix;
+    this.codec = codec;
+    this.rowMetaJson = rowMetaJson;
+    this.schemaJson = schemaJson;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  @Override public PDone expand( PCollection<KettleRow> input ) {
+
+    try {
+      // Only initialize once on this node/vm
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+
+      Schema schema = new Schema.Parser().parse( schemaJson );
+
+      PCollection<GenericRecord> records = input
+        .apply( stepname, ParDo.of( new KettleToGenericRecordFn( stepname, rowMetaJson, schemaJson, stepPluginClasses, xpPluginClasses ) ) )
+        .setCoder( AvroCoder.of( schema ) );
+
+      String outputPrefix = outputLocation;
+      if ( !outputPrefix.endsWith( File.separator ) ) {
+        outputPrefix += File.separator;
+      }
+      if ( StringUtils.isNotEmpty( filePrefix ) ) {
+        outputPrefix += filePrefix;
+      }
+
+      AvroIO.Write<GenericRecord> write = AvroIO.writeGenericRecords( schemaJson )
+        .to( outputPrefix )
+        .withSuffix( StringUtils.isEmpty( fileSuffix ) ? ".avro" : fileSuffix );
+      if ( StringUtils.isNotEmpty( codec ) ) {
+        write = write.withCodec( CodecFactory.fromString( codec ) );
+      }
+
+      records.apply( stepname + " WRITE FILES", write );
+
+      // Get it over with
+      //
+      return PDone.in( input.getPipeline() );
+
+    } catch ( Exception e ) {
+      numErrors.inc();
+      LOG.error( "Error in beam avro output transform", e );
+      throw new RuntimeException( "Error in beam avro output transform", e );
+    }
+  }
+}
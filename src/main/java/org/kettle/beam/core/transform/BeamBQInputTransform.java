@@ -1,6 +1,7 @@
 package org.kettle.beam.core.transform;
 
 import com.google.api.services.bigquery.model.TableReference;
+import com.google.cloud.bigquery.storage.v1beta1.ReadOptions.TableReadOptions;
 import org.apache.beam.sdk.io.gcp.bigquery.BigQueryIO;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Metrics;
@@ -27,6 +28,8 @@ public class BeamBQInputTransform extends PTransform<PBegin, PCollection<KettleR
   private String datasetId;
   private String tableId;
   private String query;
+  private List<String> selectedFields;
+  private String rowRestriction;
   private String rowMetaJson;
   private List<String> stepPluginClasses;
   private List<String> xpPluginClasses;
@@ -40,13 +43,15 @@ public class BeamBQInputTransform extends PTransform<PBegin, PCollection<KettleR
   public BeamBQInputTransform() {
   }
 
-  public BeamBQInputTransform( @Nullable String name, String stepname, String projectId, String datasetId, String tableId, String query, String rowMetaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+  public BeamBQInputTransform( @Nullable String name, String stepname, String projectId, String datasetId, String tableId, String query, List<String> selectedFields, String rowRestriction, String rowMetaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
     super( name );
     this.stepname = stepname;
     this.projectId = projectId;
     this.datasetId = datasetId;
     this.tableId = tableId;
     this.query = query;
+    this.selectedFields = selectedFields;
+    this.rowRestriction = rowRestriction;
     this.rowMetaJson = rowMetaJson;
     this.stepPluginClasses = stepPluginClasses;
     this.xpPluginClasses = xpPluginClasses;
@@ -71,7 +76,23 @@ public class BeamBQInputTransform extends PTransform<PBegin, PCollection<KettleR
 
       BigQueryIO.TypedRead<KettleRow> bqTypedRead;
 
-      if (StringUtils.isEmpty( query )) {
+      if (StringUtils.isEmpty( query ) && ( (selectedFields != null && !selectedFields.isEmpty()) || StringUtils.isNotEmpty( rowRestriction ) )) {
+        // Only read the columns and rows we need with the BigQuery Storage API
+        //
+        TableReadOptions.Builder readOptions = TableReadOptions.newBuilder();
+        if (selectedFields != null) {
+          readOptions.addAllSelectedFields( selectedFields );
+        }
+        if (StringUtils.isNotEmpty( rowRestriction )) {
+          readOptions.setRowRestriction( rowRestriction );
+        }
+        bqTypedRead = BigQueryIO
+          .read( toKettleFn )
+          .from( tableReference )
+          .withMethod( BigQueryIO.TypedRead.Method.DIRECT_READ )
+          .withReadOptions( readOptions.build() )
+        ;
+      } else if (StringUtils.isEmpty( query )) {
         bqTypedRead = BigQueryIO
           .read( toKettleFn )
           .from( tableReference )
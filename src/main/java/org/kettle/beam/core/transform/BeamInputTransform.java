@@ -8,8 +8,10 @@ import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.values.PBegin;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.commons.lang.StringUtils;
 import org.kettle.beam.core.BeamKettle;
 import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
 import org.kettle.beam.core.fn.StringToKettleFn;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,8 +25,11 @@ public class BeamInputTransform extends PTransform<PBegin, PCollection<KettleRow
   //
   private String stepname;
   private String inputLocation;
+  private String compression;
   private String separator;
+  private String enclosure;
   private String rowMetaJson;
+  private String filterConditionXml;
   private List<String> stepPluginClasses;
   private List<String> xpPluginClasses;
 
@@ -35,12 +40,15 @@ public class BeamInputTransform extends PTransform<PBegin, PCollection<KettleRow
   public BeamInputTransform() {
   }
 
-  public BeamInputTransform( @Nullable String name, String stepname, String inputLocation, String separator, String rowMetaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+  public BeamInputTransform( @Nullable String name, String stepname, String inputLocation, String compression, String separator, String enclosure, String rowMetaJson, String filterConditionXml, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
     super( name );
     this.stepname = stepname;
     this.inputLocation = inputLocation;
+    this.compression = compression;
     this.separator = separator;
+    this.enclosure = enclosure;
     this.rowMetaJson = rowMetaJson;
+    this.filterConditionXml = filterConditionXml;
     this.stepPluginClasses = stepPluginClasses;
     this.xpPluginClasses = xpPluginClasses;
   }
@@ -52,14 +60,14 @@ public class BeamInputTransform extends PTransform<PBegin, PCollection<KettleRow
       //
       BeamKettle.init(stepPluginClasses, xpPluginClasses);
 
-      // System.out.println("-------------- TextIO.Read from "+inputLocation+" (UNCOMPRESSED)");
-
+      // By default the compression is detected by file extension
+      //
       TextIO.Read ioRead = TextIO.read()
         .from( inputLocation )
-        .withCompression( Compression.UNCOMPRESSED )
+        .withCompression( StringUtils.isEmpty( compression ) ? Compression.AUTO : Compression.valueOf( compression ) )
         ;
 
-      StringToKettleFn stringToKettleFn = new StringToKettleFn( stepname, rowMetaJson, separator, stepPluginClasses, xpPluginClasses );
+      StringToKettleFn stringToKettleFn = new StringToKettleFn( stepname, rowMetaJson, separator, enclosure, filterConditionXml, stepPluginClasses, xpPluginClasses );
 
       PCollection<KettleRow> output = input
 
@@ -69,7 +77,11 @@ public class BeamInputTransform extends PTransform<PBegin, PCollection<KettleRow
 
         // We need to transform these lines into Kettle fields
         //
-        .apply( stepname, ParDo.of( stringToKettleFn ) );
+        .apply( stepname, ParDo.of( stringToKettleFn ) )
+
+        // The layout of the rows is known, encode them compactly
+        //
+        .setCoder( new KettleRowMetaCoder( rowMetaJson ) );
 
       return output;
 
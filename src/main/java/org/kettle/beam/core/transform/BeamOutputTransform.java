@@ -1,5 +1,7 @@
 package org.kettle.beam.core.transform;
 
+import org.apache.beam.sdk.io.Compression;
+import org.apache.beam.sdk.io.FileIO;
 import org.apache.beam.sdk.io.TextIO;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Metrics;
@@ -31,6 +33,11 @@ public class BeamOutputTransform extends PTransform<PCollection<KettleRow>, PDon
   private String enclosure;
   private String rowMetaJson;
   private boolean windowed;
+  private String compression;
+  private int numberOfShards;
+  private boolean autoSharding;
+  private long maxRecordsPerFile;
+  private long maxBytesPerFile;
   private List<String> stepPluginClasses;
   private List<String> xpPluginClasses;
 
@@ -38,10 +45,23 @@ public class BeamOutputTransform extends PTransform<PCollection<KettleRow>, PDon
   private static final Logger LOG = LoggerFactory.getLogger( BeamOutputTransform.class );
   private static final Counter numErrors = Metrics.counter( "main", "BeamOutputError" );
 
+  // Windowed writes need a fixed number of files unless they're sized by volume
+  //
+  public static final int DEFAULT_WINDOWED_SHARDS = 4;
+  public static final long DEFAULT_AUTO_SHARDING_BYTES_PER_FILE = 128L * 1024 * 1024;
+
   public BeamOutputTransform() {
   }
 
-  public BeamOutputTransform( String stepname, String outputLocation, String filePrefix, String fileSuffix, String separator, String enclosure, boolean windowed, String rowMetaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+  /**
+   * @param numberOfShards    The number of files to write, 0 or less to let the runner decide
+   * @param autoSharding      For windowed writes without a number of files: size the number of files per window by the data volume
+   * @param maxRecordsPerFile The approximate maximum number of lines per file, 0 or less for no maximum.  Ignored when the number of files is set.
+   * @param maxBytesPerFile   The approximate maximum number of bytes per file before compression, 0 or less for no maximum.  Ignored when the number of files is set.
+   */
+  public BeamOutputTransform( String stepname, String outputLocation, String filePrefix, String fileSuffix, String separator, String enclosure, boolean windowed, String compression,
+                              int numberOfShards, boolean autoSharding, long maxRecordsPerFile, long maxBytesPerFile,
+                              String rowMetaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
     this.stepname = stepname;
     this.outputLocation = outputLocation;
     this.filePrefix = filePrefix;
@@ -49,6 +69,11 @@ public class BeamOutputTransform extends PTransform<PCollection<KettleRow>, PDon
     this.separator = separator;
     this.enclosure = enclosure;
     this.windowed = windowed;
+    this.compression = compression;
+    this.numberOfShards = numberOfShards;
+    this.autoSharding = autoSharding;
+    this.maxRecordsPerFile = maxRecordsPerFile;
+    this.maxBytesPerFile = maxBytesPerFile;
     this.rowMetaJson = rowMetaJson;
     this.stepPluginClasses = stepPluginClasses;
     this.xpPluginClasses = xpPluginClasses;
@@ -70,31 +95,19 @@ public class BeamOutputTransform extends PTransform<PCollection<KettleRow>, PDon
       //
       PCollection<String> stringCollection = input.apply( stepname, ParDo.of( new KettleToStringFn( stepname, outputLocation, separator, enclosure, rowMetaJson, stepPluginClasses, xpPluginClasses ) ) );
 
-      // We need to transform these lines into a file and then we're PDone
+      // The number of files can be sized by the volume of the data
       //
-      TextIO.Write write = TextIO.write();
-      if ( StringUtils.isNotEmpty(outputLocation)) {
-        String outputPrefix = outputLocation;
-        if (!outputPrefix.endsWith( File.separator)) {
-          outputPrefix+=File.separator;
-        }
-        if (StringUtils.isNotEmpty( filePrefix )) {
-          outputPrefix+=filePrefix;
-        }
-        write = write.to( outputPrefix );
+      long recordsPerFile = maxRecordsPerFile;
+      long bytesPerFile = maxBytesPerFile;
+      if ( windowed && autoSharding && recordsPerFile <= 0 && bytesPerFile <= 0 ) {
+        bytesPerFile = DEFAULT_AUTO_SHARDING_BYTES_PER_FILE;
       }
-      if (StringUtils.isNotEmpty( fileSuffix )) {
-        write = write.withSuffix( fileSuffix );
+      if ( numberOfShards <= 0 && ( recordsPerFile > 0 || bytesPerFile > 0 ) ) {
+        writeShardedByVolume( stringCollection, recordsPerFile, bytesPerFile );
+      } else {
+        writeText( stringCollection );
       }
 
-      // For streaming data sources...
-      //
-      if (windowed) {
-        write = write.withWindowedWrites().withNumShards( 4 ); // TODO config
-      }
-
-      stringCollection.apply(write);
-
       // Get it over with
       //
       return PDone.in(input.getPipeline());
@@ -107,6 +120,73 @@ public class BeamOutputTransform extends PTransform<PCollection<KettleRow>, PDon
   }
 
 
+  /**
+   * Write the lines with TextIO, either with a fixed number of files or as the runner sees fit.
+   */
+  private void writeText( PCollection<String> stringCollection ) {
+
+    // We need to transform these lines into a file and then we're PDone
+    //
+    TextIO.Write write = TextIO.write();
+    if ( StringUtils.isNotEmpty(outputLocation)) {
+      String outputPrefix = outputLocation;
+      if (!outputPrefix.endsWith( File.separator)) {
+        outputPrefix+=File.separator;
+      }
+      if (StringUtils.isNotEmpty( filePrefix )) {
+        outputPrefix+=filePrefix;
+      }
+      write = write.to( outputPrefix );
+    }
+    if (StringUtils.isNotEmpty( fileSuffix )) {
+      write = write.withSuffix( fileSuffix );
+    }
+
+    // The extension of the compression (.gz, .bz2, ...) is added after the suffix
+    //
+    if (StringUtils.isNotEmpty( compression ) && !Compression.AUTO.name().equals( compression )) {
+      write = write.withCompression( Compression.valueOf( compression ) );
+    }
+
+    if ( numberOfShards > 0 ) {
+      write = write.withNumShards( numberOfShards );
+    }
+
+    // For streaming data sources...
+    //
+    if (windowed) {
+      write = write.withWindowedWrites();
+      if ( numberOfShards <= 0 ) {
+        write = write.withNumShards( DEFAULT_WINDOWED_SHARDS );
+      }
+    }
+
+    stringCollection.apply(write);
+  }
+
+  /**
+   * Write the lines with FileIO so the number of files can be calculated from the data, per window for windowed data.
+   * TextIO can't take a calculated number of files.
+   */
+  private void writeShardedByVolume( PCollection<String> stringCollection, long recordsPerFile, long bytesPerFile ) {
+    FileIO.Write<Void, String> write = FileIO.<String>write()
+      .via( TextIO.sink() )
+      .to( outputLocation )
+      .withSharding( new ShardCountTransform( recordsPerFile, bytesPerFile ) );
+    if (StringUtils.isNotEmpty( filePrefix )) {
+      write = write.withPrefix( filePrefix );
+    }
+    if (StringUtils.isNotEmpty( fileSuffix )) {
+      write = write.withSuffix( fileSuffix );
+    }
+    if (StringUtils.isNotEmpty( compression ) && !Compression.AUTO.name().equals( compression )) {
+      write = write.withCompression( Compression.valueOf( compression ) );
+    }
+
+    stringCollection.apply( stepname + " WRITE FILES", write );
+  }
+
+
   /**
    * Gets stepname
    *
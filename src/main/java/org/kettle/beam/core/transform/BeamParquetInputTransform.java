@@ -0,0 +1,81 @@
+package org.kettle.beam.core.transform;
+
+import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PBegin;
+import org.apache.beam.sdk.values.PCollection;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
+import org.kettle.beam.core.fn.ParquetReadFn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+public class BeamParquetInputTransform extends PTransform<PBegin, PCollection<KettleRow>> {
+
+  // These non-transient privates get serialized to spread across nodes
+  //
+  private String stepname;
+  private String inputLocation;
+  private String rowMetaJson;
+  private String projectionSchemaJson;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  // Log and count errors.
+  private static final Logger LOG = LoggerFactory.getLogger( BeamParquetInputTransform.class );
+  private static final Counter numErrors = Metrics.counter( "main", "BeamParquetInputError" );
+
+  public BeamParquetInputTransform() {
+  }
+
+  public BeamParquetInputTransform( @Nullable String name, String stepname, String inputLocation, String rowMetaJson, String projectionSchemaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    super( name );
+    this.stepname = stepname;
+    this.inputLocation = inputLocation;
+    this.rowMetaJson = rowMetaJson;
+    this.projectionSchemaJson = projectionSchemaJson;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  @Override public PCollection<KettleRow> expand( PBegin input ) {
+
+    try {
+      // Only initialize once on this node/vm
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+
+      PCollection<KettleRow> output = input
+
+        // Find the files, these get spread over the workers
+        //
+        .apply( stepname + " MATCH FILES", FileIO.match().filepattern( inputLocation ) )
+        .apply( stepname + " READ MATCHES", FileIO.readMatches() )
+
+        // Read the projected columns of each file into Kettle rows
+        //
+        .apply( stepname, ParDo.of( new ParquetReadFn( stepname, rowMetaJson, projectionSchemaJson, stepPluginClasses, xpPluginClasses ) ) )
+
+        // The layout of the rows is known, encode them compactly
+        //
+        .setCoder( new KettleRowMetaCoder( rowMetaJson ) );
+
+      return output;
+
+    } catch ( Exception e ) {
+      numErrors.inc();
+      LOG.error( "Error in beam parquet input transform", e );
+      throw new RuntimeException( "Error in beam parquet input transform", e );
+    }
+
+  }
+
+
+}
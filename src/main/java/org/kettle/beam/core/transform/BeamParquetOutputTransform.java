@@ -0,0 +1,93 @@
+package org.kettle.beam.core.transform;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.coders.AvroCoder;
+import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PDone;
+import org.apache.commons.lang.StringUtils;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.fn.KettleToGenericRecordFn;
+import org.kettle.beam.core.util.ParquetSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+public class BeamParquetOutputTransform extends PTransform<PCollection<KettleRow>, PDone> {
+
+  // These non-transient privates get serialized to spread across nodes
+  //
+  private String stepname;
+  private String outputLocation;
+  private String filePrefix;
+  private String fileSuffix;
+  private String compressionCodec;
+  private int rowGroupSize;
+  private String rowMetaJson;
+  private String schemaJson;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  // Log and count errors.
+  private static final Logger LOG = LoggerFactory.getLogger( BeamParquetOutputTransform.class );
+  private static final Counter numErrors = Metrics.counter( "main", "BeamParquetOutputError" );
+
+  public BeamParquetOutputTransform() {
+  }
+
+  public BeamParquetOutputTransform( String stepname, String outputLocation, String filePrefix, String fileSuffix, String compressionCodec, int rowGroupSize, String rowMetaJson, String schemaJson, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    this.stepname = stepname;
+    this.outputLocation = outputLocation;
+    this.filePrefix = filePrefix;
+    this.fileSuffix = fileSuffix;
+    this.compressionCodec = compressionCodec;
+    this.rowGroupSize = rowGroupSize;
+    this.rowMetaJson = rowMetaJson;
+    this.schemaJson = schemaJson;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  @Override public PDone expand( PCollection<KettleRow> input ) {
+
+    try {
+      // Only initialize once on this node/vm
+      //
+      BeamKettle.init( stepPluginClasses, xpPluginClasses );
+
+      Schema schema = new Schema.Parser().parse( schemaJson );
+
+      // Convert the rows into Avro records, Parquet writes these column by column
+      //
+      PCollection<GenericRecord> records = input
+        .apply( stepname, ParDo.of( new KettleToGenericRecordFn( stepname, rowMetaJson, schemaJson, stepPluginClasses, xpPluginClasses ) ) )
+        .setCoder( AvroCoder.of( schema ) );
+
+      FileIO.Write<Void, GenericRecord> write = FileIO.<GenericRecord>write()
+        .via( new ParquetSink( schemaJson, compressionCodec, rowGroupSize ) )
+        .to( outputLocation );
+      if ( StringUtils.isNotEmpty( filePrefix ) ) {
+        write = write.withPrefix( filePrefix );
+      }
+      write = write.withSuffix( StringUtils.isEmpty( fileSuffix ) ? ".parquet" : fileSuffix );
+
+      records.apply( stepname + " WRITE FILES", write );
+
+      // Get it over with
+      //
+      return PDone.in( input.getPipeline() );
+
+    } catch ( Exception e ) {
+      numErrors.inc();
+      LOG.error( "Error in beam parquet output transform", e );
+      throw new RuntimeException( "Error in beam parquet output transform", e );
+    }
+  }
+}
@@ -1,19 +1,38 @@
 package org.kettle.beam.core.transform;
 
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Metrics;
-import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.Flatten;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionList;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
 import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleKey;
 import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleKeyCoder;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
+import org.kettle.beam.core.fn.GroupByCombineFn;
 import org.kettle.beam.core.fn.GroupByFn;
+import org.kettle.beam.core.fn.HotKeyFanoutFn;
 import org.kettle.beam.core.fn.KettleKeyValueFn;
+import org.kettle.beam.core.fn.UnsaltKeyFn;
+import org.kettle.beam.core.shared.AggregationType;
 import org.kettle.beam.core.util.JsonRowMeta;
+import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,10 +48,16 @@ public class GroupByTransform extends PTransform<PCollection<KettleRow>, PCollec
   private String[] groupFields;  // The fields to group over
   private String[] subjects; // The subjects to aggregate on
   private String[] aggregations; // The aggregation types
+  private String[] aggregationParameters; // The percentile for PERCENTILE
   private String[] resultFields; // The result fields
+  private int hotKeyFanout; // The fanout of hot keys in the combine, 0 to disable
   private List<String> stepPluginClasses;
   private List<String> xpPluginClasses;
 
+  // With 1 in 100 rows sampled this is a key with roughly 5,000 rows
+  //
+  public static final long HOT_KEY_MIN_SAMPLES = 50L;
+
   private static final Logger LOG = LoggerFactory.getLogger( GroupByTransform.class );
   private final Counter numErrors = Metrics.counter( "main", "GroupByTransformErrors" );
 
@@ -43,7 +68,7 @@ public class GroupByTransform extends PTransform<PCollection<KettleRow>, PCollec
   public GroupByTransform() {
   }
 
-  public GroupByTransform( String stepname, String rowMetaJson, List<String> stepPluginClasses, List<String> xpPluginClasses, String[] groupFields, String[] subjects, String[] aggregations, String[] resultFields) {
+  public GroupByTransform( String stepname, String rowMetaJson, List<String> stepPluginClasses, List<String> xpPluginClasses, String[] groupFields, String[] subjects, String[] aggregations, String[] aggregationParameters, String[] resultFields, int hotKeyFanout) {
     this.stepname = stepname;
     this.rowMetaJson = rowMetaJson;
     this.stepPluginClasses = stepPluginClasses;
@@ -51,7 +76,9 @@ public class GroupByTransform extends PTransform<PCollection<KettleRow>, PCollec
     this.groupFields = groupFields;
     this.subjects = subjects;
     this.aggregations = aggregations;
+    this.aggregationParameters = aggregationParameters;
     this.resultFields = resultFields;
+    this.hotKeyFanout = hotKeyFanout;
   }
 
   @Override public PCollection<KettleRow> expand( PCollection<KettleRow> input ) {
@@ -71,26 +98,48 @@ public class GroupByTransform extends PTransform<PCollection<KettleRow>, PCollec
         }
       }
 
-      // Split the KettleRow into GroupFields-KettleRow and SubjectFields-KettleRow
+      // Split the KettleRow into a GroupFields-KettleKey and SubjectFields-KettleRow
       //
-      PCollection<KV<KettleRow, KettleRow>> groupSubjects = input.apply( ParDo.of(
+      PCollection<KV<KettleKey, KettleRow>> groupSubjects = input.apply( ParDo.of(
         new KettleKeyValueFn( rowMetaJson, stepPluginClasses, xpPluginClasses, groupFields, subjects, stepname )
       ) );
+      groupSubjects.setCoder( KvCoder.of(
+        KettleKeyCoder.of(),
+        new KettleRowMetaCoder( JsonRowMeta.toJson( subjectRowMeta ) )
+      ) );
+
+      // Sample the group keys to find skewed (hot) keys.
+      // They are reported in the metrics and get a fanout in the combine if that's enabled.
+      //
+      PCollectionView<List<KettleKey>> hotKeysView = groupSubjects.apply( stepname + " hot keys",
+        new HotKeysTransform( stepname, JsonRowMeta.toJson( groupRowMeta ), HotKeysTransform.SAMPLE_EVERY, HOT_KEY_MIN_SAMPLES, stepPluginClasses, xpPluginClasses ) );
 
       // Now we need to aggregate the groups with a Combine
-      GroupByKey<KettleRow, KettleRow> byKey = GroupByKey.<KettleRow, KettleRow>create();
-      PCollection<KV<KettleRow, Iterable<KettleRow>>> grouped = groupSubjects.apply( byKey );
+      // The aggregation results are calculated per bundle before the shuffle and merged afterwards.
+      //
+      RowMetaInterface resultRowMeta = getResultRowMeta();
+      GroupByCombineFn combineFn = new GroupByCombineFn( JsonRowMeta.toJson( subjectRowMeta ), JsonRowMeta.toJson( resultRowMeta ),
+        aggregations, aggregationParameters, stepPluginClasses, xpPluginClasses );
+      PCollection<KV<KettleKey, KettleRow>> aggregated;
+      if ( hotKeyFanout > 1 ) {
+        aggregated = combineWithHotKeyFanout( groupSubjects, combineFn, hotKeysView );
+      } else {
+        aggregated = groupSubjects.apply( Combine.<KettleKey, KettleRow, KettleRow>perKey( combineFn ) );
+      }
+      aggregated.setCoder( KvCoder.of(
+        KettleKeyCoder.of(),
+        new KettleRowMetaCoder( JsonRowMeta.toJson( resultRowMeta ) )
+      ) );
 
-      // Aggregate the rows in the grouped PCollection
-      //   Input: KV<KettleRow>, Iterable<KettleRow>>
-      //   This means that The group rows is in KettleRow.  For every one of these, you get a list of subject rows.
-      //   We need to calculate the aggregation of these subject lists
+      // Put the group values and the aggregation results back together
+      //   Input: KV<KettleKey>, KettleRow>
+      //   The group values are encoded in the KettleKey.  The value is the row with the aggregation results.
       //   Then we output group values with result values behind it.
       //
       String counterName = stepname+" AGG";
-      PCollection<KettleRow> output = grouped.apply( ParDo.of(
-        new GroupByFn(counterName, JsonRowMeta.toJson(groupRowMeta), stepPluginClasses, xpPluginClasses,
-          JsonRowMeta.toJson(subjectRowMeta), aggregations ) ) );
+      PCollection<KettleRow> output = aggregated.apply( ParDo.of(
+        new GroupByFn(counterName, JsonRowMeta.toJson(groupRowMeta), stepPluginClasses, xpPluginClasses ) ) );
+      output.setCoder( new KettleRowMetaCoder( JsonRowMeta.toJson( getOutputRowMeta() ) ) );
 
       return output;
     } catch(Exception e) {
@@ -100,6 +149,88 @@ public class GroupByTransform extends PTransform<PCollection<KettleRow>, PCollec
     }
   }
 
+  /**
+   * The rows of the hot keys are spread over hotKeyFanout salted keys and partially combined first.
+   * The partial results of the hot keys and the rows of all other keys are merged in the final combine.
+   *
+   * @return the aggregation results per group key
+   */
+  private PCollection<KV<KettleKey, KettleRow>> combineWithHotKeyFanout( PCollection<KV<KettleKey, KettleRow>> groupSubjects, GroupByCombineFn combineFn,
+                                                                           PCollectionView<List<KettleKey>> hotKeysView ) throws KettleException {
+    Coder<KV<KettleKey, GroupByCombineFn.Accumulator>> accumulatorKvCoder = KvCoder.of(
+      KettleKeyCoder.of(),
+      new GroupByCombineFn.AccumulatorCoder( JsonRowMeta.toJson( getResultRowMeta() ) )
+    );
+
+    TupleTag<KV<KettleKey, GroupByCombineFn.Accumulator>> coldTupleTag = new TupleTag<KV<KettleKey, GroupByCombineFn.Accumulator>>() {
+    };
+    TupleTag<KV<KettleKey, KettleRow>> hotTupleTag = new TupleTag<KV<KettleKey, KettleRow>>() {
+    };
+    PCollectionTuple fanout = groupSubjects.apply( stepname + " hot key fanout",
+      ParDo.of( new HotKeyFanoutFn( stepname, hotKeyFanout, combineFn, hotKeysView, hotTupleTag ) )
+        .withSideInputs( hotKeysView )
+        .withOutputTags( coldTupleTag, TupleTagList.of( hotTupleTag ) ) );
+
+    PCollection<KV<KettleKey, GroupByCombineFn.Accumulator>> cold = fanout.get( coldTupleTag );
+    cold.setCoder( accumulatorKvCoder );
+    PCollection<KV<KettleKey, KettleRow>> hot = fanout.get( hotTupleTag );
+    hot.setCoder( groupSubjects.getCoder() );
+
+    PCollection<KV<KettleKey, GroupByCombineFn.Accumulator>> hotPartial = hot.apply( stepname + " hot key partial combine",
+      Combine.<KettleKey, KettleRow, GroupByCombineFn.Accumulator>perKey( new GroupByCombineFn.PartialCombineFn( combineFn ) ) );
+    hotPartial.setCoder( accumulatorKvCoder );
+    PCollection<KV<KettleKey, GroupByCombineFn.Accumulator>> hotUnsalted = hotPartial.apply( stepname + " hot key unsalt", ParDo.of( new UnsaltKeyFn() ) );
+    hotUnsalted.setCoder( accumulatorKvCoder );
+
+    PCollection<KV<KettleKey, GroupByCombineFn.Accumulator>> accumulators = PCollectionList.of( cold ).and( hotUnsalted )
+      .apply( stepname + " hot key flatten", Flatten.pCollections() );
+    accumulators.setCoder( accumulatorKvCoder );
+
+    return accumulators.apply( stepname + " final combine",
+      Combine.<KettleKey, GroupByCombineFn.Accumulator, KettleRow>perKey( new GroupByCombineFn.FinalCombineFn( combineFn ) ) );
+  }
+
+  /**
+   * The layout of the aggregation results: counts give an Integer, median and percentiles a Number.
+   * The other aggregations have the data type of the subject.
+   *
+   * @return the result row metadata
+   * @throws KettleException
+   */
+  private RowMetaInterface getResultRowMeta() throws KettleException {
+    RowMetaInterface resultRowMeta = new RowMeta();
+    for ( int i = 0; i < subjects.length; i++ ) {
+      ValueMetaInterface resultValueMeta;
+      switch ( AggregationType.getTypeFromName( aggregations[ i ] ) ) {
+        case COUNT_ALL:
+        case COUNT_DISTINCT:
+          resultValueMeta = new ValueMetaInteger( resultFields[ i ] );
+          break;
+        case MEDIAN:
+        case PERCENTILE:
+          resultValueMeta = new ValueMetaNumber( resultFields[ i ] );
+          break;
+        default:
+          resultValueMeta = subjectRowMeta.getValueMeta( i ).clone();
+          resultValueMeta.setName( resultFields[ i ] );
+          break;
+      }
+      resultRowMeta.addValueMeta( resultValueMeta );
+    }
+    return resultRowMeta;
+  }
+
+  /**
+   * The layout of the rows produced by GroupByFn: the group fields followed by the aggregation results.
+   *
+   * @return the output row metadata
+   * @throws KettleException
+   */
+  private RowMetaInterface getOutputRowMeta() throws KettleException {
+    RowMetaInterface outputRowMeta = groupRowMeta.clone();
+    outputRowMeta.addRowMeta( getResultRowMeta() );
+    return outputRowMeta;
+  }
 
   /**
    * Gets inputRowMetaJson
@@ -165,6 +296,22 @@ public class GroupByTransform extends PTransform<PCollection<KettleRow>, PCollec
     this.aggregations = aggregations;
   }
 
+  /**
+   * Gets aggregationParameters
+   *
+   * @return value of aggregationParameters
+   */
+  public String[] getAggregationParameters() {
+    return aggregationParameters;
+  }
+
+  /**
+   * @param aggregationParameters The aggregationParameters to set
+   */
+  public void setAggregationParameters( String[] aggregationParameters ) {
+    this.aggregationParameters = aggregationParameters;
+  }
+
   /**
    * Gets resultFields
    *
@@ -180,4 +327,20 @@ public class GroupByTransform extends PTransform<PCollection<KettleRow>, PCollec
   public void setResultFields( String[] resultFields ) {
     this.resultFields = resultFields;
   }
+
+  /**
+   * Gets hotKeyFanout
+   *
+   * @return value of hotKeyFanout
+   */
+  public int getHotKeyFanout() {
+    return hotKeyFanout;
+  }
+
+  /**
+   * @param hotKeyFanout The hotKeyFanout to set
+   */
+  public void setHotKeyFanout( int hotKeyFanout ) {
+    this.hotKeyFanout = hotKeyFanout;
+  }
 }
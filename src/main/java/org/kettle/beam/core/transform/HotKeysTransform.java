@@ -0,0 +1,67 @@
+package org.kettle.beam.core.transform;
+
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.transforms.Filter;
+import org.apache.beam.sdk.transforms.Keys;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleKeyCoder;
+import org.kettle.beam.core.fn.HotKeyReportFn;
+import org.kettle.beam.core.fn.SampleKeyFn;
+
+import java.util.List;
+
+/**
+ * Finds the hot (skewed) keys of a keyed collection.
+ * The keys of roughly 1 in sampleEvery rows are sampled and counted, the keys sampled at least minSamples times are hot.
+ * The hot keys are reported in the metrics and the log and are made available as a side input, per window.
+ */
+public class HotKeysTransform extends PTransform<PCollection<KV<KettleKey, KettleRow>>, PCollectionView<List<KettleKey>>> {
+
+  // By default sample roughly 1 in this many rows
+  //
+  public static final int SAMPLE_EVERY = 100;
+
+  private String stepname;
+  private String keyRowMetaJson; // The data types of the key fields
+  private int sampleEvery;
+  private long minSamples;
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  public HotKeysTransform() {
+  }
+
+  public HotKeysTransform( String stepname, String keyRowMetaJson, int sampleEvery, long minSamples, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    this.stepname = stepname;
+    this.keyRowMetaJson = keyRowMetaJson;
+    this.sampleEvery = sampleEvery;
+    this.minSamples = minSamples;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+  }
+
+  @Override public PCollectionView<List<KettleKey>> expand( PCollection<KV<KettleKey, KettleRow>> input ) {
+    PCollection<KV<KettleKey, Long>> samples = input.apply( "sample keys", ParDo.of( new SampleKeyFn( stepname, sampleEvery ) ) );
+    samples.setCoder( KvCoder.of( KettleKeyCoder.of(), VarLongCoder.of() ) );
+
+    long hotKeyMinSamples = minSamples;
+    PCollection<KV<KettleKey, Long>> sampleCounts = samples.apply( "count samples", Sum.longsPerKey() );
+    PCollection<KV<KettleKey, Long>> hotSampleCounts = sampleCounts.apply( "hot keys", Filter.by( kv -> kv.getValue() >= hotKeyMinSamples ) );
+    PCollection<KettleKey> hotKeys = hotSampleCounts.apply( "hot key values", Keys.create() );
+    hotKeys.setCoder( KettleKeyCoder.of() );
+
+    PCollection<KettleKey> reportedHotKeys = hotKeys.apply( "report hot keys", ParDo.of( new HotKeyReportFn( stepname, keyRowMetaJson, stepPluginClasses, xpPluginClasses ) ) );
+    reportedHotKeys.setCoder( KettleKeyCoder.of() );
+
+    return reportedHotKeys.apply( "hot keys view", View.asList() );
+  }
+}
@@ -0,0 +1,33 @@
+package org.kettle.beam.core.transform;
+
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.kettle.beam.core.fn.ShardCountCombineFn;
+
+/**
+ * Determines the number of files to write from the volume of the lines, per window for windowed writes.
+ */
+public class ShardCountTransform extends PTransform<PCollection<String>, PCollectionView<Integer>> {
+
+  private long maxRecordsPerFile;
+  private long maxBytesPerFile;
+
+  public ShardCountTransform( long maxRecordsPerFile, long maxBytesPerFile ) {
+    this.maxRecordsPerFile = maxRecordsPerFile;
+    this.maxBytesPerFile = maxBytesPerFile;
+  }
+
+  @Override public PCollectionView<Integer> expand( PCollection<String> input ) {
+    Combine.Globally<String, Integer> combine = Combine.globally( new ShardCountCombineFn( maxRecordsPerFile, maxBytesPerFile ) );
+
+    // A default value for empty input is only possible in the global window
+    //
+    if ( !( input.getWindowingStrategy().getWindowFn() instanceof GlobalWindows ) ) {
+      combine = combine.withoutDefaults();
+    }
+    return input.apply( combine.asSingletonView() );
+  }
+}
@@ -0,0 +1,130 @@
+package org.kettle.beam.core.transform;
+
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.ListCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.ApproximateQuantiles;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.Keys;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleKeyCoder;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
+import org.kettle.beam.core.fn.RangePartitionFn;
+import org.kettle.beam.core.fn.SampleKeyFn;
+import org.kettle.beam.core.fn.SortKeyFn;
+import org.kettle.beam.core.fn.SortRangeFn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Sort rows over a number of workers:
+ * <ul>
+ *   <li>Every row gets a byte comparable sort key, see KettleKeyEncoder.encodeSortKey()</li>
+ *   <li>The quantiles of a sample of the sort keys split the keys in ranges of about the same size</li>
+ *   <li>The rows are grouped per range and every range is sorted with an external (spill to disk) sort</li>
+ * </ul>
+ * Range i only has keys which sort before the keys of range i+1 and every range is output in sort order.
+ * That order doesn't survive the output PCollection though: Beam doesn't keep the order of elements between transforms.
+ * Only the unique rows option (the first row of every sort key) is reliable downstream, see BeamSortRowsStepHandler.
+ */
+public class SortRowsTransform extends PTransform<PCollection<KettleRow>, PCollection<KettleRow>> {
+
+  // The non-transient methods are serializing
+  // Keep them simple to stay out of trouble.
+  //
+  private String stepname;
+  private String rowMetaJson;
+  private String[] sortFields;
+  private boolean[] ascending;
+  private boolean[] caseSensitive;
+  private boolean onlyUnique; // Only pass the first row of every sort key
+  private int nrRanges;
+  private int sampleEvery; // Sample 1 in this many keys to find the ranges
+  private int maxRowsInMemory; // Spill to disk when a range has more rows
+  private boolean compress; // Compress the rows spilled to disk
+  private List<String> stepPluginClasses;
+  private List<String> xpPluginClasses;
+
+  private static final Logger LOG = LoggerFactory.getLogger( SortRowsTransform.class );
+  private final Counter numErrors = Metrics.counter( "main", "SortRowsTransformErrors" );
+
+  public SortRowsTransform() {
+  }
+
+  public SortRowsTransform( String stepname, String rowMetaJson, List<String> stepPluginClasses, List<String> xpPluginClasses,
+                            String[] sortFields, boolean[] ascending, boolean[] caseSensitive, boolean onlyUnique,
+                            int nrRanges, int sampleEvery, int maxRowsInMemory, boolean compress ) {
+    this.stepname = stepname;
+    this.rowMetaJson = rowMetaJson;
+    this.stepPluginClasses = stepPluginClasses;
+    this.xpPluginClasses = xpPluginClasses;
+    this.sortFields = sortFields;
+    this.ascending = ascending;
+    this.caseSensitive = caseSensitive;
+    this.onlyUnique = onlyUnique;
+    this.nrRanges = nrRanges;
+    this.sampleEvery = sampleEvery;
+    this.maxRowsInMemory = maxRowsInMemory;
+    this.compress = compress;
+  }
+
+  @Override public PCollection<KettleRow> expand( PCollection<KettleRow> input ) {
+    try {
+      KettleRowMetaCoder rowCoder = new KettleRowMetaCoder( rowMetaJson );
+
+      PCollection<KV<KettleKey, KettleRow>> keyedRows = input.apply( stepname + " sort key", ParDo.of(
+        new SortKeyFn( rowMetaJson, sortFields, ascending, caseSensitive, stepname, stepPluginClasses, xpPluginClasses ) ) );
+      keyedRows.setCoder( KvCoder.of( KettleKeyCoder.of(), rowCoder ) );
+
+      // Find the boundaries of the ranges in a sample of the sort keys
+      //
+      PCollection<KV<KettleKey, Long>> samples = keyedRows.apply( stepname + " sample keys", ParDo.of( new SampleKeyFn( stepname, sampleEvery ) ) );
+      samples.setCoder( KvCoder.of( KettleKeyCoder.of(), VarLongCoder.of() ) );
+      PCollection<KettleKey> sampledKeys = samples.apply( stepname + " sampled keys", Keys.create() );
+      sampledKeys.setCoder( KettleKeyCoder.of() );
+      Combine.Globally<KettleKey, List<KettleKey>> quantilesCombine = Combine.globally( ApproximateQuantiles.ApproximateQuantilesCombineFn.<KettleKey>create( nrRanges + 1 ) );
+
+      // Only the global window has a default (empty) value for input without samples.
+      // In other windows there are no quantiles at all, see RangePartitionFn
+      //
+      if ( !( sampledKeys.getWindowingStrategy().getWindowFn() instanceof GlobalWindows ) ) {
+        quantilesCombine = quantilesCombine.withoutDefaults();
+      }
+      PCollection<List<KettleKey>> quantiles = sampledKeys.apply( stepname + " quantiles", quantilesCombine );
+      quantiles.setCoder( ListCoder.of( KettleKeyCoder.of() ) );
+      PCollectionView<List<List<KettleKey>>> quantilesView = quantiles.apply( stepname + " quantiles view", View.asList() );
+
+      // Group the rows per range and sort every range
+      //
+      PCollection<KV<Integer, KV<KettleKey, KettleRow>>> rangeRows = keyedRows.apply( stepname + " range partition",
+        ParDo.of( new RangePartitionFn( quantilesView ) ).withSideInputs( quantilesView ) );
+      rangeRows.setCoder( KvCoder.of( VarIntCoder.of(), keyedRows.getCoder() ) );
+
+      PCollection<KV<Integer, Iterable<KV<KettleKey, KettleRow>>>> groupedRanges = rangeRows.apply( stepname + " group ranges", GroupByKey.create() );
+
+      PCollection<KettleRow> output = groupedRanges.apply( stepname + " sort ranges", ParDo.of(
+        new SortRangeFn( rowMetaJson, maxRowsInMemory, compress, onlyUnique, stepname ) ) );
+      output.setCoder( rowCoder );
+
+      return output;
+    } catch ( Exception e ) {
+      numErrors.inc();
+      LOG.error( "Error in sort rows transform", e );
+      throw new RuntimeException( "Error in sort rows transform", e );
+    }
+  }
+}
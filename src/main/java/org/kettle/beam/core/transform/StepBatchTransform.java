@@ -1,23 +1,38 @@
 package org.kettle.beam.core.transform;
 
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.state.BagState;
+import org.apache.beam.sdk.state.StateSpec;
+import org.apache.beam.sdk.state.StateSpecs;
+import org.apache.beam.sdk.state.TimeDomain;
+import org.apache.beam.sdk.state.Timer;
+import org.apache.beam.sdk.state.TimerSpec;
+import org.apache.beam.sdk.state.TimerSpecs;
+import org.apache.beam.sdk.state.ValueState;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.TupleTag;
 import org.apache.beam.sdk.values.TupleTagList;
 import org.apache.commons.lang.StringUtils;
-import org.joda.time.Instant;
+import org.joda.time.Duration;
 import org.kettle.beam.core.BeamKettle;
 import org.kettle.beam.core.KettleRow;
 import org.kettle.beam.core.metastore.SerializableMetaStore;
 import org.kettle.beam.core.shared.VariableValue;
 import org.kettle.beam.core.util.JsonRowMeta;
 import org.kettle.beam.core.util.KettleBeamUtil;
+import org.kettle.beam.core.util.ScriptContexts;
+import org.kettle.beam.core.util.SideInputCache;
+import org.kettle.beam.core.util.TransMetaTemplateCache;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.logging.LogLevel;
@@ -37,27 +52,41 @@ import org.pentaho.di.trans.step.StepMetaDataCombi;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
 import org.pentaho.di.trans.steps.injector.InjectorMeta;
+import org.pentaho.di.trans.steps.scriptvalues_mod.ScriptValuesModData;
 import org.pentaho.metastore.api.IMetaStore;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Queue;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Runs a Kettle step on batches of rows, for steps like Table Output which work best when they get a lot of rows at once.
+ * The rows are spread over a bounded number of shards. Every shard buffers rows in keyed state until the batch is full,
+ * the flush interval has passed or the window ends.
+ */
 public class StepBatchTransform extends StepTransform {
 
+  public static final int DEFAULT_NR_SHARDS = 16;
+
+  /**
+   * Rows are never kept in the buffer longer than this when no flush interval is configured.
+   * The global window of a streaming pipeline never ends so we can't rely on the end of the window alone.
+   */
+  public static final int DEFAULT_FLUSH_INTERVAL_MS = 10000;
+
+  protected int nrShards;
+
   public StepBatchTransform() {
     super();
   }
 
   public StepBatchTransform( List<VariableValue> variableValues, String metastoreJson, List<String> stepPluginClasses, List<String> xpPluginClasses,
-                             int batchSize, int flushIntervalMs, String stepname, String stepPluginId, String stepMetaInterfaceXml, String inputRowMetaJson, boolean inputStep,
+                             int batchSize, int flushIntervalMs, int nrShards, String stepname, String stepPluginId, String stepMetaInterfaceXml, String inputRowMetaJson, boolean inputStep,
                              List<String> targetSteps, List<String> infoSteps, List<String> infoRowMetaJsons, List<PCollectionView<List<KettleRow>>> infoCollectionViews ) {
     super(variableValues, metastoreJson, stepPluginClasses, xpPluginClasses, batchSize, flushIntervalMs, stepname, stepPluginId,
       stepMetaInterfaceXml, inputRowMetaJson, inputStep, targetSteps, infoSteps, infoRowMetaJsons, infoCollectionViews);
+    this.nrShards = nrShards;
   }
 
   @Override public PCollectionTuple expand( PCollection<KettleRow> input ) {
@@ -87,15 +116,23 @@ public class StepBatchTransform extends StepTransform {
         targetTupleTagList = TupleTagList.empty();
       }
 
+      // Spread the rows over a bounded number of shards.
+      // The buffered rows are kept in state per shard (and window).
+      //
+      Coder<KettleRow> rowCoder = input.getCoder();
+      PCollection<KV<Integer, KettleRow>> shardedInput = input
+        .apply( stepname + " shard", ParDo.of( new ShardRowFn( nrShards > 0 ? nrShards : DEFAULT_NR_SHARDS ) ) )
+        .setCoder( KvCoder.of( VarIntCoder.of(), rowCoder ) );
+
       // Create a new step function, initializes the step
       //
       StepBatchFn stepBatchFn = new StepBatchFn( variableValues, metastoreJson, stepPluginClasses, xpPluginClasses,
         stepname, stepPluginId, stepMetaInterfaceXml, inputRowMetaJson, inputStep,
-        targetSteps, infoSteps, infoRowMetaJsons );
+        targetSteps, infoSteps, infoRowMetaJsons, rowCoder );
 
       // The actual step functionality
       //
-      ParDo.SingleOutput<KettleRow, KettleRow> parDoStepFn = ParDo.of( stepBatchFn );
+      ParDo.SingleOutput<KV<Integer, KettleRow>, KettleRow> parDoStepFn = ParDo.of( stepBatchFn );
 
       // Add optional side inputs...
       //
@@ -105,11 +142,11 @@ public class StepBatchTransform extends StepTransform {
 
       // Specify the main output and targeted outputs
       //
-      ParDo.MultiOutput<KettleRow, KettleRow> multiOutput = parDoStepFn.withOutputTags( mainOutputTupleTag, targetTupleTagList );
+      ParDo.MultiOutput<KV<Integer, KettleRow>, KettleRow> multiOutput = parDoStepFn.withOutputTags( mainOutputTupleTag, targetTupleTagList );
 
-      // Apply the multi output parallel do step function to the main input stream
+      // Apply the multi output parallel do step function to the sharded main input stream
       //
-      PCollectionTuple collectionTuple = input.apply( multiOutput );
+      PCollectionTuple collectionTuple = shardedInput.apply( multiOutput );
 
       // In the tuple is everything we need to find.
       // Just make sure to retrieve the PCollections using the correct Tuple ID
@@ -124,12 +161,61 @@ public class StepBatchTransform extends StepTransform {
 
   }
 
-  private class StepBatchFn extends DoFn<KettleRow, KettleRow> {
+  /**
+   * Assigns rows round robin to the shards, starting at a random shard for every bundle
+   */
+  private static class ShardRowFn extends DoFn<KettleRow, KV<Integer, KettleRow>> {
+
+    private static final long serialVersionUID = 95700000000000003L;
+
+    private int nrShards;
+
+    private transient int shard;
+
+    public ShardRowFn( int nrShards ) {
+      this.nrShards = nrShards;
+    }
+
+    @StartBundle
+    public void startBundle( StartBundleContext startBundleContext ) {
+      shard = ThreadLocalRandom.current().nextInt( nrShards );
+    }
+
+    @ProcessElement
+    public void processElement( ProcessContext context ) {
+      shard = ( shard + 1 ) % nrShards;
+      context.output( KV.of( shard, context.element() ) );
+    }
+  }
+
+  /**
+   * Runs the Kettle step in a single threaded transformation for every batch of rows buffered in a shard.
+   * The buffer is flushed when it reaches the batch size, when the flush interval (processing time) has passed since
+   * the first row was buffered and at the end of the window.
+   */
+  private class StepBatchFn extends DoFn<KV<Integer, KettleRow>, KettleRow> {
 
     private static final long serialVersionUID = 95700000000000002L;
 
     public static final String INJECTOR_STEP_NAME = "_INJECTOR_";
 
+    private static final String BUFFER_STATE = "buffer";
+    private static final String BUFFER_SIZE_STATE = "bufferSize";
+    private static final String FLUSH_TIMER = "flush";
+    private static final String WINDOW_END_TIMER = "windowEnd";
+
+    @StateId( BUFFER_STATE )
+    private final StateSpec<BagState<KettleRow>> bufferSpec;
+
+    @StateId( BUFFER_SIZE_STATE )
+    private final StateSpec<ValueState<Integer>> bufferSizeSpec = StateSpecs.value( VarIntCoder.of() );
+
+    @TimerId( FLUSH_TIMER )
+    private final TimerSpec flushTimerSpec = TimerSpecs.timer( TimeDomain.PROCESSING_TIME );
+
+    @TimerId( WINDOW_END_TIMER )
+    private final TimerSpec windowEndTimerSpec = TimerSpecs.timer( TimeDomain.EVENT_TIME );
+
     protected List<VariableValue> variableValues;
     protected String metastoreJson;
     protected List<String> stepPluginClasses;
@@ -142,7 +228,6 @@ public class StepBatchTransform extends StepTransform {
     protected List<String> infoSteps;
     protected List<String> infoRowMetaJsons;
     protected boolean inputStep;
-    protected boolean initialize;
 
     protected List<PCollection<KettleRow>> infoCollections;
 
@@ -173,23 +258,16 @@ public class StepBatchTransform extends StepTransform {
 
     private transient SingleThreadedTransExecutor executor;
 
-    private transient Queue<KettleRow> rowBuffer;
-    private transient BoundedWindow batchWindow;
-
-    private transient AtomicLong lastTimerCheck;
-    private transient Timer timer;
-
-    public StepBatchFn() {
-    }
-
+    private transient boolean infoDataLoaded;
+    private transient List<ScriptValuesModData> scriptDataList;
 
     // I created a private class because instances of this one need access to infoCollectionViews
     //
 
     public StepBatchFn( List<VariableValue> variableValues, String metastoreJson, List<String> stepPluginClasses, List<String> xpPluginClasses, String stepname, String stepPluginId,
                         String stepMetaInterfaceXml, String inputRowMetaJson, boolean inputStep,
-                        List<String> targetSteps, List<String> infoSteps, List<String> infoRowMetaJsons ) {
-      this();
+                        List<String> targetSteps, List<String> infoSteps, List<String> infoRowMetaJsons, Coder<KettleRow> rowCoder ) {
+      this.bufferSpec = StateSpecs.bag( rowCoder );
       this.variableValues = variableValues;
       this.metastoreJson = metastoreJson;
       this.stepPluginClasses = stepPluginClasses;
@@ -202,26 +280,132 @@ public class StepBatchTransform extends StepTransform {
       this.targetSteps = targetSteps;
       this.infoSteps = infoSteps;
       this.infoRowMetaJsons = infoRowMetaJsons;
-      this.initialize = true;
     }
 
-    /**
-     * Reset the row buffer every time we start a new bundle to prevent the output of double rows
-     *
-     * @param startBundleContext
-     */
     @StartBundle
     public void startBundle( StartBundleContext startBundleContext ) {
       Metrics.counter( "startBundle", stepname ).inc();
-      if ( "ScriptValueMod".equals( stepPluginId ) && trans != null ) {
-        initialize = true;
-      }
     }
 
     @Setup
     public void setup() {
       try {
-        rowBuffer = new ConcurrentLinkedQueue();
+        // Initialize Kettle and load extra plugins as well
+        //
+        BeamKettle.init( stepPluginClasses, xpPluginClasses );
+
+        // Input row metadata...
+        //
+        inputRowMeta = JsonRowMeta.fromJson( inputRowMetaJson );
+        infoRowMetas = new ArrayList<>();
+        for ( String infoRowMetaJson : infoRowMetaJsons ) {
+          RowMetaInterface infoRowMeta = JsonRowMeta.fromJson( infoRowMetaJson );
+          infoRowMetas.add( infoRowMeta );
+        }
+
+        // All instances of this function in the JVM execute the same transformation.
+        // Get a copy of the prepared template, it's only built once.
+        //
+        transMeta = TransMetaTemplateCache.getTransMeta( getTemplateKey(), this::buildTransMeta );
+        stepMeta = transMeta.findStep( stepname );
+
+        stepCombis = new ArrayList<>();
+
+        // Create the transformation...
+        //
+        trans = new Trans( transMeta );
+        trans.setLogLevel( LogLevel.ERROR );
+        trans.setMetaStore( transMeta.getMetaStore() );
+        trans.prepareExecution( null );
+
+        // Create producers so we can efficiently pass data
+        //
+        rowProducer = null;
+        if ( !inputStep ) {
+          rowProducer = trans.addRowProducer( INJECTOR_STEP_NAME, 0 );
+        }
+        infoRowProducers = new ArrayList<>();
+        for ( String infoStep : infoSteps ) {
+          RowProducer infoRowProducer = trans.addRowProducer( infoStep, 0 );
+          infoRowProducers.add( infoRowProducer );
+        }
+
+        // Find the right interfaces for execution later...
+        //
+        if ( !inputStep ) {
+          StepMetaDataCombi injectorCombi = findCombi( trans, INJECTOR_STEP_NAME );
+          stepCombis.add( injectorCombi );
+        }
+
+        StepMetaDataCombi stepCombi = findCombi( trans, stepname );
+        stepCombis.add( stepCombi );
+        outputRowMeta = transMeta.getStepFields( stepname );
+
+        if ( targetSteps.isEmpty() ) {
+          rowListener = new RowAdapter() {
+            @Override public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+              resultRows.add( row );
+            }
+          };
+          stepCombi.step.addRowListener( rowListener );
+        }
+
+        // Create a list of TupleTag to direct the target rows
+        //
+        mainTupleTag = new TupleTag<KettleRow>( KettleBeamUtil.createMainOutputTupleId( stepname ) ) {
+        };
+        tupleTagList = new ArrayList<>();
+
+        // The lists in here will contain all the rows that ended up in the various target steps (if any)
+        //
+        targetRowMetas = new ArrayList<>();
+        targetResultRowsList = new ArrayList<>();
+
+        for ( String targetStep : targetSteps ) {
+          StepMetaDataCombi targetCombi = findCombi( trans, targetStep );
+          stepCombis.add( targetCombi );
+          targetRowMetas.add( transMeta.getStepFields( stepCombi.stepname ) );
+
+          String tupleId = KettleBeamUtil.createTargetTupleId( stepname, targetStep );
+          TupleTag<KettleRow> tupleTag = new TupleTag<KettleRow>( tupleId ) {
+          };
+          tupleTagList.add( tupleTag );
+          final List<Object[]> targetResultRows = new ArrayList<>();
+          targetResultRowsList.add( targetResultRows );
+
+          targetCombi.step.addRowListener( new RowAdapter() {
+            @Override public void rowReadEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+              // We send the target row to a specific list...
+              //
+              targetResultRows.add( row );
+            }
+          } );
+        }
+
+        executor = new SingleThreadedTransExecutor( trans );
+
+        // Initialize the steps...
+        //
+        executor.init();
+        scriptDataList = ScriptContexts.findScriptData( trans );
+
+        initCounter = Metrics.counter( "init", stepname );
+        readCounter = Metrics.counter( "read", stepname );
+        writtenCounter = Metrics.counter( "written", stepname );
+        flushBufferCounter = Metrics.counter( "flushBuffer", stepname );
+
+        initCounter.inc();
+
+        // Doesn't really start the threads in single threaded mode
+        // Just sets some flags all over the place
+        //
+        trans.startThreads();
+
+        resultRows = new ArrayList<>();
+
+        // The info data comes from side inputs, only available when processing elements
+        //
+        infoDataLoaded = infoSteps.isEmpty();
       } catch ( Exception e ) {
         numErrors.inc();
         LOG.info( "Step '" + stepname + "' : setup error :" + e.getMessage() );
@@ -231,305 +415,249 @@ public class StepBatchTransform extends StepTransform {
 
     @Teardown
     public void tearDown() {
-      if ( timer != null ) {
-        timer.cancel();
+      try {
+        if ( executor != null ) {
+          executor.dispose();
+        }
+      } catch ( Exception e ) {
+        LOG.warn( "Error disposing of the steps in the transformation of step '" + stepname + "'", e );
       }
     }
 
-    @ProcessElement
-    public void processElement( ProcessContext context, BoundedWindow window ) {
-
-      try {
-
-        if ( initialize ) {
-          initialize = false;
-
-          // Initialize Kettle and load extra plugins as well
-          //
-          BeamKettle.init( stepPluginClasses, xpPluginClasses );
-
-          // The content of the metastore is JSON serialized and inflated below.
-          //
-          IMetaStore metaStore = new SerializableMetaStore( metastoreJson );
-
-          // Create a very simple new transformation to run single threaded...
-          // Single threaded...
-          //
-          transMeta = new TransMeta();
-          transMeta.setMetaStore( metaStore );
-
-          // When the first row ends up in the buffer we start the timer.
-          // If the rows are flushed out we reset back to -1;
-          //
-          lastTimerCheck = new AtomicLong( -1L );
-
-          // Give steps variables from above
-          //
-          for ( VariableValue variableValue : variableValues ) {
-            if ( StringUtils.isNotEmpty( variableValue.getVariable() ) ) {
-              transMeta.setVariable( variableValue.getVariable(), variableValue.getValue() );
-            }
-          }
-
-          // Input row metadata...
-          //
-          inputRowMeta = JsonRowMeta.fromJson( inputRowMetaJson );
-          infoRowMetas = new ArrayList<>();
-          for ( String infoRowMetaJson : infoRowMetaJsons ) {
-            RowMetaInterface infoRowMeta = JsonRowMeta.fromJson( infoRowMetaJson );
-            infoRowMetas.add( infoRowMeta );
-          }
-
-          // Create an Injector step with the right row layout...
-          // This will help all steps see the row layout statically...
-          //
-          StepMeta mainInjectorStepMeta = null;
-          if ( !inputStep ) {
-            mainInjectorStepMeta = createInjectorStep( transMeta, INJECTOR_STEP_NAME, inputRowMeta, 200, 200 );
-          }
-
-          // Our main step writes to a bunch of targets
-          // Add a dummy step for each one so the step can target them
-          //
-          int targetLocationY = 200;
-          List<StepMeta> targetStepMetas = new ArrayList<>();
-          for ( String targetStep : targetSteps ) {
-            DummyTransMeta dummyMeta = new DummyTransMeta();
-            StepMeta targetStepMeta = new StepMeta( targetStep, dummyMeta );
-            targetStepMeta.setLocation( 600, targetLocationY );
-            targetStepMeta.setDraw( true );
-            targetLocationY += 150;
-
-            targetStepMetas.add( targetStepMeta );
-            transMeta.addStep( targetStepMeta );
-          }
-
-          // The step might read information from info steps
-          // Steps like "Stream Lookup" or "Validator"
-          // They read all the data on input from a side input
-          //
-          List<List<KettleRow>> infoDataSets = new ArrayList<>();
-          List<StepMeta> infoStepMetas = new ArrayList<>();
-          for ( int i = 0; i < infoSteps.size(); i++ ) {
-            String infoStep = infoSteps.get( i );
-            PCollectionView<List<KettleRow>> cv = infoCollectionViews.get( i );
-
-            // Get the data from the side input, from the info step(s)
-            //
-            List<KettleRow> infoDataSet = context.sideInput( cv );
-            infoDataSets.add( infoDataSet );
-
-            RowMetaInterface infoRowMeta = infoRowMetas.get( i );
-
-            // Add an Injector step for every info step so the step can read from it
-            //
-            StepMeta infoStepMeta = createInjectorStep( transMeta, infoStep, infoRowMeta, 200, 350 + 150 * i );
-            infoStepMetas.add( infoStepMeta );
-          }
+    /**
+     * Build the transformation to execute: an injector step for the input, the step, a dummy step for every target step
+     * and an injector step for every info step.  This is the template which is cached for the JVM.
+     *
+     * @return the transformation metadata
+     * @throws KettleException
+     */
+    private TransMeta buildTransMeta() throws KettleException {
 
-          stepCombis = new ArrayList<>();
+      // The content of the metastore is JSON serialized and inflated below.
+      //
+      IMetaStore metaStore = new SerializableMetaStore( metastoreJson );
 
-          // The main step inflated from XML metadata...
-          //
-          PluginRegistry registry = PluginRegistry.getInstance();
-          StepMetaInterface stepMetaInterface = registry.loadClass( StepPluginType.class, stepPluginId, StepMetaInterface.class );
-          if ( stepMetaInterface == null ) {
-            throw new KettleException( "Unable to load step plugin with ID " + stepPluginId + ", this plugin isn't in the plugin registry or classpath" );
-          }
+      // Create a very simple new transformation to run single threaded...
+      // Single threaded...
+      //
+      TransMeta transMeta = new TransMeta();
+      transMeta.setMetaStore( metaStore );
 
-          KettleBeamUtil.loadStepMetadataFromXml( stepname, stepMetaInterface, stepMetaInterfaceXml, transMeta.getMetaStore() );
+      // Give steps variables from above
+      //
+      for ( VariableValue variableValue : variableValues ) {
+        if ( StringUtils.isNotEmpty( variableValue.getVariable() ) ) {
+          transMeta.setVariable( variableValue.getVariable(), variableValue.getValue() );
+        }
+      }
 
-          stepMeta = new StepMeta( stepname, stepMetaInterface );
-          stepMeta.setStepID( stepPluginId );
-          stepMeta.setLocation( 400, 200 );
-          stepMeta.setDraw( true );
-          transMeta.addStep( stepMeta );
-          if ( !inputStep ) {
-            transMeta.addTransHop( new TransHopMeta( mainInjectorStepMeta, stepMeta ) );
-          }
-          // The target hops as well
-          //
-          for ( StepMeta targetStepMeta : targetStepMetas ) {
-            transMeta.addTransHop( new TransHopMeta( stepMeta, targetStepMeta ) );
-          }
+      // Create an Injector step with the right row layout...
+      // This will help all steps see the row layout statically...
+      //
+      StepMeta mainInjectorStepMeta = null;
+      if ( !inputStep ) {
+        mainInjectorStepMeta = createInjectorStep( transMeta, INJECTOR_STEP_NAME, inputRowMeta, 200, 200 );
+      }
 
-          // And the info hops...
-          //
-          for ( StepMeta infoStepMeta : infoStepMetas ) {
-            transMeta.addTransHop( new TransHopMeta( infoStepMeta, stepMeta ) );
-          }
+      // Our main step writes to a bunch of targets
+      // Add a dummy step for each one so the step can target them
+      //
+      int targetLocationY = 200;
+      List<StepMeta> targetStepMetas = new ArrayList<>();
+      for ( String targetStep : targetSteps ) {
+        DummyTransMeta dummyMeta = new DummyTransMeta();
+        StepMeta targetStepMeta = new StepMeta( targetStep, dummyMeta );
+        targetStepMeta.setLocation( 600, targetLocationY );
+        targetStepMeta.setDraw( true );
+        targetLocationY += 150;
+
+        targetStepMetas.add( targetStepMeta );
+        transMeta.addStep( targetStepMeta );
+      }
 
-          stepMetaInterface.searchInfoAndTargetSteps( transMeta.getSteps() );
+      // The step might read information from info steps
+      // Steps like "Stream Lookup" or "Validator"
+      // They read all the data on input from a side input
+      //
+      List<StepMeta> infoStepMetas = new ArrayList<>();
+      for ( int i = 0; i < infoSteps.size(); i++ ) {
+        String infoStep = infoSteps.get( i );
+        RowMetaInterface infoRowMeta = infoRowMetas.get( i );
 
-          // This one is single threaded folks
-          //
-          transMeta.setTransformationType( TransMeta.TransformationType.SingleThreaded );
+        // Add an Injector step for every info step so the step can read from it
+        //
+        StepMeta infoStepMeta = createInjectorStep( transMeta, infoStep, infoRowMeta, 200, 350 + 150 * i );
+        infoStepMetas.add( infoStepMeta );
+      }
 
-          // Create the transformation...
-          //
-          trans = new Trans( transMeta );
-          trans.setLogLevel( LogLevel.ERROR );
-          trans.setMetaStore( transMeta.getMetaStore() );
-          trans.prepareExecution( null );
+      // The main step inflated from XML metadata...
+      //
+      PluginRegistry registry = PluginRegistry.getInstance();
+      StepMetaInterface stepMetaInterface = registry.loadClass( StepPluginType.class, stepPluginId, StepMetaInterface.class );
+      if ( stepMetaInterface == null ) {
+        throw new KettleException( "Unable to load step plugin with ID " + stepPluginId + ", this plugin isn't in the plugin registry or classpath" );
+      }
 
-          // Create producers so we can efficiently pass data
-          //
-          rowProducer = null;
-          if ( !inputStep ) {
-            rowProducer = trans.addRowProducer( INJECTOR_STEP_NAME, 0 );
-          }
-          infoRowProducers = new ArrayList<>();
-          for ( String infoStep : infoSteps ) {
-            RowProducer infoRowProducer = trans.addRowProducer( infoStep, 0 );
-            infoRowProducers.add( infoRowProducer );
-          }
+      KettleBeamUtil.loadStepMetadataFromXml( stepname, stepMetaInterface, stepMetaInterfaceXml, transMeta.getMetaStore() );
 
-          // Find the right interfaces for execution later...
-          //
-          if ( !inputStep ) {
-            StepMetaDataCombi injectorCombi = findCombi( trans, INJECTOR_STEP_NAME );
-            stepCombis.add( injectorCombi );
-          }
+      StepMeta mainStepMeta = new StepMeta( stepname, stepMetaInterface );
+      mainStepMeta.setStepID( stepPluginId );
+      mainStepMeta.setLocation( 400, 200 );
+      mainStepMeta.setDraw( true );
+      transMeta.addStep( mainStepMeta );
+      if ( !inputStep ) {
+        transMeta.addTransHop( new TransHopMeta( mainInjectorStepMeta, mainStepMeta ) );
+      }
+      // The target hops as well
+      //
+      for ( StepMeta targetStepMeta : targetStepMetas ) {
+        transMeta.addTransHop( new TransHopMeta( mainStepMeta, targetStepMeta ) );
+      }
 
-          StepMetaDataCombi stepCombi = findCombi( trans, stepname );
-          stepCombis.add( stepCombi );
-          outputRowMeta = transMeta.getStepFields( stepname );
-
-          if ( targetSteps.isEmpty() ) {
-            rowListener = new RowAdapter() {
-              @Override public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
-                resultRows.add( row );
-              }
-            };
-            stepCombi.step.addRowListener( rowListener );
-          }
+      // And the info hops...
+      //
+      for ( StepMeta infoStepMeta : infoStepMetas ) {
+        transMeta.addTransHop( new TransHopMeta( infoStepMeta, mainStepMeta ) );
+      }
 
-          // Create a list of TupleTag to direct the target rows
-          //
-          mainTupleTag = new TupleTag<KettleRow>( KettleBeamUtil.createMainOutputTupleId( stepname ) ) {
-          };
-          tupleTagList = new ArrayList<>();
-
-          // The lists in here will contain all the rows that ended up in the various target steps (if any)
-          //
-          targetRowMetas = new ArrayList<>();
-          targetResultRowsList = new ArrayList<>();
-
-          for ( String targetStep : targetSteps ) {
-            StepMetaDataCombi targetCombi = findCombi( trans, targetStep );
-            stepCombis.add( targetCombi );
-            targetRowMetas.add( transMeta.getStepFields( stepCombi.stepname ) );
-
-            String tupleId = KettleBeamUtil.createTargetTupleId( stepname, targetStep );
-            TupleTag<KettleRow> tupleTag = new TupleTag<KettleRow>( tupleId ) {
-            };
-            tupleTagList.add( tupleTag );
-            final List<Object[]> targetResultRows = new ArrayList<>();
-            targetResultRowsList.add( targetResultRows );
-
-            targetCombi.step.addRowListener( new RowAdapter() {
-              @Override public void rowReadEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
-                // We send the target row to a specific list...
-                //
-                targetResultRows.add( row );
-              }
-            } );
-          }
+      stepMetaInterface.searchInfoAndTargetSteps( transMeta.getSteps() );
 
-          executor = new SingleThreadedTransExecutor( trans );
+      // This one is single threaded folks
+      //
+      transMeta.setTransformationType( TransMeta.TransformationType.SingleThreaded );
 
-          // Initialize the steps...
-          //
-          executor.init();
+      return transMeta;
+    }
 
-          initCounter = Metrics.counter( "init", stepname );
-          readCounter = Metrics.counter( "read", stepname );
-          writtenCounter = Metrics.counter( "written", stepname );
-          flushBufferCounter = Metrics.counter( "flushBuffer", stepname );
+    /**
+     * @return the key of the transformation template: a hash of everything which goes into buildTransMeta()
+     * @throws KettleException
+     */
+    private String getTemplateKey() throws KettleException {
+      List<String> parts = new ArrayList<>();
+      parts.add( stepname );
+      parts.add( stepPluginId );
+      parts.add( stepMetaInterfaceXml );
+      parts.add( inputRowMetaJson );
+      parts.add( Boolean.toString( inputStep ) );
+      parts.addAll( targetSteps );
+      parts.addAll( infoSteps );
+      parts.addAll( infoRowMetaJsons );
+      for ( VariableValue variableValue : variableValues ) {
+        parts.add( variableValue.getVariable() + "=" + variableValue.getValue() );
+      }
+      parts.add( metastoreJson );
+      return TransMetaTemplateCache.calculateTemplateKey( parts );
+    }
 
-          initCounter.inc();
+    /**
+     * Copy the info data sets from the side inputs to the info steps...
+     * We do this only once so all subsequent rows can use this.
+     *
+     * @param context
+     * @param window
+     * @throws KettleException
+     */
+    private void loadInfoData( ProcessContext context, BoundedWindow window ) throws KettleException {
+      List<List<Object[]>> infoDataSets = new ArrayList<>();
+      for ( int i = 0; i < infoSteps.size(); i++ ) {
+        // Get the data from the side input, from the info step(s)
+        //
+        PCollectionView<List<KettleRow>> infoCollectionView = infoCollectionViews.get( i );
+        infoDataSets.add( SideInputCache.getRows( infoCollectionView, window, infoRowMetas.get( i ), () -> context.sideInput( infoCollectionView ) ) );
+      }
+      passInfoData( infoDataSets );
+    }
 
-          // Doesn't really start the threads in single threaded mode
-          // Just sets some flags all over the place
-          //
-          trans.startThreads();
+    /**
+     * Timers can't read side inputs, only the rows of the info steps already cached on this worker can be used.
+     *
+     * @param window the window of the timer
+     * @return true if the info data was loaded, false if it isn't cached for every info step
+     * @throws KettleException
+     */
+    private boolean loadCachedInfoData( BoundedWindow window ) throws KettleException {
+      List<List<Object[]>> infoDataSets = new ArrayList<>();
+      for ( int i = 0; i < infoSteps.size(); i++ ) {
+        List<Object[]> infoDataSet = SideInputCache.getCachedRows( infoCollectionViews.get( i ), window );
+        if ( infoDataSet == null ) {
+          return false;
+        }
+        infoDataSets.add( infoDataSet );
+      }
+      passInfoData( infoDataSets );
+      return true;
+    }
 
-          resultRows = new ArrayList<>();
+    private void passInfoData( List<List<Object[]>> infoDataSets ) throws KettleException {
+      for ( int i = 0; i < infoSteps.size(); i++ ) {
+        RowProducer infoRowProducer = infoRowProducers.get( i );
+        StepMetaDataCombi combi = findCombi( trans, infoSteps.get( i ) );
+        RowMetaInterface infoRowMeta = infoRowMetas.get( i );
 
-          // Copy the info data sets to the info steps...
-          // We do this only once so all subsequent rows can use this.
-          //
-          for ( int i = 0; i < infoSteps.size(); i++ ) {
-            RowProducer infoRowProducer = infoRowProducers.get( i );
-            List<KettleRow> infoDataSet = infoDataSets.get( i );
-            StepMetaDataCombi combi = findCombi( trans, infoSteps.get( i ) );
-            RowMetaInterface infoRowMeta = infoRowMetas.get( i );
+        // Pass and process the rows in the info steps
+        //
+        for ( Object[] infoRowData : infoDataSets.get( i ) ) {
+          infoRowProducer.putRow( infoRowMeta, infoRowData );
+          combi.step.processRow( combi.meta, combi.data );
+        }
 
-            // Pass and process the rows in the info steps
-            //
-            for ( KettleRow infoRowData : infoDataSet ) {
-              infoRowProducer.putRow( infoRowMeta, infoRowData.getRow() );
-              combi.step.processRow( combi.meta, combi.data );
-            }
+        // By calling finished() steps like Stream Lookup know no more rows are going to come
+        // and they can start to work with the info data set
+        //
+        infoRowProducer.finished();
 
-            // By calling finished() steps like Stream Lookup know no more rows are going to come
-            // and they can start to work with the info data set
-            //
-            infoRowProducer.finished();
+        // Call once more to flag input as done, step as finished.
+        //
+        combi.step.processRow( combi.meta, combi.data );
+      }
+    }
 
-            // Call once more to flag input as done, step as finished.
-            //
-            combi.step.processRow( combi.meta, combi.data );
-          }
+    @ProcessElement
+    public void processElement( ProcessContext context,
+                                @StateId( BUFFER_STATE ) BagState<KettleRow> buffer,
+                                @StateId( BUFFER_SIZE_STATE ) ValueState<Integer> bufferSize,
+                                @TimerId( FLUSH_TIMER ) Timer flushTimer,
+                                @TimerId( WINDOW_END_TIMER ) Timer windowEndTimer,
+                                BoundedWindow window ) {
 
-          // Install a timer to check every second if the buffer is stale and needs to be flushed...
-          //
-          if ( flushIntervalMs > 0 ) {
-            TimerTask timerTask = new TimerTask() {
-              @Override public void run() {
-                // Check on the state of the buffer, flush if needed...
-                //
-                synchronized ( rowBuffer ) {
-                  long difference = System.currentTimeMillis() - lastTimerCheck.get();
-                  if ( lastTimerCheck.get()<=0 || difference > flushIntervalMs ) {
-                    try {
-                      emptyRowBuffer( new StepProcessContext( context ) );
-                    } catch ( Exception e ) {
-                      throw new RuntimeException( "Unable to flush row buffer when it got stale after " + difference + " ms", e );
-                    }
-                    lastTimerCheck.set( System.currentTimeMillis() );
-                  }
-                }
-              }
-            };
-            timer = new Timer( "Flush timer of step " + stepname );
-            timer.schedule( timerTask, 100, 100 );
-          }
+      try {
+        if ( !infoDataLoaded ) {
+          loadInfoData( context, window );
+          infoDataLoaded = true;
         }
 
         // Get one row from the context main input and make a copy so we can change it.
         //
-        KettleRow originalInputRow = context.element();
+        KettleRow originalInputRow = context.element().getValue();
         KettleRow inputRow = KettleBeamUtil.copyKettleRow( originalInputRow, inputRowMeta );
         readCounter.inc();
 
-        // Take care of the age of the buffer...
+        // Input steps only get a single dummy row to get going, nothing to batch up
         //
-        if ( flushIntervalMs > 0 && rowBuffer.isEmpty() ) {
-          lastTimerCheck.set( System.currentTimeMillis() );
+        if ( inputStep ) {
+          emptyRowBuffer( new StepProcessContext( context ), Collections.<KettleRow>emptyList() );
+          return;
         }
 
-        // Add the row to the buffer.
+        // Add the row to the buffer of this shard.
         //
-        synchronized ( rowBuffer ) {
-          rowBuffer.add( inputRow );
-          batchWindow = window;
+        buffer.add( inputRow );
+        Integer previousSize = bufferSize.read();
+        int size = previousSize == null ? 1 : previousSize + 1;
 
-          synchronized ( rowBuffer ) {
-            if ( rowBuffer.size() >= batchSize ) {
-              emptyRowBuffer( new StepProcessContext( context ) );
-            }
-          }
+        if ( size >= batchSize ) {
+          flushBuffer( new StepProcessContext( context ), buffer, bufferSize );
+          return;
+        }
+        bufferSize.write( size );
+
+        // The first row in the buffer determines how long the buffer can get stale.
+        // Whatever is left is flushed at the end of the window.
+        //
+        if ( size == 1 ) {
+          flushTimer.offset( getFlushInterval() ).setRelative();
+          windowEndTimer.set( window.maxTimestamp() );
         }
       } catch ( Exception e ) {
         numErrors.inc();
@@ -538,115 +666,154 @@ public class StepBatchTransform extends StepTransform {
       }
     }
 
-    @FinishBundle
-    public void finishBundle( FinishBundleContext context ) {
+    @OnTimer( FLUSH_TIMER )
+    public void onFlushTimer( OnTimerContext context,
+                              @StateId( BUFFER_STATE ) BagState<KettleRow> buffer,
+                              @StateId( BUFFER_SIZE_STATE ) ValueState<Integer> bufferSize,
+                              @TimerId( FLUSH_TIMER ) Timer flushTimer ) {
+      onTimer( context, buffer, bufferSize, flushTimer, false );
+    }
+
+    @OnTimer( WINDOW_END_TIMER )
+    public void onWindowEndTimer( OnTimerContext context,
+                                  @StateId( BUFFER_STATE ) BagState<KettleRow> buffer,
+                                  @StateId( BUFFER_SIZE_STATE ) ValueState<Integer> bufferSize,
+                                  @TimerId( FLUSH_TIMER ) Timer flushTimer ) {
+      onTimer( context, buffer, bufferSize, flushTimer, true );
+    }
+
+    private void onTimer( OnTimerContext context, BagState<KettleRow> buffer, ValueState<Integer> bufferSize, Timer flushTimer, boolean windowEnd ) {
       try {
-        synchronized ( rowBuffer ) {
-          if ( !rowBuffer.isEmpty() ) {
-            // System.out.println( "Finishing bundle with " + rowBuffer.size() + " rows in the buffer" );
-            emptyRowBuffer( new StepFinishBundleContext( context, batchWindow ) );
+        // After a restart the buffer can be restored before this instance saw any element.
+        // The info data (side inputs) can only be read while processing an element, unless it's cached on this worker.
+        // A flush can wait for the next element but the end of the window can't: the buffer is gone after it.
+        //
+        if ( !infoDataLoaded ) {
+          if ( loadCachedInfoData( context.window() ) ) {
+            infoDataLoaded = true;
+          } else if ( windowEnd ) {
+            throw new KettleException( "The info data of step '" + stepname + "' isn't available at the end of window " + context.window()
+              + ", the buffered rows can't be processed" );
+          } else {
+            Metrics.counter( "flushDeferred", stepname ).inc();
+            flushTimer.offset( getFlushInterval() ).setRelative();
+            return;
           }
         }
+        flushBuffer( new StepTimerContext( context ), buffer, bufferSize );
       } catch ( Exception e ) {
         numErrors.inc();
-        LOG.info( "Step finishing bundle error :" + e.getMessage() );
-        throw new RuntimeException( "Error finalizing bundle of step '" + stepname + "'", e );
+        LOG.info( "Step flushing buffer error :" + e.getMessage() );
+        throw new RuntimeException( "Error flushing the buffer of step '" + stepname + "'", e );
       }
     }
 
+    /**
+     * @return the configured flush interval or the default if none was set
+     */
+    private Duration getFlushInterval() {
+      return Duration.millis( flushIntervalMs > 0 ? flushIntervalMs : DEFAULT_FLUSH_INTERVAL_MS );
+    }
+
     private transient int maxInputBufferSize = 0;
     private transient int minInputBufferSize = Integer.MAX_VALUE;
 
     /**
-     * Attempt to empty the row buffer
+     * Take all the rows out of the buffer of the shard and pass them to the step
      *
      * @param context
+     * @param buffer
+     * @param bufferSize
      * @throws KettleException
      */
-    private synchronized void emptyRowBuffer( TupleOutputContext<KettleRow> context ) throws KettleException {
-      synchronized ( rowBuffer ) {
-
-        List<KettleRow> buffer = new ArrayList<>();
-
-        // Copy the data to avoid race conditions
-        //
-        int size = rowBuffer.size();
-        for ( int i = 0; i < size; i++ ) {
-          KettleRow kettleRow = rowBuffer.poll();
-          buffer.add( kettleRow );
-        }
+    private void flushBuffer( TupleOutputContext<KettleRow> context, BagState<KettleRow> buffer, ValueState<Integer> bufferSize ) throws KettleException {
+      List<KettleRow> rows = new ArrayList<>();
+      for ( KettleRow row : buffer.read() ) {
+        rows.add( row );
+      }
+      buffer.clear();
+      bufferSize.clear();
 
-        // Only do something if we have work to do
-        //
-        if ( buffer.isEmpty() ) {
-          return;
-        }
+      // Only do something if we have work to do
+      //
+      if ( rows.isEmpty() ) {
+        return;
+      }
 
-        if ( !rowBuffer.isEmpty() ) {
-          System.err.println( "Async action detected on rowBuffer" );
+      int size = rows.size();
+      if ( maxInputBufferSize < size ) {
+        Metrics.counter( "maxInputSize", stepname ).inc( size - maxInputBufferSize );
+        maxInputBufferSize = size;
+      }
+      if ( minInputBufferSize > size ) {
+        if ( minInputBufferSize == Integer.MAX_VALUE ) {
+          Metrics.counter( "minInputSize", stepname ).inc( size );
+        } else {
+          Metrics.counter( "minInputSize", stepname ).dec( minInputBufferSize - size );
         }
+        minInputBufferSize = size;
+      }
 
-        // Empty all the row buffers for another iteration
-        //
-        resultRows.clear();
-        for ( int t = 0; t < targetSteps.size(); t++ ) {
-          targetResultRowsList.get( t ).clear();
-        }
+      emptyRowBuffer( context, rows );
+    }
 
-        // Pass the rows in the rowBuffer to the input RowSet
-        //
-        if ( !inputStep ) {
-          int bufferSize = buffer.size();
-          if ( maxInputBufferSize < bufferSize ) {
-            Metrics.counter( "maxInputSize", stepname ).inc( bufferSize - maxInputBufferSize );
-            maxInputBufferSize = bufferSize;
-          }
-          if ( minInputBufferSize > bufferSize ) {
-            if ( minInputBufferSize == Integer.MAX_VALUE ) {
-              Metrics.counter( "minInputSize", stepname ).inc( bufferSize );
-            } else {
-              Metrics.counter( "minInputSize", stepname ).dec( bufferSize - minInputBufferSize );
-            }
-            minInputBufferSize = bufferSize;
-          }
+    /**
+     * Pass a batch of rows to the transformation, execute it once and output the results
+     *
+     * @param context
+     * @param inputRows
+     * @throws KettleException
+     */
+    private void emptyRowBuffer( TupleOutputContext<KettleRow> context, List<KettleRow> inputRows ) throws KettleException {
+      // Empty all the row buffers for another iteration
+      //
+      resultRows.clear();
+      for ( int t = 0; t < targetSteps.size(); t++ ) {
+        targetResultRowsList.get( t ).clear();
+      }
 
-          for ( KettleRow inputRow : buffer ) {
-            rowProducer.putRow( inputRowMeta, inputRow.getRow() );
-          }
+      // Pass the rows in the batch to the input RowSet
+      //
+      if ( !inputStep ) {
+        for ( KettleRow inputRow : inputRows ) {
+          rowProducer.putRow( inputRowMeta, inputRow.getRow() );
         }
+      }
 
-        // Execute all steps in the transformation
-        //
+      // Execute all steps in the transformation, script steps need a JavaScript context on this thread
+      //
+      ScriptContexts.enter( scriptDataList );
+      try {
         executor.oneIteration();
+      } finally {
+        ScriptContexts.exit( scriptDataList );
+      }
 
-        // Evaluate the results...
-        //
-
-        // Pass all rows in the output to the process context
-        //
-        for ( Object[] resultRow : resultRows ) {
+      // Evaluate the results...
+      //
 
-          // Pass the row to the process context
-          //
-          context.output( mainTupleTag, new KettleRow( resultRow ) );
-          writtenCounter.inc();
-        }
+      // Pass all rows in the output to the process context
+      //
+      for ( Object[] resultRow : resultRows ) {
 
-        // Pass whatever ended up on the target nodes
+        // Pass the row to the process context
         //
-        for ( int t = 0; t < targetResultRowsList.size(); t++ ) {
-          List<Object[]> targetRowsList = targetResultRowsList.get( t );
-          TupleTag<KettleRow> tupleTag = tupleTagList.get( t );
+        context.output( mainTupleTag, new KettleRow( resultRow ) );
+        writtenCounter.inc();
+      }
 
-          for ( Object[] targetRow : targetRowsList ) {
-            context.output( tupleTag, new KettleRow( targetRow ) );
-          }
-        }
+      // Pass whatever ended up on the target nodes
+      //
+      for ( int t = 0; t < targetResultRowsList.size(); t++ ) {
+        List<Object[]> targetRowsList = targetResultRowsList.get( t );
+        TupleTag<KettleRow> tupleTag = tupleTagList.get( t );
 
-        flushBufferCounter.inc();
-        buffer.clear(); // gc
-        lastTimerCheck.set( System.currentTimeMillis() ); // No need to check sooner
+        for ( Object[] targetRow : targetRowsList ) {
+          context.output( tupleTag, new KettleRow( targetRow ) );
+        }
       }
+
+      flushBufferCounter.inc();
     }
 
     private StepMeta createInjectorStep( TransMeta transMeta, String injectorStepName, RowMetaInterface injectorRowMeta, int x, int y ) {
@@ -694,18 +861,16 @@ public class StepBatchTransform extends StepTransform {
     }
   }
 
-  private class StepFinishBundleContext implements TupleOutputContext<KettleRow> {
+  private class StepTimerContext implements TupleOutputContext<KettleRow> {
 
-    private DoFn.FinishBundleContext context;
-    private BoundedWindow batchWindow;
+    private DoFn.OnTimerContext context;
 
-    public StepFinishBundleContext( DoFn.FinishBundleContext context, BoundedWindow batchWindow ) {
+    public StepTimerContext( DoFn.OnTimerContext context ) {
       this.context = context;
-      this.batchWindow = batchWindow;
     }
 
     @Override public void output( TupleTag<KettleRow> tupleTag, KettleRow output ) {
-      context.output( tupleTag, output, Instant.now(), batchWindow );
+      context.output( tupleTag, output );
     }
   }
 }
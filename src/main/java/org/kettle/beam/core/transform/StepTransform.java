@@ -19,6 +19,9 @@ import org.kettle.beam.core.metastore.SerializableMetaStore;
 import org.kettle.beam.core.shared.VariableValue;
 import org.kettle.beam.core.util.JsonRowMeta;
 import org.kettle.beam.core.util.KettleBeamUtil;
+import org.kettle.beam.core.util.ScriptContexts;
+import org.kettle.beam.core.util.SideInputCache;
+import org.kettle.beam.core.util.TransMetaTemplateCache;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.logging.LogLevel;
@@ -38,12 +41,16 @@ import org.pentaho.di.trans.step.StepMetaDataCombi;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
 import org.pentaho.di.trans.steps.injector.InjectorMeta;
+import org.pentaho.di.trans.steps.scriptvalues_mod.ScriptValuesModData;
 import org.pentaho.metastore.api.IMetaStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectionTuple> {
 
@@ -62,6 +69,13 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
   protected List<String> infoRowMetaJsons;
   protected int flushIntervalMs;
 
+  // Steps fused behind the main step, executed in the same transformation.
+  // The last step in the chain produces the output.
+  //
+  protected List<String> chainedStepnames;
+  protected List<String> chainedStepPluginIds;
+  protected List<String> chainedStepMetaInterfaceXmls;
+
   // Used in the private StepFn class below
   //
   protected List<PCollectionView<List<KettleRow>>> infoCollectionViews;
@@ -72,6 +86,9 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
 
   public StepTransform() {
     variableValues = new ArrayList<>();
+    chainedStepnames = new ArrayList<>();
+    chainedStepPluginIds = new ArrayList<>();
+    chainedStepMetaInterfaceXmls = new ArrayList<>();
   }
 
   public StepTransform( List<VariableValue> variableValues, String metastoreJson, List<String> stepPluginClasses, List<String> xpPluginClasses,
@@ -92,6 +109,32 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
     this.infoSteps = infoSteps;
     this.infoRowMetaJsons = infoRowMetaJsons;
     this.infoCollectionViews = infoCollectionViews;
+    this.chainedStepnames = new ArrayList<>();
+    this.chainedStepPluginIds = new ArrayList<>();
+    this.chainedStepMetaInterfaceXmls = new ArrayList<>();
+  }
+
+  public StepTransform( List<VariableValue> variableValues, String metastoreJson, List<String> stepPluginClasses, List<String> xpPluginClasses,
+                        int batchSize, int flushIntervalMs, String stepname, String stepPluginId, String stepMetaInterfaceXml, String inputRowMetaJson, boolean inputStep,
+                        List<String> targetSteps, List<String> infoSteps, List<String> infoRowMetaJsons, List<PCollectionView<List<KettleRow>>> infoCollectionViews,
+                        List<String> chainedStepnames, List<String> chainedStepPluginIds, List<String> chainedStepMetaInterfaceXmls ) {
+    this( variableValues, metastoreJson, stepPluginClasses, xpPluginClasses, batchSize, flushIntervalMs, stepname, stepPluginId, stepMetaInterfaceXml, inputRowMetaJson, inputStep,
+      targetSteps, infoSteps, infoRowMetaJsons, infoCollectionViews );
+    this.chainedStepnames = chainedStepnames;
+    this.chainedStepPluginIds = chainedStepPluginIds;
+    this.chainedStepMetaInterfaceXmls = chainedStepMetaInterfaceXmls;
+  }
+
+  /**
+   * The output of the transform is the output of the last step in the chain
+   *
+   * @return the name of the step producing the output
+   */
+  public String getOutputStepname() {
+    if ( chainedStepnames == null || chainedStepnames.isEmpty() ) {
+      return stepname;
+    }
+    return chainedStepnames.get( chainedStepnames.size() - 1 );
   }
 
   @Override public PCollectionTuple expand( PCollection<KettleRow> input ) {
@@ -102,12 +145,13 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
 
       // Similar for the output : treate a TupleTag list for the target steps...
       //
-      TupleTag<KettleRow> mainOutputTupleTag = new TupleTag<KettleRow>( KettleBeamUtil.createMainOutputTupleId( stepname ) ) {
+      String outputStepname = getOutputStepname();
+      TupleTag<KettleRow> mainOutputTupleTag = new TupleTag<KettleRow>( KettleBeamUtil.createMainOutputTupleId( outputStepname ) ) {
       };
       List<TupleTag<KettleRow>> targetTupleTags = new ArrayList<>();
       TupleTagList targetTupleTagList = null;
       for ( String targetStep : targetSteps ) {
-        String tupleId = KettleBeamUtil.createTargetTupleId( stepname, targetStep );
+        String tupleId = KettleBeamUtil.createTargetTupleId( outputStepname, targetStep );
         TupleTag<KettleRow> tupleTag = new TupleTag<KettleRow>( tupleId ) {
         };
         targetTupleTags.add( tupleTag );
@@ -124,8 +168,8 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
       // Create a new step function, initializes the step
       //
       StepFn stepFn = new StepFn( variableValues, metastoreJson, stepPluginClasses, xpPluginClasses,
-        stepname, stepPluginId, stepMetaInterfaceXml, inputRowMetaJson, inputStep,
-        targetSteps, infoSteps, infoRowMetaJsons );
+        batchSize, stepname, stepPluginId, stepMetaInterfaceXml, inputRowMetaJson, inputStep,
+        targetSteps, infoSteps, infoRowMetaJsons, chainedStepnames, chainedStepPluginIds, chainedStepMetaInterfaceXmls );
 
       // The actual step functionality
       //
@@ -158,6 +202,12 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
 
   }
 
+  /**
+   * Runs the Kettle step in a single threaded transformation.
+   * Steps chained behind the main step run in the same transformation, the rows flow from one to the next without leaving it.
+   * Input rows are collected per window for the duration of a bundle.
+   * The transformation is executed once for every batch of up to batchSize rows, or when the bundle finishes.
+   */
   private class StepFn extends DoFn<KettleRow, KettleRow> {
 
     private static final long serialVersionUID = 95700000000000001L;
@@ -168,6 +218,7 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
     protected String metastoreJson;
     protected List<String> stepPluginClasses;
     protected List<String> xpPluginClasses;
+    protected int batchSize;
     protected String stepname;
     protected String stepPluginId;
     protected String stepMetaInterfaceXml;
@@ -175,8 +226,10 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
     protected List<String> targetSteps;
     protected List<String> infoSteps;
     protected List<String> infoRowMetaJsons;
+    protected List<String> chainedStepnames;
+    protected List<String> chainedStepPluginIds;
+    protected List<String> chainedStepMetaInterfaceXmls;
     protected boolean inputStep;
-    protected boolean initialize;
 
     protected List<PCollection<KettleRow>> infoCollections;
 
@@ -185,6 +238,7 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
 
     private transient TransMeta transMeta;
     private transient StepMeta stepMeta;
+    private transient String outputStepname;
     private transient RowMetaInterface inputRowMeta;
     private transient RowMetaInterface outputRowMeta;
     private transient List<StepMetaDataCombi> stepCombis;
@@ -203,9 +257,17 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
     private transient Counter initCounter;
     private transient Counter readCounter;
     private transient Counter writtenCounter;
+    private transient Counter flushBufferCounter;
 
     private transient SingleThreadedTransExecutor executor;
 
+    // The rows of the current bundle waiting to be processed, per window
+    //
+    private transient Map<BoundedWindow, RowBatch> rowBatches;
+
+    private transient boolean infoDataLoaded;
+    private transient List<ScriptValuesModData> scriptDataList;
+
     public StepFn() {
     }
 
@@ -213,14 +275,16 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
     // I created a private class because instances of this one need access to infoCollectionViews
     //
 
-    public StepFn( List<VariableValue> variableValues, String metastoreJson, List<String> stepPluginClasses, List<String> xpPluginClasses, String stepname, String stepPluginId,
+    public StepFn( List<VariableValue> variableValues, String metastoreJson, List<String> stepPluginClasses, List<String> xpPluginClasses, int batchSize, String stepname, String stepPluginId,
                    String stepMetaInterfaceXml, String inputRowMetaJson, boolean inputStep,
-                   List<String> targetSteps, List<String> infoSteps, List<String> infoRowMetaJsons ) {
+                   List<String> targetSteps, List<String> infoSteps, List<String> infoRowMetaJsons,
+                   List<String> chainedStepnames, List<String> chainedStepPluginIds, List<String> chainedStepMetaInterfaceXmls ) {
       this();
       this.variableValues = variableValues;
       this.metastoreJson = metastoreJson;
       this.stepPluginClasses = stepPluginClasses;
       this.xpPluginClasses = xpPluginClasses;
+      this.batchSize = batchSize;
       this.stepname = stepname;
       this.stepPluginId = stepPluginId;
       this.stepMetaInterfaceXml = stepMetaInterfaceXml;
@@ -229,270 +293,335 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
       this.targetSteps = targetSteps;
       this.infoSteps = infoSteps;
       this.infoRowMetaJsons = infoRowMetaJsons;
-      this.initialize = true;
+      this.chainedStepnames = chainedStepnames;
+      this.chainedStepPluginIds = chainedStepPluginIds;
+      this.chainedStepMetaInterfaceXmls = chainedStepMetaInterfaceXmls;
     }
 
-    /**
-     * Reset the row buffer every time we start a new bundle to prevent the output of double rows
-     *
-     * @param startBundleContext
-     */
     @StartBundle
     public void startBundle( StartBundleContext startBundleContext ) {
       Metrics.counter( "startBundle", stepname ).inc();
-      if ( "ScriptValueMod".equals( stepPluginId ) && trans != null ) {
-        initialize = true;
-      }
     }
 
     @Setup
     public void setup() {
-      // Nothing
+      try {
+        // Initialize Kettle and load extra plugins as well
+        //
+        BeamKettle.init( stepPluginClasses, xpPluginClasses );
+
+        // Input row metadata...
+        //
+        inputRowMeta = JsonRowMeta.fromJson( inputRowMetaJson );
+        infoRowMetas = new ArrayList<>();
+        for ( String infoRowMetaJson : infoRowMetaJsons ) {
+          RowMetaInterface infoRowMeta = JsonRowMeta.fromJson( infoRowMetaJson );
+          infoRowMetas.add( infoRowMeta );
+        }
+
+        // All instances of this function in the JVM execute the same transformation.
+        // Get a copy of the prepared template, it's only built once.
+        //
+        transMeta = TransMetaTemplateCache.getTransMeta( getTemplateKey(), this::buildTransMeta );
+        stepMeta = transMeta.findStep( stepname );
+        outputStepname = chainedStepnames.isEmpty() ? stepname : chainedStepnames.get( chainedStepnames.size() - 1 );
+
+        stepCombis = new ArrayList<>();
+
+        // Create the transformation...
+        //
+        trans = new Trans( transMeta );
+        trans.setLogLevel( LogLevel.ERROR );
+        trans.setMetaStore( transMeta.getMetaStore() );
+        trans.prepareExecution( null );
+
+        // Create producers so we can efficiently pass data
+        //
+        rowProducer = null;
+        if ( !inputStep ) {
+          rowProducer = trans.addRowProducer( INJECTOR_STEP_NAME, 0 );
+        }
+        infoRowProducers = new ArrayList<>();
+        for ( String infoStep : infoSteps ) {
+          RowProducer infoRowProducer = trans.addRowProducer( infoStep, 0 );
+          infoRowProducers.add( infoRowProducer );
+        }
+
+        // Find the right interfaces for execution later...
+        //
+        if ( !inputStep ) {
+          StepMetaDataCombi injectorCombi = findCombi( trans, INJECTOR_STEP_NAME );
+          stepCombis.add( injectorCombi );
+        }
+
+        StepMetaDataCombi stepCombi = findCombi( trans, stepname );
+        stepCombis.add( stepCombi );
+        for ( String chainedStepname : chainedStepnames ) {
+          stepCombi = findCombi( trans, chainedStepname );
+          stepCombis.add( stepCombi );
+        }
+
+        // From here on stepCombi is the last step in the chain, producing the output
+        //
+        outputRowMeta = transMeta.getStepFields( outputStepname );
+
+        if ( targetSteps.isEmpty() ) {
+          rowListener = new RowAdapter() {
+            @Override public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+              resultRows.add( row );
+            }
+          };
+          stepCombi.step.addRowListener( rowListener );
+        }
+
+        // Create a list of TupleTag to direct the target rows
+        //
+        mainTupleTag = new TupleTag<KettleRow>( KettleBeamUtil.createMainOutputTupleId( outputStepname ) ) {
+        };
+        tupleTagList = new ArrayList<>();
+
+        // The lists in here will contain all the rows that ended up in the various target steps (if any)
+        //
+        targetRowMetas = new ArrayList<>();
+        targetResultRowsList = new ArrayList<>();
+
+        for ( String targetStep : targetSteps ) {
+          StepMetaDataCombi targetCombi = findCombi( trans, targetStep );
+          stepCombis.add( targetCombi );
+          targetRowMetas.add( transMeta.getStepFields( stepCombi.stepname ) );
+
+          String tupleId = KettleBeamUtil.createTargetTupleId( outputStepname, targetStep );
+          TupleTag<KettleRow> tupleTag = new TupleTag<KettleRow>( tupleId ) {
+          };
+          tupleTagList.add( tupleTag );
+          final List<Object[]> targetResultRows = new ArrayList<>();
+          targetResultRowsList.add( targetResultRows );
+
+          targetCombi.step.addRowListener( new RowAdapter() {
+            @Override public void rowReadEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+              // We send the target row to a specific list...
+              //
+              targetResultRows.add( row );
+            }
+          } );
+        }
+
+        executor = new SingleThreadedTransExecutor( trans );
+
+        // Initialize the steps...
+        //
+        executor.init();
+        scriptDataList = ScriptContexts.findScriptData( trans );
+
+        initCounter = Metrics.counter( "init", stepname );
+        readCounter = Metrics.counter( "read", stepname );
+        writtenCounter = Metrics.counter( "written", outputStepname );
+        flushBufferCounter = Metrics.counter( "flushBuffer", stepname );
+
+        initCounter.inc();
+
+        // Doesn't really start the threads in single threaded mode
+        // Just sets some flags all over the place
+        //
+        trans.startThreads();
+
+        resultRows = new ArrayList<>();
+        rowBatches = new LinkedHashMap<>();
+
+        // The info data comes from side inputs, only available when processing elements
+        //
+        infoDataLoaded = infoSteps.isEmpty();
+      } catch ( Exception e ) {
+        numErrors.inc();
+        LOG.error( "Error setting up step '" + stepname + "'", e );
+        throw new RuntimeException( "Error setting up StepFn", e );
+      }
     }
 
     @Teardown
     public void tearDown() {
-      // Nothing
+      try {
+        if ( executor != null ) {
+          executor.dispose();
+        }
+      } catch ( Exception e ) {
+        LOG.warn( "Error disposing of the steps in the transformation of step '" + stepname + "'", e );
+      }
+    }
+
+    /**
+     * Build the transformation to execute: an injector step for the input, the step(s), a dummy step for every target step
+     * and an injector step for every info step.  This is the template which is cached for the JVM.
+     *
+     * @return the transformation metadata
+     * @throws KettleException
+     */
+    private TransMeta buildTransMeta() throws KettleException {
+
+      // The content of the metastore is JSON serialized and inflated below.
+      //
+      IMetaStore metaStore = new SerializableMetaStore( metastoreJson );
+
+      // Create a very simple new transformation to run single threaded...
+      // Single threaded...
+      //
+      TransMeta transMeta = new TransMeta();
+      transMeta.setMetaStore( metaStore );
+
+      // Give steps variables from above
+      //
+      for ( VariableValue variableValue : variableValues ) {
+        if ( StringUtils.isNotEmpty( variableValue.getVariable() ) ) {
+          transMeta.setVariable( variableValue.getVariable(), variableValue.getValue() );
+        }
+      }
+
+      // Create an Injector step with the right row layout...
+      // This will help all steps see the row layout statically...
+      //
+      StepMeta mainInjectorStepMeta = null;
+      if ( !inputStep ) {
+        mainInjectorStepMeta = createInjectorStep( transMeta, INJECTOR_STEP_NAME, inputRowMeta, 200, 200 );
+      }
+
+      // Our main step writes to a bunch of targets
+      // Add a dummy step for each one so the step can target them
+      //
+      int targetLocationY = 200;
+      List<StepMeta> targetStepMetas = new ArrayList<>();
+      for ( String targetStep : targetSteps ) {
+        DummyTransMeta dummyMeta = new DummyTransMeta();
+        StepMeta targetStepMeta = new StepMeta( targetStep, dummyMeta );
+        targetStepMeta.setLocation( 600, targetLocationY );
+        targetStepMeta.setDraw( true );
+        targetLocationY += 150;
+
+        targetStepMetas.add( targetStepMeta );
+        transMeta.addStep( targetStepMeta );
+      }
+
+      // The step might read information from info steps
+      // Steps like "Stream Lookup" or "Validator"
+      // They read all the data on input from a side input
+      //
+      List<StepMeta> infoStepMetas = new ArrayList<>();
+      for ( int i = 0; i < infoSteps.size(); i++ ) {
+        String infoStep = infoSteps.get( i );
+        RowMetaInterface infoRowMeta = infoRowMetas.get( i );
+
+        // Add an Injector step for every info step so the step can read from it
+        //
+        StepMeta infoStepMeta = createInjectorStep( transMeta, infoStep, infoRowMeta, 200, 350 + 150 * i );
+        infoStepMetas.add( infoStepMeta );
+      }
+
+      // The main step inflated from XML metadata...
+      //
+      StepMeta mainStepMeta = createStepMeta( transMeta, stepname, stepPluginId, stepMetaInterfaceXml, 400, 200 );
+      if ( !inputStep ) {
+        transMeta.addTransHop( new TransHopMeta( mainInjectorStepMeta, mainStepMeta ) );
+      }
+
+      // The steps chained behind the main step, each reading from the previous one
+      //
+      StepMeta outputStepMeta = mainStepMeta;
+      for ( int i = 0; i < chainedStepnames.size(); i++ ) {
+        StepMeta chainedStepMeta = createStepMeta( transMeta, chainedStepnames.get( i ), chainedStepPluginIds.get( i ), chainedStepMetaInterfaceXmls.get( i ), 400, 350 + 150 * i );
+        transMeta.addTransHop( new TransHopMeta( outputStepMeta, chainedStepMeta ) );
+        outputStepMeta = chainedStepMeta;
+      }
+
+      // The target hops as well
+      //
+      for ( StepMeta targetStepMeta : targetStepMetas ) {
+        transMeta.addTransHop( new TransHopMeta( outputStepMeta, targetStepMeta ) );
+      }
+
+      // And the info hops...
+      //
+      for ( StepMeta infoStepMeta : infoStepMetas ) {
+        transMeta.addTransHop( new TransHopMeta( infoStepMeta, mainStepMeta ) );
+      }
+
+      for ( StepMeta transStepMeta : transMeta.getSteps() ) {
+        transStepMeta.getStepMetaInterface().searchInfoAndTargetSteps( transMeta.getSteps() );
+      }
+
+      // This one is single threaded folks
+      //
+      transMeta.setTransformationType( TransMeta.TransformationType.SingleThreaded );
+
+      return transMeta;
+    }
+
+    /**
+     * @return the key of the transformation template: a hash of everything which goes into buildTransMeta()
+     * @throws KettleException
+     */
+    private String getTemplateKey() throws KettleException {
+      List<String> parts = new ArrayList<>();
+      parts.add( stepname );
+      parts.add( stepPluginId );
+      parts.add( stepMetaInterfaceXml );
+      parts.add( inputRowMetaJson );
+      parts.add( Boolean.toString( inputStep ) );
+      parts.addAll( chainedStepnames );
+      parts.addAll( chainedStepPluginIds );
+      parts.addAll( chainedStepMetaInterfaceXmls );
+      parts.addAll( targetSteps );
+      parts.addAll( infoSteps );
+      parts.addAll( infoRowMetaJsons );
+      for ( VariableValue variableValue : variableValues ) {
+        parts.add( variableValue.getVariable() + "=" + variableValue.getValue() );
+      }
+      parts.add( metastoreJson );
+      return TransMetaTemplateCache.calculateTemplateKey( parts );
+    }
+
+    /**
+     * Copy the info data sets from the side inputs to the info steps...
+     * We do this only once so all subsequent rows can use this.
+     *
+     * @param context
+     * @param window
+     * @throws KettleException
+     */
+    private void loadInfoData( ProcessContext context, BoundedWindow window ) throws KettleException {
+      for ( int i = 0; i < infoSteps.size(); i++ ) {
+        RowProducer infoRowProducer = infoRowProducers.get( i );
+        StepMetaDataCombi combi = findCombi( trans, infoSteps.get( i ) );
+        RowMetaInterface infoRowMeta = infoRowMetas.get( i );
+
+        // Get the data from the side input, from the info step(s)
+        //
+        PCollectionView<List<KettleRow>> infoCollectionView = infoCollectionViews.get( i );
+        List<Object[]> infoDataSet = SideInputCache.getRows( infoCollectionView, window, infoRowMeta, () -> context.sideInput( infoCollectionView ) );
+
+        // Pass and process the rows in the info steps
+        //
+        for ( Object[] infoRowData : infoDataSet ) {
+          infoRowProducer.putRow( infoRowMeta, infoRowData );
+          combi.step.processRow( combi.meta, combi.data );
+        }
+
+        // By calling finished() steps like Stream Lookup know no more rows are going to come
+        // and they can start to work with the info data set
+        //
+        infoRowProducer.finished();
+
+        // Call once more to flag input as done, step as finished.
+        //
+        combi.step.processRow( combi.meta, combi.data );
+      }
     }
 
     @ProcessElement
     public void processElement( ProcessContext context, BoundedWindow window ) {
 
       try {
-        if ( initialize ) {
-          initialize = false;
-
-          // Initialize Kettle and load extra plugins as well
-          //
-          BeamKettle.init( stepPluginClasses, xpPluginClasses );
-
-          // The content of the metastore is JSON serialized and inflated below.
-          //
-          IMetaStore metaStore = new SerializableMetaStore( metastoreJson );
-
-          // Create a very simple new transformation to run single threaded...
-          // Single threaded...
-          //
-          transMeta = new TransMeta();
-          transMeta.setMetaStore( metaStore );
-
-          // Give steps variables from above
-          //
-          for ( VariableValue variableValue : variableValues ) {
-            if ( StringUtils.isNotEmpty( variableValue.getVariable() ) ) {
-              transMeta.setVariable( variableValue.getVariable(), variableValue.getValue() );
-            }
-          }
-
-          // Input row metadata...
-          //
-          inputRowMeta = JsonRowMeta.fromJson( inputRowMetaJson );
-          infoRowMetas = new ArrayList<>();
-          for ( String infoRowMetaJson : infoRowMetaJsons ) {
-            RowMetaInterface infoRowMeta = JsonRowMeta.fromJson( infoRowMetaJson );
-            infoRowMetas.add( infoRowMeta );
-          }
-
-          // Create an Injector step with the right row layout...
-          // This will help all steps see the row layout statically...
-          //
-          StepMeta mainInjectorStepMeta = null;
-          if ( !inputStep ) {
-            mainInjectorStepMeta = createInjectorStep( transMeta, INJECTOR_STEP_NAME, inputRowMeta, 200, 200 );
-          }
-
-          // Our main step writes to a bunch of targets
-          // Add a dummy step for each one so the step can target them
-          //
-          int targetLocationY = 200;
-          List<StepMeta> targetStepMetas = new ArrayList<>();
-          for ( String targetStep : targetSteps ) {
-            DummyTransMeta dummyMeta = new DummyTransMeta();
-            StepMeta targetStepMeta = new StepMeta( targetStep, dummyMeta );
-            targetStepMeta.setLocation( 600, targetLocationY );
-            targetStepMeta.setDraw( true );
-            targetLocationY += 150;
-
-            targetStepMetas.add( targetStepMeta );
-            transMeta.addStep( targetStepMeta );
-          }
-
-          // The step might read information from info steps
-          // Steps like "Stream Lookup" or "Validator"
-          // They read all the data on input from a side input
-          //
-          List<List<KettleRow>> infoDataSets = new ArrayList<>();
-          List<StepMeta> infoStepMetas = new ArrayList<>();
-          for ( int i = 0; i < infoSteps.size(); i++ ) {
-            String infoStep = infoSteps.get( i );
-            PCollectionView<List<KettleRow>> cv = infoCollectionViews.get( i );
-
-            // Get the data from the side input, from the info step(s)
-            //
-            List<KettleRow> infoDataSet = context.sideInput( cv );
-            infoDataSets.add( infoDataSet );
-
-            RowMetaInterface infoRowMeta = infoRowMetas.get( i );
-
-            // Add an Injector step for every info step so the step can read from it
-            //
-            StepMeta infoStepMeta = createInjectorStep( transMeta, infoStep, infoRowMeta, 200, 350 + 150 * i );
-            infoStepMetas.add( infoStepMeta );
-          }
-
-          stepCombis = new ArrayList<>();
-
-          // The main step inflated from XML metadata...
-          //
-          PluginRegistry registry = PluginRegistry.getInstance();
-          StepMetaInterface stepMetaInterface = registry.loadClass( StepPluginType.class, stepPluginId, StepMetaInterface.class );
-          if ( stepMetaInterface == null ) {
-            throw new KettleException( "Unable to load step plugin with ID " + stepPluginId + ", this plugin isn't in the plugin registry or classpath" );
-          }
-
-          KettleBeamUtil.loadStepMetadataFromXml( stepname, stepMetaInterface, stepMetaInterfaceXml, transMeta.getMetaStore() );
-
-          stepMeta = new StepMeta( stepname, stepMetaInterface );
-          stepMeta.setStepID( stepPluginId );
-          stepMeta.setLocation( 400, 200 );
-          stepMeta.setDraw( true );
-          transMeta.addStep( stepMeta );
-          if ( !inputStep ) {
-            transMeta.addTransHop( new TransHopMeta( mainInjectorStepMeta, stepMeta ) );
-          }
-          // The target hops as well
-          //
-          for ( StepMeta targetStepMeta : targetStepMetas ) {
-            transMeta.addTransHop( new TransHopMeta( stepMeta, targetStepMeta ) );
-          }
-
-          // And the info hops...
-          //
-          for ( StepMeta infoStepMeta : infoStepMetas ) {
-            transMeta.addTransHop( new TransHopMeta( infoStepMeta, stepMeta ) );
-          }
-
-          stepMetaInterface.searchInfoAndTargetSteps( transMeta.getSteps() );
-
-          // This one is single threaded folks
-          //
-          transMeta.setTransformationType( TransMeta.TransformationType.SingleThreaded );
-
-          // Create the transformation...
-          //
-          trans = new Trans( transMeta );
-          trans.setLogLevel( LogLevel.ERROR );
-          trans.setMetaStore( transMeta.getMetaStore() );
-          trans.prepareExecution( null );
-
-          // Create producers so we can efficiently pass data
-          //
-          rowProducer = null;
-          if ( !inputStep ) {
-            rowProducer = trans.addRowProducer( INJECTOR_STEP_NAME, 0 );
-          }
-          infoRowProducers = new ArrayList<>();
-          for ( String infoStep : infoSteps ) {
-            RowProducer infoRowProducer = trans.addRowProducer( infoStep, 0 );
-            infoRowProducers.add( infoRowProducer );
-          }
-
-          // Find the right interfaces for execution later...
-          //
-          if ( !inputStep ) {
-            StepMetaDataCombi injectorCombi = findCombi( trans, INJECTOR_STEP_NAME );
-            stepCombis.add( injectorCombi );
-          }
-
-          StepMetaDataCombi stepCombi = findCombi( trans, stepname );
-          stepCombis.add( stepCombi );
-          outputRowMeta = transMeta.getStepFields( stepname );
-
-          if ( targetSteps.isEmpty() ) {
-            rowListener = new RowAdapter() {
-              @Override public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
-                resultRows.add( row );
-              }
-            };
-            stepCombi.step.addRowListener( rowListener );
-          }
-
-          // Create a list of TupleTag to direct the target rows
-          //
-          mainTupleTag = new TupleTag<KettleRow>( KettleBeamUtil.createMainOutputTupleId( stepname ) ) {
-          };
-          tupleTagList = new ArrayList<>();
-
-          // The lists in here will contain all the rows that ended up in the various target steps (if any)
-          //
-          targetRowMetas = new ArrayList<>();
-          targetResultRowsList = new ArrayList<>();
-
-          for ( String targetStep : targetSteps ) {
-            StepMetaDataCombi targetCombi = findCombi( trans, targetStep );
-            stepCombis.add( targetCombi );
-            targetRowMetas.add( transMeta.getStepFields( stepCombi.stepname ) );
-
-            String tupleId = KettleBeamUtil.createTargetTupleId( stepname, targetStep );
-            TupleTag<KettleRow> tupleTag = new TupleTag<KettleRow>( tupleId ) {
-            };
-            tupleTagList.add( tupleTag );
-            final List<Object[]> targetResultRows = new ArrayList<>();
-            targetResultRowsList.add( targetResultRows );
-
-            targetCombi.step.addRowListener( new RowAdapter() {
-              @Override public void rowReadEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
-                // We send the target row to a specific list...
-                //
-                targetResultRows.add( row );
-              }
-            } );
-          }
-
-          executor = new SingleThreadedTransExecutor( trans );
-
-          // Initialize the steps...
-          //
-          executor.init();
-
-          initCounter = Metrics.counter( "init", stepname );
-          readCounter = Metrics.counter( "read", stepname );
-          writtenCounter = Metrics.counter( "written", stepname );
-
-          initCounter.inc();
-
-          // Doesn't really start the threads in single threaded mode
-          // Just sets some flags all over the place
-          //
-          trans.startThreads();
-
-          resultRows = new ArrayList<>();
-
-          // Copy the info data sets to the info steps...
-          // We do this only once so all subsequent rows can use this.
-          //
-          for ( int i = 0; i < infoSteps.size(); i++ ) {
-            RowProducer infoRowProducer = infoRowProducers.get( i );
-            List<KettleRow> infoDataSet = infoDataSets.get( i );
-            StepMetaDataCombi combi = findCombi( trans, infoSteps.get( i ) );
-            RowMetaInterface infoRowMeta = infoRowMetas.get( i );
-
-            // Pass and process the rows in the info steps
-            //
-            for ( KettleRow infoRowData : infoDataSet ) {
-              infoRowProducer.putRow( infoRowMeta, infoRowData.getRow() );
-              combi.step.processRow( combi.meta, combi.data );
-            }
-
-            // By calling finished() steps like Stream Lookup know no more rows are going to come
-            // and they can start to work with the info data set
-            //
-            infoRowProducer.finished();
-
-            // Call once more to flag input as done, step as finished.
-            //
-            combi.step.processRow( combi.meta, combi.data );
-          }
+        if ( !infoDataLoaded ) {
+          loadInfoData( context, window );
+          infoDataLoaded = true;
         }
 
         // Get one row from the context main input and make a copy so we can change it.
@@ -501,7 +630,29 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
         KettleRow inputRow = KettleBeamUtil.copyKettleRow( originalInputRow, inputRowMeta );
         readCounter.inc();
 
-        emptyRowBuffer( new StepProcessContext( context ), inputRow );
+        // Input steps only get a single dummy row to get going, nothing to batch up
+        //
+        if ( inputStep ) {
+          emptyRowBuffer( new StepProcessContext( context ), Collections.<KettleRow>emptyList() );
+          return;
+        }
+
+        // Add the row to the batch of its window
+        //
+        RowBatch rowBatch = rowBatches.get( window );
+        if ( rowBatch == null ) {
+          rowBatch = new RowBatch( window, context.timestamp() );
+          rowBatches.put( window, rowBatch );
+        }
+        rowBatch.add( inputRow, context.timestamp() );
+
+        // Don't let the batch grow beyond the batch size.
+        // We can output in the window of the current element here.
+        //
+        if ( rowBatch.rows.size() >= batchSize ) {
+          rowBatches.remove( window );
+          emptyRowBuffer( new StepProcessContext( context ), rowBatch.rows );
+        }
       } catch ( Exception e ) {
         numErrors.inc();
         LOG.info( "Step execution error :" + e.getMessage() );
@@ -512,7 +663,16 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
     @FinishBundle
     public void finishBundle( FinishBundleContext context ) {
       try {
-        // Nothing to do here
+        if ( rowBatches == null || rowBatches.isEmpty() ) {
+          return;
+        }
+
+        // Process whatever is left over in this bundle and send the results to the window they came from
+        //
+        for ( RowBatch rowBatch : rowBatches.values() ) {
+          emptyRowBuffer( new StepFinishBundleContext( context, rowBatch.window, rowBatch.timestamp ), rowBatch.rows );
+        }
+        rowBatches.clear();
       } catch ( Exception e ) {
         numErrors.inc();
         LOG.info( "Step finishing bundle error :" + e.getMessage() );
@@ -524,13 +684,13 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
     private transient int minInputBufferSize = Integer.MAX_VALUE;
 
     /**
-     * Attempt to empty the row buffer
+     * Pass a batch of rows to the transformation, execute it once and output the results
      *
      * @param context
-     * @param inputRow
+     * @param inputRows
      * @throws KettleException
      */
-    private synchronized void emptyRowBuffer( TupleOutputContext<KettleRow> context, KettleRow inputRow ) throws KettleException {
+    private synchronized void emptyRowBuffer( TupleOutputContext<KettleRow> context, List<KettleRow> inputRows ) throws KettleException {
       // Empty all the row buffers for another iteration
       //
       resultRows.clear();
@@ -538,15 +698,22 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
         targetResultRowsList.get( t ).clear();
       }
 
-      // Pass the rows in the rowBuffer to the input RowSet
+      // Pass the rows in the batch to the input RowSet
       //
       if ( !inputStep ) {
-        rowProducer.putRow( inputRowMeta, inputRow.getRow() );
+        for ( KettleRow inputRow : inputRows ) {
+          rowProducer.putRow( inputRowMeta, inputRow.getRow() );
+        }
       }
 
-      // Execute all steps in the transformation
+      // Execute all steps in the transformation, script steps need a JavaScript context on this thread
       //
-      executor.oneIteration();
+      ScriptContexts.enter( scriptDataList );
+      try {
+        executor.oneIteration();
+      } finally {
+        ScriptContexts.exit( scriptDataList );
+      }
 
       // Evaluate the results...
       //
@@ -571,6 +738,26 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
           context.output( tupleTag, new KettleRow( targetRow ) );
         }
       }
+
+      flushBufferCounter.inc();
+    }
+
+    private StepMeta createStepMeta( TransMeta transMeta, String stepname, String stepPluginId, String stepMetaInterfaceXml, int x, int y ) throws KettleException {
+      PluginRegistry registry = PluginRegistry.getInstance();
+      StepMetaInterface stepMetaInterface = registry.loadClass( StepPluginType.class, stepPluginId, StepMetaInterface.class );
+      if ( stepMetaInterface == null ) {
+        throw new KettleException( "Unable to load step plugin with ID " + stepPluginId + ", this plugin isn't in the plugin registry or classpath" );
+      }
+
+      KettleBeamUtil.loadStepMetadataFromXml( stepname, stepMetaInterface, stepMetaInterfaceXml, transMeta.getMetaStore() );
+
+      StepMeta newStepMeta = new StepMeta( stepname, stepMetaInterface );
+      newStepMeta.setStepID( stepPluginId );
+      newStepMeta.setLocation( x, y );
+      newStepMeta.setDraw( true );
+      transMeta.addStep( newStepMeta );
+
+      return newStepMeta;
     }
 
     private StepMeta createInjectorStep( TransMeta transMeta, String injectorStepName, RowMetaInterface injectorRowMeta, int x, int y ) {
@@ -601,6 +788,29 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
     }
   }
 
+  /**
+   * The rows of a bundle buffered for one window.
+   * The timestamp is the earliest timestamp of the rows.
+   */
+  private static class RowBatch {
+    private BoundedWindow window;
+    private Instant timestamp;
+    private List<KettleRow> rows;
+
+    public RowBatch( BoundedWindow window, Instant timestamp ) {
+      this.window = window;
+      this.timestamp = timestamp;
+      this.rows = new ArrayList<>();
+    }
+
+    public void add( KettleRow row, Instant rowTimestamp ) {
+      rows.add( row );
+      if ( rowTimestamp.isBefore( timestamp ) ) {
+        timestamp = rowTimestamp;
+      }
+    }
+  }
+
   private interface TupleOutputContext<T> {
     void output( TupleTag<T> tupleTag, T output );
   }
@@ -622,14 +832,16 @@ public class StepTransform extends PTransform<PCollection<KettleRow>, PCollectio
 
     private DoFn.FinishBundleContext context;
     private BoundedWindow batchWindow;
+    private Instant batchTimestamp;
 
-    public StepFinishBundleContext( DoFn.FinishBundleContext context, BoundedWindow batchWindow ) {
+    public StepFinishBundleContext( DoFn.FinishBundleContext context, BoundedWindow batchWindow, Instant batchTimestamp ) {
       this.context = context;
       this.batchWindow = batchWindow;
+      this.batchTimestamp = batchTimestamp;
     }
 
     @Override public void output( TupleTag<KettleRow> tupleTag, KettleRow output ) {
-      context.output( tupleTag, output, Instant.now(), batchWindow );
+      context.output( tupleTag, output, batchTimestamp, batchWindow );
     }
   }
 }
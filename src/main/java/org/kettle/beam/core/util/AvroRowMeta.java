@@ -0,0 +1,228 @@
+package org.kettle.beam.core.util;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Maps Kettle row metadata to an Avro record schema and converts between Kettle rows and Avro records.
+ *
+ * Every field is nullable.  Dates and timestamps are stored as timestamp-millis, big numbers as their string representation.
+ * Avro field names are restricted to letters, digits and underscores, other characters are replaced by an underscore.
+ */
+public class AvroRowMeta {
+
+  /**
+   * Create an Avro record schema for the given fields
+   *
+   * @param recordName the name of the record
+   * @param rowMeta    the Kettle fields
+   * @return the Avro schema
+   * @throws KettleException in case a data type can't be mapped
+   */
+  public static Schema toSchema( String recordName, RowMetaInterface rowMeta ) throws KettleException {
+    return toSchema( recordName, rowMeta, null );
+  }
+
+  /**
+   * Create an Avro record schema for some of the given fields
+   *
+   * @param recordName the name of the record
+   * @param rowMeta    the Kettle fields
+   * @param fieldNames the names of the fields to include or null to include all fields
+   * @return the Avro schema
+   * @throws KettleException in case a data type can't be mapped
+   */
+  public static Schema toSchema( String recordName, RowMetaInterface rowMeta, Collection<String> fieldNames ) throws KettleException {
+    List<Schema.Field> fields = new ArrayList<>();
+    for ( ValueMetaInterface valueMeta : rowMeta.getValueMetaList() ) {
+      if ( fieldNames != null && !fieldNames.contains( valueMeta.getName() ) ) {
+        continue;
+      }
+      Schema nullable = Schema.createUnion( Arrays.asList( Schema.create( Schema.Type.NULL ), toFieldSchema( valueMeta ) ) );
+      fields.add( new Schema.Field( toAvroName( valueMeta.getName() ), nullable, null, Schema.Field.NULL_VALUE ) );
+    }
+    return Schema.createRecord( toAvroName( recordName ), null, "org.kettle.beam", false, fields );
+  }
+
+  private static Schema toFieldSchema( ValueMetaInterface valueMeta ) throws KettleException {
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return Schema.create( Schema.Type.STRING );
+      case ValueMetaInterface.TYPE_INTEGER:
+        return Schema.create( Schema.Type.LONG );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return Schema.create( Schema.Type.DOUBLE );
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return Schema.create( Schema.Type.BOOLEAN );
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        return LogicalTypes.timestampMillis().addToSchema( Schema.create( Schema.Type.LONG ) );
+      case ValueMetaInterface.TYPE_BINARY:
+        return Schema.create( Schema.Type.BYTES );
+      default:
+        throw new KettleException( "Data type '" + valueMeta.getTypeDesc() + "' of field '" + valueMeta.getName() + "' can't be stored in Avro" );
+    }
+  }
+
+  public static String toAvroName( String name ) {
+    StringBuilder avroName = new StringBuilder();
+    for ( int i = 0; i < name.length(); i++ ) {
+      char c = name.charAt( i );
+      if ( ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) || c == '_' || ( i > 0 && c >= '0' && c <= '9' ) ) {
+        avroName.append( c );
+      } else {
+        avroName.append( '_' );
+      }
+    }
+    return avroName.length() == 0 ? "_" : avroName.toString();
+  }
+
+  /**
+   * Convert a Kettle row into an Avro record
+   *
+   * @param schema  the schema created for the row metadata
+   * @param rowMeta the row metadata
+   * @param row     the row
+   * @return the record
+   * @throws KettleValueException
+   */
+  public static GenericRecord toRecord( Schema schema, RowMetaInterface rowMeta, Object[] row ) throws KettleValueException {
+    GenericData.Record record = new GenericData.Record( schema );
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+      Object value = row[ i ];
+      if ( valueMeta.isNull( value ) ) {
+        continue;
+      }
+      Object avroValue;
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_STRING:
+          avroValue = valueMeta.getString( value );
+          break;
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+          avroValue = valueMeta.getBigNumber( value ).toString();
+          break;
+        case ValueMetaInterface.TYPE_INTEGER:
+          avroValue = valueMeta.getInteger( value );
+          break;
+        case ValueMetaInterface.TYPE_NUMBER:
+          avroValue = valueMeta.getNumber( value );
+          break;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          avroValue = valueMeta.getBoolean( value );
+          break;
+        case ValueMetaInterface.TYPE_DATE:
+        case ValueMetaInterface.TYPE_TIMESTAMP:
+          avroValue = valueMeta.getDate( value ).getTime();
+          break;
+        case ValueMetaInterface.TYPE_BINARY:
+          avroValue = ByteBuffer.wrap( valueMeta.getBinary( value ) );
+          break;
+        default:
+          throw new KettleValueException( "Data type '" + valueMeta.getTypeDesc() + "' of field '" + valueMeta.getName() + "' can't be stored in Avro" );
+      }
+      record.put( i, avroValue );
+    }
+    return record;
+  }
+
+  /**
+   * Convert an Avro record into a Kettle row.  The fields are looked up by name so the record can contain a subset of the fields.
+   *
+   * @param rowMeta the row metadata
+   * @param record  the record
+   * @return the row, the fields which are not in the record are null
+   * @throws KettleValueException
+   */
+  public static Object[] toRow( RowMetaInterface rowMeta, GenericRecord record ) throws KettleValueException {
+    return toRow( rowMeta, record, getFieldPositions( rowMeta, record.getSchema() ) );
+  }
+
+  /**
+   * Look up where the Kettle fields are in records of the given schema
+   *
+   * @param rowMeta the row metadata
+   * @param schema  the record schema
+   * @return the position of each Kettle field in the record or -1 if it's not in there
+   */
+  public static int[] getFieldPositions( RowMetaInterface rowMeta, Schema schema ) {
+    int[] positions = new int[ rowMeta.size() ];
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      Schema.Field field = schema.getField( toAvroName( rowMeta.getValueMeta( i ).getName() ) );
+      positions[ i ] = field == null ? -1 : field.pos();
+    }
+    return positions;
+  }
+
+  /**
+   * Convert an Avro record into a Kettle row using field positions looked up once with getFieldPositions()
+   *
+   * @param rowMeta   the row metadata
+   * @param record    the record
+   * @param positions the position of each Kettle field in the record or -1 if it's not in there
+   * @return the row, the fields which are not in the record are null
+   * @throws KettleValueException
+   */
+  public static Object[] toRow( RowMetaInterface rowMeta, GenericRecord record, int[] positions ) throws KettleValueException {
+    Object[] row = RowDataUtil.allocateRowData( rowMeta.size() );
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+      if ( positions[ i ] < 0 ) {
+        continue;
+      }
+      Object value = record.get( positions[ i ] );
+      if ( value == null ) {
+        continue;
+      }
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_STRING:
+          row[ i ] = value.toString();
+          break;
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+          row[ i ] = new BigDecimal( value.toString() );
+          break;
+        case ValueMetaInterface.TYPE_INTEGER:
+          row[ i ] = ( (Number) value ).longValue();
+          break;
+        case ValueMetaInterface.TYPE_NUMBER:
+          row[ i ] = ( (Number) value ).doubleValue();
+          break;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          row[ i ] = (Boolean) value;
+          break;
+        case ValueMetaInterface.TYPE_DATE:
+          row[ i ] = new Date( ( (Number) value ).longValue() );
+          break;
+        case ValueMetaInterface.TYPE_TIMESTAMP:
+          row[ i ] = new Timestamp( ( (Number) value ).longValue() );
+          break;
+        case ValueMetaInterface.TYPE_BINARY:
+          ByteBuffer buffer = ( (ByteBuffer) value ).duplicate();
+          byte[] bytes = new byte[ buffer.remaining() ];
+          buffer.get( bytes );
+          row[ i ] = bytes;
+          break;
+        default:
+          throw new KettleValueException( "Data type '" + valueMeta.getTypeDesc() + "' of field '" + valueMeta.getName() + "' can't be read from Avro" );
+      }
+    }
+    return row;
+  }
+}
@@ -0,0 +1,194 @@
+package org.kettle.beam.core.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates a Kettle condition into a BigQuery row restriction (standard SQL) for the Storage API.
+ *
+ * The rows read have to be a superset of the rows matching the condition: the Filter Rows step still evaluates the complete condition.
+ * That's why the parts of an AND we can't translate are simply left out.
+ * Kettle considers null to be smaller than any other value, so "a < 5" also passes the rows where a is null.
+ */
+public class BQRowRestriction {
+
+  /**
+   * @param condition   the condition of a Filter Rows step
+   * @param rowMeta     the fields of the rows the condition is evaluated on
+   * @param columnNames the BigQuery column name for each Kettle field name
+   * @return the row restriction or null if nothing could be translated
+   */
+  public static String toRowRestriction( Condition condition, RowMetaInterface rowMeta, Map<String, String> columnNames ) {
+    try {
+      return translate( condition, rowMeta, columnNames );
+    } catch ( KettleValueException e ) {
+      return null;
+    }
+  }
+
+  private static String translate( Condition condition, RowMetaInterface rowMeta, Map<String, String> columnNames ) throws KettleValueException {
+    if ( condition == null || condition.isNegated() ) {
+      return null;
+    }
+    if ( condition.isAtomic() ) {
+      return translateAtomic( condition, rowMeta, columnNames );
+    }
+
+    // The children are evaluated from left to right, the operator of a child combines it with the result so far
+    //
+    boolean onlyAnd = true;
+    for ( int i = 1; i < condition.nrConditions(); i++ ) {
+      int operator = condition.getCondition( i ).getOperator();
+      if ( operator == Condition.OPERATOR_OR ) {
+        onlyAnd = false;
+      } else if ( operator != Condition.OPERATOR_AND ) {
+        return null;
+      }
+    }
+
+    if ( onlyAnd ) {
+      List<String> parts = new ArrayList<>();
+      for ( int i = 0; i < condition.nrConditions(); i++ ) {
+        String part = translate( condition.getCondition( i ), rowMeta, columnNames );
+        if ( part != null ) {
+          parts.add( "(" + part + ")" );
+        }
+      }
+      return parts.isEmpty() ? null : String.join( " AND ", parts );
+    }
+
+    String restriction = null;
+    for ( int i = 0; i < condition.nrConditions(); i++ ) {
+      Condition child = condition.getCondition( i );
+      String part = translate( child, rowMeta, columnNames );
+      if ( part == null ) {
+        // Dropping part of an OR would lose rows
+        //
+        return null;
+      }
+      if ( restriction == null ) {
+        restriction = "(" + part + ")";
+      } else {
+        String operator = child.getOperator() == Condition.OPERATOR_OR ? " OR " : " AND ";
+        restriction = "(" + restriction + operator + "(" + part + "))";
+      }
+    }
+    return restriction;
+  }
+
+  private static String translateAtomic( Condition condition, RowMetaInterface rowMeta, Map<String, String> columnNames ) throws KettleValueException {
+    String fieldName = condition.getLeftValuename();
+    String columnName = columnNames.get( fieldName );
+    ValueMetaInterface fieldMeta = rowMeta.searchValueMeta( fieldName );
+    if ( columnName == null || fieldMeta == null ) {
+      return null;
+    }
+    String column = "`" + columnName + "`";
+
+    switch ( condition.getFunction() ) {
+      case Condition.FUNC_NULL:
+        return column + " IS NULL";
+      case Condition.FUNC_NOT_NULL:
+        return column + " IS NOT NULL";
+      default:
+        break;
+    }
+
+    // Only compare with constants
+    //
+    ValueMetaAndData rightExact = condition.getRightExact();
+    if ( StringUtils.isNotEmpty( condition.getRightValuename() ) || rightExact == null || rightExact.getValueData() == null ) {
+      return null;
+    }
+
+    String operator;
+    boolean nullPasses;
+    switch ( condition.getFunction() ) {
+      case Condition.FUNC_EQUAL:
+        operator = "=";
+        nullPasses = false;
+        break;
+      case Condition.FUNC_NOT_EQUAL:
+        operator = "!=";
+        nullPasses = true;
+        break;
+      case Condition.FUNC_SMALLER:
+        operator = "<";
+        nullPasses = true;
+        break;
+      case Condition.FUNC_SMALLER_EQUAL:
+        operator = "<=";
+        nullPasses = true;
+        break;
+      case Condition.FUNC_LARGER:
+        operator = ">";
+        nullPasses = false;
+        break;
+      case Condition.FUNC_LARGER_EQUAL:
+        operator = ">=";
+        nullPasses = false;
+        break;
+      default:
+        return null;
+    }
+
+    ValueMetaInterface valueMeta = rightExact.getValueMeta();
+    Object value = rightExact.getValueData();
+    String literal;
+
+    if ( fieldMeta.isString() && valueMeta.isString() && !fieldMeta.isCaseInsensitive() ) {
+      literal = "'" + valueMeta.getString( value ).replace( "\\", "\\\\" ).replace( "'", "\\'" ) + "'";
+    } else if ( fieldMeta.isNumeric() && valueMeta.isNumeric() ) {
+      if ( valueMeta.isInteger() ) {
+        literal = valueMeta.getInteger( value ).toString();
+      } else {
+        literal = new BigDecimal( valueMeta.getNumber( value ).toString() ).toPlainString();
+      }
+    } else if ( fieldMeta.isBoolean() && valueMeta.isBoolean() ) {
+      literal = valueMeta.getBoolean( value ) ? "TRUE" : "FALSE";
+    } else if ( fieldMeta.isDate() && valueMeta.isDate() ) {
+      // Date fields are read from DATE or DATETIME columns in the local time zone but from TIMESTAMP columns in UTC.
+      // We don't know the type of the column so compare with whole days and leave a day of margin for the time zone.
+      //
+      LocalDate day = Instant.ofEpochMilli( valueMeta.getDate( value ).getTime() ).atZone( ZoneId.systemDefault() ).toLocalDate();
+      String dayBefore = "'" + day.minusDays( 1 ) + "'";
+      String twoDaysAfter = "'" + day.plusDays( 2 ) + "'";
+      switch ( condition.getFunction() ) {
+        case Condition.FUNC_EQUAL:
+          return column + " >= " + dayBefore + " AND " + column + " < " + twoDaysAfter;
+        case Condition.FUNC_SMALLER:
+        case Condition.FUNC_SMALLER_EQUAL:
+          operator = "<";
+          literal = twoDaysAfter;
+          break;
+        case Condition.FUNC_LARGER:
+        case Condition.FUNC_LARGER_EQUAL:
+          operator = ">=";
+          literal = dayBefore;
+          break;
+        default:
+          return null;
+      }
+    } else {
+      return null;
+    }
+
+    String restriction = column + " " + operator + " " + literal;
+    if ( nullPasses ) {
+      restriction = column + " IS NULL OR " + restriction;
+    }
+    return restriction;
+  }
+}
@@ -0,0 +1,124 @@
+package org.kettle.beam.core.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A Bloom filter over 64-bit hashes, see HyperLogLog.hashBytes()
+ * It never gives false negatives: a hash which was added always "might be contained".
+ * The bit positions are derived from the two halves of the hash (double hashing).
+ * Filters with the same size can be merged so they can be used as (pre-)aggregation accumulators.
+ */
+public class BloomFilter {
+
+  private long[] bits;
+  private int nrHashes;
+
+  /**
+   * Size the filter for a number of keys and a false positive rate.
+   *
+   * @param expectedKeys      the number of distinct keys which will be added
+   * @param falsePositiveRate the chance that a key which wasn't added might be contained
+   */
+  public BloomFilter( long expectedKeys, double falsePositiveRate ) {
+    long n = Math.max( 1L, expectedKeys );
+    long nrBits = (long) Math.ceil( -n * Math.log( falsePositiveRate ) / ( Math.log( 2 ) * Math.log( 2 ) ) );
+    int nrWords = (int) Math.max( 1L, Math.min( Integer.MAX_VALUE - 8, ( nrBits + 63 ) / 64 ) );
+    this.bits = new long[ nrWords ];
+    this.nrHashes = Math.max( 1, (int) Math.round( (double) nrWords * 64 / n * Math.log( 2 ) ) );
+  }
+
+  private BloomFilter( long[] bits, int nrHashes ) {
+    this.bits = bits;
+    this.nrHashes = nrHashes;
+  }
+
+  public void add( long hash ) {
+    long nrBits = (long) bits.length * 64;
+    int h1 = (int) hash;
+    int h2 = (int) ( hash >>> 32 );
+    for ( int i = 1; i <= nrHashes; i++ ) {
+      long index = ( ( h1 + (long) i * h2 ) & Long.MAX_VALUE ) % nrBits;
+      bits[ (int) ( index >>> 6 ) ] |= 1L << index;
+    }
+  }
+
+  public boolean mightContain( long hash ) {
+    long nrBits = (long) bits.length * 64;
+    int h1 = (int) hash;
+    int h2 = (int) ( hash >>> 32 );
+    for ( int i = 1; i <= nrHashes; i++ ) {
+      long index = ( ( h1 + (long) i * h2 ) & Long.MAX_VALUE ) % nrBits;
+      if ( ( bits[ (int) ( index >>> 6 ) ] & ( 1L << index ) ) == 0 ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Add all the hashes of another filter of the same size to this one
+   *
+   * @param other the filter to merge
+   */
+  public void merge( BloomFilter other ) {
+    if ( other.bits.length != bits.length || other.nrHashes != nrHashes ) {
+      throw new IllegalArgumentException( "Only Bloom filters of the same size can be merged" );
+    }
+    for ( int i = 0; i < bits.length; i++ ) {
+      bits[ i ] |= other.bits[ i ];
+    }
+  }
+
+  /**
+   * Write the words with all bits clear as a run length, a filter over a few keys is mostly empty.
+   */
+  public void write( DataOutput out ) throws IOException {
+    out.writeInt( nrHashes );
+    out.writeInt( bits.length );
+    int i = 0;
+    while ( i < bits.length ) {
+      int zeros = 0;
+      while ( i + zeros < bits.length && bits[ i + zeros ] == 0L ) {
+        zeros++;
+      }
+      out.writeInt( zeros );
+      i += zeros;
+      if ( i < bits.length ) {
+        out.writeLong( bits[ i++ ] );
+      }
+    }
+  }
+
+  public static BloomFilter read( DataInput in ) throws IOException {
+    int nrHashes = in.readInt();
+    long[] bits = new long[ in.readInt() ];
+    int i = 0;
+    while ( i < bits.length ) {
+      i += in.readInt();
+      if ( i < bits.length ) {
+        bits[ i++ ] = in.readLong();
+      }
+    }
+    return new BloomFilter( bits, nrHashes );
+  }
+
+  /**
+   * Gets nrHashes
+   *
+   * @return value of nrHashes
+   */
+  public int getNrHashes() {
+    return nrHashes;
+  }
+
+  /**
+   * Gets the size of the filter in bits
+   *
+   * @return the number of bits
+   */
+  public long getNrBits() {
+    return (long) bits.length * 64;
+  }
+}
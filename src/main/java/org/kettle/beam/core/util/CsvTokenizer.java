@@ -0,0 +1,99 @@
+package org.kettle.beam.core.util;
+
+/**
+ * Splits a line of delimited text into fields in a single pass.
+ *
+ * The separator is taken literally, "\t" stands for a tab.
+ * A field starting with the enclosure runs up to the next enclosure, a doubled enclosure inside is a single enclosure character.
+ * Lines are read one at a time so an enclosed field can't span multiple lines.
+ */
+public class CsvTokenizer {
+
+  private String separator;
+  private char separatorChar;
+  private boolean singleCharSeparator;
+  private String enclosure;
+
+  private StringBuilder builder;
+
+  public CsvTokenizer( String separator, String enclosure ) {
+    this.separator = separator == null ? "" : separator.replace( "\\t", "\t" );
+    this.singleCharSeparator = this.separator.length() == 1;
+    this.separatorChar = singleCharSeparator ? this.separator.charAt( 0 ) : 0;
+    this.enclosure = enclosure == null || enclosure.isEmpty() ? null : enclosure;
+    this.builder = new StringBuilder();
+  }
+
+  /**
+   * Split a line into fields
+   *
+   * @param line   the line to split
+   * @param fields receives the fields, the fields beyond its size are not looked at
+   * @return the number of fields found, at most the size of the fields array
+   */
+  public int tokenize( String line, String[] fields ) {
+    if ( fields.length == 0 ) {
+      return 0;
+    }
+    if ( separator.isEmpty() ) {
+      fields[ 0 ] = line;
+      return 1;
+    }
+
+    int length = line.length();
+    int position = 0;
+    int nrFields = 0;
+    while ( nrFields < fields.length ) {
+      if ( enclosure != null && line.startsWith( enclosure, position ) ) {
+        builder.setLength( 0 );
+        position += enclosure.length();
+        while ( true ) {
+          int end = line.indexOf( enclosure, position );
+          if ( end < 0 ) {
+            // No closing enclosure, take the rest of the line
+            //
+            builder.append( line, position, length );
+            position = length;
+            break;
+          }
+          builder.append( line, position, end );
+          position = end + enclosure.length();
+          if ( line.startsWith( enclosure, position ) ) {
+            builder.append( enclosure );
+            position += enclosure.length();
+          } else {
+            break;
+          }
+        }
+
+        // Anything between the closing enclosure and the separator is kept as well
+        //
+        int next = indexOfSeparator( line, position );
+        if ( next < 0 ) {
+          builder.append( line, position, length );
+          fields[ nrFields++ ] = builder.toString();
+          return nrFields;
+        }
+        builder.append( line, position, next );
+        fields[ nrFields++ ] = builder.toString();
+        position = next + separator.length();
+      } else {
+        int next = indexOfSeparator( line, position );
+        if ( next < 0 ) {
+          fields[ nrFields++ ] = line.substring( position );
+          return nrFields;
+        }
+        fields[ nrFields++ ] = line.substring( position, next );
+        position = next + separator.length();
+      }
+    }
+    return nrFields;
+  }
+
+  private int indexOfSeparator( String line, int position ) {
+    if ( singleCharSeparator ) {
+      return line.indexOf( separatorChar, position );
+    }
+    return line.indexOf( separator, position );
+  }
+}
@@ -0,0 +1,267 @@
+package org.kettle.beam.core.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sorts entries of a binary key and value on the unsigned byte order of the keys.
+ *
+ * At most maxEntriesInMemory entries are kept in memory.  Once there are more they're sorted and written to a temporary file (a run).
+ * Reading the sorted entries merges the runs and the entries in memory.
+ * Call close() in a finally block to close the runs being read and to remove the temporary files, also when the sorted entries weren't all read.
+ */
+public class ExternalSorter implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final Comparator<Entry> ENTRY_COMPARATOR = ( one, two ) -> compareBytes( one.key, two.key );
+
+  private int maxEntriesInMemory;
+  private boolean compress;
+
+  private List<Entry> entries;
+  private List<File> runFiles;
+  private List<RunIterator> runIterators;
+
+  public ExternalSorter( int maxEntriesInMemory, boolean compress ) {
+    this.maxEntriesInMemory = Math.max( 1, maxEntriesInMemory );
+    this.compress = compress;
+    this.entries = new ArrayList<>();
+    this.runFiles = new ArrayList<>();
+    this.runIterators = new ArrayList<>();
+  }
+
+  public static class Entry {
+    private byte[] key;
+    private byte[] value;
+
+    public Entry( byte[] key, byte[] value ) {
+      this.key = key;
+      this.value = value;
+    }
+
+    /**
+     * Gets key
+     *
+     * @return value of key
+     */
+    public byte[] getKey() {
+      return key;
+    }
+
+    /**
+     * Gets value
+     *
+     * @return value of value
+     */
+    public byte[] getValue() {
+      return value;
+    }
+  }
+
+  public void add( byte[] key, byte[] value ) throws IOException {
+    entries.add( new Entry( key, value ) );
+    if ( entries.size() >= maxEntriesInMemory ) {
+      spill();
+    }
+  }
+
+  private void spill() throws IOException {
+    entries.sort( ENTRY_COMPARATOR );
+    File runFile = File.createTempFile( "kettle-beam-sort-", ".run" );
+    runFiles.add( runFile );
+
+    OutputStream outputStream = new FileOutputStream( runFile );
+    if ( compress ) {
+      outputStream = new GZIPOutputStream( outputStream, BUFFER_SIZE );
+    }
+    try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( outputStream, BUFFER_SIZE ) ) ) {
+      for ( Entry entry : entries ) {
+        out.writeInt( entry.key.length );
+        out.write( entry.key );
+        out.writeInt( entry.value.length );
+        out.write( entry.value );
+      }
+      out.writeInt( -1 );
+    }
+    entries = new ArrayList<>();
+  }
+
+  /**
+   * Sort the entries in memory and merge them with the runs on disk.
+   * Don't add entries while reading the result.
+   *
+   * @return all the entries in key order
+   * @throws IOException
+   */
+  public Iterator<Entry> sortedIterator() throws IOException {
+    entries.sort( ENTRY_COMPARATOR );
+    if ( runFiles.isEmpty() ) {
+      return entries.iterator();
+    }
+
+    List<Iterator<Entry>> runs = new ArrayList<>();
+    runs.add( entries.iterator() );
+    for ( File runFile : runFiles ) {
+      RunIterator runIterator = new RunIterator( runFile, compress );
+      runIterators.add( runIterator );
+      runs.add( runIterator );
+    }
+    return new MergeIterator( runs );
+  }
+
+  /**
+   * Close the runs being read and delete the temporary files
+   *
+   * @throws IOException if a temporary file couldn't be deleted
+   */
+  @Override public void close() throws IOException {
+    try {
+      for ( RunIterator runIterator : runIterators ) {
+        runIterator.close();
+      }
+    } finally {
+      runIterators.clear();
+      entries = new ArrayList<>();
+
+      List<File> undeletedFiles = new ArrayList<>();
+      for ( File runFile : runFiles ) {
+        if ( runFile.exists() && !runFile.delete() ) {
+          undeletedFiles.add( runFile );
+        }
+      }
+      runFiles.clear();
+      if ( !undeletedFiles.isEmpty() ) {
+        throw new IOException( "Unable to delete temporary sort files " + undeletedFiles );
+      }
+    }
+  }
+
+  /**
+   * @return the number of runs written to disk so far
+   */
+  public int getNrRuns() {
+    return runFiles.size();
+  }
+
+  public static int compareBytes( byte[] one, byte[] two ) {
+    int length = Math.min( one.length, two.length );
+    for ( int i = 0; i < length; i++ ) {
+      int cmp = ( one[ i ] & 0xFF ) - ( two[ i ] & 0xFF );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return one.length - two.length;
+  }
+
+  private static class RunIterator implements Iterator<Entry>, Closeable {
+    private DataInputStream in;
+    private Entry next;
+
+    public RunIterator( File runFile, boolean compress ) throws IOException {
+      InputStream inputStream = new FileInputStream( runFile );
+      try {
+        if ( compress ) {
+          inputStream = new GZIPInputStream( inputStream, BUFFER_SIZE );
+        }
+        in = new DataInputStream( new BufferedInputStream( inputStream, BUFFER_SIZE ) );
+        next = read();
+      } catch ( IOException e ) {
+        inputStream.close();
+        throw e;
+      }
+    }
+
+    private Entry read() throws IOException {
+      int keyLength = in.readInt();
+      if ( keyLength < 0 ) {
+        close();
+        return null;
+      }
+      byte[] key = new byte[ keyLength ];
+      in.readFully( key );
+      byte[] value = new byte[ in.readInt() ];
+      in.readFully( value );
+      return new Entry( key, value );
+    }
+
+    @Override public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override public Entry next() {
+      if ( next == null ) {
+        throw new NoSuchElementException();
+      }
+      Entry entry = next;
+      try {
+        next = read();
+      } catch ( IOException e ) {
+        throw new RuntimeException( "Error reading sorted run", e );
+      }
+      return entry;
+    }
+
+    @Override public void close() throws IOException {
+      next = null;
+      in.close();
+    }
+  }
+
+  private static class MergeIterator implements Iterator<Entry> {
+
+    private PriorityQueue<Head> heads;
+
+    private static class Head {
+      private Entry entry;
+      private Iterator<Entry> run;
+    }
+
+    public MergeIterator( List<Iterator<Entry>> runs ) {
+      heads = new PriorityQueue<>( runs.size(), ( one, two ) -> ENTRY_COMPARATOR.compare( one.entry, two.entry ) );
+      for ( Iterator<Entry> run : runs ) {
+        if ( run.hasNext() ) {
+          Head head = new Head();
+          head.entry = run.next();
+          head.run = run;
+          heads.add( head );
+        }
+      }
+    }
+
+    @Override public boolean hasNext() {
+      return !heads.isEmpty();
+    }
+
+    @Override public Entry next() {
+      Head head = heads.poll();
+      if ( head == null ) {
+        throw new NoSuchElementException();
+      }
+      Entry entry = head.entry;
+      if ( head.run.hasNext() ) {
+        head.entry = head.run.next();
+        heads.add( head );
+      }
+      return entry;
+    }
+  }
+}
@@ -0,0 +1,361 @@
+package org.kettle.beam.core.util;
+
+import org.kettle.beam.core.KettleKey;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * Converts key values of a row into a KettleKey and back.
+ *
+ * The encoding is canonical (equal values give equal bytes) and order preserving (the unsigned byte order of the keys is the order of the values):
+ * <ul>
+ *   <li>Every value starts with a marker byte: 0 for null, 1 for a value. Nulls sort first.</li>
+ *   <li>Integers and dates are written as 8 bytes big endian with the sign bit flipped</li>
+ *   <li>Numbers are written as 8 bytes where positive values get the sign bit flipped and negative values get all bits flipped.  -0.0 is written as 0.0</li>
+ *   <li>Big numbers are normalized (no trailing zeros) and written as sign, exponent and digits</li>
+ *   <li>Strings and binary values are written with 0x00 escaped as 0x00 0xFF and terminated by 0x00 0x01</li>
+ * </ul>
+ */
+public class KettleKeyEncoder {
+
+  private static final int NULL_MARKER = 0x00;
+  private static final int VALUE_MARKER = 0x01;
+
+  private static final int BIGNUMBER_NEGATIVE = 0x00;
+  private static final int BIGNUMBER_ZERO = 0x01;
+  private static final int BIGNUMBER_POSITIVE = 0x02;
+
+  // The salt is stored in 2 bytes
+  //
+  public static final int MAX_SALT = 65535;
+
+  /**
+   * Encode the values at the given indexes of a row
+   *
+   * @param rowMeta the layout of the row
+   * @param row     the row data
+   * @param indexes the indexes of the key values in the row
+   * @return the key
+   * @throws KettleException in case a data type is not supported in keys
+   */
+  public static KettleKey encodeKey( RowMetaInterface rowMeta, Object[] row, int[] indexes ) throws KettleException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream( 16 * indexes.length );
+    for ( int index : indexes ) {
+      encodeValue( out, rowMeta.getValueMeta( index ), row[ index ] );
+    }
+    return new KettleKey( out.toByteArray() );
+  }
+
+  /**
+   * Encode all the values of a key row
+   *
+   * @param keyRowMeta the layout of the key row
+   * @param keyRow     the key values
+   * @return the key
+   * @throws KettleException in case a data type is not supported in keys
+   */
+  public static KettleKey encodeKey( RowMetaInterface keyRowMeta, Object[] keyRow ) throws KettleException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream( 16 * keyRowMeta.size() );
+    for ( int i = 0; i < keyRowMeta.size(); i++ ) {
+      encodeValue( out, keyRowMeta.getValueMeta( i ), keyRow[ i ] );
+    }
+    return new KettleKey( out.toByteArray() );
+  }
+
+  /**
+   * Encode the values at the given indexes of a row into a key which sorts like the row should be sorted.
+   * The bytes of descending values are inverted, this reverses their order since the encoding of every value is self-delimiting.
+   * Case insensitive strings are encoded in lower case.  Sort keys can't be decoded.
+   *
+   * @param rowMeta       the layout of the row
+   * @param row           the row data
+   * @param indexes       the indexes of the sort values in the row
+   * @param ascending     per sort value, sort ascending or descending
+   * @param caseSensitive per sort value, compare strings case sensitive or not
+   * @return the sort key
+   * @throws KettleException in case a data type is not supported in keys
+   */
+  public static KettleKey encodeSortKey( RowMetaInterface rowMeta, Object[] row, int[] indexes, boolean[] ascending, boolean[] caseSensitive ) throws KettleException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream( 16 * indexes.length );
+    ByteArrayOutputStream valueOut = new ByteArrayOutputStream( 16 );
+    for ( int i = 0; i < indexes.length; i++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( indexes[ i ] );
+      Object object = row[ indexes[ i ] ];
+      if ( !caseSensitive[ i ] && object != null && valueMeta.getType() == ValueMetaInterface.TYPE_STRING ) {
+        object = ( (String) object ).toLowerCase();
+      }
+      if ( ascending[ i ] ) {
+        encodeValue( out, valueMeta, object );
+      } else {
+        valueOut.reset();
+        encodeValue( valueOut, valueMeta, object );
+        for ( byte b : valueOut.toByteArray() ) {
+          out.write( ~b & 0xFF );
+        }
+      }
+    }
+    return new KettleKey( out.toByteArray() );
+  }
+
+  /**
+   * Decode the key back into row data
+   *
+   * @param keyRowMeta the layout of the key values
+   * @param key        the key to decode
+   * @return the key values in a newly allocated row
+   * @throws KettleException in case the key doesn't match the row layout
+   */
+  public static Object[] decodeKey( RowMetaInterface keyRowMeta, KettleKey key ) throws KettleException {
+    Object[] keyRow = RowDataUtil.allocateRowData( keyRowMeta.size() );
+    byte[] bytes = key.getBytes();
+    int[] position = new int[] { 0 };
+    for ( int i = 0; i < keyRowMeta.size(); i++ ) {
+      keyRow[ i ] = decodeValue( bytes, position, keyRowMeta.getValueMeta( i ) );
+    }
+    return keyRow;
+  }
+
+  /**
+   * Add a salt to a key to spread the rows of a hot key over several groups.
+   * Salted keys have 2 extra bytes at the end, a salt of 0 means the key is not salted.
+   *
+   * @param key  the key to salt
+   * @param salt the salt, between 0 and MAX_SALT
+   * @return the salted key
+   */
+  public static KettleKey saltKey( KettleKey key, int salt ) {
+    byte[] bytes = key.getBytes();
+    byte[] salted = new byte[ bytes.length + 2 ];
+    System.arraycopy( bytes, 0, salted, 0, bytes.length );
+    salted[ bytes.length ] = (byte) ( salt >>> 8 );
+    salted[ bytes.length + 1 ] = (byte) salt;
+    return new KettleKey( salted );
+  }
+
+  /**
+   * @param saltedKey a key salted with saltKey()
+   * @return the salt of the key
+   */
+  public static int getSalt( KettleKey saltedKey ) {
+    byte[] bytes = saltedKey.getBytes();
+    return ( ( bytes[ bytes.length - 2 ] & 0xFF ) << 8 ) | ( bytes[ bytes.length - 1 ] & 0xFF );
+  }
+
+  /**
+   * @param saltedKey a key salted with saltKey()
+   * @return the original key
+   */
+  public static KettleKey unsaltKey( KettleKey saltedKey ) {
+    byte[] bytes = saltedKey.getBytes();
+    byte[] key = new byte[ bytes.length - 2 ];
+    System.arraycopy( bytes, 0, key, 0, key.length );
+    return new KettleKey( key );
+  }
+
+  private static void encodeValue( ByteArrayOutputStream out, ValueMetaInterface valueMeta, Object object ) throws KettleException {
+    if ( object == null ) {
+      out.write( NULL_MARKER );
+      return;
+    }
+    out.write( VALUE_MARKER );
+
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        writeEscaped( out, ( (String) object ).getBytes( StandardCharsets.UTF_8 ) );
+        break;
+      case ValueMetaInterface.TYPE_BINARY:
+        writeEscaped( out, (byte[]) object );
+        break;
+      case ValueMetaInterface.TYPE_INTEGER:
+        writeLong( out, ( (Long) object ) ^ Long.MIN_VALUE );
+        break;
+      case ValueMetaInterface.TYPE_DATE:
+        writeLong( out, ( (Date) object ).getTime() ^ Long.MIN_VALUE );
+        break;
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        Timestamp timestamp = (Timestamp) object;
+        writeLong( out, timestamp.getTime() ^ Long.MIN_VALUE );
+        writeInt( out, timestamp.getNanos() );
+        break;
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        out.write( ( (Boolean) object ) ? 1 : 0 );
+        break;
+      case ValueMetaInterface.TYPE_NUMBER:
+        double dbl = (Double) object;
+        if ( dbl == 0.0d ) {
+          dbl = 0.0d; // no -0.0
+        }
+        long bits = Double.doubleToLongBits( dbl ); // canonical NaN
+        if ( bits < 0 ) {
+          bits = ~bits;
+        } else {
+          bits = bits ^ Long.MIN_VALUE;
+        }
+        writeLong( out, bits );
+        break;
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        writeBigNumber( out, (BigDecimal) object );
+        break;
+      default:
+        throw new KettleException( "Data type " + valueMeta.getTypeDesc() + " of field '" + valueMeta.getName() + "' is not supported in group or join keys" );
+    }
+  }
+
+  private static Object decodeValue( byte[] bytes, int[] position, ValueMetaInterface valueMeta ) throws KettleException {
+    try {
+      int marker = bytes[ position[ 0 ]++ ];
+      if ( marker == NULL_MARKER ) {
+        return null;
+      }
+
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_STRING:
+          return new String( readEscaped( bytes, position ), StandardCharsets.UTF_8 );
+        case ValueMetaInterface.TYPE_BINARY:
+          return readEscaped( bytes, position );
+        case ValueMetaInterface.TYPE_INTEGER:
+          return readLong( bytes, position ) ^ Long.MIN_VALUE;
+        case ValueMetaInterface.TYPE_DATE:
+          return new Date( readLong( bytes, position ) ^ Long.MIN_VALUE );
+        case ValueMetaInterface.TYPE_TIMESTAMP:
+          Timestamp timestamp = new Timestamp( readLong( bytes, position ) ^ Long.MIN_VALUE );
+          timestamp.setNanos( readInt( bytes, position ) );
+          return timestamp;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          return bytes[ position[ 0 ]++ ] != 0;
+        case ValueMetaInterface.TYPE_NUMBER:
+          long bits = readLong( bytes, position );
+          if ( bits < 0 ) {
+            bits = bits ^ Long.MIN_VALUE;
+          } else {
+            bits = ~bits;
+          }
+          return Double.longBitsToDouble( bits );
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+          return readBigNumber( bytes, position );
+        default:
+          throw new KettleException( "Data type " + valueMeta.getTypeDesc() + " of field '" + valueMeta.getName() + "' is not supported in group or join keys" );
+      }
+    } catch ( ArrayIndexOutOfBoundsException e ) {
+      throw new KettleException( "Key doesn't match the key row layout at field '" + valueMeta.getName() + "'", e );
+    }
+  }
+
+  /**
+   * A big number is written as a sign byte followed by the exponent and the digits of the normalized value 0.digits x 10^exponent.
+   * For negative values the exponent and digits are inverted so larger absolute values sort first.
+   */
+  private static void writeBigNumber( ByteArrayOutputStream out, BigDecimal bd ) {
+    int signum = bd.signum();
+    if ( signum == 0 ) {
+      out.write( BIGNUMBER_ZERO );
+      return;
+    }
+    BigDecimal normalized = bd.abs().stripTrailingZeros();
+    byte[] digits = normalized.unscaledValue().toString().getBytes( StandardCharsets.US_ASCII );
+    int exponent = digits.length - normalized.scale();
+
+    if ( signum > 0 ) {
+      out.write( BIGNUMBER_POSITIVE );
+      writeInt( out, exponent ^ Integer.MIN_VALUE );
+      out.write( digits, 0, digits.length );
+      out.write( 0x00 );
+    } else {
+      out.write( BIGNUMBER_NEGATIVE );
+      writeInt( out, ~( exponent ^ Integer.MIN_VALUE ) );
+      for ( byte digit : digits ) {
+        out.write( ~digit & 0xFF );
+      }
+      out.write( 0xFF );
+    }
+  }
+
+  private static BigDecimal readBigNumber( byte[] bytes, int[] position ) {
+    int sign = bytes[ position[ 0 ]++ ];
+    if ( sign == BIGNUMBER_ZERO ) {
+      return BigDecimal.ZERO;
+    }
+    boolean negative = sign == BIGNUMBER_NEGATIVE;
+    int exponent = readInt( bytes, position );
+    if ( negative ) {
+      exponent = ~exponent;
+    }
+    exponent = exponent ^ Integer.MIN_VALUE;
+
+    StringBuilder digits = new StringBuilder();
+    int terminator = negative ? 0xFF : 0x00;
+    while ( true ) {
+      int b = bytes[ position[ 0 ]++ ] & 0xFF;
+      if ( b == terminator ) {
+        break;
+      }
+      digits.append( (char) ( negative ? ~b & 0xFF : b ) );
+    }
+    BigDecimal value = new BigDecimal( new BigInteger( digits.toString() ), digits.length() - exponent );
+    return negative ? value.negate() : value;
+  }
+
+  private static void writeEscaped( ByteArrayOutputStream out, byte[] data ) {
+    for ( byte b : data ) {
+      out.write( b );
+      if ( b == 0x00 ) {
+        out.write( 0xFF );
+      }
+    }
+    out.write( 0x00 );
+    out.write( 0x01 );
+  }
+
+  private static byte[] readEscaped( byte[] bytes, int[] position ) {
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    while ( true ) {
+      byte b = bytes[ position[ 0 ]++ ];
+      if ( b == 0x00 ) {
+        byte next = bytes[ position[ 0 ]++ ];
+        if ( next == 0x01 ) {
+          break;
+        }
+        // Escaped 0x00
+      }
+      data.write( b );
+    }
+    return data.toByteArray();
+  }
+
+  private static void writeLong( ByteArrayOutputStream out, long value ) {
+    for ( int shift = 56; shift >= 0; shift -= 8 ) {
+      out.write( (int) ( value >>> shift ) & 0xFF );
+    }
+  }
+
+  private static long readLong( byte[] bytes, int[] position ) {
+    long value = 0L;
+    for ( int i = 0; i < 8; i++ ) {
+      value = ( value << 8 ) | ( bytes[ position[ 0 ]++ ] & 0xFF );
+    }
+    return value;
+  }
+
+  private static void writeInt( ByteArrayOutputStream out, int value ) {
+    for ( int shift = 24; shift >= 0; shift -= 8 ) {
+      out.write( ( value >>> shift ) & 0xFF );
+    }
+  }
+
+  private static int readInt( byte[] bytes, int[] position ) {
+    int value = 0;
+    for ( int i = 0; i < 4; i++ ) {
+      value = ( value << 8 ) | ( bytes[ position[ 0 ]++ ] & 0xFF );
+    }
+    return value;
+  }
+}
@@ -0,0 +1,38 @@
+package org.kettle.beam.core.util;
+
+import org.apache.parquet.io.DelegatingSeekableInputStream;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.SeekableInputStream;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Lets Parquet read from a Beam file channel.  Parquet seeks to the footer first and then only to the column chunks it needs.
+ */
+public class ParquetChannelInputFile implements InputFile {
+
+  private SeekableByteChannel channel;
+
+  public ParquetChannelInputFile( SeekableByteChannel channel ) {
+    this.channel = channel;
+  }
+
+  @Override public long getLength() throws IOException {
+    return channel.size();
+  }
+
+  @Override public SeekableInputStream newStream() {
+    return new DelegatingSeekableInputStream( Channels.newInputStream( channel ) ) {
+
+      @Override public long getPos() throws IOException {
+        return channel.position();
+      }
+
+      @Override public void seek( long newPos ) throws IOException {
+        channel.position( newPos );
+      }
+    };
+  }
+}
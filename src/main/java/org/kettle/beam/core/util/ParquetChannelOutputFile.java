@@ -0,0 +1,63 @@
+package org.kettle.beam.core.util;
+
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Lets Parquet write to a Beam file channel.  The channel is created by Beam so create() and createOrOverwrite() are the same.
+ */
+public class ParquetChannelOutputFile implements OutputFile {
+
+  private OutputStream outputStream;
+
+  public ParquetChannelOutputFile( WritableByteChannel channel ) {
+    this.outputStream = Channels.newOutputStream( channel );
+  }
+
+  @Override public PositionOutputStream create( long blockSizeHint ) {
+    return createOrOverwrite( blockSizeHint );
+  }
+
+  @Override public PositionOutputStream createOrOverwrite( long blockSizeHint ) {
+    return new PositionOutputStream() {
+      private long position = 0;
+
+      @Override public long getPos() {
+        return position;
+      }
+
+      @Override public void write( int b ) throws IOException {
+        outputStream.write( b );
+        position++;
+      }
+
+      @Override public void write( byte[] b, int off, int len ) throws IOException {
+        outputStream.write( b, off, len );
+        position += len;
+      }
+
+      @Override public void flush() throws IOException {
+        outputStream.flush();
+      }
+
+      @Override public void close() throws IOException {
+        // Beam closes the channel
+        //
+        outputStream.flush();
+      }
+    };
+  }
+
+  @Override public boolean supportsBlockSize() {
+    return false;
+  }
+
+  @Override public long defaultBlockSize() {
+    return 0;
+  }
+}
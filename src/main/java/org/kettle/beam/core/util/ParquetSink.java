@@ -0,0 +1,58 @@
+package org.kettle.beam.core.util;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.io.FileIO;
+import org.apache.commons.lang.StringUtils;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes Avro records to Parquet files with a configurable compression codec and row group size.
+ */
+public class ParquetSink implements FileIO.Sink<GenericRecord> {
+
+  private String schemaJson;
+  private String compressionCodec;
+  private int rowGroupSize;
+
+  private transient ParquetWriter<GenericRecord> writer;
+
+  /**
+   * @param schemaJson       The Avro schema of the records
+   * @param compressionCodec The name of the Parquet compression codec, empty means SNAPPY
+   * @param rowGroupSize     The row group size in bytes, 0 or less means the Parquet default
+   */
+  public ParquetSink( String schemaJson, String compressionCodec, int rowGroupSize ) {
+    this.schemaJson = schemaJson;
+    this.compressionCodec = compressionCodec;
+    this.rowGroupSize = rowGroupSize;
+  }
+
+  @Override public void open( WritableByteChannel channel ) throws IOException {
+    Schema schema = new Schema.Parser().parse( schemaJson );
+    AvroParquetWriter.Builder<GenericRecord> builder = AvroParquetWriter.<GenericRecord>builder( new ParquetChannelOutputFile( channel ) )
+      .withSchema( schema )
+      .withWriteMode( ParquetFileWriter.Mode.OVERWRITE )
+      .withCompressionCodec( StringUtils.isEmpty( compressionCodec ) ? CompressionCodecName.SNAPPY : CompressionCodecName.valueOf( compressionCodec ) );
+    if ( rowGroupSize > 0 ) {
+      builder = builder.withRowGroupSize( rowGroupSize );
+    }
+    writer = builder.build();
+  }
+
+  @Override public void write( GenericRecord element ) throws IOException {
+    writer.write( element );
+  }
+
+  @Override public void flush() throws IOException {
+    // The footer is written when the writer is closed
+    //
+    writer.close();
+  }
+}
@@ -0,0 +1,179 @@
+package org.kettle.beam.core.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A mergeable sketch to estimate quantiles (median, percentiles) of numeric values.
+ *
+ * Values are kept in levels.  Every value on level h stands for 2^h values.
+ * When a level holds LEVEL_CAPACITY values it is compacted: the values are sorted
+ * and every other value (starting at a random offset) is promoted to the next level.
+ * The rank error is about log2(n/LEVEL_CAPACITY)/LEVEL_CAPACITY so memory stays logarithmic in the number of values.
+ */
+public class QuantileSketch {
+
+  private static final int LEVEL_CAPACITY = 256;
+
+  private double[][] levels;
+  private int[] sizes;
+  private long count;
+
+  public QuantileSketch() {
+    this.levels = new double[ 1 ][];
+    this.levels[ 0 ] = new double[ 8 ];
+    this.sizes = new int[ 1 ];
+  }
+
+  public void add( double value ) {
+    append( 0, value );
+    count++;
+    if ( sizes[ 0 ] >= LEVEL_CAPACITY ) {
+      compactLevels();
+    }
+  }
+
+  /**
+   * Add all the values of another sketch to this one
+   *
+   * @param other the sketch to merge, it isn't changed
+   */
+  public void merge( QuantileSketch other ) {
+    for ( int h = 0; h < other.levels.length; h++ ) {
+      for ( int j = 0; j < other.sizes[ h ]; j++ ) {
+        append( h, other.levels[ h ][ j ] );
+      }
+    }
+    count += other.count;
+    compactLevels();
+  }
+
+  /**
+   * Compact every full level, the values promoted by a compaction can fill up the next level
+   */
+  private void compactLevels() {
+    for ( int h = 0; h < levels.length; h++ ) {
+      while ( sizes[ h ] >= LEVEL_CAPACITY ) {
+        compact( h );
+      }
+    }
+  }
+
+  private void append( int h, double value ) {
+    if ( h >= levels.length ) {
+      levels = Arrays.copyOf( levels, h + 1 );
+      sizes = Arrays.copyOf( sizes, h + 1 );
+    }
+    if ( levels[ h ] == null ) {
+      levels[ h ] = new double[ 8 ];
+    } else if ( sizes[ h ] == levels[ h ].length ) {
+      levels[ h ] = Arrays.copyOf( levels[ h ], levels[ h ].length * 2 );
+    }
+    levels[ h ][ sizes[ h ]++ ] = value;
+  }
+
+  private void compact( int h ) {
+    double[] level = levels[ h ];
+    int size = sizes[ h ];
+    Arrays.sort( level, 0, size );
+
+    // With an odd number of values, the largest one stays behind
+    //
+    int pairs = size / 2;
+    int offset = ThreadLocalRandom.current().nextInt( 2 );
+    double leftOver = level[ size - 1 ];
+    for ( int j = 0; j < pairs; j++ ) {
+      append( h + 1, level[ 2 * j + offset ] );
+    }
+    // append() can reallocate the levels
+    //
+    sizes[ h ] = 0;
+    if ( size % 2 == 1 ) {
+      levels[ h ][ sizes[ h ]++ ] = leftOver;
+    }
+  }
+
+  /**
+   * @param quantile the quantile to estimate, between 0 and 1 (0.5 is the median)
+   * @return the estimated value at the quantile or null if no values were added
+   */
+  public Double getQuantile( double quantile ) {
+    int total = 0;
+    for ( int size : sizes ) {
+      total += size;
+    }
+    if ( total == 0 ) {
+      return null;
+    }
+    double[] values = new double[ total ];
+    long[] weights = new long[ total ];
+    int index = 0;
+    long totalWeight = 0L;
+    for ( int h = 0; h < levels.length; h++ ) {
+      for ( int j = 0; j < sizes[ h ]; j++ ) {
+        values[ index ] = levels[ h ][ j ];
+        weights[ index ] = 1L << h;
+        totalWeight += weights[ index ];
+        index++;
+      }
+    }
+
+    // Sort the values with their weights
+    //
+    Integer[] order = new Integer[ total ];
+    for ( int i = 0; i < total; i++ ) {
+      order[ i ] = i;
+    }
+    Arrays.sort( order, ( a, b ) -> Double.compare( values[ a ], values[ b ] ) );
+
+    double target = quantile * totalWeight;
+    long cumulative = 0L;
+    for ( int i = 0; i < total; i++ ) {
+      cumulative += weights[ order[ i ] ];
+      if ( cumulative >= target ) {
+        return values[ order[ i ] ];
+      }
+    }
+    return values[ order[ total - 1 ] ];
+  }
+
+  /**
+   * Gets the number of values added
+   *
+   * @return value of count
+   */
+  public long getCount() {
+    return count;
+  }
+
+  public void write( DataOutput out ) throws IOException {
+    out.writeLong( count );
+    out.writeInt( levels.length );
+    for ( int h = 0; h < levels.length; h++ ) {
+      out.writeInt( sizes[ h ] );
+      for ( int j = 0; j < sizes[ h ]; j++ ) {
+        out.writeDouble( levels[ h ][ j ] );
+      }
+    }
+  }
+
+  public static QuantileSketch read( DataInput in ) throws IOException {
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.count = in.readLong();
+    int nrLevels = in.readInt();
+    sketch.levels = new double[ nrLevels ][];
+    sketch.sizes = new int[ nrLevels ];
+    for ( int h = 0; h < nrLevels; h++ ) {
+      int size = in.readInt();
+      sketch.levels[ h ] = new double[ Math.max( 8, size ) ];
+      for ( int j = 0; j < size; j++ ) {
+        sketch.levels[ h ][ j ] = in.readDouble();
+      }
+      sketch.sizes[ h ] = size;
+    }
+    return sketch;
+  }
+}
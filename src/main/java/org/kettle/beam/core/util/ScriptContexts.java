@@ -0,0 +1,63 @@
+package org.kettle.beam.core.util;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.step.StepMetaDataCombi;
+import org.pentaho.di.trans.steps.scriptvalues_mod.ScriptValuesModData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The JavaScript context of a Modified Java Script Value step is bound to the thread which entered it,
+ * while a Beam function can process elements, bundles and timers on any thread.
+ * A context is entered on the processing thread before every execution of the transformation and exited right after.
+ * The compiled script and its scope are kept, only the context is replaced.
+ */
+public class ScriptContexts {
+
+  /**
+   * @param trans the prepared transformation
+   * @return the data of the Modified Java Script Value steps in the transformation
+   */
+  public static List<ScriptValuesModData> findScriptData( Trans trans ) {
+    List<ScriptValuesModData> scriptDataList = new ArrayList<>();
+    for ( StepMetaDataCombi combi : trans.getSteps() ) {
+      if ( combi.data instanceof ScriptValuesModData ) {
+        scriptDataList.add( (ScriptValuesModData) combi.data );
+      }
+    }
+    return scriptDataList;
+  }
+
+  /**
+   * Enter a context on the current thread for every script step which already has one
+   *
+   * @param scriptDataList
+   */
+  public static void enter( List<ScriptValuesModData> scriptDataList ) {
+    for ( ScriptValuesModData scriptData : scriptDataList ) {
+      if ( scriptData.cx != null ) {
+        Context scriptContext = ContextFactory.getGlobal().enterContext();
+        scriptContext.setOptimizationLevel( scriptData.cx.getOptimizationLevel() );
+        scriptContext.setLanguageVersion( scriptData.cx.getLanguageVersion() );
+        scriptData.cx = scriptContext;
+      }
+    }
+  }
+
+  /**
+   * Exit the contexts of the script steps on the current thread.
+   * This includes the context a script step enters itself when it processes its first row.
+   *
+   * @param scriptDataList
+   */
+  public static void exit( List<ScriptValuesModData> scriptDataList ) {
+    for ( ScriptValuesModData scriptData : scriptDataList ) {
+      if ( scriptData.cx != null && Context.getCurrentContext() != null ) {
+        Context.exit();
+      }
+    }
+  }
+}
@@ -0,0 +1,246 @@
+package org.kettle.beam.core.util;
+
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.kettle.beam.core.KettleRow;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the rows of the info step side inputs around for all the step functions in the JVM (worker).
+ * Every DoFn instance feeding the same info step in the same window gets the same (read-only) rows,
+ * the side input is only read and copied once.
+ *
+ * Only the decoded rows are shared. Every step function still passes the rows to its own info step
+ * so lookup structures like the hash table of a Stream Lookup step are built once per DoFn instance.
+ *
+ * The size of the cached rows is estimated. When the total goes over the maximum the least recently used entries are evicted.
+ * Entries of windows which ended before the start of a newly requested window of the same view are evicted as well.
+ */
+public class SideInputCache {
+
+  // By default we use up to a quarter of the heap
+  //
+  public static final long DEFAULT_MAX_SIZE_BYTES = Runtime.getRuntime().maxMemory() / 4;
+
+  private static final Map<CacheKey, CacheEntry> entries = new ConcurrentHashMap<>();
+  private static final AtomicLong totalSizeBytes = new AtomicLong( 0L );
+
+  private static volatile long maxSizeBytes = DEFAULT_MAX_SIZE_BYTES;
+
+  /**
+   * Get the rows of a side input in the given window.  The rows are read from the side input the first time they're asked for.
+   * The returned rows are shared, don't change them.
+   *
+   * @param view     the view of the side input
+   * @param window   the window to get the rows for
+   * @param rowMeta  the layout of the rows, used to estimate their size
+   * @param supplier reads the side input, only called when the rows are not cached
+   * @return the rows of the side input
+   */
+  public static List<Object[]> getRows( PCollectionView<List<KettleRow>> view, BoundedWindow window, RowMetaInterface rowMeta, Supplier<List<KettleRow>> supplier ) {
+    String viewId = view.getTagInternal().getId();
+    CacheKey key = new CacheKey( viewId, window );
+
+    evictClosedWindows( viewId, window );
+
+    CacheEntry entry = entries.computeIfAbsent( key, k -> new CacheEntry() );
+    synchronized ( entry ) {
+      entry.lastAccess = System.nanoTime();
+      if ( entry.rows != null ) {
+        Metrics.counter( "sideInputCacheHit", viewId ).inc();
+        return entry.rows;
+      }
+
+      List<KettleRow> kettleRows = supplier.get();
+      List<Object[]> rows = new ArrayList<>( kettleRows.size() );
+      long sizeBytes = 0L;
+      for ( KettleRow kettleRow : kettleRows ) {
+        rows.add( kettleRow.getRow() );
+        sizeBytes += estimateRowSize( rowMeta, kettleRow.getRow() );
+      }
+      entry.rows = Collections.unmodifiableList( rows );
+      Metrics.counter( "sideInputCacheMiss", viewId ).inc();
+
+      // Only account for entries which weren't evicted while we were reading
+      //
+      if ( entries.get( key ) == entry ) {
+        entry.sizeBytes = sizeBytes;
+        totalSizeBytes.addAndGet( sizeBytes );
+        Metrics.counter( "sideInputCacheBytes", viewId ).inc( sizeBytes );
+      }
+    }
+
+    evictLeastRecentlyUsed( key );
+
+    return entry.rows;
+  }
+
+  /**
+   * Get the rows of a side input in the given window only if they were read on this worker before.
+   * This is for code which can't read side inputs, like timers.  The returned rows are shared, don't change them.
+   *
+   * @param view   the view of the side input
+   * @param window the window to get the rows for
+   * @return the cached rows or null if they're not cached (anymore)
+   */
+  public static List<Object[]> getCachedRows( PCollectionView<List<KettleRow>> view, BoundedWindow window ) {
+    String viewId = view.getTagInternal().getId();
+    CacheEntry entry = entries.get( new CacheKey( viewId, window ) );
+    if ( entry == null ) {
+      return null;
+    }
+    synchronized ( entry ) {
+      if ( entry.rows != null ) {
+        entry.lastAccess = System.nanoTime();
+        Metrics.counter( "sideInputCacheHit", viewId ).inc();
+      }
+      return entry.rows;
+    }
+  }
+
+  /**
+   * Windows of the same view which ended before the requested window started will not be asked for again (barring late data)
+   */
+  private static void evictClosedWindows( String viewId, BoundedWindow window ) {
+    if ( !( window instanceof IntervalWindow ) ) {
+      return;
+    }
+    IntervalWindow intervalWindow = (IntervalWindow) window;
+    for ( CacheKey key : new ArrayList<>( entries.keySet() ) ) {
+      if ( key.viewId.equals( viewId ) && key.window.maxTimestamp().isBefore( intervalWindow.start() ) ) {
+        evict( key );
+      }
+    }
+  }
+
+  private static void evictLeastRecentlyUsed( CacheKey keep ) {
+    if ( totalSizeBytes.get() <= maxSizeBytes ) {
+      return;
+    }
+    List<Map.Entry<CacheKey, CacheEntry>> candidates = new ArrayList<>( entries.entrySet() );
+    candidates.sort( Comparator.comparingLong( e -> e.getValue().lastAccess ) );
+    for ( Map.Entry<CacheKey, CacheEntry> candidate : candidates ) {
+      if ( totalSizeBytes.get() <= maxSizeBytes ) {
+        break;
+      }
+      if ( !candidate.getKey().equals( keep ) ) {
+        evict( candidate.getKey() );
+      }
+    }
+  }
+
+  private static void evict( CacheKey key ) {
+    CacheEntry entry = entries.remove( key );
+    if ( entry != null ) {
+      synchronized ( entry ) {
+        totalSizeBytes.addAndGet( -entry.sizeBytes );
+        Metrics.counter( "sideInputCacheBytes", key.viewId ).dec( entry.sizeBytes );
+        Metrics.counter( "sideInputCacheEvict", key.viewId ).inc();
+      }
+    }
+  }
+
+  /**
+   * A rough estimate of the memory used by a row: the array and the value objects.
+   *
+   * @param rowMeta the layout of the row
+   * @param row     the row data
+   * @return the estimated number of bytes
+   */
+  public static long estimateRowSize( RowMetaInterface rowMeta, Object[] row ) {
+    if ( row == null ) {
+      return 0L;
+    }
+    long size = 16L + 8L * row.length;
+    for ( int i = 0; i < row.length && i < rowMeta.size(); i++ ) {
+      Object value = row[ i ];
+      if ( value == null ) {
+        continue;
+      }
+      switch ( rowMeta.getValueMeta( i ).getType() ) {
+        case ValueMetaInterface.TYPE_STRING:
+          size += 40L + 2L * ( (String) value ).length();
+          break;
+        case ValueMetaInterface.TYPE_BINARY:
+          size += 16L + ( (byte[]) value ).length;
+          break;
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+          size += 64L;
+          break;
+        default:
+          size += 24L;
+          break;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @param maxSizeBytes The maximum estimated size of all cached rows
+   */
+  public static void setMaxSizeBytes( long maxSizeBytes ) {
+    SideInputCache.maxSizeBytes = maxSizeBytes;
+  }
+
+  /**
+   * Gets the estimated size of all cached rows
+   *
+   * @return value of the total size in bytes
+   */
+  public static long getTotalSizeBytes() {
+    return totalSizeBytes.get();
+  }
+
+  /**
+   * Remove all cached rows, mostly for testing.
+   */
+  public static void clear() {
+    for ( CacheKey key : new ArrayList<>( entries.keySet() ) ) {
+      evict( key );
+    }
+  }
+
+  private static class CacheKey {
+    private final String viewId;
+    private final BoundedWindow window;
+
+    public CacheKey( String viewId, BoundedWindow window ) {
+      this.viewId = viewId;
+      this.window = window;
+    }
+
+    @Override public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( o == null || getClass() != o.getClass() ) {
+        return false;
+      }
+      CacheKey cacheKey = (CacheKey) o;
+      return viewId.equals( cacheKey.viewId ) && window.equals( cacheKey.window );
+    }
+
+    @Override public int hashCode() {
+      return Objects.hash( viewId, window );
+    }
+  }
+
+  private static class CacheEntry {
+    private List<Object[]> rows;
+    private long sizeBytes;
+    private volatile long lastAccess;
+  }
+}
@@ -0,0 +1,104 @@
+package org.kettle.beam.core.util;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the transformations executed by the Kettle step functions around for the lifetime of the JVM.
+ * Building a transformation means parsing step XML (under a global lock) and creating injector and dummy steps.
+ * All DoFn instances of the same step(s) need exactly the same transformation so they only have to clone a prepared template.
+ */
+public class TransMetaTemplateCache {
+
+  private static final Map<String, TransMeta> templates = new ConcurrentHashMap<>();
+
+  public interface TransMetaBuilder {
+    TransMeta buildTransMeta() throws KettleException;
+  }
+
+  /**
+   * Get a copy of the transformation template with the given key.  The template is built the first time it's asked for.
+   *
+   * @param templateKey the key of the template, see calculateTemplateKey()
+   * @param builder     builds the template if it's not in the cache yet
+   * @return a copy of the template which is yours to change and execute
+   * @throws KettleException in case the template couldn't be built
+   */
+  public static TransMeta getTransMeta( String templateKey, TransMetaBuilder builder ) throws KettleException {
+    TransMeta template = templates.get( templateKey );
+    if ( template == null ) {
+      synchronized ( templates ) {
+        template = templates.get( templateKey );
+        if ( template == null ) {
+          template = builder.buildTransMeta();
+          templates.put( templateKey, template );
+        }
+      }
+    }
+
+    // The template itself is never changed, we only lock to be safe with step metadata clone() implementations
+    //
+    TransMeta transMeta;
+    synchronized ( template ) {
+      transMeta = (TransMeta) template.clone();
+    }
+
+    // The cloned hops still reference the steps of the template, point them to the cloned steps
+    //
+    for ( int i = 0; i < transMeta.nrTransHops(); i++ ) {
+      TransHopMeta hop = transMeta.getTransHop( i );
+      hop.setFromStep( transMeta.findStep( hop.getFromStep().getName() ) );
+      hop.setToStep( transMeta.findStep( hop.getToStep().getName() ) );
+    }
+    for ( StepMeta stepMeta : transMeta.getSteps() ) {
+      stepMeta.getStepMetaInterface().searchInfoAndTargetSteps( transMeta.getSteps() );
+    }
+    transMeta.setMetaStore( template.getMetaStore() );
+    transMeta.copyVariablesFrom( template );
+
+    return transMeta;
+  }
+
+  /**
+   * Calculate a key (SHA-256 hash) for everything that determines the layout of a transformation: step XML, row metadata, variables, ...
+   *
+   * @param parts the strings describing the transformation
+   * @return the hex encoded hash of the parts
+   * @throws KettleException in case the hash can't be calculated
+   */
+  public static String calculateTemplateKey( List<String> parts ) throws KettleException {
+    try {
+      MessageDigest digest = MessageDigest.getInstance( "SHA-256" );
+      for ( String part : parts ) {
+        if ( part != null ) {
+          digest.update( part.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        // Separator so parts can't shift into each other
+        //
+        digest.update( (byte) 0 );
+      }
+      StringBuilder key = new StringBuilder();
+      for ( byte b : digest.digest() ) {
+        key.append( String.format( "%02x", b & 0xFF ) );
+      }
+      return key.toString();
+    } catch ( Exception e ) {
+      throw new KettleException( "Unable to calculate transformation template key", e );
+    }
+  }
+
+  /**
+   * Remove all templates, mostly for testing.
+   */
+  public static void clear() {
+    templates.clear();
+  }
+}
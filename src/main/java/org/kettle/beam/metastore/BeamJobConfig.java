@@ -45,6 +45,27 @@ public class BeamJobConfig {
   @MetaStoreAttribute
   private String streamingKettleStepsFlushInterval;
 
+  @MetaStoreAttribute
+  private String kettleStepsBatchSize;
+
+  @MetaStoreAttribute
+  private String kettleStepsBatchShards;
+
+  @MetaStoreAttribute
+  private String groupByHotKeyFanout;
+
+  @MetaStoreAttribute
+  private String joinHotKeySalts;
+
+  @MetaStoreAttribute
+  private String joinHotKeyMinRows;
+
+  @MetaStoreAttribute
+  private String joinBloomFilterKeys;
+
+  @MetaStoreAttribute
+  private String sortRowsRanges;
+
   @MetaStoreAttribute
   private String fatJar;
 
@@ -405,6 +426,118 @@ public class BeamJobConfig {
     this.streamingKettleStepsFlushInterval = streamingKettleStepsFlushInterval;
   }
 
+  /**
+   * Gets kettleStepsBatchSize
+   *
+   * @return value of kettleStepsBatchSize
+   */
+  public String getKettleStepsBatchSize() {
+    return kettleStepsBatchSize;
+  }
+
+  /**
+   * @param kettleStepsBatchSize The kettleStepsBatchSize to set
+   */
+  public void setKettleStepsBatchSize( String kettleStepsBatchSize ) {
+    this.kettleStepsBatchSize = kettleStepsBatchSize;
+  }
+
+  /**
+   * Gets kettleStepsBatchShards
+   *
+   * @return value of kettleStepsBatchShards
+   */
+  public String getKettleStepsBatchShards() {
+    return kettleStepsBatchShards;
+  }
+
+  /**
+   * @param kettleStepsBatchShards The kettleStepsBatchShards to set
+   */
+  public void setKettleStepsBatchShards( String kettleStepsBatchShards ) {
+    this.kettleStepsBatchShards = kettleStepsBatchShards;
+  }
+
+  /**
+   * Gets groupByHotKeyFanout
+   *
+   * @return value of groupByHotKeyFanout
+   */
+  public String getGroupByHotKeyFanout() {
+    return groupByHotKeyFanout;
+  }
+
+  /**
+   * @param groupByHotKeyFanout The groupByHotKeyFanout to set
+   */
+  public void setGroupByHotKeyFanout( String groupByHotKeyFanout ) {
+    this.groupByHotKeyFanout = groupByHotKeyFanout;
+  }
+
+  /**
+   * Gets joinHotKeySalts
+   *
+   * @return value of joinHotKeySalts
+   */
+  public String getJoinHotKeySalts() {
+    return joinHotKeySalts;
+  }
+
+  /**
+   * @param joinHotKeySalts The joinHotKeySalts to set
+   */
+  public void setJoinHotKeySalts( String joinHotKeySalts ) {
+    this.joinHotKeySalts = joinHotKeySalts;
+  }
+
+  /**
+   * Gets joinHotKeyMinRows
+   *
+   * @return value of joinHotKeyMinRows
+   */
+  public String getJoinHotKeyMinRows() {
+    return joinHotKeyMinRows;
+  }
+
+  /**
+   * @param joinHotKeyMinRows The joinHotKeyMinRows to set
+   */
+  public void setJoinHotKeyMinRows( String joinHotKeyMinRows ) {
+    this.joinHotKeyMinRows = joinHotKeyMinRows;
+  }
+
+  /**
+   * Gets joinBloomFilterKeys
+   *
+   * @return value of joinBloomFilterKeys
+   */
+  public String getJoinBloomFilterKeys() {
+    return joinBloomFilterKeys;
+  }
+
+  /**
+   * @param joinBloomFilterKeys The joinBloomFilterKeys to set
+   */
+  public void setJoinBloomFilterKeys( String joinBloomFilterKeys ) {
+    this.joinBloomFilterKeys = joinBloomFilterKeys;
+  }
+
+  /**
+   * Gets sortRowsRanges
+   *
+   * @return value of sortRowsRanges
+   */
+  public String getSortRowsRanges() {
+    return sortRowsRanges;
+  }
+
+  /**
+   * @param sortRowsRanges The sortRowsRanges to set
+   */
+  public void setSortRowsRanges( String sortRowsRanges ) {
+    this.sortRowsRanges = sortRowsRanges;
+  }
+
   /**
    * Gets fatJar
    *
@@ -83,6 +83,13 @@ public class BeamJobConfigDialog {
   private TextVar wUserAgent;
   private TextVar wTempLocation;
   private TextVar wStreamingKettleStepsFlushInterval;
+  private TextVar wKettleStepsBatchSize;
+  private TextVar wKettleStepsBatchShards;
+  private TextVar wGroupByHotKeyFanout;
+  private TextVar wJoinHotKeySalts;
+  private TextVar wJoinHotKeyMinRows;
+  private TextVar wJoinBloomFilterKeys;
+  private TextVar wSortRowsRanges;
   private TextVar wPluginsToStage;
   private TextVar wStepPluginClasses;
   private TextVar wXpPluginClasses;
@@ -220,6 +227,13 @@ public class BeamJobConfigDialog {
     wXpPluginClasses.addSelectionListener( selAdapter );
     wFatJar.addSelectionListener( selAdapter );
     wStreamingKettleStepsFlushInterval.addSelectionListener( selAdapter );
+    wKettleStepsBatchSize.addSelectionListener( selAdapter );
+    wKettleStepsBatchShards.addSelectionListener( selAdapter );
+    wGroupByHotKeyFanout.addSelectionListener( selAdapter );
+    wJoinHotKeySalts.addSelectionListener( selAdapter );
+    wJoinHotKeyMinRows.addSelectionListener( selAdapter );
+    wJoinBloomFilterKeys.addSelectionListener( selAdapter );
+    wSortRowsRanges.addSelectionListener( selAdapter );
     wGcpProjectId.addSelectionListener( selAdapter );
     wGcpAppName.addSelectionListener( selAdapter );
     wGcpStagingLocation.addSelectionListener( selAdapter );
@@ -547,6 +561,139 @@ public class BeamJobConfigDialog {
     wStreamingKettleStepsFlushInterval.setLayoutData( fdStreamingKettleStepsFlushInterval );
     lastControl = wStreamingKettleStepsFlushInterval;
 
+    // Kettle Steps Batch Size
+    //
+    Label wlKettleStepsBatchSize = new Label( wGeneralComp, SWT.RIGHT );
+    props.setLook( wlKettleStepsBatchSize );
+    wlKettleStepsBatchSize.setText( BaseMessages.getString( PKG, "BeamJobConfigDialog.KettleStepsBatchSize.Label" ) );
+    FormData fdlKettleStepsBatchSize = new FormData();
+    fdlKettleStepsBatchSize.top = new FormAttachment( lastControl, margin );
+    fdlKettleStepsBatchSize.left = new FormAttachment( 0, -margin ); // First one in the left top corner
+    fdlKettleStepsBatchSize.right = new FormAttachment( middle, -margin );
+    wlKettleStepsBatchSize.setLayoutData( fdlKettleStepsBatchSize );
+    wKettleStepsBatchSize = new TextVar( space, wGeneralComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wKettleStepsBatchSize );
+    FormData fdKettleStepsBatchSize = new FormData();
+    fdKettleStepsBatchSize.top = new FormAttachment( wlKettleStepsBatchSize, 0, SWT.CENTER );
+    fdKettleStepsBatchSize.left = new FormAttachment( middle, 0 ); // To the right of the label
+    fdKettleStepsBatchSize.right = new FormAttachment( 95, 0 );
+    wKettleStepsBatchSize.setLayoutData( fdKettleStepsBatchSize );
+    lastControl = wKettleStepsBatchSize;
+
+    // Kettle Steps Batch Shards
+    //
+    Label wlKettleStepsBatchShards = new Label( wGeneralComp, SWT.RIGHT );
+    props.setLook( wlKettleStepsBatchShards );
+    wlKettleStepsBatchShards.setText( BaseMessages.getString( PKG, "BeamJobConfigDialog.KettleStepsBatchShards.Label" ) );
+    FormData fdlKettleStepsBatchShards = new FormData();
+    fdlKettleStepsBatchShards.top = new FormAttachment( lastControl, margin );
+    fdlKettleStepsBatchShards.left = new FormAttachment( 0, -margin ); // First one in the left top corner
+    fdlKettleStepsBatchShards.right = new FormAttachment( middle, -margin );
+    wlKettleStepsBatchShards.setLayoutData( fdlKettleStepsBatchShards );
+    wKettleStepsBatchShards = new TextVar( space, wGeneralComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wKettleStepsBatchShards );
+    FormData fdKettleStepsBatchShards = new FormData();
+    fdKettleStepsBatchShards.top = new FormAttachment( wlKettleStepsBatchShards, 0, SWT.CENTER );
+    fdKettleStepsBatchShards.left = new FormAttachment( middle, 0 ); // To the right of the label
+    fdKettleStepsBatchShards.right = new FormAttachment( 95, 0 );
+    wKettleStepsBatchShards.setLayoutData( fdKettleStepsBatchShards );
+    lastControl = wKettleStepsBatchShards;
+
+    // Group By hot key fanout
+    //
+    Label wlGroupByHotKeyFanout = new Label( wGeneralComp, SWT.RIGHT );
+    props.setLook( wlGroupByHotKeyFanout );
+    wlGroupByHotKeyFanout.setText( BaseMessages.getString( PKG, "BeamJobConfigDialog.GroupByHotKeyFanout.Label" ) );
+    FormData fdlGroupByHotKeyFanout = new FormData();
+    fdlGroupByHotKeyFanout.top = new FormAttachment( lastControl, margin );
+    fdlGroupByHotKeyFanout.left = new FormAttachment( 0, -margin );
+    fdlGroupByHotKeyFanout.right = new FormAttachment( middle, -margin );
+    wlGroupByHotKeyFanout.setLayoutData( fdlGroupByHotKeyFanout );
+    wGroupByHotKeyFanout = new TextVar( space, wGeneralComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wGroupByHotKeyFanout );
+    FormData fdGroupByHotKeyFanout = new FormData();
+    fdGroupByHotKeyFanout.top = new FormAttachment( wlGroupByHotKeyFanout, 0, SWT.CENTER );
+    fdGroupByHotKeyFanout.left = new FormAttachment( middle, 0 ); // To the right of the label
+    fdGroupByHotKeyFanout.right = new FormAttachment( 95, 0 );
+    wGroupByHotKeyFanout.setLayoutData( fdGroupByHotKeyFanout );
+    lastControl = wGroupByHotKeyFanout;
+
+    // Merge Join hot key salts
+    //
+    Label wlJoinHotKeySalts = new Label( wGeneralComp, SWT.RIGHT );
+    props.setLook( wlJoinHotKeySalts );
+    wlJoinHotKeySalts.setText( BaseMessages.getString( PKG, "BeamJobConfigDialog.JoinHotKeySalts.Label" ) );
+    FormData fdlJoinHotKeySalts = new FormData();
+    fdlJoinHotKeySalts.top = new FormAttachment( lastControl, margin );
+    fdlJoinHotKeySalts.left = new FormAttachment( 0, -margin );
+    fdlJoinHotKeySalts.right = new FormAttachment( middle, -margin );
+    wlJoinHotKeySalts.setLayoutData( fdlJoinHotKeySalts );
+    wJoinHotKeySalts = new TextVar( space, wGeneralComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wJoinHotKeySalts );
+    FormData fdJoinHotKeySalts = new FormData();
+    fdJoinHotKeySalts.top = new FormAttachment( wlJoinHotKeySalts, 0, SWT.CENTER );
+    fdJoinHotKeySalts.left = new FormAttachment( middle, 0 ); // To the right of the label
+    fdJoinHotKeySalts.right = new FormAttachment( 95, 0 );
+    wJoinHotKeySalts.setLayoutData( fdJoinHotKeySalts );
+    lastControl = wJoinHotKeySalts;
+
+    // Merge Join hot key minimum number of rows
+    //
+    Label wlJoinHotKeyMinRows = new Label( wGeneralComp, SWT.RIGHT );
+    props.setLook( wlJoinHotKeyMinRows );
+    wlJoinHotKeyMinRows.setText( BaseMessages.getString( PKG, "BeamJobConfigDialog.JoinHotKeyMinRows.Label" ) );
+    FormData fdlJoinHotKeyMinRows = new FormData();
+    fdlJoinHotKeyMinRows.top = new FormAttachment( lastControl, margin );
+    fdlJoinHotKeyMinRows.left = new FormAttachment( 0, -margin );
+    fdlJoinHotKeyMinRows.right = new FormAttachment( middle, -margin );
+    wlJoinHotKeyMinRows.setLayoutData( fdlJoinHotKeyMinRows );
+    wJoinHotKeyMinRows = new TextVar( space, wGeneralComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wJoinHotKeyMinRows );
+    FormData fdJoinHotKeyMinRows = new FormData();
+    fdJoinHotKeyMinRows.top = new FormAttachment( wlJoinHotKeyMinRows, 0, SWT.CENTER );
+    fdJoinHotKeyMinRows.left = new FormAttachment( middle, 0 ); // To the right of the label
+    fdJoinHotKeyMinRows.right = new FormAttachment( 95, 0 );
+    wJoinHotKeyMinRows.setLayoutData( fdJoinHotKeyMinRows );
+    lastControl = wJoinHotKeyMinRows;
+
+    // Bloom filter size
+    //
+    Label wlJoinBloomFilterKeys = new Label( wGeneralComp, SWT.RIGHT );
+    props.setLook( wlJoinBloomFilterKeys );
+    wlJoinBloomFilterKeys.setText( BaseMessages.getString( PKG, "BeamJobConfigDialog.JoinBloomFilterKeys.Label" ) );
+    FormData fdlJoinBloomFilterKeys = new FormData();
+    fdlJoinBloomFilterKeys.top = new FormAttachment( lastControl, margin );
+    fdlJoinBloomFilterKeys.left = new FormAttachment( 0, -margin );
+    fdlJoinBloomFilterKeys.right = new FormAttachment( middle, -margin );
+    wlJoinBloomFilterKeys.setLayoutData( fdlJoinBloomFilterKeys );
+    wJoinBloomFilterKeys = new TextVar( space, wGeneralComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wJoinBloomFilterKeys );
+    FormData fdJoinBloomFilterKeys = new FormData();
+    fdJoinBloomFilterKeys.top = new FormAttachment( wlJoinBloomFilterKeys, 0, SWT.CENTER );
+    fdJoinBloomFilterKeys.left = new FormAttachment( middle, 0 ); // To the right of the label
+    fdJoinBloomFilterKeys.right = new FormAttachment( 95, 0 );
+    wJoinBloomFilterKeys.setLayoutData( fdJoinBloomFilterKeys );
+    lastControl = wJoinBloomFilterKeys;
+
+    // Sort rows ranges
+    //
+    Label wlSortRowsRanges = new Label( wGeneralComp, SWT.RIGHT );
+    props.setLook( wlSortRowsRanges );
+    wlSortRowsRanges.setText( BaseMessages.getString( PKG, "BeamJobConfigDialog.SortRowsRanges.Label" ) );
+    FormData fdlSortRowsRanges = new FormData();
+    fdlSortRowsRanges.top = new FormAttachment( lastControl, margin );
+    fdlSortRowsRanges.left = new FormAttachment( 0, -margin );
+    fdlSortRowsRanges.right = new FormAttachment( middle, -margin );
+    wlSortRowsRanges.setLayoutData( fdlSortRowsRanges );
+    wSortRowsRanges = new TextVar( space, wGeneralComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wSortRowsRanges );
+    FormData fdSortRowsRanges = new FormData();
+    fdSortRowsRanges.top = new FormAttachment( wlSortRowsRanges, 0, SWT.CENTER );
+    fdSortRowsRanges.left = new FormAttachment( middle, 0 ); // To the right of the label
+    fdSortRowsRanges.right = new FormAttachment( 95, 0 );
+    wSortRowsRanges.setLayoutData( fdSortRowsRanges );
+    lastControl = wSortRowsRanges;
+
     FormData fdGeneralComp = new FormData();
     fdGeneralComp.left = new FormAttachment( 0, 0 );
     fdGeneralComp.top = new FormAttachment( 0, 0 );
@@ -1652,6 +1799,13 @@ public class BeamJobConfigDialog {
     wXpPluginClasses.setText( Const.NVL( config.getXpPluginClasses(), "" ) );
     wFatJar.setText( Const.NVL( config.getFatJar(), "" ) );
     wStreamingKettleStepsFlushInterval.setText( Const.NVL( config.getStreamingKettleStepsFlushInterval(), "" ) );
+    wKettleStepsBatchSize.setText( Const.NVL( config.getKettleStepsBatchSize(), "" ) );
+    wKettleStepsBatchShards.setText( Const.NVL( config.getKettleStepsBatchShards(), "" ) );
+    wGroupByHotKeyFanout.setText( Const.NVL( config.getGroupByHotKeyFanout(), "" ) );
+    wJoinHotKeySalts.setText( Const.NVL( config.getJoinHotKeySalts(), "" ) );
+    wJoinHotKeyMinRows.setText( Const.NVL( config.getJoinHotKeyMinRows(), "" ) );
+    wJoinBloomFilterKeys.setText( Const.NVL( config.getJoinBloomFilterKeys(), "" ) );
+    wSortRowsRanges.setText( Const.NVL( config.getSortRowsRanges(), "" ) );
 
     // GCP
     /*
@@ -1771,6 +1925,13 @@ public class BeamJobConfigDialog {
     cfg.setStepPluginClasses( ( wStepPluginClasses.getText() ) );
     cfg.setXpPluginClasses( ( wXpPluginClasses.getText() ) );
     cfg.setStreamingKettleStepsFlushInterval( wStreamingKettleStepsFlushInterval.getText() );
+    cfg.setKettleStepsBatchSize( wKettleStepsBatchSize.getText() );
+    cfg.setKettleStepsBatchShards( wKettleStepsBatchShards.getText() );
+    cfg.setGroupByHotKeyFanout( wGroupByHotKeyFanout.getText() );
+    cfg.setJoinHotKeySalts( wJoinHotKeySalts.getText() );
+    cfg.setJoinHotKeyMinRows( wJoinHotKeyMinRows.getText() );
+    cfg.setJoinBloomFilterKeys( wJoinBloomFilterKeys.getText() );
+    cfg.setSortRowsRanges( wSortRowsRanges.getText() );
     cfg.setFatJar( wFatJar.getText() );
     cfg.setGcpProjectId( wGcpProjectId.getText() );
     cfg.setGcpAppName( wGcpAppName.getText() );
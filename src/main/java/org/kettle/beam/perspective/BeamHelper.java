@@ -586,4 +586,40 @@ public class BeamHelper extends AbstractXulEventHandler implements ISpoonMenuCon
     setCurrentStepBeamFlag(BeamConst.STRING_STEP_FLAG_SINGLE_THREADED, "false");
   }
 
+  public void setBroadcastLeft() {
+    setCurrentStepBeamFlag(BeamConst.STRING_STEP_FLAG_BROADCAST, BeamConst.STRING_JOIN_SIDE_LEFT);
+  }
+
+  public void setBroadcastRight() {
+    setCurrentStepBeamFlag(BeamConst.STRING_STEP_FLAG_BROADCAST, BeamConst.STRING_JOIN_SIDE_RIGHT);
+  }
+
+  public void clearBroadcast() {
+    setCurrentStepBeamFlag(BeamConst.STRING_STEP_FLAG_BROADCAST, "false");
+  }
+
+  public void setSaltLeft() {
+    setCurrentStepBeamFlag(BeamConst.STRING_STEP_FLAG_SALT, BeamConst.STRING_JOIN_SIDE_LEFT);
+  }
+
+  public void setSaltRight() {
+    setCurrentStepBeamFlag(BeamConst.STRING_STEP_FLAG_SALT, BeamConst.STRING_JOIN_SIDE_RIGHT);
+  }
+
+  public void clearSalt() {
+    setCurrentStepBeamFlag(BeamConst.STRING_STEP_FLAG_SALT, "false");
+  }
+
+  public void setBloomFilterLeft() {
+    setCurrentStepBeamFlag(BeamConst.STRING_STEP_FLAG_BLOOM_FILTER, BeamConst.STRING_JOIN_SIDE_LEFT);
+  }
+
+  public void setBloomFilterRight() {
+    setCurrentStepBeamFlag(BeamConst.STRING_STEP_FLAG_BLOOM_FILTER, BeamConst.STRING_JOIN_SIDE_RIGHT);
+  }
+
+  public void clearBloomFilter() {
+    setCurrentStepBeamFlag(BeamConst.STRING_STEP_FLAG_BLOOM_FILTER, "false");
+  }
+
 }
@@ -23,7 +23,13 @@ public class TransDrawExtensionPoint implements ExtensionPointInterface {
     TransPainterExtension ext = (TransPainterExtension) object;
     boolean batch = "true".equalsIgnoreCase( ext.stepMeta.getAttribute( BeamConst.STRING_KETTLE_BEAM, BeamConst.STRING_STEP_FLAG_BATCH ) );
     boolean single = "true".equalsIgnoreCase( ext.stepMeta.getAttribute( BeamConst.STRING_KETTLE_BEAM, BeamConst.STRING_STEP_FLAG_SINGLE_THREADED ) );
-    if (!batch && !single) {
+    String broadcast = ext.stepMeta.getAttribute( BeamConst.STRING_KETTLE_BEAM, BeamConst.STRING_STEP_FLAG_BROADCAST );
+    boolean broadcastSide = BeamConst.STRING_JOIN_SIDE_LEFT.equals( broadcast ) || BeamConst.STRING_JOIN_SIDE_RIGHT.equals( broadcast );
+    String salt = ext.stepMeta.getAttribute( BeamConst.STRING_KETTLE_BEAM, BeamConst.STRING_STEP_FLAG_SALT );
+    boolean saltSide = BeamConst.STRING_JOIN_SIDE_LEFT.equals( salt ) || BeamConst.STRING_JOIN_SIDE_RIGHT.equals( salt );
+    String bloomFilter = ext.stepMeta.getAttribute( BeamConst.STRING_KETTLE_BEAM, BeamConst.STRING_STEP_FLAG_BLOOM_FILTER );
+    boolean bloomFilterSide = BeamConst.STRING_JOIN_SIDE_LEFT.equals( bloomFilter ) || BeamConst.STRING_JOIN_SIDE_RIGHT.equals( bloomFilter );
+    if (!batch && !single && !broadcastSide && !saltSide && !bloomFilterSide) {
       return;
     }
     String str = "";
@@ -36,6 +42,24 @@ public class TransDrawExtensionPoint implements ExtensionPointInterface {
       }
       str += "Single";
     }
+    if ( broadcastSide ) {
+      if ( batch || single ) {
+        str += " / ";
+      }
+      str += "Broadcast " + broadcast;
+    }
+    if ( saltSide ) {
+      if ( batch || single || broadcastSide ) {
+        str += " / ";
+      }
+      str += "Salt " + salt;
+    }
+    if ( bloomFilterSide ) {
+      if ( batch || single || broadcastSide || saltSide ) {
+        str += " / ";
+      }
+      str += "Bloom filter " + bloomFilter;
+    }
     if ( StringUtils.isNotEmpty( str ) ) {
       str="Beam "+str;
       Point strSize = ext.gc.textExtent( str );
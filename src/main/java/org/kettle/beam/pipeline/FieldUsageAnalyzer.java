@@ -0,0 +1,231 @@
+package org.kettle.beam.pipeline;
+
+import org.apache.commons.lang.StringUtils;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.filterrows.FilterRowsMeta;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
+import org.pentaho.di.trans.steps.mergejoin.MergeJoinMeta;
+import org.pentaho.di.trans.steps.sort.SortRowsMeta;
+import org.pentaho.di.trans.steps.streamlookup.StreamLookupMeta;
+import org.pentaho.di.trans.steps.uniquerows.UniqueRowsMeta;
+import org.pentaho.di.trans.steps.uniquerowsbyhashset.UniqueRowsByHashSetMeta;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Figures out which output fields of every step are read by a step downstream.
+ * The steps are visited from the last to the first: the fields a step reads from its input are the fields it uses itself
+ * plus, for steps passing their input fields along, the fields which are used downstream.
+ * Steps we don't know anything about read all their input fields.
+ */
+public class FieldUsageAnalyzer {
+
+  private TransMeta transMeta;
+  private Map<String, RowMetaInterface> stepFieldsMap;
+  private Map<String, Set<String>> usedFieldsMap; // A null value means that all fields are used
+
+  public FieldUsageAnalyzer( TransMeta transMeta ) {
+    this.transMeta = transMeta;
+    this.stepFieldsMap = new HashMap<>();
+    this.usedFieldsMap = new HashMap<>();
+  }
+
+  /**
+   * Analyze the field usage of all the steps
+   *
+   * @param sortedSteps the steps in topological order
+   * @throws KettleException
+   */
+  public void analyze( List<StepMeta> sortedSteps ) throws KettleException {
+    usedFieldsMap.clear();
+    for ( int i = sortedSteps.size() - 1; i >= 0; i-- ) {
+      StepMeta stepMeta = sortedSteps.get( i );
+
+      Set<String> usedFields = new HashSet<>();
+      for ( StepMeta nextStep : transMeta.findNextSteps( stepMeta ) ) {
+        Set<String> readFields = getReadFields( nextStep, stepMeta );
+        if ( readFields == null ) {
+          usedFields = null;
+          break;
+        }
+        usedFields.addAll( readFields );
+      }
+      usedFieldsMap.put( stepMeta.getName(), usedFields );
+    }
+  }
+
+  /**
+   * Get the fields a step reads from one of the steps sending it rows
+   *
+   * @param stepMeta     the reading step
+   * @param previousStep the step sending the rows
+   * @return the names of the fields read or null if all fields are read
+   */
+  private Set<String> getReadFields( StepMeta stepMeta, StepMeta previousStep ) throws KettleException {
+    if ( !usedFieldsMap.containsKey( stepMeta.getName() ) ) {
+      return null; // Not analyzed, a loop or a disabled hop
+    }
+    Set<String> usedFields = usedFieldsMap.get( stepMeta.getName() );
+    StepMetaInterface meta = stepMeta.getStepMetaInterface();
+
+    // Error handling receives the complete input row
+    //
+    if ( stepMeta.isDoingErrorHandling() ) {
+      return null;
+    }
+
+    // Memory Group By only outputs the group and aggregate fields
+    //
+    if ( meta instanceof MemoryGroupByMeta ) {
+      MemoryGroupByMeta groupByMeta = (MemoryGroupByMeta) meta;
+      return fields( groupByMeta.getGroupField(), groupByMeta.getSubjectField() );
+    }
+
+    if ( usedFields == null ) {
+      return null;
+    }
+
+    // Steps passing all their input fields along
+    //
+    if ( meta instanceof DummyTransMeta ) {
+      return usedFields;
+    }
+    if ( meta instanceof FilterRowsMeta ) {
+      FilterRowsMeta filterRowsMeta = (FilterRowsMeta) meta;
+      if ( filterRowsMeta.getCondition() == null ) {
+        return null;
+      }
+      return union( usedFields, fields( filterRowsMeta.getCondition().getUsedFields() ) );
+    }
+    if ( meta instanceof SortRowsMeta ) {
+      return union( usedFields, fields( ( (SortRowsMeta) meta ).getFieldName() ) );
+    }
+    if ( meta instanceof UniqueRowsMeta || meta instanceof UniqueRowsByHashSetMeta ) {
+      String[] compareFields = meta instanceof UniqueRowsMeta ? ( (UniqueRowsMeta) meta ).getCompareFields() : ( (UniqueRowsByHashSetMeta) meta ).getCompareFields();
+      if ( compareFields == null || compareFields.length == 0 ) {
+        return null; // Compares complete rows
+      }
+      return union( usedFields, fields( compareFields ) );
+    }
+
+    // Merge Join outputs the left fields followed by the right fields, duplicate names are renamed
+    //
+    if ( meta instanceof MergeJoinMeta ) {
+      MergeJoinMeta mergeJoinMeta = (MergeJoinMeta) meta;
+      List<StreamInterface> infoStreams = mergeJoinMeta.getStepIOMeta().getInfoStreams();
+      StepMeta leftStep = infoStreams.get( 0 ).getStepMeta();
+      StepMeta rightStep = infoStreams.get( 1 ).getStepMeta();
+      if ( leftStep == null || rightStep == null || leftStep.equals( rightStep ) ) {
+        return null;
+      }
+      RowMetaInterface leftRowMeta = getStepFields( leftStep );
+      RowMetaInterface outputRowMeta = getStepFields( stepMeta );
+      if ( previousStep.equals( leftStep ) ) {
+        return union( fields( mergeJoinMeta.getKeyFields1() ), getUsedFields( leftRowMeta, outputRowMeta, 0, usedFields ) );
+      } else if ( previousStep.equals( rightStep ) ) {
+        RowMetaInterface rightRowMeta = getStepFields( rightStep );
+        return union( fields( mergeJoinMeta.getKeyFields2() ), getUsedFields( rightRowMeta, outputRowMeta, leftRowMeta.size(), usedFields ) );
+      }
+      return null;
+    }
+
+    // Stream Lookup passes the main input fields and adds the looked up values
+    //
+    if ( meta instanceof StreamLookupMeta ) {
+      StreamLookupMeta streamLookupMeta = (StreamLookupMeta) meta;
+      StepMeta lookupStep = streamLookupMeta.getStepIOMeta().getInfoStreams().get( 0 ).getStepMeta();
+      if ( previousStep.equals( lookupStep ) ) {
+        return union( fields( streamLookupMeta.getKeylookup() ), fields( streamLookupMeta.getValue() ) );
+      }
+      return union( usedFields, fields( streamLookupMeta.getKeystream() ) );
+    }
+
+    return null;
+  }
+
+  /**
+   * The used fields of an input of a step which outputs the input fields at a fixed position
+   */
+  private Set<String> getUsedFields( RowMetaInterface inputRowMeta, RowMetaInterface outputRowMeta, int offset, Set<String> usedFields ) {
+    Set<String> inputFields = new HashSet<>();
+    for ( int i = 0; i < inputRowMeta.size(); i++ ) {
+      if ( offset + i >= outputRowMeta.size() || usedFields.contains( outputRowMeta.getValueMeta( offset + i ).getName() ) ) {
+        inputFields.add( inputRowMeta.getValueMeta( i ).getName() );
+      }
+    }
+    return inputFields;
+  }
+
+  private RowMetaInterface getStepFields( StepMeta stepMeta ) throws KettleException {
+    RowMetaInterface rowMeta = stepFieldsMap.get( stepMeta.getName() );
+    if ( rowMeta == null ) {
+      rowMeta = transMeta.getStepFields( stepMeta );
+      stepFieldsMap.put( stepMeta.getName(), rowMeta );
+    }
+    return rowMeta;
+  }
+
+  private static Set<String> fields( String[]... names ) {
+    Set<String> fields = new HashSet<>();
+    for ( String[] array : names ) {
+      if ( array != null ) {
+        for ( String name : array ) {
+          if ( StringUtils.isNotEmpty( name ) ) {
+            fields.add( name );
+          }
+        }
+      }
+    }
+    return fields;
+  }
+
+  private static Set<String> union( Collection<String> one, Collection<String> two ) {
+    Set<String> fields = new HashSet<>( one );
+    fields.addAll( two );
+    return fields;
+  }
+
+  /**
+   * Get the output fields of a step which are read downstream
+   *
+   * @param stepname the name of the step
+   * @return the names of the fields or null if all fields are used (or the step wasn't analyzed)
+   */
+  public Set<String> getUsedFields( String stepname ) {
+    return usedFieldsMap.get( stepname );
+  }
+
+  /**
+   * Get the indexes of the output fields of a step which are not read by any step downstream
+   *
+   * @param stepMeta the step
+   * @return the indexes of the unused fields, an empty array if all fields are used
+   * @throws KettleException
+   */
+  public int[] getUnusedIndexes( StepMeta stepMeta ) throws KettleException {
+    Set<String> usedFields = getUsedFields( stepMeta.getName() );
+    if ( usedFields == null ) {
+      return new int[ 0 ];
+    }
+    RowMetaInterface rowMeta = getStepFields( stepMeta );
+    List<Integer> unusedIndexes = new ArrayList<>();
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      if ( !usedFields.contains( rowMeta.getValueMeta( i ).getName() ) ) {
+        unusedIndexes.add( i );
+      }
+    }
+    return unusedIndexes.stream().mapToInt( Integer::intValue ).toArray();
+  }
+}
@@ -8,6 +8,7 @@ import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.PipelineRunner;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.transforms.Flatten;
+import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionList;
 import org.apache.commons.lang.StringUtils;
@@ -15,10 +16,13 @@ import org.apache.commons.vfs2.FileObject;
 import org.kettle.beam.core.BeamDefaults;
 import org.kettle.beam.core.KettleRow;
 import org.kettle.beam.core.coder.KettleRowCoder;
+import org.kettle.beam.core.fn.ProjectFieldsFn;
 import org.kettle.beam.core.metastore.SerializableMetaStore;
 import org.kettle.beam.core.util.KettleBeamUtil;
 import org.kettle.beam.metastore.BeamJobConfig;
 import org.kettle.beam.metastore.RunnerType;
+import org.kettle.beam.pipeline.handler.BeamAvroInputStepHandler;
+import org.kettle.beam.pipeline.handler.BeamAvroOutputStepHandler;
 import org.kettle.beam.pipeline.handler.BeamBigQueryInputStepHandler;
 import org.kettle.beam.pipeline.handler.BeamBigQueryOutputStepHandler;
 import org.kettle.beam.pipeline.handler.BeamGenericStepHandler;
@@ -28,13 +32,19 @@ import org.kettle.beam.pipeline.handler.BeamKafkaInputStepHandler;
 import org.kettle.beam.pipeline.handler.BeamKafkaOutputStepHandler;
 import org.kettle.beam.pipeline.handler.BeamMergeJoinStepHandler;
 import org.kettle.beam.pipeline.handler.BeamOutputStepHandler;
+import org.kettle.beam.pipeline.handler.BeamParquetInputStepHandler;
+import org.kettle.beam.pipeline.handler.BeamParquetOutputStepHandler;
 import org.kettle.beam.pipeline.handler.BeamPublisherStepHandler;
+import org.kettle.beam.pipeline.handler.BeamSortRowsStepHandler;
 import org.kettle.beam.pipeline.handler.BeamStepHandler;
+import org.kettle.beam.pipeline.handler.BeamStreamLookupStepHandler;
 import org.kettle.beam.pipeline.handler.BeamSubscriberStepHandler;
 import org.kettle.beam.pipeline.handler.BeamTimestampStepHandler;
+import org.kettle.beam.pipeline.handler.BeamUniqueRowsStepHandler;
 import org.kettle.beam.pipeline.handler.BeamWindowStepHandler;
 import org.kettle.beam.util.BeamConst;
 import org.pentaho.di.core.annotations.Step;
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.extension.ExtensionPoint;
 import org.pentaho.di.core.logging.LogChannel;
@@ -47,16 +57,19 @@ import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.steps.filterrows.FilterRowsMeta;
 import org.pentaho.di.trans.steps.groupby.GroupByMeta;
-import org.pentaho.di.trans.steps.sort.SortRowsMeta;
-import org.pentaho.di.trans.steps.uniquerows.UniqueRowsMeta;
+import org.pentaho.di.trans.steps.mergejoin.MergeJoinMeta;
 import org.pentaho.metastore.api.IMetaStore;
 import org.pentaho.metastore.api.exceptions.MetaStoreException;
 import org.scannotation.AnnotationDB;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -71,6 +84,18 @@ public class TransMetaPipelineConverter {
   private Map<String, BeamStepHandler> stepHandlers;
   private BeamStepHandler genericStepHandler;
   private BeamJobConfig beamJobConfig;
+  private FieldUsageAnalyzer fieldUsageAnalyzer;
+
+  // Unused fields are cleared before the rows go to these steps
+  //
+  private static final Set<String> SHUFFLE_STEP_IDS = new HashSet<>( Arrays.asList(
+    BeamConst.STRING_MEMORY_GROUP_BY_PLUGIN_ID,
+    BeamConst.STRING_MERGE_JOIN_PLUGIN_ID,
+    BeamConst.STRING_STREAM_LOOKUP_PLUGIN_ID,
+    BeamConst.STRING_SORT_ROWS_PLUGIN_ID,
+    BeamConst.STRING_UNIQUE_ROWS_PLUGIN_ID,
+    BeamConst.STRING_UNIQUE_ROWS_BY_HASHSET_PLUGIN_ID
+  ) );
 
   public TransMetaPipelineConverter() {
     this.stepHandlers = new HashMap<>();
@@ -123,13 +148,21 @@ public class TransMetaPipelineConverter {
     stepHandlers.put( BeamConst.STRING_BEAM_PUBLISH_PLUGIN_ID, new BeamPublisherStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
     stepHandlers.put( BeamConst.STRING_BEAM_SUBSCRIBE_PLUGIN_ID, new BeamSubscriberStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
     stepHandlers.put( BeamConst.STRING_MERGE_JOIN_PLUGIN_ID, new BeamMergeJoinStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
+    stepHandlers.put( BeamConst.STRING_STREAM_LOOKUP_PLUGIN_ID, new BeamStreamLookupStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
     stepHandlers.put( BeamConst.STRING_MEMORY_GROUP_BY_PLUGIN_ID, new BeamGroupByStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
+    stepHandlers.put( BeamConst.STRING_SORT_ROWS_PLUGIN_ID, new BeamSortRowsStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
+    stepHandlers.put( BeamConst.STRING_UNIQUE_ROWS_PLUGIN_ID, new BeamUniqueRowsStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
+    stepHandlers.put( BeamConst.STRING_UNIQUE_ROWS_BY_HASHSET_PLUGIN_ID, new BeamUniqueRowsStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
     stepHandlers.put( BeamConst.STRING_BEAM_WINDOW_PLUGIN_ID, new BeamWindowStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
     stepHandlers.put( BeamConst.STRING_BEAM_TIMESTAMP_PLUGIN_ID, new BeamTimestampStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
     stepHandlers.put( BeamConst.STRING_BEAM_BIGQUERY_INPUT_PLUGIN_ID, new BeamBigQueryInputStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
     stepHandlers.put( BeamConst.STRING_BEAM_BIGQUERY_OUTPUT_PLUGIN_ID, new BeamBigQueryOutputStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
     stepHandlers.put( BeamConst.STRING_BEAM_KAFKA_CONSUME_PLUGIN_ID, new BeamKafkaInputStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
     stepHandlers.put( BeamConst.STRING_BEAM_KAFKA_PRODUCE_PLUGIN_ID, new BeamKafkaOutputStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
+    stepHandlers.put( BeamConst.STRING_BEAM_PARQUET_INPUT_PLUGIN_ID, new BeamParquetInputStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
+    stepHandlers.put( BeamConst.STRING_BEAM_PARQUET_OUTPUT_PLUGIN_ID, new BeamParquetOutputStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
+    stepHandlers.put( BeamConst.STRING_BEAM_AVRO_INPUT_PLUGIN_ID, new BeamAvroInputStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
+    stepHandlers.put( BeamConst.STRING_BEAM_AVRO_OUTPUT_PLUGIN_ID, new BeamAvroOutputStepHandler( beamJobConfig, metaStore, transMeta, stepPluginClasses, xpPluginClasses ) );
     genericStepHandler = new BeamGenericStepHandler( beamJobConfig, metaStore, metaStoreJson, transMeta, stepPluginClasses, xpPluginClasses );
   }
 
@@ -187,6 +220,9 @@ public class TransMetaPipelineConverter {
     pipelineOptions.setRunner( runnerClass );
     Pipeline pipeline = Pipeline.create( pipelineOptions );
 
+    // The generic coder is only a fallback for collections where the row layout isn't known.
+    // Most step handlers set a compact KettleRowMetaCoder on the collections they produce.
+    //
     pipeline.getCoderRegistry().registerCoderForClass( KettleRow.class, new KettleRowCoder() );
 
     log.logBasic( "Created pipeline job with name '" + pipelineOptions.getJobName() + "'" );
@@ -195,6 +231,11 @@ public class TransMetaPipelineConverter {
     //
     Map<String, PCollection<KettleRow>> stepCollectionMap = new HashMap<>();
 
+    // Which fields are actually read downstream?
+    //
+    fieldUsageAnalyzer = new FieldUsageAnalyzer( transMeta );
+    fieldUsageAnalyzer.analyze( getSortedStepsList() );
+
     // Handle io
     //
     handleBeamInputSteps( log, stepCollectionMap, pipeline );
@@ -229,8 +270,52 @@ public class TransMetaPipelineConverter {
     List<StepMeta> beamInputStepMetas = findBeamInputs();
     for ( StepMeta stepMeta : beamInputStepMetas ) {
       BeamStepHandler stepHandler = stepHandlers.get( stepMeta.getStepID() );
-      stepHandler.handleStep( log, stepMeta, stepCollectionMap, pipeline, transMeta.getStepFields( stepMeta ), null, null );
+      if ( stepHandler instanceof BeamBigQueryInputStepHandler ) {
+        ( (BeamBigQueryInputStepHandler) stepHandler ).handleBigQueryInput( log, stepMeta, stepCollectionMap, pipeline,
+          fieldUsageAnalyzer.getUsedFields( stepMeta.getName() ), findPushDownCondition( stepMeta ) );
+      } else if ( stepHandler instanceof BeamAvroInputStepHandler ) {
+        ( (BeamAvroInputStepHandler) stepHandler ).handleAvroInput( log, stepMeta, stepCollectionMap, pipeline,
+          fieldUsageAnalyzer.getUsedFields( stepMeta.getName() ) );
+      } else if ( stepHandler instanceof BeamParquetInputStepHandler ) {
+        ( (BeamParquetInputStepHandler) stepHandler ).handleParquetInput( log, stepMeta, stepCollectionMap, pipeline,
+          fieldUsageAnalyzer.getUsedFields( stepMeta.getName() ) );
+      } else if ( stepHandler instanceof BeamInputStepHandler ) {
+        ( (BeamInputStepHandler) stepHandler ).handleBeamInput( log, stepMeta, stepCollectionMap, pipeline, findPushDownCondition( stepMeta ) );
+      } else {
+        stepHandler.handleStep( log, stepMeta, stepCollectionMap, pipeline, transMeta.getStepFields( stepMeta ), null, null );
+      }
+      pruneUnusedFields( log, stepMeta, stepCollectionMap );
+    }
+  }
+
+  /**
+   * When a Filter Rows step is the only step reading from an input step, the input step can already skip the rows which don't match.
+   * The Filter Rows step still evaluates the condition so it's fine if the input step only applies part of it.
+   *
+   * @param inputStep the input step
+   * @return the condition to push down into the input step or null if all rows need to be read
+   */
+  private Condition findPushDownCondition( StepMeta inputStep ) {
+    List<StepMeta> nextSteps = transMeta.findNextSteps( inputStep );
+    if ( nextSteps.size() != 1 ) {
+      return null;
+    }
+    StepMeta filterStep = nextSteps.get( 0 );
+    if ( !( filterStep.getStepMetaInterface() instanceof FilterRowsMeta ) || filterStep.isDoingErrorHandling() ) {
+      return null;
+    }
+    if ( transMeta.findPreviousSteps( filterStep ).size() != 1 ) {
+      return null;
+    }
+
+    // The rows which don't match are needed if they're sent to a step
+    //
+    FilterRowsMeta filterRowsMeta = (FilterRowsMeta) filterStep.getStepMetaInterface();
+    List<StreamInterface> targetStreams = filterRowsMeta.getStepIOMeta().getTargetStreams();
+    if ( targetStreams.size() > 1 && targetStreams.get( 1 ).getStepMeta() != null ) {
+      return null;
     }
+    return filterRowsMeta.getCondition();
   }
 
   private void handleBeamOutputSteps( LogChannelInterface log, Map<String, PCollection<KettleRow>> stepCollectionMap, Pipeline pipeline ) throws KettleException, IOException {
@@ -265,6 +350,26 @@ public class TransMetaPipelineConverter {
     //
     List<StepMeta> steps = getSortedStepsList();
 
+    // Linear chains of generic steps are executed in a single transform
+    //
+    Map<String, List<StepMeta>> stepChains = findGenericStepChains( steps );
+    Set<String> chainedSteps = new HashSet<>();
+    for ( List<StepMeta> stepChain : stepChains.values() ) {
+      for ( StepMeta chainedStep : stepChain.subList( 1, stepChain.size() ) ) {
+        chainedSteps.add( chainedStep.getName() );
+      }
+    }
+
+    // Chains of Merge Join steps on the same key are joined in a single CoGroupByKey
+    //
+    Map<String, List<StepMeta>> joinChains = findMergeJoinChains( steps );
+    Set<String> joinedSteps = new HashSet<>();
+    for ( List<StepMeta> joinChain : joinChains.values() ) {
+      for ( StepMeta joinedStep : joinChain.subList( 0, joinChain.size() - 1 ) ) {
+        joinedSteps.add( joinedStep.getName() );
+      }
+    }
+
     for ( StepMeta stepMeta : steps ) {
 
       // Input and output steps are handled else where.
@@ -276,6 +381,18 @@ public class TransMetaPipelineConverter {
         //
         validateStepBeamUsage( stepMeta.getStepMetaInterface() );
 
+        // Handled together with the first step in the chain
+        //
+        if ( chainedSteps.contains( stepMeta.getName() ) ) {
+          continue;
+        }
+
+        // Handled together with the last join in the chain, when all the inputs are available
+        //
+        if ( joinedSteps.contains( stepMeta.getName() ) ) {
+          continue;
+        }
+
         // Lookup all the previous steps for this one, excluding info steps like StreamLookup...
         // So the usecase is : we read from multiple io steps and join to one location...
         //
@@ -297,9 +414,14 @@ public class TransMetaPipelineConverter {
           //
           firstPreviousStep = previousSteps.get( 0 );
 
-          // No fuss with info fields sneaking in, all previous steps need to emit the same layout anyway
+          // No fuss with info fields sneaking in, all previous steps need to emit the same layout anyway.
+          // The error handling target of a step gets the error rows: the input rows with the error fields.
           //
-          rowMeta = transMeta.getStepFields( firstPreviousStep );
+          if ( firstPreviousStep.isSendingErrorRowsToStep( stepMeta ) ) {
+            rowMeta = transMeta.getStepFields( firstPreviousStep, stepMeta, null );
+          } else {
+            rowMeta = transMeta.getStepFields( firstPreviousStep );
+          }
           // System.out.println("STEP FIELDS for '"+firstPreviousStep.getName()+"' : "+rowMeta);
 
           // Check in the map to see if previousStep isn't targeting this one
@@ -348,30 +470,228 @@ public class TransMetaPipelineConverter {
           }
         }
 
-        if ( stepHandler != null ) {
+        if ( joinChains.containsKey( stepMeta.getName() ) ) {
+
+          ( (BeamMergeJoinStepHandler) stepHandler ).handleMergeJoinChain( log, joinChains.get( stepMeta.getName() ), stepCollectionMap, pipeline );
+          pruneUnusedFields( log, stepMeta, stepCollectionMap );
+
+        } else if ( stepHandler != null ) {
 
           stepHandler.handleStep( log, stepMeta, stepCollectionMap, pipeline, rowMeta, previousSteps, input );
+          pruneUnusedFields( log, stepMeta, stepCollectionMap );
+
+        } else if ( stepChains.containsKey( stepMeta.getName() ) ) {
+
+          List<StepMeta> stepChain = stepChains.get( stepMeta.getName() );
+          ( (BeamGenericStepHandler) genericStepHandler ).handleStepChain( log, stepChain, stepCollectionMap, pipeline, rowMeta, previousSteps, input );
+          pruneUnusedFields( log, stepChain.get( stepChain.size() - 1 ), stepCollectionMap );
 
         } else {
 
           genericStepHandler.handleStep( log, stepMeta, stepCollectionMap, pipeline, rowMeta, previousSteps, input );
+          pruneUnusedFields( log, stepMeta, stepCollectionMap );
+
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Clear the output fields of a step which no step downstream reads, right before the rows are shuffled.
+   * The row layout doesn't change so the steps downstream are not affected.
+   *
+   * @param log
+   * @param stepMeta          the step which produced its output
+   * @param stepCollectionMap
+   * @throws KettleException
+   */
+  private void pruneUnusedFields( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap ) throws KettleException {
+    PCollection<KettleRow> output = stepCollectionMap.get( stepMeta.getName() );
+    if ( output == null ) {
+      return;
+    }
+    boolean shuffled = false;
+    for ( StepMeta nextStep : transMeta.findNextSteps( stepMeta ) ) {
+      if ( SHUFFLE_STEP_IDS.contains( nextStep.getStepID() ) ) {
+        shuffled = true;
+      }
+    }
+    if ( !shuffled ) {
+      return;
+    }
+    int[] unusedIndexes = fieldUsageAnalyzer.getUnusedIndexes( stepMeta );
+    if ( unusedIndexes.length == 0 ) {
+      return;
+    }
+
+    PCollection<KettleRow> projected = output.apply( stepMeta.getName() + " Projection", ParDo.of( new ProjectFieldsFn( unusedIndexes, stepMeta.getName() ) ) );
+    projected.setCoder( output.getCoder() );
+    stepCollectionMap.put( stepMeta.getName(), projected );
+
+    log.logBasic( "Step " + stepMeta.getName() + " : clearing " + unusedIndexes.length + " unused field(s) before the shuffle" );
+  }
 
+  /**
+   * Find the maximal linear chains of generic steps.
+   * A step is added to a chain when it only reads from the previous step in the chain and that step only writes to it.
+   * There's no shuffle between the steps in a chain so they can run in the same single threaded transformation.
+   *
+   * @param sortedSteps the steps in topological order
+   * @return the chains of 2 or more steps by the name of the first step in the chain
+   */
+  private Map<String, List<StepMeta>> findGenericStepChains( List<StepMeta> sortedSteps ) {
+    Map<String, List<StepMeta>> stepChains = new HashMap<>();
+    if ( !( genericStepHandler instanceof BeamGenericStepHandler ) ) {
+      return stepChains;
+    }
+
+    Set<String> chainedSteps = new HashSet<>();
+    for ( StepMeta stepMeta : sortedSteps ) {
+      if ( chainedSteps.contains( stepMeta.getName() ) || !isChainableStep( stepMeta ) ) {
+        continue;
+      }
+      List<StepMeta> stepChain = new ArrayList<>();
+      stepChain.add( stepMeta );
+      StepMeta nextStep = findChainedNextStep( stepMeta );
+      while ( nextStep != null ) {
+        stepChain.add( nextStep );
+        nextStep = findChainedNextStep( nextStep );
+      }
+      if ( stepChain.size() > 1 ) {
+        stepChains.put( stepMeta.getName(), stepChain );
+        for ( StepMeta chainedStep : stepChain ) {
+          chainedSteps.add( chainedStep.getName() );
         }
       }
     }
+    return stepChains;
+  }
+
+  private boolean isChainableStep( StepMeta stepMeta ) {
+    return stepHandlers.get( stepMeta.getStepID() ) == null && BeamGenericStepHandler.canBeChained( stepMeta );
+  }
+
+  /**
+   * @param stepMeta the last step in a chain
+   * @return the step which can be added to the chain or null if there is none
+   */
+  private StepMeta findChainedNextStep( StepMeta stepMeta ) {
+
+    // Only the last step in a chain can target steps or send errors somewhere
+    //
+    for ( StreamInterface targetStream : stepMeta.getStepMetaInterface().getStepIOMeta().getTargetStreams() ) {
+      if ( targetStream.getStepMeta() != null ) {
+        return null;
+      }
+    }
+    if ( stepMeta.isDoingErrorHandling() ) {
+      return null;
+    }
+
+    List<StepMeta> nextSteps = transMeta.findNextSteps( stepMeta );
+    if ( nextSteps.size() != 1 ) {
+      return null;
+    }
+    StepMeta nextStep = nextSteps.get( 0 );
+    if ( !isChainableStep( nextStep ) ) {
+      return null;
+    }
 
+    // The next step can only read from this step, no info steps either
+    //
+    if ( transMeta.findPreviousSteps( nextStep, true ).size() != 1 || transMeta.findPreviousSteps( nextStep, false ).size() != 1 ) {
+      return null;
+    }
+    return nextStep;
+  }
+
+  /**
+   * Find the chains of Merge Join steps where every join reads the output of the previous one on the left side with the same key.
+   * There's no need to shuffle the intermediate results, all the inputs can be grouped together by key.
+   *
+   * @param sortedSteps the steps in topological order
+   * @return the chains of 2 or more Merge Join steps by the name of the last step in the chain
+   */
+  private Map<String, List<StepMeta>> findMergeJoinChains( List<StepMeta> sortedSteps ) {
+    Map<String, List<StepMeta>> joinChains = new HashMap<>();
+    if ( !( stepHandlers.get( BeamConst.STRING_MERGE_JOIN_PLUGIN_ID ) instanceof BeamMergeJoinStepHandler ) ) {
+      return joinChains;
+    }
+
+    Set<String> joinedSteps = new HashSet<>();
+    for ( StepMeta stepMeta : sortedSteps ) {
+      if ( joinedSteps.contains( stepMeta.getName() ) || !isJoinableStep( stepMeta ) ) {
+        continue;
+      }
+      String[] keys = ( (MergeJoinMeta) stepMeta.getStepMetaInterface() ).getKeyFields1();
+      List<StepMeta> joinChain = new ArrayList<>();
+      joinChain.add( stepMeta );
+      StepMeta nextStep = findJoinedNextStep( stepMeta, keys );
+      while ( nextStep != null ) {
+        joinChain.add( nextStep );
+        nextStep = findJoinedNextStep( nextStep, keys );
+      }
+      if ( joinChain.size() > 1 ) {
+        joinChains.put( joinChain.get( joinChain.size() - 1 ).getName(), joinChain );
+        for ( StepMeta joinedStep : joinChain ) {
+          joinedSteps.add( joinedStep.getName() );
+        }
+      }
+    }
+    return joinChains;
+  }
+
+  private boolean isJoinableStep( StepMeta stepMeta ) {
+    return BeamConst.STRING_MERGE_JOIN_PLUGIN_ID.equals( stepMeta.getStepID() ) && BeamMergeJoinStepHandler.canBeJoinedInChain( stepMeta );
+  }
+
+  /**
+   * @param stepMeta the last Merge Join step in a chain
+   * @param keys     the left key fields of the first join in the chain
+   * @return the Merge Join step which can be added to the chain or null if there is none
+   */
+  private StepMeta findJoinedNextStep( StepMeta stepMeta, String[] keys ) {
+
+    // The intermediate results of the chain are never produced so nothing else can read them
+    //
+    for ( StreamInterface targetStream : stepMeta.getStepMetaInterface().getStepIOMeta().getTargetStreams() ) {
+      if ( targetStream.getStepMeta() != null ) {
+        return null;
+      }
+    }
+    if ( stepMeta.isDoingErrorHandling() ) {
+      return null;
+    }
+
+    List<StepMeta> nextSteps = transMeta.findNextSteps( stepMeta );
+    if ( nextSteps.size() != 1 ) {
+      return null;
+    }
+    StepMeta nextStep = nextSteps.get( 0 );
+    if ( !isJoinableStep( nextStep ) ) {
+      return null;
+    }
+
+    // This step has to be the left side of the next join, joined on the same key
+    //
+    MergeJoinMeta nextMeta = (MergeJoinMeta) nextStep.getStepMetaInterface();
+    List<StreamInterface> infoStreams = nextMeta.getStepIOMeta().getInfoStreams();
+    StepMeta leftStep = infoStreams.get( 0 ).getStepMeta();
+    StepMeta rightStep = infoStreams.get( 1 ).getStepMeta();
+    if ( leftStep == null || rightStep == null || !stepMeta.getName().equals( leftStep.getName() ) || stepMeta.getName().equals( rightStep.getName() ) ) {
+      return null;
+    }
+    if ( !Arrays.equals( keys, nextMeta.getKeyFields1() ) ) {
+      return null;
+    }
+    return nextStep;
   }
 
   private void validateStepBeamUsage( StepMetaInterface meta ) throws KettleException {
     if ( meta instanceof GroupByMeta ) {
       throw new KettleException( "Group By is not supported.  Use the Memory Group By step instead.  It comes closest to Beam functionality." );
     }
-    if ( meta instanceof SortRowsMeta ) {
-      throw new KettleException( "Sort rows is not yet supported on Beam." );
-    }
-    if ( meta instanceof UniqueRowsMeta ) {
-      throw new KettleException( "The unique rows step is not yet supported on Beam, for now use a Memory Group By to get distrinct rows" );
-    }
   }
 
 
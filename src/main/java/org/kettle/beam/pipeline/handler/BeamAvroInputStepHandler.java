@@ -0,0 +1,81 @@
+package org.kettle.beam.pipeline.handler;
+
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.values.PCollection;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.transform.BeamAvroInputTransform;
+import org.kettle.beam.core.util.AvroRowMeta;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.metastore.BeamJobConfig;
+import org.kettle.beam.metastore.FileDefinition;
+import org.kettle.beam.steps.avro.BeamAvroInputMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.metastore.api.IMetaStore;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class BeamAvroInputStepHandler extends BeamBaseStepHandler implements BeamStepHandler {
+
+  public BeamAvroInputStepHandler( BeamJobConfig beamJobConfig, IMetaStore metaStore, TransMeta transMeta, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    super( beamJobConfig, true, false, metaStore, transMeta, stepPluginClasses, xpPluginClasses );
+  }
+
+  @Override public void handleStep( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                                    Pipeline pipeline, RowMetaInterface rowMeta, List<StepMeta> previousSteps,
+                                    PCollection<KettleRow> input ) throws KettleException {
+    handleAvroInput( log, stepMeta, stepCollectionMap, pipeline, null );
+  }
+
+  /**
+   * Read the Avro files, only decoding the fields which are used downstream.
+   *
+   * @param log
+   * @param stepMeta
+   * @param stepCollectionMap
+   * @param pipeline
+   * @param usedFields        the output fields which are used downstream or null if all of them are used
+   * @throws KettleException
+   */
+  public void handleAvroInput( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                                  Pipeline pipeline, Set<String> usedFields ) throws KettleException {
+
+    BeamAvroInputMeta beamInputMeta = (BeamAvroInputMeta) stepMeta.getStepMetaInterface();
+    FileDefinition inputFileDefinition = beamInputMeta.loadFileDefinition( metaStore );
+    if ( inputFileDefinition == null ) {
+      throw new KettleException( "We couldn't find or load the Beam Avro Input step file definition" );
+    }
+    RowMetaInterface fileRowMeta = inputFileDefinition.getRowMeta();
+
+    // Avro schema resolution skips the fields which are not in the reader schema.
+    // The unused fields stay in the row layout, they're simply null.
+    //
+    Set<String> projectedFields = usedFields;
+    if ( projectedFields != null && projectedFields.isEmpty() && !fileRowMeta.isEmpty() ) {
+      projectedFields = Collections.singleton( fileRowMeta.getValueMeta( 0 ).getName() );
+    }
+    String readerSchemaJson = AvroRowMeta.toSchema( stepMeta.getName(), fileRowMeta, projectedFields ).toString();
+
+    BeamAvroInputTransform beamInputTransform = new BeamAvroInputTransform(
+      stepMeta.getName(),
+      stepMeta.getName(),
+      transMeta.environmentSubstitute( beamInputMeta.getInputLocation() ),
+      JsonRowMeta.toJson( fileRowMeta ),
+      readerSchemaJson,
+      stepPluginClasses,
+      xpPluginClasses
+    );
+    PCollection<KettleRow> afterInput = pipeline.apply( beamInputTransform );
+    stepCollectionMap.put( stepMeta.getName(), afterInput );
+    log.logBasic( "Handled step (AVRO INPUT) : " + stepMeta.getName() );
+    if ( projectedFields != null ) {
+      log.logBasic( "  decoding " + projectedFields.size() + " of " + fileRowMeta.size() + " fields" );
+    }
+  }
+}
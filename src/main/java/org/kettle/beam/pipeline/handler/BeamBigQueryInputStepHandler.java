@@ -2,21 +2,29 @@ package org.kettle.beam.pipeline.handler;
 
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.commons.lang.StringUtils;
 import org.kettle.beam.core.KettleRow;
 import org.kettle.beam.core.transform.BeamBQInputTransform;
+import org.kettle.beam.core.util.BQRowRestriction;
 import org.kettle.beam.core.util.JsonRowMeta;
 import org.kettle.beam.metastore.BeamJobConfig;
+import org.kettle.beam.steps.bq.BQField;
 import org.kettle.beam.steps.bq.BeamBQInputMeta;
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.metastore.api.IMetaStore;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class BeamBigQueryInputStepHandler extends BeamBaseStepHandler implements BeamStepHandler {
 
@@ -27,6 +35,22 @@ public class BeamBigQueryInputStepHandler extends BeamBaseStepHandler implements
   @Override public void handleStep( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
                                     Pipeline pipeline, RowMetaInterface rowMeta, List<StepMeta> previousSteps,
                                     PCollection<KettleRow> input ) throws KettleException {
+    handleBigQueryInput( log, stepMeta, stepCollectionMap, pipeline, null, null );
+  }
+
+  /**
+   * Read from BigQuery, only reading the columns which are used downstream and the rows which can match the filter condition.
+   *
+   * @param log
+   * @param stepMeta
+   * @param stepCollectionMap
+   * @param pipeline
+   * @param usedFields        the output fields which are used downstream or null if all of them are used
+   * @param filterCondition   the condition of the Filter Rows step reading from this step or null if all rows are read
+   * @throws KettleException
+   */
+  public void handleBigQueryInput( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                                   Pipeline pipeline, Set<String> usedFields, Condition filterCondition ) throws KettleException {
 
     // Input handling
     //
@@ -37,13 +61,43 @@ public class BeamBigQueryInputStepHandler extends BeamBaseStepHandler implements
     RowMetaInterface outputRowMeta = new RowMeta();
     beamInputMeta.getFields( outputRowMeta, stepMeta.getName(), null, null, transMeta, null, null );
 
+    Map<String, String> columnNames = new HashMap<>();
+    for ( BQField field : beamInputMeta.getFields() ) {
+      columnNames.put( field.getNewNameOrName(), field.getName() );
+    }
+
+    // Only the columns and rows of a table can be selected, a query is taken as is.
+    // The unused fields stay in the row layout, they're simply null.
+    //
+    List<String> selectedFields = null;
+    String rowRestriction = null;
+    String query = transMeta.environmentSubstitute( beamInputMeta.getQuery() );
+    if ( usedFields != null && StringUtils.isEmpty( query ) ) {
+      selectedFields = new ArrayList<>();
+      for ( ValueMetaInterface valueMeta : outputRowMeta.getValueMetaList() ) {
+        if ( usedFields.contains( valueMeta.getName() ) ) {
+          selectedFields.add( columnNames.get( valueMeta.getName() ) );
+        }
+      }
+      if ( selectedFields.size() == outputRowMeta.size() ) {
+        selectedFields = null;
+      } else if ( selectedFields.isEmpty() && !outputRowMeta.isEmpty() ) {
+        selectedFields.add( columnNames.get( outputRowMeta.getValueMeta( 0 ).getName() ) ); // We still need the rows
+      }
+    }
+    if ( filterCondition != null && StringUtils.isEmpty( query ) ) {
+      rowRestriction = BQRowRestriction.toRowRestriction( filterCondition, outputRowMeta, columnNames );
+    }
+
     BeamBQInputTransform beamInputTransform = new BeamBQInputTransform(
       stepMeta.getName(),
       stepMeta.getName(),
       transMeta.environmentSubstitute( beamInputMeta.getProjectId() ),
       transMeta.environmentSubstitute( beamInputMeta.getDatasetId() ),
       transMeta.environmentSubstitute( beamInputMeta.getTableId() ),
-      transMeta.environmentSubstitute( beamInputMeta.getQuery() ),
+      query,
+      selectedFields,
+      rowRestriction,
       JsonRowMeta.toJson( outputRowMeta ),
       stepPluginClasses,
       xpPluginClasses
@@ -51,6 +105,12 @@ public class BeamBigQueryInputStepHandler extends BeamBaseStepHandler implements
     PCollection<KettleRow> afterInput = pipeline.apply( beamInputTransform );
     stepCollectionMap.put( stepMeta.getName(), afterInput );
     log.logBasic( "Handled step (BQ INPUT) : " + stepMeta.getName() );
+    if ( selectedFields != null ) {
+      log.logBasic( "  reading " + selectedFields.size() + " of " + outputRowMeta.size() + " columns" );
+    }
+    if ( rowRestriction != null ) {
+      log.logBasic( "  reading rows where " + rowRestriction );
+    }
 
   }
 }
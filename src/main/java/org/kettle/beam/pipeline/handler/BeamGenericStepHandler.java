@@ -20,6 +20,7 @@ import org.apache.beam.sdk.values.PCollectionTuple;
 import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.TupleTag;
 import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleRowCoder;
 import org.kettle.beam.core.fn.StringToKettleRowFn;
 import org.kettle.beam.core.partition.SinglePartitionFn;
 import org.kettle.beam.core.shared.VariableValue;
@@ -58,6 +59,22 @@ public class BeamGenericStepHandler extends BeamBaseStepHandler implements BeamS
   @Override public void handleStep( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
                                     Pipeline pipeline, RowMetaInterface rowMeta, List<StepMeta> previousSteps,
                                     PCollection<KettleRow> input ) throws KettleException {
+    handleStepChain( log, Arrays.asList( stepMeta ), stepCollectionMap, pipeline, rowMeta, previousSteps, input );
+  }
+
+  /**
+   * Handle a linear chain of generic steps in a single transform.
+   * The first step in the chain reads the input and info steps, the last step produces the output and feeds the target steps.
+   * The steps in between only read from the previous step and write to the next.
+   *
+   * @param stepChain the steps in the chain, in order
+   */
+  public void handleStepChain( LogChannelInterface log, List<StepMeta> stepChain, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                               Pipeline pipeline, RowMetaInterface rowMeta, List<StepMeta> previousSteps,
+                               PCollection<KettleRow> input ) throws KettleException {
+
+    StepMeta stepMeta = stepChain.get( 0 );
+    StepMeta outputStepMeta = stepChain.get( stepChain.size() - 1 );
 
     // If we have no previous step, it's an input step.  We need to start from pipeline
     //
@@ -65,7 +82,18 @@ public class BeamGenericStepHandler extends BeamBaseStepHandler implements BeamS
     boolean reduceParallelism = checkStepCopiesForReducedParallelism( stepMeta );
     reduceParallelism=reduceParallelism || needsSingleThreading( stepMeta );
 
-    String stepMetaInterfaceXml = XMLHandler.openTag( StepMeta.XML_TAG ) + stepMeta.getStepMetaInterface().getXML() + XMLHandler.closeTag( StepMeta.XML_TAG );
+    String stepMetaInterfaceXml = getStepMetaInterfaceXml( stepMeta );
+
+    // The steps fused behind the first one
+    //
+    List<String> chainedStepnames = new ArrayList<>();
+    List<String> chainedStepPluginIds = new ArrayList<>();
+    List<String> chainedStepMetaInterfaceXmls = new ArrayList<>();
+    for ( StepMeta chainedStepMeta : stepChain.subList( 1, stepChain.size() ) ) {
+      chainedStepnames.add( chainedStepMeta.getName() );
+      chainedStepPluginIds.add( chainedStepMeta.getStepID() );
+      chainedStepMetaInterfaceXmls.add( getStepMetaInterfaceXml( chainedStepMeta ) );
+    }
 
 
     // See if the step has Info steps
@@ -90,9 +118,9 @@ public class BeamGenericStepHandler extends BeamBaseStepHandler implements BeamS
     //
     List<VariableValue> variableValues = getVariableValues( transMeta );
 
-    // Find out all the target steps for this step...
+    // Find out all the target steps for the last step in the chain...
     //
-    StepIOMetaInterface ioMeta = stepMeta.getStepMetaInterface().getStepIOMeta();
+    StepIOMetaInterface ioMeta = outputStepMeta.getStepMetaInterface().getStepIOMeta();
     List<String> targetSteps = new ArrayList<String>();
     for ( StreamInterface targetStream : ioMeta.getTargetStreams() ) {
       if ( targetStream.getStepMeta() != null ) {
@@ -102,21 +130,31 @@ public class BeamGenericStepHandler extends BeamBaseStepHandler implements BeamS
 
     // For streaming pipelines we need to flush the rows in the buffer of a generic step (Table Output, Neo4j Output, ...)
     // This is what the BeamJobConfig option "Streaming Kettle Steps Flush Interval" is for...
-    // Without a valid value we default to -1 to disable flushing.
+    // Without a valid value we default to -1 : batching steps then flush every StepBatchTransform.DEFAULT_FLUSH_INTERVAL_MS.
     //
     int flushIntervalMs = Const.toInt(beamJobConfig.getStreamingKettleStepsFlushInterval(), -1);
 
+    // The maximum number of rows passed to the Kettle step in one go.
+    // By default we buffer up to the rowset size of the transformation.
+    //
+    int batchSize = Const.toInt( transMeta.environmentSubstitute( beamJobConfig.getKettleStepsBatchSize() ), transMeta.getSizeRowset() );
+
+    // Steps which need batching buffer their rows in a number of shards
+    //
+    int nrShards = Const.toInt( transMeta.environmentSubstitute( beamJobConfig.getKettleStepsBatchShards() ), StepBatchTransform.DEFAULT_NR_SHARDS );
+
     // Send all the information on their way to the right nodes
     //
     PTransform<PCollection<KettleRow>, PCollectionTuple> stepTransform;
     if (needsBatching(stepMeta)) {
-      stepTransform = new StepBatchTransform( variableValues, metaStoreJson, stepPluginClasses, xpPluginClasses, transMeta.getSizeRowset(), flushIntervalMs,
+      stepTransform = new StepBatchTransform( variableValues, metaStoreJson, stepPluginClasses, xpPluginClasses, batchSize, flushIntervalMs, nrShards,
         stepMeta.getName(), stepMeta.getStepID(), stepMetaInterfaceXml, JsonRowMeta.toJson( rowMeta ), inputStep,
         targetSteps, infoSteps, infoRowMetaJsons, infoCollectionViews );
     } else {
-      stepTransform = new StepTransform( variableValues, metaStoreJson, stepPluginClasses, xpPluginClasses, transMeta.getSizeRowset(), flushIntervalMs,
+      stepTransform = new StepTransform( variableValues, metaStoreJson, stepPluginClasses, xpPluginClasses, batchSize, flushIntervalMs,
         stepMeta.getName(), stepMeta.getStepID(), stepMetaInterfaceXml, JsonRowMeta.toJson( rowMeta ), inputStep,
-        targetSteps, infoSteps, infoRowMetaJsons, infoCollectionViews );
+        targetSteps, infoSteps, infoRowMetaJsons, infoCollectionViews,
+        chainedStepnames, chainedStepPluginIds, chainedStepMetaInterfaceXmls );
     }
 
     if ( input == null ) {
@@ -166,24 +204,48 @@ public class BeamGenericStepHandler extends BeamBaseStepHandler implements BeamS
 
     // The main collection
     //
-    PCollection<KettleRow> mainPCollection = tuple.get( new TupleTag<KettleRow>( KettleBeamUtil.createMainOutputTupleId( stepMeta.getName() ) ) );
+    PCollection<KettleRow> mainPCollection = tuple.get( new TupleTag<KettleRow>( KettleBeamUtil.createMainOutputTupleId( outputStepMeta.getName() ) ) );
+
+    // A generic step doesn't always put values of the class of its row metadata in its output, scripting steps for example.
+    // The generic coder writes the class of every value so it can't fail on those.
+    // Rows going to the target steps are encoded the same way.
+    //
+    KettleRowCoder outputCoder = new KettleRowCoder();
+    mainPCollection.setCoder( outputCoder );
 
     // Save this in the map
     //
-    stepCollectionMap.put( stepMeta.getName(), mainPCollection );
+    stepCollectionMap.put( outputStepMeta.getName(), mainPCollection );
 
     // Were there any targeted steps in this step?
     //
     for ( String targetStep : targetSteps ) {
-      String tupleId = KettleBeamUtil.createTargetTupleId( stepMeta.getName(), targetStep );
+      String tupleId = KettleBeamUtil.createTargetTupleId( outputStepMeta.getName(), targetStep );
       PCollection<KettleRow> targetPCollection = tuple.get( new TupleTag<KettleRow>( tupleId ) );
+      targetPCollection.setCoder( outputCoder );
 
       // Store this in the map as well
       //
       stepCollectionMap.put( tupleId, targetPCollection );
     }
 
-    log.logBasic( "Handled step (STEP) : " + stepMeta.getName() + ", gets data from " + previousSteps.size() + " previous step(s), targets=" + targetSteps.size() + ", infos=" + infoSteps.size() );
+    log.logBasic( "Handled step (STEP) : " + stepMeta.getName() + ", gets data from " + previousSteps.size() + " previous step(s), targets=" + targetSteps.size() + ", infos=" + infoSteps.size()
+      + ( chainedStepnames.isEmpty() ? "" : ", chained steps=" + chainedStepnames ) );
+  }
+
+  private String getStepMetaInterfaceXml( StepMeta stepMeta ) throws KettleException {
+    return XMLHandler.openTag( StepMeta.XML_TAG ) + stepMeta.getStepMetaInterface().getXML() + XMLHandler.closeTag( StepMeta.XML_TAG );
+  }
+
+  /**
+   * Steps which are batched, single threaded or have a reduced parallelism need their own transform.
+   * All others can be executed in a chain with other steps.
+   *
+   * @param stepMeta the step to check
+   * @return true if the step can be part of a chain of steps
+   */
+  public static boolean canBeChained( StepMeta stepMeta ) {
+    return !needsBatching( stepMeta ) && !needsSingleThreading( stepMeta ) && !checkStepCopiesForReducedParallelism( stepMeta );
   }
 
   public static boolean needsBatching( StepMeta stepMeta ) {
@@ -196,7 +258,7 @@ public class BeamGenericStepHandler extends BeamBaseStepHandler implements BeamS
     return value!=null && "true".equalsIgnoreCase( value );
   }
 
-  private boolean checkStepCopiesForReducedParallelism( StepMeta stepMeta ) {
+  private static boolean checkStepCopiesForReducedParallelism( StepMeta stepMeta ) {
     if ( stepMeta.getCopiesString() == null ) {
       return false;
     }
@@ -6,7 +6,9 @@ import org.apache.beam.sdk.values.PCollection;
 import org.kettle.beam.core.KettleRow;
 import org.kettle.beam.core.transform.GroupByTransform;
 import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.KettleKeyEncoder;
 import org.kettle.beam.metastore.BeamJobConfig;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -35,6 +37,23 @@ public class BeamGroupByStepHandler extends BeamBaseStepHandler implements BeamS
       aggregates[ i ] = MemoryGroupByMeta.getTypeDesc( groupByMeta.getAggregateType()[ i ] );
     }
 
+    // The value field holds the percentile of a PERCENTILE aggregation
+    //
+    String[] aggregateParameters = new String[ aggregates.length ];
+    String[] valueFields = groupByMeta.getValueField();
+    for ( int i = 0; i < aggregates.length; i++ ) {
+      if ( valueFields != null && i < valueFields.length ) {
+        aggregateParameters[ i ] = transMeta.environmentSubstitute( valueFields[ i ] );
+      }
+    }
+
+    // Spread the rows of hot keys over this many intermediate combines
+    //
+    int hotKeyFanout = Const.toInt( transMeta.environmentSubstitute( beamJobConfig.getGroupByHotKeyFanout() ), 0 );
+    if ( hotKeyFanout > KettleKeyEncoder.MAX_SALT ) {
+      throw new KettleException( "The Group By hot key fanout can't be larger than " + KettleKeyEncoder.MAX_SALT + ", not " + hotKeyFanout );
+    }
+
     PTransform<PCollection<KettleRow>, PCollection<KettleRow>> stepTransform = new GroupByTransform(
       stepMeta.getName(),
       JsonRowMeta.toJson( rowMeta ),  // The io row
@@ -43,7 +62,9 @@ public class BeamGroupByStepHandler extends BeamBaseStepHandler implements BeamS
       groupByMeta.getGroupField(),
       groupByMeta.getSubjectField(),
       aggregates,
-      groupByMeta.getAggregateField()
+      aggregateParameters,
+      groupByMeta.getAggregateField(),
+      hotKeyFanout
     );
 
     // Apply the step transform to the previous io step PCollection(s)
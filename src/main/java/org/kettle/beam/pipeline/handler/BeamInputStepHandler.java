@@ -8,6 +8,7 @@ import org.kettle.beam.core.util.JsonRowMeta;
 import org.kettle.beam.metastore.BeamJobConfig;
 import org.kettle.beam.metastore.FileDefinition;
 import org.kettle.beam.steps.io.BeamInputMeta;
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -27,6 +28,21 @@ public class BeamInputStepHandler extends BeamBaseStepHandler implements BeamSte
   @Override public void handleStep( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
                                     Pipeline pipeline, RowMetaInterface rowMeta, List<StepMeta> previousSteps,
                                     PCollection<KettleRow> input ) throws KettleException {
+    handleBeamInput( log, stepMeta, stepCollectionMap, pipeline, null );
+  }
+
+  /**
+   * Read the files, optionally skipping the lines which don't match the condition of the Filter Rows step reading from this step.
+   *
+   * @param log
+   * @param stepMeta
+   * @param stepCollectionMap
+   * @param pipeline
+   * @param filterCondition   the condition the rows need to match or null if all rows are read
+   * @throws KettleException
+   */
+  public void handleBeamInput( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                               Pipeline pipeline, Condition filterCondition ) throws KettleException {
 
     // Input handling
     //
@@ -45,14 +61,21 @@ public class BeamInputStepHandler extends BeamBaseStepHandler implements BeamSte
       stepMeta.getName(),
       stepMeta.getName(),
       fileInputLocation,
+      transMeta.environmentSubstitute( beamInputMeta.getCompression() ),
       transMeta.environmentSubstitute( inputFileDefinition.getSeparator() ),
+      transMeta.environmentSubstitute( inputFileDefinition.getEnclosure() ),
       JsonRowMeta.toJson( fileRowMeta ),
+      filterCondition == null ? null : filterCondition.getXML(),
       stepPluginClasses,
       xpPluginClasses
     );
     PCollection<KettleRow> afterInput = pipeline.apply( beamInputTransform );
     stepCollectionMap.put( stepMeta.getName(), afterInput );
-    log.logBasic( "Handled step (INPUT) : " + stepMeta.getName() );
+    if ( filterCondition == null ) {
+      log.logBasic( "Handled step (INPUT) : " + stepMeta.getName() );
+    } else {
+      log.logBasic( "Handled step (INPUT) : " + stepMeta.getName() + ", filtering rows on condition " + filterCondition.toString() );
+    }
 
   }
 }
@@ -1,20 +1,41 @@
 package org.kettle.beam.pipeline.handler;
 
 import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.extensions.joinlibrary.Join;
+import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.transforms.join.CoGbkResult;
+import org.apache.beam.sdk.transforms.join.CoGroupByKey;
+import org.apache.beam.sdk.transforms.join.KeyedPCollectionTuple;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.kettle.beam.core.KettleKey;
 import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.BloomFilterCoder;
+import org.kettle.beam.core.coder.KettleKeyCoder;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
 import org.kettle.beam.core.fn.AssemblerFn;
+import org.kettle.beam.core.fn.BloomFilterCombineFn;
+import org.kettle.beam.core.fn.BloomFilterFn;
+import org.kettle.beam.core.fn.BroadcastJoinFn;
 import org.kettle.beam.core.fn.KettleKeyValueFn;
+import org.kettle.beam.core.fn.MultiJoinAssemblerFn;
+import org.kettle.beam.core.fn.SaltKeyFn;
+import org.kettle.beam.core.transform.HotKeysTransform;
+import org.kettle.beam.core.util.BloomFilter;
 import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.KettleKeyEncoder;
 import org.kettle.beam.metastore.BeamJobConfig;
+import org.kettle.beam.util.BeamConst;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LogChannelInterface;
-import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -30,6 +51,21 @@ import java.util.Map;
 
 public class BeamMergeJoinStepHandler extends BeamBaseStepHandler implements BeamStepHandler {
 
+  public static final int DEFAULT_NR_SALTS = 16;
+
+  // A key with this many rows on the salted side is hot
+  //
+  public static final long DEFAULT_HOT_KEY_MIN_ROWS = 100000L;
+
+  // Sample enough rows to get at least this many samples of a hot key
+  //
+  public static final long HOT_KEY_MIN_SAMPLES = 1000L;
+
+  // About 1.2MB for a Bloom filter with a 1% false positive rate
+  //
+  public static final long DEFAULT_BLOOM_FILTER_KEYS = 1000000L;
+  public static final double BLOOM_FILTER_FALSE_POSITIVE_RATE = 0.01;
+
   public BeamMergeJoinStepHandler( BeamJobConfig beamJobConfig, IMetaStore metaStore, TransMeta transMeta, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
     super( beamJobConfig, false, false, metaStore, transMeta, stepPluginClasses, xpPluginClasses );
   }
@@ -89,19 +125,11 @@ public class BeamMergeJoinStepHandler extends BeamBaseStepHandler implements Bea
       }
     }
 
-    KettleKeyValueFn leftKVFn = new KettleKeyValueFn(
-      JsonRowMeta.toJson( leftRowMeta ), stepPluginClasses, xpPluginClasses, leftK.toArray( new String[ 0 ] ), leftV.toArray( new String[ 0 ] ), stepMeta.getName() );
-    PCollection<KV<KettleRow, KettleRow>> leftKVPCollection = leftPCollection.apply( ParDo.of( leftKVFn ) );
-
     // Create key-value pairs (KV) for the left collections
     //
     List<String> rightK = new ArrayList<>( Arrays.asList( rightKeys ) );
-    RowMetaInterface rightKRowMeta = new RowMeta();
     List<String> rightV = new ArrayList<>();
     RowMetaInterface rightVRowMeta = new RowMeta();
-    for ( String rightKey : rightKeys ) {
-      rightKRowMeta.addValueMeta( rightRowMeta.searchValueMeta( rightKey ).clone() );
-    }
     for ( ValueMetaInterface valueMeta : rightRowMeta.getValueMetaList() ) {
       String valueName = valueMeta.getName();
       if ( Const.indexOfString( valueName, rightKeys ) < 0 ) {
@@ -110,14 +138,131 @@ public class BeamMergeJoinStepHandler extends BeamBaseStepHandler implements Bea
       }
     }
 
-    KettleKeyValueFn rightKVFn = new KettleKeyValueFn(
-      JsonRowMeta.toJson( rightRowMeta ), stepPluginClasses, xpPluginClasses, rightK.toArray( new String[ 0 ] ), rightV.toArray( new String[ 0 ] ), stepMeta.getName() );
-    PCollection<KV<KettleRow, KettleRow>> rightKVPCollection = rightPCollection.apply( ParDo.of( rightKVFn ) );
+    // This is the output of the step, we'll try to mimic this: all the left fields followed by all the right fields.
+    // Right fields with the name of a left field get a suffix like _1, the same as in Kettle.
+    //
+    final RowMetaInterface outputRowMeta = leftRowMeta.clone();
+    outputRowMeta.mergeRowMeta( rightRowMeta.clone(), stepMeta.getName() );
+    int[] sourceSides = new int[ outputRowMeta.size() ];
+    boolean[] sourceKeys = new boolean[ outputRowMeta.size() ];
+    int[] sourceIndexes = new int[ outputRowMeta.size() ];
+    setSources( leftRowMeta, leftKeys, 0, 0, sourceSides, sourceKeys, sourceIndexes );
+    setSources( rightRowMeta, rightKeys, 1, leftRowMeta.size(), sourceSides, sourceKeys, sourceIndexes );
+
+    // A small side can be broadcast to all workers as a side input instead of shuffling both sides
+    //
+    String broadcastSide = getBroadcastSide( log, stepMeta, joinType );
+    if ( broadcastSide != null ) {
+      boolean broadcastLeft = BeamConst.STRING_JOIN_SIDE_LEFT.equals( broadcastSide );
+      PCollection<KV<KettleKey, KettleRow>> sideKVPCollection;
+      if ( broadcastLeft ) {
+        sideKVPCollection = createKVPCollection( stepMeta, leftPCollection, leftRowMeta, leftK, leftV, leftVRowMeta );
+      } else {
+        sideKVPCollection = createKVPCollection( stepMeta, rightPCollection, rightRowMeta, rightK, rightV, rightVRowMeta );
+      }
+      PCollectionView<Map<KettleKey, Iterable<KettleRow>>> sideView = sideKVPCollection.apply( stepMeta.getName() + " broadcast", View.asMultimap() );
+
+      // Outer joins keeping the unmatched rows of the large side
+      //
+      boolean outer = !MergeJoinMeta.join_types[ 0 ].equals( joinType );
+
+      BroadcastJoinFn broadcastJoinFn = new BroadcastJoinFn(
+        JsonRowMeta.toJson( broadcastLeft ? rightRowMeta : leftRowMeta ),
+        broadcastLeft ? rightKeys : leftKeys,
+        !broadcastLeft,
+        outer,
+        JsonRowMeta.toJson( outputRowMeta ),
+        sourceSides,
+        sourceKeys,
+        sourceIndexes,
+        stepMeta.getName(),
+        stepPluginClasses,
+        xpPluginClasses,
+        sideView
+      );
+
+      PCollection<KettleRow> mainPCollection = broadcastLeft ? rightPCollection : leftPCollection;
+      PCollection<KettleRow> stepPCollection = mainPCollection.apply( stepMeta.getName(), ParDo.of( broadcastJoinFn ).withSideInputs( sideView ) );
+      stepPCollection.setCoder( new KettleRowMetaCoder( JsonRowMeta.toJson( outputRowMeta ) ) );
+
+      stepCollectionMap.put( stepMeta.getName(), stepPCollection );
+
+      log.logBasic( "Handled Merge Join (STEP) : " + stepMeta.getName() + ", broadcasting the " + broadcastSide + " side" );
+      return;
+    }
+
+    PCollection<KV<KettleKey, KettleRow>> leftKVPCollection = createKVPCollection( stepMeta, leftPCollection, leftRowMeta, leftK, leftV, leftVRowMeta );
+    PCollection<KV<KettleKey, KettleRow>> rightKVPCollection = createKVPCollection( stepMeta, rightPCollection, rightRowMeta, rightK, rightV, rightVRowMeta );
+
+    // The rows of the large side with a key which isn't in a Bloom filter over the keys of the other side can't match.
+    // Dropping them before the join saves shuffling them.
+    //
+    String filteredSide = getBloomFilterSide( log, stepMeta, joinType );
+    if ( filteredSide != null ) {
+      boolean filterLeft = BeamConst.STRING_JOIN_SIDE_LEFT.equals( filteredSide );
+      long expectedKeys = Const.toLong( transMeta.environmentSubstitute( beamJobConfig.getJoinBloomFilterKeys() ), DEFAULT_BLOOM_FILTER_KEYS );
+      PCollection<KV<KettleKey, KettleRow>> keysKVPCollection = filterLeft ? rightKVPCollection : leftKVPCollection;
+      Combine.Globally<KV<KettleKey, KettleRow>, BloomFilter> bloomFilterCombine = Combine.globally( new BloomFilterCombineFn( expectedKeys, BLOOM_FILTER_FALSE_POSITIVE_RATE ) );
+
+      // A default (empty) filter for empty input is only possible in the global window.
+      // In other windows without keys there's no filter at all, see BloomFilterFn
+      //
+      if ( !( keysKVPCollection.getWindowingStrategy().getWindowFn() instanceof GlobalWindows ) ) {
+        bloomFilterCombine = bloomFilterCombine.withoutDefaults();
+      }
+      PCollection<BloomFilter> bloomFilters = keysKVPCollection.apply( stepMeta.getName() + " Bloom filter", bloomFilterCombine );
+      bloomFilters.setCoder( BloomFilterCoder.of() );
+      PCollectionView<List<BloomFilter>> bloomFilterView = bloomFilters.apply( stepMeta.getName() + " Bloom filter view", View.asList() );
+
+      PCollection<KV<KettleKey, KettleRow>> kvPCollection = filterLeft ? leftKVPCollection : rightKVPCollection;
+      PCollection<KV<KettleKey, KettleRow>> filteredKVPCollection = kvPCollection.apply( stepMeta.getName() + " filter " + filteredSide,
+        ParDo.of( new BloomFilterFn( stepMeta.getName(), bloomFilterView ) ).withSideInputs( bloomFilterView ) );
+      filteredKVPCollection.setCoder( kvPCollection.getCoder() );
+      if ( filterLeft ) {
+        leftKVPCollection = filteredKVPCollection;
+      } else {
+        rightKVPCollection = filteredKVPCollection;
+      }
+    }
+
+    // The hot keys of the large side can be salted to spread their rows over several groups.
+    // The rows of the other side with those keys are replicated for every salt.
+    //
+    String saltedSide = getSaltedSide( stepMeta );
+    boolean replicatedOuter = false;
+    if ( saltedSide != null ) {
+      boolean saltLeft = BeamConst.STRING_JOIN_SIDE_LEFT.equals( saltedSide );
+      if ( saltLeft ) {
+        replicatedOuter = MergeJoinMeta.join_types[ 2 ].equals( joinType ) || MergeJoinMeta.join_types[ 3 ].equals( joinType );
+      } else {
+        replicatedOuter = MergeJoinMeta.join_types[ 1 ].equals( joinType ) || MergeJoinMeta.join_types[ 3 ].equals( joinType );
+      }
+      int nrSalts = Const.toInt( transMeta.environmentSubstitute( beamJobConfig.getJoinHotKeySalts() ), DEFAULT_NR_SALTS );
+      if ( nrSalts < 1 || nrSalts > KettleKeyEncoder.MAX_SALT ) {
+        throw new KettleException( "The number of salts for the hot keys of Merge Join step '" + stepMeta.getName() + "' needs to be between 1 and "
+          + KettleKeyEncoder.MAX_SALT + ", not " + nrSalts );
+      }
 
-    PCollection<KV<KettleRow, KV<KettleRow, KettleRow>>> kvpCollection;
+      // Small hot key thresholds need more samples: sample every row when needed
+      //
+      long hotKeyMinRows = Math.max( 1L, Const.toLong( transMeta.environmentSubstitute( beamJobConfig.getJoinHotKeyMinRows() ), DEFAULT_HOT_KEY_MIN_ROWS ) );
+      int sampleEvery = (int) Math.max( 1L, Math.min( HotKeysTransform.SAMPLE_EVERY, hotKeyMinRows / HOT_KEY_MIN_SAMPLES ) );
+      long minSamples = Math.max( 1L, hotKeyMinRows / sampleEvery );
+      PCollectionView<List<KettleKey>> hotKeysView = ( saltLeft ? leftKVPCollection : rightKVPCollection ).apply( stepMeta.getName() + " hot keys",
+        new HotKeysTransform( stepMeta.getName(), JsonRowMeta.toJson( leftKRowMeta ), sampleEvery, minSamples, stepPluginClasses, xpPluginClasses ) );
+
+      PCollection<KV<KettleKey, KettleRow>> saltedLeftKVPCollection = leftKVPCollection.apply( stepMeta.getName() + " salt left",
+        ParDo.of( new SaltKeyFn( stepMeta.getName(), nrSalts, !saltLeft, hotKeysView ) ).withSideInputs( hotKeysView ) );
+      saltedLeftKVPCollection.setCoder( leftKVPCollection.getCoder() );
+      leftKVPCollection = saltedLeftKVPCollection;
+
+      PCollection<KV<KettleKey, KettleRow>> saltedRightKVPCollection = rightKVPCollection.apply( stepMeta.getName() + " salt right",
+        ParDo.of( new SaltKeyFn( stepMeta.getName(), nrSalts, saltLeft, hotKeysView ) ).withSideInputs( hotKeysView ) );
+      saltedRightKVPCollection.setCoder( rightKVPCollection.getCoder() );
+      rightKVPCollection = saltedRightKVPCollection;
+    }
 
-    Object[] leftNull = RowDataUtil.allocateRowData( leftVRowMeta.size() );
-    Object[] rightNull = RowDataUtil.allocateRowData( rightVRowMeta.size() );
+    PCollection<KV<KettleKey, KV<KettleRow, KettleRow>>> kvpCollection;
 
     if ( MergeJoinMeta.join_types[ 0 ].equals( joinType ) ) {
       // Inner Join
@@ -126,47 +271,44 @@ public class BeamMergeJoinStepHandler extends BeamBaseStepHandler implements Bea
     } else if ( MergeJoinMeta.join_types[ 1 ].equals( joinType ) ) {
       // Left outer join
       //
-      kvpCollection = Join.leftOuterJoin( leftKVPCollection, rightKVPCollection, new KettleRow( rightNull ) );
+      kvpCollection = Join.leftOuterJoin( leftKVPCollection, rightKVPCollection, AssemblerFn.UNMATCHED );
     } else if ( MergeJoinMeta.join_types[ 2 ].equals( joinType ) ) {
       // Right outer join
       //
-      kvpCollection = Join.rightOuterJoin( leftKVPCollection, rightKVPCollection, new KettleRow( leftNull ) );
+      kvpCollection = Join.rightOuterJoin( leftKVPCollection, rightKVPCollection, AssemblerFn.UNMATCHED );
     } else if ( MergeJoinMeta.join_types[ 3 ].equals( joinType ) ) {
       // Full outer join
       //
-      kvpCollection = Join.fullOuterJoin( leftKVPCollection, rightKVPCollection, new KettleRow( leftNull ), new KettleRow( rightNull ) );
+      kvpCollection = Join.fullOuterJoin( leftKVPCollection, rightKVPCollection, AssemblerFn.UNMATCHED, AssemblerFn.UNMATCHED );
     } else {
       throw new KettleException( "Join type '" + joinType + "' is not recognized or supported" );
     }
 
-    // This is the output of the step, we'll try to mimic this
-    //
-    final RowMetaInterface outputRowMeta = leftVRowMeta.clone();
-    outputRowMeta.addRowMeta( leftKRowMeta );
-    outputRowMeta.addRowMeta( rightKRowMeta );
-    outputRowMeta.addRowMeta( rightVRowMeta );
-
     // Now we need to collapse the results where we have a Key-Value pair of
-    // The key (left or right depending but the same row metadata (leftKRowMeta == rightKRowMeta)
-    //    The key is simply a KettleRow
+    // The key (left or right depending but the same key values on both sides)
+    //    The key is a KettleKey with the encoded key values
     // The value:
     //    The value is the resulting combination of the Value parts of the left and right side.
     //    These can be null depending on the join type
     // So we want to grab all this information and put it back together on a single row.
     //
-    DoFn<KV<KettleRow, KV<KettleRow, KettleRow>>, KettleRow> assemblerFn = new AssemblerFn(
+    DoFn<KV<KettleKey, KV<KettleRow, KettleRow>>, KettleRow> assemblerFn = new AssemblerFn(
       JsonRowMeta.toJson( outputRowMeta ),
       JsonRowMeta.toJson( leftKRowMeta ),
-      JsonRowMeta.toJson( leftVRowMeta ),
-      JsonRowMeta.toJson( rightVRowMeta ),
+      sourceSides,
+      sourceKeys,
+      sourceIndexes,
       stepMeta.getName(),
       stepPluginClasses,
-      xpPluginClasses
+      xpPluginClasses,
+      saltedSide,
+      replicatedOuter
     );
 
     // Apply the step transform to the previous io step PCollection(s)
     //
     PCollection<KettleRow> stepPCollection = kvpCollection.apply( ParDo.of( assemblerFn ) );
+    stepPCollection.setCoder( new KettleRowMetaCoder( JsonRowMeta.toJson( outputRowMeta ) ) );
 
     // Save this in the map
     //
@@ -174,4 +316,263 @@ public class BeamMergeJoinStepHandler extends BeamBaseStepHandler implements Bea
 
     log.logBasic( "Handled Merge Join (STEP) : " + stepMeta.getName() );
   }
+
+  /**
+   * Set where the output fields of a join come from: the side, key or value field, the index in the key or value row.
+   *
+   * @param rowMeta the input fields of one side of the join
+   * @param keys the key fields of that side
+   * @param side 0 for the left side, 1 for the right side
+   * @param offset the index of the first field of that side in the output
+   */
+  private static void setSources( RowMetaInterface rowMeta, String[] keys, int side, int offset,
+                                  int[] sourceSides, boolean[] sourceKeys, int[] sourceIndexes ) {
+    int valueIndex = 0;
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      int keyIndex = Const.indexOfString( rowMeta.getValueMeta( i ).getName(), keys );
+      sourceSides[ offset + i ] = side;
+      sourceKeys[ offset + i ] = keyIndex >= 0;
+      sourceIndexes[ offset + i ] = keyIndex >= 0 ? keyIndex : valueIndex++;
+    }
+  }
+
+  /**
+   * Join a chain of Merge Join steps on the same key with a single CoGroupByKey.
+   * Every step in the chain reads the output of the previous one on the left side, only the last one writes to other steps.
+   * The output is the same as the one of the last step when the joins are done one by one.
+   *
+   * @param joinChain the Merge Join steps in the chain, see canBeJoinedInChain()
+   */
+  public void handleMergeJoinChain( LogChannelInterface log, List<StepMeta> joinChain, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                                    Pipeline pipeline ) throws KettleException {
+
+    StepMeta firstStepMeta = joinChain.get( 0 );
+    StepMeta lastStepMeta = joinChain.get( joinChain.size() - 1 );
+    String[] keys = ( (MergeJoinMeta) firstStepMeta.getStepMetaInterface() ).getKeyFields1();
+
+    // Dimension 0 is the left side of the first join, the others are the right sides of the joins
+    //
+    List<TupleTag<KettleRow>> tupleTags = new ArrayList<>();
+    List<PCollection<KV<KettleKey, KettleRow>>> kvPCollections = new ArrayList<>();
+    boolean[] outerJoins = new boolean[ joinChain.size() + 1 ];
+
+    StepMeta leftInfoStep = ( (MergeJoinMeta) firstStepMeta.getStepMetaInterface() ).getStepIOMeta().getInfoStreams().get( 0 ).getStepMeta();
+    PCollection<KettleRow> leftPCollection = getInfoPCollection( stepCollectionMap, firstStepMeta, leftInfoStep );
+    RowMetaInterface leftRowMeta = transMeta.getStepFields( leftInfoStep );
+    RowMetaInterface keyRowMeta = new RowMeta();
+    List<String> leftV = new ArrayList<>();
+    RowMetaInterface leftVRowMeta = new RowMeta();
+    for ( String key : keys ) {
+      keyRowMeta.addValueMeta( leftRowMeta.searchValueMeta( key ).clone() );
+    }
+
+    // For every field in the current layout: the dimension it comes from, key or value field, the index in the key or value row
+    //
+    List<Integer> sourceDimensions = new ArrayList<>();
+    List<Boolean> sourceKeys = new ArrayList<>();
+    List<Integer> sourceIndexes = new ArrayList<>();
+    for ( ValueMetaInterface valueMeta : leftRowMeta.getValueMetaList() ) {
+      String valueName = valueMeta.getName();
+      int keyIndex = Const.indexOfString( valueName, keys );
+      sourceDimensions.add( 0 );
+      sourceKeys.add( keyIndex >= 0 );
+      if ( keyIndex < 0 ) {
+        sourceIndexes.add( leftV.size() );
+        leftV.add( valueName );
+        leftVRowMeta.addValueMeta( valueMeta.clone() );
+      } else {
+        sourceIndexes.add( keyIndex );
+      }
+    }
+    tupleTags.add( new TupleTag<>( firstStepMeta.getName() + " " + BeamConst.STRING_JOIN_SIDE_LEFT ) );
+    kvPCollections.add( createKVPCollection( firstStepMeta, leftPCollection, leftRowMeta,
+      Arrays.asList( keys ), leftV, leftVRowMeta ) );
+
+    // The left side of every join is the output of the previous one (or the first input).
+    // That's the running layout, never the step fields which only have the same names.
+    //
+    RowMetaInterface outputRowMeta = leftRowMeta.clone();
+    for ( int d = 1; d <= joinChain.size(); d++ ) {
+      StepMeta stepMeta = joinChain.get( d - 1 );
+      MergeJoinMeta meta = (MergeJoinMeta) stepMeta.getStepMetaInterface();
+      String[] leftKeys = meta.getKeyFields1();
+      String[] rightKeys = meta.getKeyFields2();
+      outerJoins[ d ] = MergeJoinMeta.join_types[ 1 ].equals( meta.getJoinType() );
+
+      for ( int k = 0; k < leftKeys.length; k++ ) {
+        int index = outputRowMeta.indexOfValue( leftKeys[ k ] );
+        if ( index < 0 || sourceDimensions.get( index ) != 0 || !sourceKeys.get( index ) || sourceIndexes.get( index ) != k ) {
+          throw new KettleException( "Key field '" + leftKeys[ k ] + "' of Merge Join step '" + stepMeta.getName() + "' isn't a key of the first join in the chain" );
+        }
+      }
+
+      StepMeta rightInfoStep = meta.getStepIOMeta().getInfoStreams().get( 1 ).getStepMeta();
+      PCollection<KettleRow> rightPCollection = getInfoPCollection( stepCollectionMap, stepMeta, rightInfoStep );
+      RowMetaInterface rightRowMeta = transMeta.getStepFields( rightInfoStep );
+
+      // Same layout as a single join: all the left fields followed by all the right fields, renamed like in Kettle
+      //
+      List<String> rightV = new ArrayList<>();
+      RowMetaInterface rightVRowMeta = new RowMeta();
+      for ( ValueMetaInterface valueMeta : rightRowMeta.getValueMetaList() ) {
+        String valueName = valueMeta.getName();
+        int keyIndex = Const.indexOfString( valueName, rightKeys );
+        sourceDimensions.add( d );
+        sourceKeys.add( keyIndex >= 0 );
+        if ( keyIndex < 0 ) {
+          sourceIndexes.add( rightV.size() );
+          rightV.add( valueName );
+          rightVRowMeta.addValueMeta( valueMeta.clone() );
+        } else {
+          sourceIndexes.add( keyIndex );
+        }
+      }
+      outputRowMeta.mergeRowMeta( rightRowMeta.clone(), stepMeta.getName() );
+
+      tupleTags.add( new TupleTag<>( stepMeta.getName() + " " + BeamConst.STRING_JOIN_SIDE_RIGHT ) );
+      kvPCollections.add( createKVPCollection( stepMeta, rightPCollection, rightRowMeta,
+        Arrays.asList( rightKeys ), rightV, rightVRowMeta ) );
+    }
+
+    KeyedPCollectionTuple<KettleKey> keyedPCollectionTuple = KeyedPCollectionTuple.of( tupleTags.get( 0 ), kvPCollections.get( 0 ) );
+    for ( int d = 1; d < tupleTags.size(); d++ ) {
+      keyedPCollectionTuple = keyedPCollectionTuple.and( tupleTags.get( d ), kvPCollections.get( d ) );
+    }
+    PCollection<KV<KettleKey, CoGbkResult>> coGbkPCollection = keyedPCollectionTuple.apply( lastStepMeta.getName() + " CoGroupByKey", CoGroupByKey.create() );
+
+    int[] dimensions = new int[ sourceDimensions.size() ];
+    boolean[] keyFlags = new boolean[ sourceKeys.size() ];
+    int[] indexes = new int[ sourceIndexes.size() ];
+    for ( int i = 0; i < dimensions.length; i++ ) {
+      dimensions[ i ] = sourceDimensions.get( i );
+      keyFlags[ i ] = sourceKeys.get( i );
+      indexes[ i ] = sourceIndexes.get( i );
+    }
+
+    MultiJoinAssemblerFn assemblerFn = new MultiJoinAssemblerFn(
+      JsonRowMeta.toJson( outputRowMeta ),
+      JsonRowMeta.toJson( keyRowMeta ),
+      tupleTags,
+      outerJoins,
+      dimensions,
+      keyFlags,
+      indexes,
+      lastStepMeta.getName(),
+      stepPluginClasses,
+      xpPluginClasses
+    );
+
+    PCollection<KettleRow> stepPCollection = coGbkPCollection.apply( lastStepMeta.getName(), ParDo.of( assemblerFn ) );
+    stepPCollection.setCoder( new KettleRowMetaCoder( JsonRowMeta.toJson( outputRowMeta ) ) );
+
+    stepCollectionMap.put( lastStepMeta.getName(), stepPCollection );
+
+    List<String> stepNames = new ArrayList<>();
+    for ( StepMeta stepMeta : joinChain ) {
+      stepNames.add( stepMeta.getName() );
+    }
+    log.logBasic( "Handled Merge Join chain (STEP) : " + String.join( ", ", stepNames ) + " with a single CoGroupByKey" );
+  }
+
+  /**
+   * Only inner and left outer joins keep the key of the first join on every row, flagged steps are handled on their own.
+   *
+   * @return true if the Merge Join step can be part of a chain of joins on the same key
+   */
+  public static boolean canBeJoinedInChain( StepMeta stepMeta ) {
+    if ( !( stepMeta.getStepMetaInterface() instanceof MergeJoinMeta ) ) {
+      return false;
+    }
+    for ( String flag : new String[] { BeamConst.STRING_STEP_FLAG_BROADCAST, BeamConst.STRING_STEP_FLAG_SALT, BeamConst.STRING_STEP_FLAG_BLOOM_FILTER } ) {
+      String side = stepMeta.getAttribute( BeamConst.STRING_KETTLE_BEAM, flag );
+      if ( BeamConst.STRING_JOIN_SIDE_LEFT.equals( side ) || BeamConst.STRING_JOIN_SIDE_RIGHT.equals( side ) ) {
+        return false;
+      }
+    }
+    MergeJoinMeta meta = (MergeJoinMeta) stepMeta.getStepMetaInterface();
+    String joinType = meta.getJoinType();
+    if ( !MergeJoinMeta.join_types[ 0 ].equals( joinType ) && !MergeJoinMeta.join_types[ 1 ].equals( joinType ) ) {
+      return false;
+    }
+    return meta.getKeyFields1() != null && meta.getKeyFields2() != null && meta.getKeyFields1().length == meta.getKeyFields2().length;
+  }
+
+  private PCollection<KettleRow> getInfoPCollection( Map<String, PCollection<KettleRow>> stepCollectionMap, StepMeta stepMeta, StepMeta infoStep ) throws KettleException {
+    if ( infoStep == null ) {
+      throw new KettleException( "A source step isn't defined in the Merge Join step called '" + stepMeta.getName() + "'" );
+    }
+    PCollection<KettleRow> pCollection = stepCollectionMap.get( infoStep.getName() );
+    if ( pCollection == null ) {
+      throw new KettleException( "The source collection of step '" + infoStep.getName() + "' in the pipeline couldn't be found (probably a programming error)" );
+    }
+    return pCollection;
+  }
+
+  private PCollection<KV<KettleKey, KettleRow>> createKVPCollection( StepMeta stepMeta, PCollection<KettleRow> pCollection, RowMetaInterface rowMeta,
+                                                                     List<String> keys, List<String> values, RowMetaInterface valuesRowMeta ) throws KettleException {
+    KettleKeyValueFn kvFn = new KettleKeyValueFn(
+      JsonRowMeta.toJson( rowMeta ), stepPluginClasses, xpPluginClasses, keys.toArray( new String[ 0 ] ), values.toArray( new String[ 0 ] ), stepMeta.getName() );
+    PCollection<KV<KettleKey, KettleRow>> kvPCollection = pCollection.apply( ParDo.of( kvFn ) );
+    kvPCollection.setCoder( KvCoder.of( KettleKeyCoder.of(), new KettleRowMetaCoder( JsonRowMeta.toJson( valuesRowMeta ) ) ) );
+    return kvPCollection;
+  }
+
+  /**
+   * @return the side of the join with the hot keys to salt (left or right) or null if no keys are salted
+   */
+  private String getSaltedSide( StepMeta stepMeta ) {
+    String side = stepMeta.getAttribute( BeamConst.STRING_KETTLE_BEAM, BeamConst.STRING_STEP_FLAG_SALT );
+    if ( !BeamConst.STRING_JOIN_SIDE_LEFT.equals( side ) && !BeamConst.STRING_JOIN_SIDE_RIGHT.equals( side ) ) {
+      return null;
+    }
+    return side;
+  }
+
+  /**
+   * See which side of the join was flagged to be filtered with a Bloom filter over the keys of the other side.
+   * The rows which are filtered out are never matched so the flag is ignored for outer joins which keep them.
+   *
+   * @return the side to filter (left or right) or null to keep all rows
+   */
+  private String getBloomFilterSide( LogChannelInterface log, StepMeta stepMeta, String joinType ) {
+    String side = stepMeta.getAttribute( BeamConst.STRING_KETTLE_BEAM, BeamConst.STRING_STEP_FLAG_BLOOM_FILTER );
+    if ( !BeamConst.STRING_JOIN_SIDE_LEFT.equals( side ) && !BeamConst.STRING_JOIN_SIDE_RIGHT.equals( side ) ) {
+      return null;
+    }
+    if ( Const.indexOfString( joinType, MergeJoinMeta.join_types ) < 0 ) {
+      return null;
+    }
+    boolean filterLeft = BeamConst.STRING_JOIN_SIDE_LEFT.equals( side );
+    boolean keepLeft = MergeJoinMeta.join_types[ 1 ].equals( joinType ) || MergeJoinMeta.join_types[ 3 ].equals( joinType );
+    boolean keepRight = MergeJoinMeta.join_types[ 2 ].equals( joinType ) || MergeJoinMeta.join_types[ 3 ].equals( joinType );
+    if ( ( filterLeft && keepLeft ) || ( !filterLeft && keepRight ) ) {
+      log.logBasic( "The " + side + " side of Merge Join step '" + stepMeta.getName() + "' can't be filtered for join type " + joinType + ", keeping all rows" );
+      return null;
+    }
+    return side;
+  }
+
+  /**
+   * See which side of the join was flagged to be broadcast.
+   * The unmatched rows of the broadcast side can't be kept so the flag is ignored for outer joins which need them.
+   *
+   * @return the side to broadcast (left or right) or null to shuffle both sides
+   */
+  private String getBroadcastSide( LogChannelInterface log, StepMeta stepMeta, String joinType ) {
+    String side = stepMeta.getAttribute( BeamConst.STRING_KETTLE_BEAM, BeamConst.STRING_STEP_FLAG_BROADCAST );
+    if ( !BeamConst.STRING_JOIN_SIDE_LEFT.equals( side ) && !BeamConst.STRING_JOIN_SIDE_RIGHT.equals( side ) ) {
+      return null;
+    }
+    if ( Const.indexOfString( joinType, MergeJoinMeta.join_types ) < 0 ) {
+      return null;
+    }
+    boolean broadcastLeft = BeamConst.STRING_JOIN_SIDE_LEFT.equals( side );
+    boolean keepLeft = MergeJoinMeta.join_types[ 1 ].equals( joinType ) || MergeJoinMeta.join_types[ 3 ].equals( joinType );
+    boolean keepRight = MergeJoinMeta.join_types[ 2 ].equals( joinType ) || MergeJoinMeta.join_types[ 3 ].equals( joinType );
+    if ( ( broadcastLeft && keepLeft ) || ( !broadcastLeft && keepRight ) ) {
+      log.logBasic( "The " + side + " side of Merge Join step '" + stepMeta.getName() + "' can't be broadcast for join type " + joinType + ", shuffling both sides" );
+      return null;
+    }
+    return side;
+  }
 }
@@ -10,6 +10,7 @@ import org.kettle.beam.metastore.BeamJobConfig;
 import org.kettle.beam.metastore.FieldDefinition;
 import org.kettle.beam.metastore.FileDefinition;
 import org.kettle.beam.steps.io.BeamOutputMeta;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.logging.LogChannelInterface;
@@ -63,6 +64,11 @@ public class BeamOutputStepHandler extends BeamBaseStepHandler implements BeamSt
       transMeta.environmentSubstitute( outputFileDefinition.getSeparator() ),
       transMeta.environmentSubstitute( outputFileDefinition.getEnclosure() ),
       beamOutputMeta.isWindowed(),
+      transMeta.environmentSubstitute( beamOutputMeta.getCompression() ),
+      Const.toInt( transMeta.environmentSubstitute( beamOutputMeta.getNumberOfShards() ), -1 ),
+      beamOutputMeta.isAutoSharding(),
+      Const.toLong( transMeta.environmentSubstitute( beamOutputMeta.getMaxRecordsPerFile() ), -1L ),
+      Const.toLong( transMeta.environmentSubstitute( beamOutputMeta.getMaxBytesPerFile() ), -1L ),
       JsonRowMeta.toJson( rowMeta ),
       stepPluginClasses,
       xpPluginClasses
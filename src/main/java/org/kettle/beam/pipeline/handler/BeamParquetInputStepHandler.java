@@ -0,0 +1,81 @@
+package org.kettle.beam.pipeline.handler;
+
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.values.PCollection;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.transform.BeamParquetInputTransform;
+import org.kettle.beam.core.util.AvroRowMeta;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.metastore.BeamJobConfig;
+import org.kettle.beam.metastore.FileDefinition;
+import org.kettle.beam.steps.parquet.BeamParquetInputMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.metastore.api.IMetaStore;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class BeamParquetInputStepHandler extends BeamBaseStepHandler implements BeamStepHandler {
+
+  public BeamParquetInputStepHandler( BeamJobConfig beamJobConfig, IMetaStore metaStore, TransMeta transMeta, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    super( beamJobConfig, true, false, metaStore, transMeta, stepPluginClasses, xpPluginClasses );
+  }
+
+  @Override public void handleStep( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                                    Pipeline pipeline, RowMetaInterface rowMeta, List<StepMeta> previousSteps,
+                                    PCollection<KettleRow> input ) throws KettleException {
+    handleParquetInput( log, stepMeta, stepCollectionMap, pipeline, null );
+  }
+
+  /**
+   * Read the Parquet files, only reading the columns which are used downstream.
+   *
+   * @param log
+   * @param stepMeta
+   * @param stepCollectionMap
+   * @param pipeline
+   * @param usedFields        the output fields which are used downstream or null if all of them are used
+   * @throws KettleException
+   */
+  public void handleParquetInput( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                                  Pipeline pipeline, Set<String> usedFields ) throws KettleException {
+
+    BeamParquetInputMeta beamInputMeta = (BeamParquetInputMeta) stepMeta.getStepMetaInterface();
+    FileDefinition inputFileDefinition = beamInputMeta.loadFileDefinition( metaStore );
+    if ( inputFileDefinition == null ) {
+      throw new KettleException( "We couldn't find or load the Beam Parquet Input step file definition" );
+    }
+    RowMetaInterface fileRowMeta = inputFileDefinition.getRowMeta();
+
+    // The unused fields stay in the row layout, they're simply null.
+    // We need at least one column to know how many rows there are.
+    //
+    Set<String> projectedFields = usedFields;
+    if ( projectedFields != null && projectedFields.isEmpty() && !fileRowMeta.isEmpty() ) {
+      projectedFields = Collections.singleton( fileRowMeta.getValueMeta( 0 ).getName() );
+    }
+    String projectionSchemaJson = AvroRowMeta.toSchema( stepMeta.getName(), fileRowMeta, projectedFields ).toString();
+
+    BeamParquetInputTransform beamInputTransform = new BeamParquetInputTransform(
+      stepMeta.getName(),
+      stepMeta.getName(),
+      transMeta.environmentSubstitute( beamInputMeta.getInputLocation() ),
+      JsonRowMeta.toJson( fileRowMeta ),
+      projectionSchemaJson,
+      stepPluginClasses,
+      xpPluginClasses
+    );
+    PCollection<KettleRow> afterInput = pipeline.apply( beamInputTransform );
+    stepCollectionMap.put( stepMeta.getName(), afterInput );
+    log.logBasic( "Handled step (PARQUET INPUT) : " + stepMeta.getName() );
+    if ( projectedFields != null ) {
+      log.logBasic( "  reading " + projectedFields.size() + " of " + fileRowMeta.size() + " columns" );
+    }
+  }
+}
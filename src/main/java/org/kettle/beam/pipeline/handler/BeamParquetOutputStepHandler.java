@@ -0,0 +1,64 @@
+package org.kettle.beam.pipeline.handler;
+
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.values.PCollection;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.transform.BeamParquetOutputTransform;
+import org.kettle.beam.core.util.AvroRowMeta;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.metastore.BeamJobConfig;
+import org.kettle.beam.steps.parquet.BeamParquetOutputMeta;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.metastore.api.IMetaStore;
+
+import java.util.List;
+import java.util.Map;
+
+public class BeamParquetOutputStepHandler extends BeamBaseStepHandler implements BeamStepHandler {
+
+  public BeamParquetOutputStepHandler( BeamJobConfig beamJobConfig, IMetaStore metaStore, TransMeta transMeta, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    super( beamJobConfig, false, true, metaStore, transMeta, stepPluginClasses, xpPluginClasses );
+  }
+
+  @Override public void handleStep( LogChannelInterface log, StepMeta beamOutputStepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                                    Pipeline pipeline, RowMetaInterface rowMeta, List<StepMeta> previousSteps,
+                                    PCollection<KettleRow> input ) throws KettleException {
+
+    BeamParquetOutputMeta beamOutputMeta = (BeamParquetOutputMeta) beamOutputStepMeta.getStepMetaInterface();
+
+    // The Parquet schema follows the layout of the incoming rows
+    //
+    String schemaJson = AvroRowMeta.toSchema( beamOutputStepMeta.getName(), rowMeta ).toString();
+
+    BeamParquetOutputTransform beamOutputTransform = new BeamParquetOutputTransform(
+      beamOutputStepMeta.getName(),
+      transMeta.environmentSubstitute( beamOutputMeta.getOutputLocation() ),
+      transMeta.environmentSubstitute( beamOutputMeta.getFilePrefix() ),
+      transMeta.environmentSubstitute( beamOutputMeta.getFileSuffix() ),
+      transMeta.environmentSubstitute( beamOutputMeta.getCompressionCodec() ),
+      Const.toInt( transMeta.environmentSubstitute( beamOutputMeta.getRowGroupSize() ), -1 ),
+      JsonRowMeta.toJson( rowMeta ),
+      schemaJson,
+      stepPluginClasses,
+      xpPluginClasses
+    );
+
+    // Which step do we apply this transform to?
+    // Ignore info hops until we figure that out.
+    //
+    if ( previousSteps.size() > 1 ) {
+      throw new KettleException( "Combining data from multiple steps is not supported yet!" );
+    }
+    StepMeta previousStep = previousSteps.get( 0 );
+
+    // No need to store this, it's PDone.
+    //
+    input.apply( beamOutputTransform );
+    log.logBasic( "Handled step (PARQUET OUTPUT) : " + beamOutputStepMeta.getName() + ", gets data from " + previousStep.getName() );
+  }
+}
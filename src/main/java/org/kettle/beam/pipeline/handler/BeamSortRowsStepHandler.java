@@ -0,0 +1,109 @@
+package org.kettle.beam.pipeline.handler;
+
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.values.PCollection;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.transform.SortRowsTransform;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.metastore.BeamJobConfig;
+import org.kettle.beam.util.BeamConst;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.sort.SortRowsMeta;
+import org.pentaho.metastore.api.IMetaStore;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class BeamSortRowsStepHandler extends BeamBaseStepHandler implements BeamStepHandler {
+
+  // Sample roughly 1 in this many rows to find the boundaries of the ranges
+  //
+  public static final int SAMPLE_EVERY = 100;
+
+  public static final int DEFAULT_NR_RANGES = 16;
+  public static final int DEFAULT_SORT_SIZE = 1000000;
+
+  // Steps which expect their input to be sorted.  Beam doesn't keep the order of the sorted rows so these steps would give wrong results.
+  //
+  public static final List<String> SORTED_INPUT_STEP_IDS = Arrays.asList( "AnalyticQuery", "SortedMerge", "MergeRows" );
+
+  // Steps writing the rows to files or tables: the rows end up in there in no particular order.
+  //
+  public static final List<String> OUTPUT_STEP_IDS = Arrays.asList(
+    BeamConst.STRING_BEAM_OUTPUT_PLUGIN_ID,
+    BeamConst.STRING_BEAM_PARQUET_OUTPUT_PLUGIN_ID,
+    BeamConst.STRING_BEAM_AVRO_OUTPUT_PLUGIN_ID,
+    BeamConst.STRING_BEAM_BIGQUERY_OUTPUT_PLUGIN_ID
+  );
+
+  public BeamSortRowsStepHandler( BeamJobConfig beamJobConfig, IMetaStore metaStore, TransMeta transMeta, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    super( beamJobConfig, false, false, metaStore, transMeta, stepPluginClasses, xpPluginClasses );
+  }
+
+  @Override public void handleStep( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                                    Pipeline pipeline, RowMetaInterface rowMeta, List<StepMeta> previousSteps,
+                                    PCollection<KettleRow> input ) throws KettleException {
+
+    SortRowsMeta sortRowsMeta = (SortRowsMeta) stepMeta.getStepMetaInterface();
+
+    // Every range is sorted but the rows don't stay in that order after the sort transform
+    //
+    for ( StepMeta nextStep : transMeta.findNextSteps( stepMeta ) ) {
+      if ( SORTED_INPUT_STEP_IDS.contains( nextStep.getStepID() ) ) {
+        throw new KettleException( "Step '" + nextStep.getName() + "' expects sorted input but the order of the rows of Sort Rows step '" + stepMeta.getName()
+          + "' isn't kept in a Beam pipeline" );
+      }
+      if ( OUTPUT_STEP_IDS.contains( nextStep.getStepID() ) ) {
+        log.logBasic( "The rows of Sort Rows step '" + stepMeta.getName() + "' are written by step '" + nextStep.getName()
+          + "' in no particular order: Beam doesn't keep the order of the rows" );
+      }
+    }
+
+    String[] sortFields = sortRowsMeta.getFieldName();
+    if ( sortFields == null || sortFields.length == 0 ) {
+      throw new KettleException( "Please specify the fields to sort on in Sort Rows step '" + stepMeta.getName() + "'" );
+    }
+    boolean[] ascending = new boolean[ sortFields.length ];
+    boolean[] caseSensitive = new boolean[ sortFields.length ];
+    for ( int i = 0; i < sortFields.length; i++ ) {
+      ascending[ i ] = sortRowsMeta.getAscending() == null || i >= sortRowsMeta.getAscending().length || sortRowsMeta.getAscending()[ i ];
+      caseSensitive[ i ] = sortRowsMeta.getCaseSensitive() == null || i >= sortRowsMeta.getCaseSensitive().length || sortRowsMeta.getCaseSensitive()[ i ];
+    }
+
+    // The number of rows kept in memory per range, the rest is spilled to the temporary folder of the worker
+    //
+    int sortSize = Const.toInt( transMeta.environmentSubstitute( sortRowsMeta.getSortSize() ), DEFAULT_SORT_SIZE );
+    int nrRanges = Const.toInt( transMeta.environmentSubstitute( beamJobConfig.getSortRowsRanges() ), DEFAULT_NR_RANGES );
+
+    PTransform<PCollection<KettleRow>, PCollection<KettleRow>> stepTransform = new SortRowsTransform(
+      stepMeta.getName(),
+      JsonRowMeta.toJson( rowMeta ),
+      stepPluginClasses,
+      xpPluginClasses,
+      sortFields,
+      ascending,
+      caseSensitive,
+      sortRowsMeta.isOnlyPassingUniqueRows(),
+      Math.max( 1, nrRanges ),
+      SAMPLE_EVERY,
+      sortSize,
+      sortRowsMeta.getCompressFiles()
+    );
+
+    // Apply the step transform to the previous io step PCollection(s)
+    //
+    PCollection<KettleRow> stepPCollection = input.apply( stepMeta.getName(), stepTransform );
+
+    // Save this in the map
+    //
+    stepCollectionMap.put( stepMeta.getName(), stepPCollection );
+    log.logBasic( "Handled Sort Rows (STEP) : " + stepMeta.getName() + ", sorting " + nrRanges + " ranges, gets data from " + previousSteps.size() + " previous step(s)" );
+  }
+}
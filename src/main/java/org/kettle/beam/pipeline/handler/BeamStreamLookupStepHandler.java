@@ -0,0 +1,141 @@
+package org.kettle.beam.pipeline.handler;
+
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleKeyCoder;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
+import org.kettle.beam.core.fn.KettleKeyValueFn;
+import org.kettle.beam.core.fn.StreamLookupFn;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.metastore.BeamJobConfig;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.streamlookup.StreamLookupMeta;
+import org.pentaho.metastore.api.IMetaStore;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stream Lookup as a broadcast hash join: the lookup stream becomes a multimap side input keyed by the lookup key values.
+ */
+public class BeamStreamLookupStepHandler extends BeamBaseStepHandler implements BeamStepHandler {
+
+  public BeamStreamLookupStepHandler( BeamJobConfig beamJobConfig, IMetaStore metaStore, TransMeta transMeta, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    super( beamJobConfig, false, false, metaStore, transMeta, stepPluginClasses, xpPluginClasses );
+  }
+
+  public boolean isInput() {
+    return false;
+  }
+
+  public boolean isOutput() {
+    return false;
+  }
+
+  @Override public void handleStep( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                                    Pipeline pipeline, RowMetaInterface rowMeta, List<StepMeta> previousSteps,
+                                    PCollection<KettleRow> input ) throws KettleException {
+
+    StreamLookupMeta meta = (StreamLookupMeta) stepMeta.getStepMetaInterface();
+
+    if ( input == null ) {
+      throw new KettleException( "The Stream Lookup step called '" + stepMeta.getName() + "' needs a main input stream" );
+    }
+
+    StepMeta lookupStep = meta.getStepIOMeta().getInfoStreams().get( 0 ).getStepMeta();
+    if ( lookupStep == null ) {
+      throw new KettleException( "The lookup step isn't defined in the Stream Lookup step called '" + stepMeta.getName() + "'" );
+    }
+    PCollection<KettleRow> lookupPCollection = stepCollectionMap.get( lookupStep.getName() );
+    if ( lookupPCollection == null ) {
+      throw new KettleException( "The lookup collection in the pipeline couldn't be found (probably a programming error)" );
+    }
+    RowMetaInterface lookupRowMeta = transMeta.getStepFields( lookupStep );
+
+    String[] keyFields = meta.getKeystream();
+    String[] lookupKeyFields = meta.getKeylookup();
+    String[] valueFields = meta.getValue();
+    if ( keyFields == null || keyFields.length == 0 ) {
+      throw new KettleException( "There are no key fields specified in the Stream Lookup step called '" + stepMeta.getName() + "'" );
+    }
+
+    // The lookup is always a hash lookup in a side input, the memory options of the step don't apply
+    //
+    if ( meta.isMemoryPreservationActive() ) {
+      log.logBasic( "The 'Preserve memory' option of Stream Lookup step '" + stepMeta.getName() + "' is ignored in a Beam pipeline" );
+    }
+    if ( meta.isUsingSortedList() ) {
+      log.logBasic( "The 'Use sorted list' option of Stream Lookup step '" + stepMeta.getName() + "' is ignored in a Beam pipeline" );
+    }
+
+    // The lookup keys are converted to the data types of the main stream keys so they encode to the same key
+    //
+    RowMetaInterface keyRowMeta = new RowMeta();
+    for ( String keyField : keyFields ) {
+      ValueMetaInterface keyValueMeta = rowMeta.searchValueMeta( keyField );
+      if ( keyValueMeta == null ) {
+        throw new KettleException( "Unable to find key field '" + keyField + "' in the input of Stream Lookup step '" + stepMeta.getName() + "'" );
+      }
+      keyRowMeta.addValueMeta( keyValueMeta.clone() );
+    }
+
+    // Only the looked up value fields are shipped to the workers
+    //
+    RowMetaInterface lookupValueRowMeta = new RowMeta();
+    for ( String valueField : valueFields ) {
+      ValueMetaInterface valueMeta = lookupRowMeta.searchValueMeta( valueField );
+      if ( valueMeta == null ) {
+        throw new KettleException( "Unable to find value field '" + valueField + "' in the lookup stream of Stream Lookup step '" + stepMeta.getName() + "'" );
+      }
+      lookupValueRowMeta.addValueMeta( valueMeta.clone() );
+    }
+
+    KettleKeyValueFn lookupKVFn = new KettleKeyValueFn(
+      JsonRowMeta.toJson( lookupRowMeta ), stepPluginClasses, xpPluginClasses, lookupKeyFields, valueFields, stepMeta.getName(), JsonRowMeta.toJson( keyRowMeta ) );
+    PCollection<KV<KettleKey, KettleRow>> lookupKVPCollection = lookupPCollection.apply( stepMeta.getName() + " lookup keys", ParDo.of( lookupKVFn ) );
+    lookupKVPCollection.setCoder( KvCoder.of( KettleKeyCoder.of(), new KettleRowMetaCoder( JsonRowMeta.toJson( lookupValueRowMeta ) ) ) );
+
+    PCollectionView<Map<KettleKey, Iterable<KettleRow>>> lookupView = lookupKVPCollection.apply( stepMeta.getName() + " lookup view", View.asMultimap() );
+
+    // The input row with the looked up values added
+    //
+    RowMetaInterface outputRowMeta = transMeta.getStepFields( stepMeta );
+    if ( outputRowMeta.size() != rowMeta.size() + lookupValueRowMeta.size() ) {
+      throw new KettleException( "The output of Stream Lookup step '" + stepMeta.getName() + "' is not the input row with the looked up values added: " + outputRowMeta.toString() );
+    }
+
+    StreamLookupFn streamLookupFn = new StreamLookupFn(
+      JsonRowMeta.toJson( rowMeta ),
+      JsonRowMeta.toJson( lookupValueRowMeta ),
+      JsonRowMeta.toJson( outputRowMeta ),
+      keyFields,
+      meta.getValueDefault(),
+      stepMeta.getName(),
+      stepPluginClasses,
+      xpPluginClasses,
+      lookupView
+    );
+
+    PCollection<KettleRow> stepPCollection = input.apply( stepMeta.getName(), ParDo.of( streamLookupFn ).withSideInputs( lookupView ) );
+    stepPCollection.setCoder( new KettleRowMetaCoder( JsonRowMeta.toJson( outputRowMeta ) ) );
+
+    // Save this in the map
+    //
+    stepCollectionMap.put( stepMeta.getName(), stepPCollection );
+
+    log.logBasic( "Handled Stream Lookup (STEP) : " + stepMeta.getName() );
+  }
+}
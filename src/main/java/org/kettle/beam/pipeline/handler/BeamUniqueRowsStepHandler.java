@@ -0,0 +1,168 @@
+package org.kettle.beam.pipeline.handler;
+
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.Values;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionTuple;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.sdk.values.TupleTagList;
+import org.apache.commons.lang.StringUtils;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleKeyCoder;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
+import org.kettle.beam.core.fn.SortKeyFn;
+import org.kettle.beam.core.fn.UniqueRowsCombineFn;
+import org.kettle.beam.core.fn.UniqueRowsFn;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.kettle.beam.core.util.KettleBeamUtil;
+import org.kettle.beam.metastore.BeamJobConfig;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepErrorMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.uniquerows.UniqueRowsMeta;
+import org.pentaho.di.trans.steps.uniquerowsbyhashset.UniqueRowsByHashSetMeta;
+import org.pentaho.metastore.api.IMetaStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handles the Unique Rows and Unique Rows (HashSet) steps.
+ * The input doesn't need to be sorted: rows are keyed on the compared fields and one row is kept per key.
+ */
+public class BeamUniqueRowsStepHandler extends BeamBaseStepHandler implements BeamStepHandler {
+
+  public static final String ERROR_CODE_DUPLICATE = "UNR001";
+
+  public BeamUniqueRowsStepHandler( BeamJobConfig beamJobConfig, IMetaStore metaStore, TransMeta transMeta, List<String> stepPluginClasses, List<String> xpPluginClasses ) {
+    super( beamJobConfig, false, false, metaStore, transMeta, stepPluginClasses, xpPluginClasses );
+  }
+
+  @Override public void handleStep( LogChannelInterface log, StepMeta stepMeta, Map<String, PCollection<KettleRow>> stepCollectionMap,
+                                    Pipeline pipeline, RowMetaInterface rowMeta, List<StepMeta> previousSteps,
+                                    PCollection<KettleRow> input ) throws KettleException {
+
+    String[] compareFields;
+    boolean[] caseInsensitive;
+    boolean countRows = false;
+    String countField = null;
+    boolean rejectDuplicates;
+    String errorDescription;
+
+    if ( stepMeta.getStepMetaInterface() instanceof UniqueRowsMeta ) {
+      UniqueRowsMeta meta = (UniqueRowsMeta) stepMeta.getStepMetaInterface();
+      compareFields = meta.getCompareFields();
+      caseInsensitive = meta.getCaseInsensitive();
+      countRows = meta.isCountRows();
+      countField = transMeta.environmentSubstitute( meta.getCountField() );
+      rejectDuplicates = meta.isRejectDuplicateRow();
+      errorDescription = transMeta.environmentSubstitute( meta.getErrorDescription() );
+    } else {
+      UniqueRowsByHashSetMeta meta = (UniqueRowsByHashSetMeta) stepMeta.getStepMetaInterface();
+      compareFields = meta.getCompareFields();
+      caseInsensitive = null;
+      rejectDuplicates = meta.isRejectDuplicateRow();
+      errorDescription = transMeta.environmentSubstitute( meta.getErrorDescription() );
+    }
+
+    // Without compare fields the whole row is compared
+    //
+    if ( compareFields == null || compareFields.length == 0 ) {
+      compareFields = rowMeta.getFieldNames();
+      caseInsensitive = null;
+    }
+    boolean[] ascending = new boolean[ compareFields.length ];
+    boolean[] caseSensitive = new boolean[ compareFields.length ];
+    Arrays.fill( ascending, true );
+    for ( int i = 0; i < compareFields.length; i++ ) {
+      caseSensitive[ i ] = caseInsensitive == null || i >= caseInsensitive.length || !caseInsensitive[ i ];
+    }
+
+    RowMetaInterface outputRowMeta = rowMeta.clone();
+    if ( countRows ) {
+      outputRowMeta.addValueMeta( new ValueMetaInteger( countField ) );
+    }
+    String rowMetaJson = JsonRowMeta.toJson( rowMeta );
+    String outputRowMetaJson = JsonRowMeta.toJson( outputRowMeta );
+
+    // Key the rows on the compared fields, case insensitive strings are compared in lower case
+    //
+    PCollection<KV<KettleKey, KettleRow>> keyedRows = input.apply( stepMeta.getName() + " compare key", ParDo.of(
+      new SortKeyFn( rowMetaJson, compareFields, ascending, caseSensitive, stepMeta.getName(), stepPluginClasses, xpPluginClasses ) ) );
+    keyedRows.setCoder( KvCoder.of( KettleKeyCoder.of(), new KettleRowMetaCoder( rowMetaJson ) ) );
+
+    // Duplicates can only be redirected with error handling
+    //
+    StepErrorMeta stepErrorMeta = stepMeta.getStepErrorMeta();
+    boolean redirectDuplicates = rejectDuplicates && stepMeta.isDoingErrorHandling() && stepErrorMeta.getTargetStep() != null;
+    if ( rejectDuplicates && !redirectDuplicates ) {
+      log.logBasic( "Step '" + stepMeta.getName() + "' rejects duplicate rows but has no error handling, the duplicates are removed" );
+    }
+
+    if ( !redirectDuplicates ) {
+      // Keep one row per key with a combine, duplicates are removed within a bundle before the shuffle
+      //
+      PCollection<KV<KettleKey, KettleRow>> uniqueRows = keyedRows.apply( stepMeta.getName() + " unique",
+        Combine.<KettleKey, KettleRow, KettleRow>perKey( new UniqueRowsCombineFn( rowMetaJson, outputRowMetaJson, rowMeta.size(), countRows ) ) );
+      uniqueRows.setCoder( KvCoder.of( KettleKeyCoder.of(), new KettleRowMetaCoder( outputRowMetaJson ) ) );
+
+      PCollection<KettleRow> stepPCollection = uniqueRows.apply( stepMeta.getName(), Values.create() );
+      stepPCollection.setCoder( new KettleRowMetaCoder( outputRowMetaJson ) );
+      stepCollectionMap.put( stepMeta.getName(), stepPCollection );
+
+      log.logBasic( "Handled Unique Rows (STEP) : " + stepMeta.getName() + ", gets data from " + previousSteps.size() + " previous step(s)" );
+      return;
+    }
+
+    // All the rows of a key are grouped to send the duplicates to the error handling target step
+    //
+    RowMetaInterface duplicatesRowMeta = rowMeta.clone();
+    List<Object> errorValueList = new ArrayList<>();
+    addErrorField( duplicatesRowMeta, errorValueList, new ValueMetaInteger( transMeta.environmentSubstitute( stepErrorMeta.getNrErrorsValuename() ) ), 1L );
+    addErrorField( duplicatesRowMeta, errorValueList, new ValueMetaString( transMeta.environmentSubstitute( stepErrorMeta.getErrorDescriptionsValuename() ) ), errorDescription );
+    addErrorField( duplicatesRowMeta, errorValueList, new ValueMetaString( transMeta.environmentSubstitute( stepErrorMeta.getErrorFieldsValuename() ) ), null );
+    addErrorField( duplicatesRowMeta, errorValueList, new ValueMetaString( transMeta.environmentSubstitute( stepErrorMeta.getErrorCodesValuename() ) ), ERROR_CODE_DUPLICATE );
+    Object[] errorValues = errorValueList.toArray();
+
+    PCollection<KV<KettleKey, Iterable<KettleRow>>> groupedRows = keyedRows.apply( stepMeta.getName() + " group", GroupByKey.create() );
+
+    TupleTag<KettleRow> mainTag = new TupleTag<>( KettleBeamUtil.createMainOutputTupleId( stepMeta.getName() ) );
+    String errorTargetName = stepErrorMeta.getTargetStep().getName();
+    TupleTag<KettleRow> duplicatesTag = new TupleTag<>( KettleBeamUtil.createTargetTupleId( stepMeta.getName(), errorTargetName ) );
+    PCollectionTuple tuple = groupedRows.apply( stepMeta.getName(), ParDo.of(
+      new UniqueRowsFn( rowMeta.size(), countRows, errorValues, mainTag, duplicatesTag, stepMeta.getName() )
+    ).withOutputTags( mainTag, TupleTagList.of( duplicatesTag ) ) );
+
+    PCollection<KettleRow> stepPCollection = tuple.get( mainTag );
+    stepPCollection.setCoder( new KettleRowMetaCoder( outputRowMetaJson ) );
+    stepCollectionMap.put( stepMeta.getName(), stepPCollection );
+
+    PCollection<KettleRow> duplicatesPCollection = tuple.get( duplicatesTag );
+    duplicatesPCollection.setCoder( new KettleRowMetaCoder( JsonRowMeta.toJson( duplicatesRowMeta ) ) );
+    stepCollectionMap.put( duplicatesTag.getId(), duplicatesPCollection );
+
+    log.logBasic( "Handled Unique Rows (STEP) : " + stepMeta.getName() + ", gets data from " + previousSteps.size() + " previous step(s), duplicates go to " + errorTargetName );
+  }
+
+  private void addErrorField( RowMetaInterface rowMeta, List<Object> values, ValueMetaInterface valueMeta, Object value ) {
+    if ( StringUtils.isEmpty( valueMeta.getName() ) ) {
+      return;
+    }
+    rowMeta.addValueMeta( valueMeta );
+    values.add( value );
+  }
+}
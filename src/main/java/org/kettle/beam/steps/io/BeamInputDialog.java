@@ -1,6 +1,7 @@
 
 package org.kettle.beam.steps.io;
 
+import org.apache.beam.sdk.io.Compression;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
@@ -45,6 +46,7 @@ public class BeamInputDialog extends BaseStepDialog implements StepDialogInterfa
 
   private TextVar wInputLocation;
   private Combo wFileDefinition;
+  private Combo wCompression;
 
   public BeamInputDialog( Shell parent, Object in, TransMeta transMeta, String sname ) {
     super( parent, (BaseStepMeta) in, transMeta, sname );
@@ -136,6 +138,28 @@ public class BeamInputDialog extends BaseStepDialog implements StepDialogInterfa
     wFileDefinition.setLayoutData( fdFileDefinition );
     lastControl = wFileDefinition;
 
+    // AUTO picks the compression by file extension
+    //
+    Label wlCompression = new Label( shell, SWT.RIGHT );
+    wlCompression.setText( BaseMessages.getString( PKG, "BeamInputDialog.Compression" ) );
+    props.setLook( wlCompression );
+    FormData fdlCompression = new FormData();
+    fdlCompression.left = new FormAttachment( 0, 0 );
+    fdlCompression.top = new FormAttachment( lastControl, margin );
+    fdlCompression.right = new FormAttachment( middle, -margin );
+    wlCompression.setLayoutData( fdlCompression );
+    wCompression = new Combo( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wCompression );
+    for ( Compression compression : Compression.values() ) {
+      wCompression.add( compression.name() );
+    }
+    FormData fdCompression = new FormData();
+    fdCompression.left = new FormAttachment( middle, 0 );
+    fdCompression.top = new FormAttachment( wlCompression, 0, SWT.CENTER );
+    fdCompression.right = new FormAttachment( 100, 0 );
+    wCompression.setLayoutData( fdCompression );
+    lastControl = wCompression;
+
     wOK = new Button( shell, SWT.PUSH );
     wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
 
@@ -198,6 +222,7 @@ public class BeamInputDialog extends BaseStepDialog implements StepDialogInterfa
     wStepname.setText( stepname );
     wFileDefinition.setText(Const.NVL(input.getFileDescriptionName(), ""));
     wInputLocation.setText(Const.NVL(input.getInputLocation(), ""));
+    wCompression.setText(Const.NVL(input.getCompression(), Compression.AUTO.name()));
 
     wStepname.selectAll();
     wStepname.setFocus();
@@ -224,6 +249,7 @@ public class BeamInputDialog extends BaseStepDialog implements StepDialogInterfa
 
     in.setFileDescriptionName( wFileDefinition.getText() );
     in.setInputLocation( wInputLocation.getText() );
+    in.setCompression( wCompression.getText() );
 
     input.setChanged();
   }
@@ -37,11 +37,14 @@ public class BeamInputMeta extends BaseStepMeta implements StepMetaInterface {
 
   public static final String INPUT_LOCATION = "input_location";
   public static final String FILE_DESCRIPTION_NAME = "file_description_name";
+  public static final String COMPRESSION = "compression";
 
   private String inputLocation;
 
   private String fileDescriptionName;
 
+  private String compression;
+
   public BeamInputMeta() {
     super();
   }
@@ -96,6 +99,7 @@ public class BeamInputMeta extends BaseStepMeta implements StepMetaInterface {
 
     xml.append( XMLHandler.addTagValue( INPUT_LOCATION, inputLocation ) );
     xml.append( XMLHandler.addTagValue( FILE_DESCRIPTION_NAME, fileDescriptionName) );
+    xml.append( XMLHandler.addTagValue( COMPRESSION, compression) );
 
     return xml.toString();
   }
@@ -104,6 +108,7 @@ public class BeamInputMeta extends BaseStepMeta implements StepMetaInterface {
 
     inputLocation = XMLHandler.getTagValue( stepnode, INPUT_LOCATION );
     fileDescriptionName = XMLHandler.getTagValue( stepnode, FILE_DESCRIPTION_NAME );
+    compression = XMLHandler.getTagValue( stepnode, COMPRESSION );
 
   }
 
@@ -140,4 +145,20 @@ public class BeamInputMeta extends BaseStepMeta implements StepMetaInterface {
     this.fileDescriptionName = fileDescriptionName;
   }
 
+  /**
+   * Gets compression
+   *
+   * @return value of compression
+   */
+  public String getCompression() {
+    return compression;
+  }
+
+  /**
+   * @param compression The compression to set
+   */
+  public void setCompression( String compression ) {
+    this.compression = compression;
+  }
+
 }
@@ -1,6 +1,7 @@
 
 package org.kettle.beam.steps.io;
 
+import org.apache.beam.sdk.io.Compression;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
@@ -48,6 +49,11 @@ public class BeamOutputDialog extends BaseStepDialog implements StepDialogInterf
   private TextVar wFilePrefix;
   private TextVar wFileSuffix;
   private Button wWindowed;
+  private Combo wCompression;
+  private TextVar wNumberOfShards;
+  private Button wAutoSharding;
+  private TextVar wMaxRecordsPerFile;
+  private TextVar wMaxBytesPerFile;
 
   public BeamOutputDialog( Shell parent, Object in, TransMeta transMeta, String sname ) {
     super( parent, (BaseStepMeta) in, transMeta, sname );
@@ -171,6 +177,74 @@ public class BeamOutputDialog extends BaseStepDialog implements StepDialogInterf
     wWindowed.setLayoutData( fdWindowed );
     lastControl = wWindowed;
 
+    Label wlNumberOfShards = new Label( shell, SWT.RIGHT );
+    wlNumberOfShards.setText( BaseMessages.getString( PKG, "BeamOutputDialog.NumberOfShards" ) );
+    props.setLook( wlNumberOfShards );
+    FormData fdlNumberOfShards = new FormData();
+    fdlNumberOfShards.left = new FormAttachment( 0, 0 );
+    fdlNumberOfShards.top = new FormAttachment( lastControl, margin );
+    fdlNumberOfShards.right = new FormAttachment( middle, -margin );
+    wlNumberOfShards.setLayoutData( fdlNumberOfShards );
+    wNumberOfShards = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wNumberOfShards );
+    FormData fdNumberOfShards = new FormData();
+    fdNumberOfShards.left = new FormAttachment( middle, 0 );
+    fdNumberOfShards.top = new FormAttachment( wlNumberOfShards, 0, SWT.CENTER );
+    fdNumberOfShards.right = new FormAttachment( 100, 0 );
+    wNumberOfShards.setLayoutData( fdNumberOfShards );
+    lastControl = wNumberOfShards;
+
+    Label wlAutoSharding = new Label( shell, SWT.RIGHT );
+    wlAutoSharding.setText( BaseMessages.getString( PKG, "BeamOutputDialog.AutoSharding" ) );
+    props.setLook( wlAutoSharding );
+    FormData fdlAutoSharding = new FormData();
+    fdlAutoSharding.left = new FormAttachment( 0, 0 );
+    fdlAutoSharding.top = new FormAttachment( lastControl, margin );
+    fdlAutoSharding.right = new FormAttachment( middle, -margin );
+    wlAutoSharding.setLayoutData( fdlAutoSharding );
+    wAutoSharding = new Button( shell, SWT.CHECK );
+    props.setLook( wAutoSharding );
+    FormData fdAutoSharding = new FormData();
+    fdAutoSharding.left = new FormAttachment( middle, 0 );
+    fdAutoSharding.top = new FormAttachment( wlAutoSharding, 0, SWT.CENTER );
+    fdAutoSharding.right = new FormAttachment( 100, 0 );
+    wAutoSharding.setLayoutData( fdAutoSharding );
+    lastControl = wAutoSharding;
+
+    Label wlMaxRecordsPerFile = new Label( shell, SWT.RIGHT );
+    wlMaxRecordsPerFile.setText( BaseMessages.getString( PKG, "BeamOutputDialog.MaxRecordsPerFile" ) );
+    props.setLook( wlMaxRecordsPerFile );
+    FormData fdlMaxRecordsPerFile = new FormData();
+    fdlMaxRecordsPerFile.left = new FormAttachment( 0, 0 );
+    fdlMaxRecordsPerFile.top = new FormAttachment( lastControl, margin );
+    fdlMaxRecordsPerFile.right = new FormAttachment( middle, -margin );
+    wlMaxRecordsPerFile.setLayoutData( fdlMaxRecordsPerFile );
+    wMaxRecordsPerFile = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wMaxRecordsPerFile );
+    FormData fdMaxRecordsPerFile = new FormData();
+    fdMaxRecordsPerFile.left = new FormAttachment( middle, 0 );
+    fdMaxRecordsPerFile.top = new FormAttachment( wlMaxRecordsPerFile, 0, SWT.CENTER );
+    fdMaxRecordsPerFile.right = new FormAttachment( 100, 0 );
+    wMaxRecordsPerFile.setLayoutData( fdMaxRecordsPerFile );
+    lastControl = wMaxRecordsPerFile;
+
+    Label wlMaxBytesPerFile = new Label( shell, SWT.RIGHT );
+    wlMaxBytesPerFile.setText( BaseMessages.getString( PKG, "BeamOutputDialog.MaxBytesPerFile" ) );
+    props.setLook( wlMaxBytesPerFile );
+    FormData fdlMaxBytesPerFile = new FormData();
+    fdlMaxBytesPerFile.left = new FormAttachment( 0, 0 );
+    fdlMaxBytesPerFile.top = new FormAttachment( lastControl, margin );
+    fdlMaxBytesPerFile.right = new FormAttachment( middle, -margin );
+    wlMaxBytesPerFile.setLayoutData( fdlMaxBytesPerFile );
+    wMaxBytesPerFile = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wMaxBytesPerFile );
+    FormData fdMaxBytesPerFile = new FormData();
+    fdMaxBytesPerFile.left = new FormAttachment( middle, 0 );
+    fdMaxBytesPerFile.top = new FormAttachment( wlMaxBytesPerFile, 0, SWT.CENTER );
+    fdMaxBytesPerFile.right = new FormAttachment( 100, 0 );
+    wMaxBytesPerFile.setLayoutData( fdMaxBytesPerFile );
+    lastControl = wMaxBytesPerFile;
+
     Label wlFileDefinition = new Label( shell, SWT.RIGHT );
     wlFileDefinition.setText( BaseMessages.getString( PKG, "BeamOutputDialog.FileDefinition" ) );
     props.setLook( wlFileDefinition );
@@ -189,6 +263,30 @@ public class BeamOutputDialog extends BaseStepDialog implements StepDialogInterf
     wFileDefinition.setLayoutData( fdFileDefinition );
     lastControl = wFileDefinition;
 
+    // Automatic detection only makes sense when reading
+    //
+    Label wlCompression = new Label( shell, SWT.RIGHT );
+    wlCompression.setText( BaseMessages.getString( PKG, "BeamOutputDialog.Compression" ) );
+    props.setLook( wlCompression );
+    FormData fdlCompression = new FormData();
+    fdlCompression.left = new FormAttachment( 0, 0 );
+    fdlCompression.top = new FormAttachment( lastControl, margin );
+    fdlCompression.right = new FormAttachment( middle, -margin );
+    wlCompression.setLayoutData( fdlCompression );
+    wCompression = new Combo( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wCompression );
+    for ( Compression compression : Compression.values() ) {
+      if ( compression != Compression.AUTO ) {
+        wCompression.add( compression.name() );
+      }
+    }
+    FormData fdCompression = new FormData();
+    fdCompression.left = new FormAttachment( middle, 0 );
+    fdCompression.top = new FormAttachment( wlCompression, 0, SWT.CENTER );
+    fdCompression.right = new FormAttachment( 100, 0 );
+    wCompression.setLayoutData( fdCompression );
+    lastControl = wCompression;
+
     wOK = new Button( shell, SWT.PUSH );
     wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
 
@@ -223,6 +321,9 @@ public class BeamOutputDialog extends BaseStepDialog implements StepDialogInterf
     wOutputLocation.addSelectionListener( lsDef );
     wFilePrefix.addSelectionListener( lsDef );
     wFileSuffix.addSelectionListener( lsDef );
+    wNumberOfShards.addSelectionListener( lsDef );
+    wMaxRecordsPerFile.addSelectionListener( lsDef );
+    wMaxBytesPerFile.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
     shell.addShellListener( new ShellAdapter() {
@@ -256,6 +357,11 @@ public class BeamOutputDialog extends BaseStepDialog implements StepDialogInterf
     wFilePrefix.setText(Const.NVL(input.getFilePrefix(), ""));
     wFileSuffix.setText(Const.NVL(input.getFileSuffix(), ""));
     wWindowed.setSelection( input.isWindowed() );
+    wNumberOfShards.setText(Const.NVL(input.getNumberOfShards(), ""));
+    wAutoSharding.setSelection( input.isAutoSharding() );
+    wMaxRecordsPerFile.setText(Const.NVL(input.getMaxRecordsPerFile(), ""));
+    wMaxBytesPerFile.setText(Const.NVL(input.getMaxBytesPerFile(), ""));
+    wCompression.setText(Const.NVL(input.getCompression(), Compression.UNCOMPRESSED.name()));
 
     wStepname.selectAll();
     wStepname.setFocus();
@@ -285,6 +391,11 @@ public class BeamOutputDialog extends BaseStepDialog implements StepDialogInterf
     in.setFilePrefix( wFilePrefix.getText() );
     in.setFileSuffix( wFileSuffix.getText() );
     in.setWindowed( wWindowed.getSelection() );
+    in.setNumberOfShards( wNumberOfShards.getText() );
+    in.setAutoSharding( wAutoSharding.getSelection() );
+    in.setMaxRecordsPerFile( wMaxRecordsPerFile.getText() );
+    in.setMaxBytesPerFile( wMaxBytesPerFile.getText() );
+    in.setCompression( wCompression.getText() );
 
     input.setChanged();
   }
@@ -36,6 +36,11 @@ public class BeamOutputMeta extends BaseStepMeta implements StepMetaInterface {
   public static final String FILE_PREFIX = "file_prefix";
   public static final String FILE_SUFFIX = "file_suffix";
   public static final String WINDOWED = "windowed";
+  public static final String COMPRESSION = "compression";
+  public static final String NUMBER_OF_SHARDS = "number_of_shards";
+  public static final String AUTO_SHARDING = "auto_sharding";
+  public static final String MAX_RECORDS_PER_FILE = "max_records_per_file";
+  public static final String MAX_BYTES_PER_FILE = "max_bytes_per_file";
 
 
   private String outputLocation;
@@ -48,6 +53,16 @@ public class BeamOutputMeta extends BaseStepMeta implements StepMetaInterface {
 
   private boolean windowed;
 
+  private String compression;
+
+  private String numberOfShards;
+
+  private boolean autoSharding;
+
+  private String maxRecordsPerFile;
+
+  private String maxBytesPerFile;
+
   @Override public void setDefault() {
   }
 
@@ -87,6 +102,11 @@ public class BeamOutputMeta extends BaseStepMeta implements StepMetaInterface {
     xml.append( XMLHandler.addTagValue( FILE_PREFIX, filePrefix) );
     xml.append( XMLHandler.addTagValue( FILE_SUFFIX, fileSuffix) );
     xml.append( XMLHandler.addTagValue( WINDOWED, windowed) );
+    xml.append( XMLHandler.addTagValue( COMPRESSION, compression) );
+    xml.append( XMLHandler.addTagValue( NUMBER_OF_SHARDS, numberOfShards) );
+    xml.append( XMLHandler.addTagValue( AUTO_SHARDING, autoSharding) );
+    xml.append( XMLHandler.addTagValue( MAX_RECORDS_PER_FILE, maxRecordsPerFile) );
+    xml.append( XMLHandler.addTagValue( MAX_BYTES_PER_FILE, maxBytesPerFile) );
 
     return xml.toString();
   }
@@ -98,6 +118,11 @@ public class BeamOutputMeta extends BaseStepMeta implements StepMetaInterface {
     filePrefix = XMLHandler.getTagValue( stepnode, FILE_PREFIX );
     fileSuffix = XMLHandler.getTagValue( stepnode, FILE_SUFFIX );
     windowed = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, WINDOWED) );
+    compression = XMLHandler.getTagValue( stepnode, COMPRESSION );
+    numberOfShards = XMLHandler.getTagValue( stepnode, NUMBER_OF_SHARDS );
+    autoSharding = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, AUTO_SHARDING) );
+    maxRecordsPerFile = XMLHandler.getTagValue( stepnode, MAX_RECORDS_PER_FILE );
+    maxBytesPerFile = XMLHandler.getTagValue( stepnode, MAX_BYTES_PER_FILE );
 
   }
 
@@ -180,4 +205,84 @@ public class BeamOutputMeta extends BaseStepMeta implements StepMetaInterface {
   public void setWindowed( boolean windowed ) {
     this.windowed = windowed;
   }
+
+  /**
+   * Gets compression
+   *
+   * @return value of compression
+   */
+  public String getCompression() {
+    return compression;
+  }
+
+  /**
+   * @param compression The compression to set
+   */
+  public void setCompression( String compression ) {
+    this.compression = compression;
+  }
+
+  /**
+   * Gets numberOfShards
+   *
+   * @return value of numberOfShards
+   */
+  public String getNumberOfShards() {
+    return numberOfShards;
+  }
+
+  /**
+   * @param numberOfShards The numberOfShards to set
+   */
+  public void setNumberOfShards( String numberOfShards ) {
+    this.numberOfShards = numberOfShards;
+  }
+
+  /**
+   * Gets autoSharding
+   *
+   * @return value of autoSharding
+   */
+  public boolean isAutoSharding() {
+    return autoSharding;
+  }
+
+  /**
+   * @param autoSharding The autoSharding to set
+   */
+  public void setAutoSharding( boolean autoSharding ) {
+    this.autoSharding = autoSharding;
+  }
+
+  /**
+   * Gets maxRecordsPerFile
+   *
+   * @return value of maxRecordsPerFile
+   */
+  public String getMaxRecordsPerFile() {
+    return maxRecordsPerFile;
+  }
+
+  /**
+   * @param maxRecordsPerFile The maxRecordsPerFile to set
+   */
+  public void setMaxRecordsPerFile( String maxRecordsPerFile ) {
+    this.maxRecordsPerFile = maxRecordsPerFile;
+  }
+
+  /**
+   * Gets maxBytesPerFile
+   *
+   * @return value of maxBytesPerFile
+   */
+  public String getMaxBytesPerFile() {
+    return maxBytesPerFile;
+  }
+
+  /**
+   * @param maxBytesPerFile The maxBytesPerFile to set
+   */
+  public void setMaxBytesPerFile( String maxBytesPerFile ) {
+    this.maxBytesPerFile = maxBytesPerFile;
+  }
 }
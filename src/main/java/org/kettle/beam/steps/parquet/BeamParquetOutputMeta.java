@@ -0,0 +1,169 @@
+package org.kettle.beam.steps.parquet;
+
+import org.pentaho.di.core.annotations.Step;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTrans;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransData;
+import org.pentaho.metastore.api.IMetaStore;
+import org.w3c.dom.Node;
+
+import java.util.List;
+
+@Step(
+  id = "BeamParquetOutput",
+  name = "Beam Parquet Output",
+  description = "Writes Parquet files in Beam",
+  image = "beam-output.svg",
+  categoryDescription = "Big Data"
+)
+public class BeamParquetOutputMeta extends BaseStepMeta implements StepMetaInterface {
+
+  public static final String OUTPUT_LOCATION = "output_location";
+  public static final String FILE_PREFIX = "file_prefix";
+  public static final String FILE_SUFFIX = "file_suffix";
+  public static final String COMPRESSION_CODEC = "compression_codec";
+  public static final String ROW_GROUP_SIZE = "row_group_size";
+
+  private String outputLocation;
+  private String filePrefix;
+  private String fileSuffix;
+  private String compressionCodec;
+  private String rowGroupSize;
+
+  @Override public void setDefault() {
+    fileSuffix = ".parquet";
+    compressionCodec = "SNAPPY";
+  }
+
+  @Override public void getFields( RowMetaInterface inputRowMeta, String name, RowMetaInterface[] info, StepMeta nextStep, VariableSpace space, Repository repository, IMetaStore metaStore )
+    throws KettleStepException {
+
+    // This is an endpoint in Beam, produces no further output
+    //
+    inputRowMeta.clear();
+  }
+
+  @Override public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta, Trans trans ) {
+    return new DummyTrans( stepMeta, stepDataInterface, copyNr, transMeta, trans );
+  }
+
+  @Override public StepDataInterface getStepData() {
+    return new DummyTransData();
+  }
+
+  @Override public String getDialogClassName() {
+    return BeamParquetOutputDialog.class.getName();
+  }
+
+  @Override public String getXML() throws KettleException {
+    StringBuffer xml = new StringBuffer();
+    xml.append( XMLHandler.addTagValue( OUTPUT_LOCATION, outputLocation ) );
+    xml.append( XMLHandler.addTagValue( FILE_PREFIX, filePrefix ) );
+    xml.append( XMLHandler.addTagValue( FILE_SUFFIX, fileSuffix ) );
+    xml.append( XMLHandler.addTagValue( COMPRESSION_CODEC, compressionCodec ) );
+    xml.append( XMLHandler.addTagValue( ROW_GROUP_SIZE, rowGroupSize ) );
+    return xml.toString();
+  }
+
+  @Override public void loadXML( Node stepnode, List<DatabaseMeta> databases, IMetaStore metaStore ) throws KettleXMLException {
+    outputLocation = XMLHandler.getTagValue( stepnode, OUTPUT_LOCATION );
+    filePrefix = XMLHandler.getTagValue( stepnode, FILE_PREFIX );
+    fileSuffix = XMLHandler.getTagValue( stepnode, FILE_SUFFIX );
+    compressionCodec = XMLHandler.getTagValue( stepnode, COMPRESSION_CODEC );
+    rowGroupSize = XMLHandler.getTagValue( stepnode, ROW_GROUP_SIZE );
+  }
+
+  /**
+   * Gets outputLocation
+   *
+   * @return value of outputLocation
+   */
+  public String getOutputLocation() {
+    return outputLocation;
+  }
+
+  /**
+   * @param outputLocation The outputLocation to set
+   */
+  public void setOutputLocation( String outputLocation ) {
+    this.outputLocation = outputLocation;
+  }
+
+  /**
+   * Gets filePrefix
+   *
+   * @return value of filePrefix
+   */
+  public String getFilePrefix() {
+    return filePrefix;
+  }
+
+  /**
+   * @param filePrefix The filePrefix to set
+   */
+  public void setFilePrefix( String filePrefix ) {
+    this.filePrefix = filePrefix;
+  }
+
+  /**
+   * Gets fileSuffix
+   *
+   * @return value of fileSuffix
+   */
+  public String getFileSuffix() {
+    return fileSuffix;
+  }
+
+  /**
+   * @param fileSuffix The fileSuffix to set
+   */
+  public void setFileSuffix( String fileSuffix ) {
+    this.fileSuffix = fileSuffix;
+  }
+
+  /**
+   * Gets compressionCodec
+   *
+   * @return value of compressionCodec
+   */
+  public String getCompressionCodec() {
+    return compressionCodec;
+  }
+
+  /**
+   * @param compressionCodec The compressionCodec to set
+   */
+  public void setCompressionCodec( String compressionCodec ) {
+    this.compressionCodec = compressionCodec;
+  }
+
+  /**
+   * Gets rowGroupSize
+   *
+   * @return value of rowGroupSize
+   */
+  public String getRowGroupSize() {
+    return rowGroupSize;
+  }
+
+  /**
+   * @param rowGroupSize The rowGroupSize to set, the size of a row group in bytes
+   */
+  public void setRowGroupSize( String rowGroupSize ) {
+    this.rowGroupSize = rowGroupSize;
+  }
+}
@@ -29,17 +29,31 @@ public class BeamConst {
   public static final String STRING_BEAM_PUBLISH_PLUGIN_ID = "BeamPublish";
   public static final String STRING_MEMORY_GROUP_BY_PLUGIN_ID = "MemoryGroupBy";
   public static final String STRING_MERGE_JOIN_PLUGIN_ID = "MergeJoin";
+  public static final String STRING_STREAM_LOOKUP_PLUGIN_ID = "StreamLookup";
+  public static final String STRING_SORT_ROWS_PLUGIN_ID = "SortRows";
+  public static final String STRING_UNIQUE_ROWS_PLUGIN_ID = "Unique";
+  public static final String STRING_UNIQUE_ROWS_BY_HASHSET_PLUGIN_ID = "UniqueRowsByHashSet";
   public static final String STRING_BEAM_WINDOW_PLUGIN_ID = "BeamWindow";
   public static final String STRING_BEAM_TIMESTAMP_PLUGIN_ID = "BeamTimestamp";
   public static final String STRING_BEAM_BIGQUERY_INPUT_PLUGIN_ID = "BeamBQInput";
   public static final String STRING_BEAM_BIGQUERY_OUTPUT_PLUGIN_ID = "BeamBQOutput";
   public static final String STRING_BEAM_KAFKA_CONSUME_PLUGIN_ID = "BeamKafkaConsume";
   public static final String STRING_BEAM_KAFKA_PRODUCE_PLUGIN_ID = "BeamKafkaProduce";
+  public static final String STRING_BEAM_PARQUET_INPUT_PLUGIN_ID = "BeamParquetInput";
+  public static final String STRING_BEAM_PARQUET_OUTPUT_PLUGIN_ID = "BeamParquetOutput";
+  public static final String STRING_BEAM_AVRO_INPUT_PLUGIN_ID = "BeamAvroInput";
+  public static final String STRING_BEAM_AVRO_OUTPUT_PLUGIN_ID = "BeamAvroOutput";
 
   public static final String STRING_KETTLE_BEAM = "Kettle Beam";
 
   public static final String STRING_STEP_FLAG_BATCH = "Batch";
   public static final String STRING_STEP_FLAG_SINGLE_THREADED = "SingleThreaded";
+  public static final String STRING_STEP_FLAG_BROADCAST = "Broadcast";
+  public static final String STRING_STEP_FLAG_SALT = "Salt";
+  public static final String STRING_STEP_FLAG_BLOOM_FILTER = "BloomFilter";
+
+  public static final String STRING_JOIN_SIDE_LEFT = "left";
+  public static final String STRING_JOIN_SIDE_RIGHT = "right";
 
 
   private static List<String[]> gcpWorkerCodeDescriptions = Arrays.asList(
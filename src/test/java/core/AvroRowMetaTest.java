@@ -0,0 +1,75 @@
+package core;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+import org.kettle.beam.core.util.AvroRowMeta;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class AvroRowMetaTest {
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "first name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "flag" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    return rowMeta;
+  }
+
+  @Test
+  public void roundTripTest() throws KettleException {
+    RowMetaInterface rowMeta = createRowMeta();
+    Schema schema = AvroRowMeta.toSchema( "test", rowMeta );
+    assertNotNull( schema.getField( "first_name" ) );
+
+    Object[] row = new Object[] { "Kettle", 5L, 1.5, new BigDecimal( "123.456" ), Boolean.TRUE, new Date( 1546300800000L ) };
+    GenericRecord record = AvroRowMeta.toRecord( schema, rowMeta, row );
+    Object[] decoded = AvroRowMeta.toRow( rowMeta, record );
+    assertEquals( 0, rowMeta.compare( row, decoded ) );
+
+    Object[] nulls = new Object[ rowMeta.size() ];
+    decoded = AvroRowMeta.toRow( rowMeta, AvroRowMeta.toRecord( schema, rowMeta, nulls ) );
+    assertEquals( 0, rowMeta.compare( nulls, decoded ) );
+  }
+
+  @Test
+  public void projectionTest() throws KettleException {
+    RowMetaInterface rowMeta = createRowMeta();
+    Schema schema = AvroRowMeta.toSchema( "test", rowMeta );
+    Schema projection = AvroRowMeta.toSchema( "test", rowMeta, Arrays.asList( "id" ) );
+    assertEquals( 1, projection.getFields().size() );
+
+    Object[] row = new Object[] { "Kettle", 5L, 1.5, new BigDecimal( "123.456" ), Boolean.TRUE, new Date( 1546300800000L ) };
+    GenericRecord record = AvroRowMeta.toRecord( schema, rowMeta, row );
+
+    // A record with only the projected field
+    //
+    GenericRecord projected = new GenericData.Record( projection );
+    projected.put( "id", record.get( "id" ) );
+
+    Object[] decoded = AvroRowMeta.toRow( rowMeta, projected );
+    assertNull( decoded[ 0 ] );
+    assertEquals( 5L, decoded[ 1 ] );
+    assertNull( decoded[ 2 ] );
+  }
+}
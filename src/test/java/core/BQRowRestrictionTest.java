@@ -0,0 +1,82 @@
+package core;
+
+import org.junit.Test;
+import org.kettle.beam.core.util.BQRowRestriction;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BQRowRestrictionTest {
+
+  @Test
+  public void rowRestrictionTest() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "state" ) );
+
+    Map<String, String> columnNames = new HashMap<>();
+    columnNames.put( "id", "id" );
+    columnNames.put( "name", "customer_name" );
+    columnNames.put( "state", "state" );
+
+    // Null is smaller than any value in Kettle
+    //
+    Condition smaller = new Condition( "id", Condition.FUNC_SMALLER, null, new ValueMetaAndData( "value", 5L ) );
+    assertEquals( "`id` IS NULL OR `id` < 5", BQRowRestriction.toRowRestriction( smaller, rowMeta, columnNames ) );
+
+    // Parts of an AND which can't be translated are left out
+    //
+    Condition and = new Condition();
+    and.addCondition( new Condition( "id", Condition.FUNC_LARGER, null, new ValueMetaAndData( "value", 5L ) ) );
+    and.addCondition( new Condition( "name", Condition.FUNC_EQUAL, null, new ValueMetaAndData( "value", "O'Neil" ) ) );
+    and.addCondition( new Condition( "name", Condition.FUNC_EQUAL, "state", null ) );
+    assertEquals( "(`id` > 5) AND (`customer_name` = 'O\\'Neil')", BQRowRestriction.toRowRestriction( and, rowMeta, columnNames ) );
+
+    // ... but not the parts of an OR
+    //
+    Condition or = new Condition();
+    or.addCondition( new Condition( "id", Condition.FUNC_LARGER, null, new ValueMetaAndData( "value", 5L ) ) );
+    Condition fieldComparison = new Condition( "name", Condition.FUNC_EQUAL, "state", null );
+    fieldComparison.setOperator( Condition.OPERATOR_OR );
+    or.addCondition( fieldComparison );
+    assertNull( BQRowRestriction.toRowRestriction( or, rowMeta, columnNames ) );
+  }
+
+  @Test
+  public void dateRowRestrictionTest() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaDate( "birthdate" ) );
+    Map<String, String> columnNames = new HashMap<>();
+    columnNames.put( "birthdate", "birth_date" );
+
+    Calendar calendar = Calendar.getInstance();
+    calendar.clear();
+    calendar.set( 2020, Calendar.MARCH, 15, 12, 30 );
+
+    // The column can be a DATE or a TIMESTAMP in UTC: whole days with a day of margin
+    //
+    Condition larger = new Condition( "birthdate", Condition.FUNC_LARGER_EQUAL, null, new ValueMetaAndData( "value", calendar.getTime() ) );
+    assertEquals( "`birth_date` >= '2020-03-14'", BQRowRestriction.toRowRestriction( larger, rowMeta, columnNames ) );
+
+    Condition smaller = new Condition( "birthdate", Condition.FUNC_SMALLER, null, new ValueMetaAndData( "value", calendar.getTime() ) );
+    assertEquals( "`birth_date` IS NULL OR `birth_date` < '2020-03-17'", BQRowRestriction.toRowRestriction( smaller, rowMeta, columnNames ) );
+
+    Condition equal = new Condition( "birthdate", Condition.FUNC_EQUAL, null, new ValueMetaAndData( "value", calendar.getTime() ) );
+    assertEquals( "`birth_date` >= '2020-03-14' AND `birth_date` < '2020-03-17'", BQRowRestriction.toRowRestriction( equal, rowMeta, columnNames ) );
+
+    Condition notEqual = new Condition( "birthdate", Condition.FUNC_NOT_EQUAL, null, new ValueMetaAndData( "value", calendar.getTime() ) );
+    assertNull( BQRowRestriction.toRowRestriction( notEqual, rowMeta, columnNames ) );
+  }
+}
@@ -0,0 +1,33 @@
+package core;
+
+import org.junit.Test;
+import org.kettle.beam.core.util.CsvTokenizer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CsvTokenizerTest {
+
+  @Test
+  public void tokenizeTest() {
+    CsvTokenizer tokenizer = new CsvTokenizer( ",", "\"" );
+    String[] fields = new String[ 3 ];
+
+    assertEquals( 3, tokenizer.tokenize( "a,b,", fields ) );
+    assertArrayEquals( new String[] { "a", "b", "" }, fields );
+
+    assertEquals( 3, tokenizer.tokenize( "\"x,y\",\"say \"\"hi\"\"\",z", fields ) );
+    assertArrayEquals( new String[] { "x,y", "say \"hi\"", "z" }, fields );
+
+    // Fields beyond the ones we need are not looked at
+    //
+    assertEquals( 3, tokenizer.tokenize( "1,2,3,4,5", fields ) );
+    assertArrayEquals( new String[] { "1", "2", "3" }, fields );
+
+    // The separator is not a regular expression
+    //
+    tokenizer = new CsvTokenizer( "|", null );
+    assertEquals( 2, tokenizer.tokenize( "a|b", fields ) );
+    assertEquals( "b", fields[ 1 ] );
+  }
+}
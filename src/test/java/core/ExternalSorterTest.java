@@ -0,0 +1,75 @@
+package core;
+
+import org.junit.Test;
+import org.kettle.beam.core.util.ExternalSorter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExternalSorterTest {
+
+  @Test
+  public void sortTest() throws IOException {
+    for ( boolean compress : new boolean[] { false, true } ) {
+      int before = countRunFiles();
+      try ( ExternalSorter sorter = new ExternalSorter( 100, compress ) ) {
+        addRandomEntries( sorter, 1050 );
+        assertEquals( 10, sorter.getNrRuns() );
+        assertEquals( before + 10, countRunFiles() );
+
+        int previous = Integer.MIN_VALUE;
+        int count = 0;
+        Iterator<ExternalSorter.Entry> iterator = sorter.sortedIterator();
+        while ( iterator.hasNext() ) {
+          int key = ByteBuffer.wrap( iterator.next().getKey() ).getInt() ^ Integer.MIN_VALUE;
+          assertTrue( key >= previous );
+          previous = key;
+          count++;
+        }
+        assertEquals( 1050, count );
+      }
+      assertEquals( before, countRunFiles() );
+    }
+  }
+
+  @Test
+  public void closeWhileReadingTest() throws IOException {
+    int before = countRunFiles();
+    ExternalSorter sorter = new ExternalSorter( 10, true );
+    try {
+      addRandomEntries( sorter, 100 );
+      Iterator<ExternalSorter.Entry> iterator = sorter.sortedIterator();
+      for ( int i = 0; i < 5; i++ ) {
+        iterator.next();
+      }
+    } finally {
+      sorter.close();
+    }
+
+    // The runs which were still being read are closed and removed
+    //
+    assertEquals( before, countRunFiles() );
+    assertEquals( 0, sorter.getNrRuns() );
+  }
+
+  private static void addRandomEntries( ExternalSorter sorter, int nrEntries ) throws IOException {
+    Random random = new Random( 42 );
+    for ( int i = 0; i < nrEntries; i++ ) {
+      // Flip the sign bit so the unsigned byte order is the signed integer order
+      //
+      byte[] key = ByteBuffer.allocate( 4 ).putInt( random.nextInt() ^ Integer.MIN_VALUE ).array();
+      sorter.add( key, new byte[] { (byte) i } );
+    }
+  }
+
+  private static int countRunFiles() {
+    File[] files = new File( System.getProperty( "java.io.tmpdir" ) ).listFiles( ( dir, name ) -> name.startsWith( "kettle-beam-sort-" ) );
+    return files == null ? 0 : files.length;
+  }
+}
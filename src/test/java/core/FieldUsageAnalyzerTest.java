@@ -0,0 +1,128 @@
+package core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.pipeline.FieldUsageAnalyzer;
+import org.kettle.beam.util.BeamTransMetaUtil;
+import org.pentaho.di.core.Condition;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.filterrows.FilterRowsMeta;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
+import org.pentaho.metastore.api.IMetaStore;
+import org.pentaho.metastore.stores.memory.MemoryMetaStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FieldUsageAnalyzerTest {
+
+  private IMetaStore metaStore;
+
+  @Before
+  public void setUp() throws Exception {
+    BeamKettle.init( new ArrayList<>(), new ArrayList<>() );
+    metaStore = new MemoryMetaStore();
+  }
+
+  @Test
+  public void groupByTest() throws Exception {
+    TransMeta transMeta = BeamTransMetaUtil.generateBeamGroupByTransMeta( "group-by", "INPUT", "OUTPUT", metaStore );
+
+    FieldUsageAnalyzer analyzer = analyze( transMeta, "INPUT", "Group By", "OUTPUT" );
+
+    // Only the group and subject fields are read, the output reads everything
+    //
+    assertEquals( new HashSet<>( Arrays.asList( "state", "id" ) ), analyzer.getUsedFields( "INPUT" ) );
+    assertNull( analyzer.getUsedFields( "Group By" ) );
+    assertArrayEquals( new int[] { 1, 2, 3, 4, 5, 6, 7, 8 }, analyzer.getUnusedIndexes( transMeta.findStep( "INPUT" ) ) );
+    assertArrayEquals( new int[ 0 ], analyzer.getUnusedIndexes( transMeta.findStep( "Group By" ) ) );
+  }
+
+  @Test
+  public void filterRowsTest() throws Exception {
+    TransMeta transMeta = BeamTransMetaUtil.generateBeamGroupByTransMeta( "filter-group-by", "INPUT", "OUTPUT", metaStore );
+
+    // Filter on name in between the input and the group by
+    //
+    StepMeta inputStepMeta = transMeta.findStep( "INPUT" );
+    StepMeta groupByStepMeta = transMeta.findStep( "Group By" );
+    transMeta.removeTransHop( transMeta.indexOfTransHop( transMeta.findTransHop( inputStepMeta, groupByStepMeta ) ) );
+
+    FilterRowsMeta filter = new FilterRowsMeta();
+    filter.getCondition().setLeftValuename( "name" );
+    filter.getCondition().setFunction( Condition.FUNC_SMALLER );
+    filter.getCondition().setRightExact( new ValueMetaAndData( "value", "k" ) );
+    StepMeta filterStepMeta = new StepMeta( "Filter", filter );
+    transMeta.addStep( filterStepMeta );
+    transMeta.addTransHop( new TransHopMeta( inputStepMeta, filterStepMeta ) );
+    transMeta.addTransHop( new TransHopMeta( filterStepMeta, groupByStepMeta ) );
+
+    FieldUsageAnalyzer analyzer = analyze( transMeta, "INPUT", "Filter", "Group By", "OUTPUT" );
+
+    assertEquals( new HashSet<>( Arrays.asList( "state", "id" ) ), analyzer.getUsedFields( "Filter" ) );
+    assertEquals( new HashSet<>( Arrays.asList( "state", "id", "name" ) ), analyzer.getUsedFields( "INPUT" ) );
+  }
+
+  @Test
+  public void mergeJoinTest() throws Exception {
+    TransMeta transMeta = BeamTransMetaUtil.generateMergeJoinTransMeta( "merge-join", "INPUT", "OUTPUT", metaStore );
+
+    // Sum the population per state after the join
+    //
+    StepMeta mergeJoinStepMeta = transMeta.findStep( "Merge Join" );
+    StepMeta outputStepMeta = transMeta.findStep( "OUTPUT" );
+    transMeta.removeTransHop( transMeta.indexOfTransHop( transMeta.findTransHop( mergeJoinStepMeta, outputStepMeta ) ) );
+
+    MemoryGroupByMeta memoryGroupByMeta = new MemoryGroupByMeta();
+    memoryGroupByMeta.allocate( 1, 1 );
+    memoryGroupByMeta.getGroupField()[ 0 ] = "state";
+    memoryGroupByMeta.getAggregateField()[ 0 ] = "totalPopulation";
+    memoryGroupByMeta.getSubjectField()[ 0 ] = "population";
+    memoryGroupByMeta.getAggregateType()[ 0 ] = MemoryGroupByMeta.TYPE_GROUP_SUM;
+    StepMeta groupByStepMeta = new StepMeta( "Group By", memoryGroupByMeta );
+    transMeta.addStep( groupByStepMeta );
+    transMeta.addTransHop( new TransHopMeta( mergeJoinStepMeta, groupByStepMeta ) );
+    transMeta.addTransHop( new TransHopMeta( groupByStepMeta, outputStepMeta ) );
+
+    FieldUsageAnalyzer analyzer = analyze( transMeta, "INPUT Left", "INPUT Right", "Merge Join", "Group By", "OUTPUT" );
+
+    // The right state field is renamed to state_1 in the join output but it's still read as a join key
+    //
+    assertEquals( new HashSet<>( Arrays.asList( "state" ) ), analyzer.getUsedFields( "INPUT Left" ) );
+    assertEquals( new HashSet<>( Arrays.asList( "state", "population" ) ), analyzer.getUsedFields( "INPUT Right" ) );
+    assertArrayEquals( new int[ 0 ], analyzer.getUnusedIndexes( transMeta.findStep( "INPUT Right" ) ) );
+  }
+
+  @Test
+  public void unknownStepTest() throws Exception {
+    TransMeta transMeta = BeamTransMetaUtil.generateFilterRowsTransMeta( "filter", "INPUT", "OUTPUT", metaStore );
+
+    FieldUsageAnalyzer analyzer = analyze( transMeta, "INPUT", "Filter", "A", "B", "Flatten", "OUTPUT" );
+
+    // The Add Constants steps A and B aren't known so they read all fields, and so does everything upstream
+    //
+    assertNull( analyzer.getUsedFields( "Filter" ) );
+    assertNull( analyzer.getUsedFields( "INPUT" ) );
+    assertArrayEquals( new int[ 0 ], analyzer.getUnusedIndexes( transMeta.findStep( "INPUT" ) ) );
+  }
+
+  private static FieldUsageAnalyzer analyze( TransMeta transMeta, String... sortedStepnames ) throws Exception {
+    List<StepMeta> sortedSteps = new ArrayList<>();
+    for ( String stepname : sortedStepnames ) {
+      sortedSteps.add( transMeta.findStep( stepname ) );
+    }
+    FieldUsageAnalyzer analyzer = new FieldUsageAnalyzer( transMeta );
+    analyzer.analyze( sortedSteps );
+    return analyzer;
+  }
+}
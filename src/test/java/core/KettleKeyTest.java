@@ -0,0 +1,119 @@
+package core;
+
+import org.junit.Test;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.util.KettleKeyEncoder;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KettleKeyTest {
+
+  @Test
+  public void canonicalTest() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+
+    KettleKey key1 = KettleKeyEncoder.encodeKey( rowMeta, new Object[] { Double.valueOf( 0.0 ), new BigDecimal( "1.0" ) } );
+    KettleKey key2 = KettleKeyEncoder.encodeKey( rowMeta, new Object[] { Double.valueOf( -0.0 ), new BigDecimal( "1.00" ) } );
+    assertEquals( key1, key2 );
+    assertEquals( key1.hashCode(), key2.hashCode() );
+  }
+
+  @Test
+  public void sortOrderTest() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+
+    Object[][] sortedRows = new Object[][] {
+      { null, Long.valueOf( 1 ), Double.valueOf( 1.0 ), BigDecimal.ONE },
+      { "AAA", Long.valueOf( -100 ), Double.valueOf( -2.5 ), new BigDecimal( "-12.5" ) },
+      { "AAA", Long.valueOf( -100 ), Double.valueOf( -2.5 ), new BigDecimal( "-12" ) },
+      { "AAA", Long.valueOf( -100 ), Double.valueOf( -2.5 ), new BigDecimal( "-1.5" ) },
+      { "AAA", Long.valueOf( -100 ), Double.valueOf( 0.0 ), BigDecimal.ZERO },
+      { "AAA", Long.valueOf( -100 ), Double.valueOf( 0.5 ), new BigDecimal( "0.05" ) },
+      { "AAA", Long.valueOf( -100 ), Double.valueOf( 0.5 ), new BigDecimal( "1.5" ) },
+      { "AAA", Long.valueOf( -100 ), Double.valueOf( 0.5 ), new BigDecimal( "12" ) },
+      { "AAA", Long.valueOf( 0 ), null, null },
+      { "AAA", Long.valueOf( 100 ), null, null },
+      { "AAAB", null, null, null },
+      { "AB", null, null, null },
+    };
+
+    KettleKey previous = null;
+    for ( Object[] row : sortedRows ) {
+      KettleKey key = KettleKeyEncoder.encodeKey( rowMeta, row );
+      if ( previous != null ) {
+        assertTrue( "Key of row " + rowMeta.getString( row ) + " should sort after the previous one", previous.compareTo( key ) < 0 );
+      }
+      previous = key;
+
+      // Round trip
+      //
+      Object[] decoded = KettleKeyEncoder.decodeKey( rowMeta, key );
+      assertEquals( 0, rowMeta.compare( row, decoded ) );
+    }
+  }
+
+  @Test
+  public void sortKeyTest() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+
+    // name ascending case insensitive, id descending
+    //
+    int[] indexes = new int[] { 0, 1 };
+    boolean[] ascending = new boolean[] { true, false };
+    boolean[] caseSensitive = new boolean[] { false, true };
+
+    Object[][] sortedRows = new Object[][] {
+      { null, Long.valueOf( 5 ) },
+      { "aaa", Long.valueOf( 100 ) },
+      { "AAA", Long.valueOf( 0 ) },
+      { "aaa", null },
+      { "AAAB", Long.valueOf( 1 ) },
+      { "b", Long.valueOf( -1 ) },
+    };
+
+    KettleKey previous = null;
+    for ( Object[] row : sortedRows ) {
+      KettleKey key = KettleKeyEncoder.encodeSortKey( rowMeta, row, indexes, ascending, caseSensitive );
+      if ( previous != null ) {
+        assertTrue( "Sort key of row " + rowMeta.getString( row ) + " should sort after the previous one", previous.compareTo( key ) < 0 );
+      }
+      previous = key;
+    }
+
+    assertEquals(
+      KettleKeyEncoder.encodeSortKey( rowMeta, new Object[] { "Abc", Long.valueOf( 1 ) }, indexes, ascending, caseSensitive ),
+      KettleKeyEncoder.encodeSortKey( rowMeta, new Object[] { "aBC", Long.valueOf( 1 ) }, indexes, ascending, caseSensitive ) );
+  }
+
+  @Test
+  public void indexesTest() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+
+    RowMetaInterface keyRowMeta = new RowMeta();
+    keyRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+
+    KettleKey key = KettleKeyEncoder.encodeKey( rowMeta, new Object[] { "AAA", Long.valueOf( 5 ) }, new int[] { 1 } );
+    assertArrayEquals( KettleKeyEncoder.encodeKey( keyRowMeta, new Object[] { Long.valueOf( 5 ) } ).getBytes(), key.getBytes() );
+  }
+}
@@ -0,0 +1,72 @@
+package core;
+
+import org.apache.beam.sdk.transforms.DoFnTester;
+import org.junit.Test;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.fn.KettleToStringFn;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class KettleToStringFnTest {
+
+  @Test
+  public void fastFormatTest() throws Exception {
+    BeamKettle.init( new ArrayList<>(), new ArrayList<>() );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) ); // fast
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) ); // fast
+    rowMeta.addValueMeta( new ValueMetaString( "city" ) ); // fast
+    ValueMetaInteger masked = new ValueMetaInteger( "population" );
+    masked.setConversionMask( "#,##0" );
+    rowMeta.addValueMeta( masked ); // value metadata
+    rowMeta.addValueMeta( new ValueMetaNumber( "ratio" ) ); // value metadata
+
+    List<KettleRow> rows = new ArrayList<>();
+    rows.add( new KettleRow( new Object[] { "Smith", 1L, " Springfield ", 1234567L, 0.5 } ) );
+    rows.add( new KettleRow( new Object[] { "O\"Neil; Jr", -42L, "Boston", 0L, -1.25 } ) );
+    rows.add( new KettleRow( new Object[] { null, null, null, null, null } ) );
+    rows.add( new KettleRow( new Object[] { "", Long.MIN_VALUE, "", Long.MAX_VALUE, 0.0 } ) );
+
+    String rowMetaJson = JsonRowMeta.toJson( rowMeta );
+    DoFnTester<KettleRow, String> tester = DoFnTester.of(
+      new KettleToStringFn( "toString", "/tmp", ";", "\"", rowMetaJson, new ArrayList<>(), new ArrayList<>() ) );
+    List<String> lines = tester.processBundle( rows );
+
+    // Every line is the same as the one formatted with the value metadata the step gets
+    //
+    RowMetaInterface stepRowMeta = JsonRowMeta.fromJson( rowMetaJson );
+    assertEquals( rows.size(), lines.size() );
+    for ( int r = 0; r < rows.size(); r++ ) {
+      assertEquals( expectedLine( stepRowMeta, rows.get( r ).getRow(), ";", "\"" ), lines.get( r ) );
+    }
+  }
+
+  private static String expectedLine( RowMetaInterface rowMeta, Object[] row, String separator, String enclosure ) throws Exception {
+    StringBuilder line = new StringBuilder();
+    for ( int i = 0; i < rowMeta.size(); i++ ) {
+      if ( i > 0 ) {
+        line.append( separator );
+      }
+      String valueString = rowMeta.getString( row, i );
+      if ( valueString != null ) {
+        if ( valueString.contains( enclosure ) ) {
+          line.append( enclosure ).append( valueString ).append( enclosure );
+        } else {
+          line.append( valueString );
+        }
+      }
+    }
+    return line.toString();
+  }
+}
@@ -0,0 +1,37 @@
+package core;
+
+import org.apache.beam.sdk.transforms.DoFnTester;
+import org.junit.Test;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.fn.ProjectFieldsFn;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ProjectFieldsFnTest {
+
+  @Test
+  public void projectFieldsTest() throws Exception {
+    Object[] row = new Object[] { 1L, "name", "firstname", "state" };
+    KettleRow input = new KettleRow( row );
+
+    DoFnTester<KettleRow, KettleRow> tester = DoFnTester.of( new ProjectFieldsFn( new int[] { 1, 2 }, "project" ) );
+    List<KettleRow> output = tester.processBundle( input, new KettleRow( null ) );
+    assertEquals( 2, output.size() );
+
+    // The unused fields are cleared, the layout stays the same
+    //
+    assertArrayEquals( new Object[] { 1L, null, null, "state" }, output.get( 0 ).getRow() );
+
+    // The input row isn't modified
+    //
+    assertArrayEquals( new Object[] { 1L, "name", "firstname", "state" }, input.getRow() );
+
+    // A row without data passes as is
+    //
+    assertNull( output.get( 1 ).getRow() );
+  }
+}
@@ -0,0 +1,74 @@
+package core;
+
+import org.junit.Test;
+import org.kettle.beam.core.fn.ShardCountCombineFn;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class ShardCountCombineFnTest {
+
+  @Test
+  public void recordLimitTest() {
+    ShardCountCombineFn combineFn = new ShardCountCombineFn( 10, -1 );
+    assertEquals( Integer.valueOf( 1 ), combineFn.extractOutput( add( combineFn, "line", 0 ) ) );
+    assertEquals( Integer.valueOf( 1 ), combineFn.extractOutput( add( combineFn, "line", 10 ) ) );
+    assertEquals( Integer.valueOf( 3 ), combineFn.extractOutput( add( combineFn, "line", 25 ) ) );
+
+    // No maximum at all: a single file
+    //
+    ShardCountCombineFn unlimited = new ShardCountCombineFn( 0, 0 );
+    assertEquals( Integer.valueOf( 1 ), unlimited.extractOutput( add( unlimited, "line", 1000 ) ) );
+  }
+
+  @Test
+  public void byteLimitTest() {
+
+    // ASCII, 2 byte, 3 byte and 4 byte (surrogate pair) characters
+    //
+    String line = "abc\u00e9\u20ac\ud83d\ude00";
+    long lineBytes = line.getBytes( StandardCharsets.UTF_8 ).length + 1; // The newline
+    assertEquals( 13L, lineBytes );
+
+    ShardCountCombineFn combineFn = new ShardCountCombineFn( -1, lineBytes * 10 );
+    assertEquals( Integer.valueOf( 1 ), combineFn.extractOutput( add( combineFn, line, 10 ) ) );
+    assertEquals( Integer.valueOf( 2 ), combineFn.extractOutput( add( combineFn, line, 11 ) ) );
+
+    // The highest number of files wins
+    //
+    ShardCountCombineFn bothLimits = new ShardCountCombineFn( 5, lineBytes * 10 );
+    assertEquals( Integer.valueOf( 4 ), bothLimits.extractOutput( add( bothLimits, line, 20 ) ) );
+  }
+
+  @Test
+  public void accumulatorCoderTest() throws IOException {
+    ShardCountCombineFn combineFn = new ShardCountCombineFn( 100, 1000 );
+    ShardCountCombineFn.Accumulator accumulator = combineFn.mergeAccumulators( Arrays.asList(
+      add( combineFn, "first", 150 ),
+      add( combineFn, "second", 300 )
+    ) );
+
+    ShardCountCombineFn.AccumulatorCoder coder = new ShardCountCombineFn.AccumulatorCoder();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    coder.encode( accumulator, out );
+    ShardCountCombineFn.Accumulator copy = coder.decode( new ByteArrayInputStream( out.toByteArray() ) );
+
+    // 450 records, 150*6 + 300*7 = 3000 bytes
+    //
+    assertEquals( Integer.valueOf( 5 ), combineFn.extractOutput( accumulator ) );
+    assertEquals( combineFn.extractOutput( accumulator ), combineFn.extractOutput( copy ) );
+  }
+
+  private static ShardCountCombineFn.Accumulator add( ShardCountCombineFn combineFn, String line, int count ) {
+    ShardCountCombineFn.Accumulator accumulator = combineFn.createAccumulator();
+    for ( int i = 0; i < count; i++ ) {
+      accumulator = combineFn.addInput( accumulator, line );
+    }
+    return accumulator;
+  }
+}
@@ -0,0 +1,51 @@
+package core;
+
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.joda.time.Instant;
+import org.junit.Test;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleRowCoder;
+import org.kettle.beam.core.util.SideInputCache;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SideInputCacheTest {
+
+  @Test
+  public void cachedRowsTest() {
+    SideInputCache.clear();
+
+    PCollectionView<List<KettleRow>> view = Pipeline.create().apply( Create.empty( new KettleRowCoder() ) ).apply( View.asList() );
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "state" ) );
+    IntervalWindow window = new IntervalWindow( new Instant( 0L ), new Instant( 1000L ) );
+
+    // A timer of a step which didn't read the side input on this worker has nothing to work with
+    //
+    assertNull( SideInputCache.getCachedRows( view, window ) );
+
+    List<Object[]> rows = SideInputCache.getRows( view, window, rowMeta, () -> Arrays.asList( new KettleRow( new Object[] { "Alabama" } ) ) );
+    assertEquals( 1, rows.size() );
+    assertSame( rows, SideInputCache.getCachedRows( view, window ) );
+    assertNull( SideInputCache.getCachedRows( view, new IntervalWindow( new Instant( 1000L ), new Instant( 2000L ) ) ) );
+
+    // Reading a later window evicts the closed one
+    //
+    SideInputCache.getRows( view, new IntervalWindow( new Instant( 2000L ), new Instant( 3000L ) ), rowMeta, () -> Arrays.asList( new KettleRow( new Object[] { "Alaska" } ) ) );
+    assertNull( SideInputCache.getCachedRows( view, window ) );
+
+    SideInputCache.clear();
+  }
+}
@@ -0,0 +1,124 @@
+package core;
+
+import org.junit.Test;
+import org.kettle.beam.core.util.BloomFilter;
+import org.kettle.beam.core.util.HyperLogLog;
+import org.kettle.beam.core.util.QuantileSketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SketchTest {
+
+  @Test
+  public void hyperLogLogTest() throws IOException {
+    HyperLogLog small = new HyperLogLog();
+    for ( int i = 0; i < 100; i++ ) {
+      small.add( HyperLogLog.hashString( "value" + ( i % 50 ) ) );
+    }
+    assertEquals( 50L, small.estimate() );
+
+    // Two halves merged, with an overlap
+    //
+    HyperLogLog first = new HyperLogLog();
+    HyperLogLog second = new HyperLogLog();
+    for ( long i = 0; i < 60000; i++ ) {
+      first.add( HyperLogLog.hashLong( i ) );
+    }
+    for ( long i = 40000; i < 100000; i++ ) {
+      second.add( HyperLogLog.hashLong( i ) );
+    }
+    first.merge( second );
+    assertEquals( 100000.0, first.estimate(), 100000.0 * 0.05 );
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    first.write( new DataOutputStream( out ) );
+    HyperLogLog copy = HyperLogLog.read( new DataInputStream( new ByteArrayInputStream( out.toByteArray() ) ) );
+    assertEquals( first.estimate(), copy.estimate() );
+  }
+
+  @Test
+  public void quantileSketchTest() throws IOException {
+    QuantileSketch first = new QuantileSketch();
+    QuantileSketch second = new QuantileSketch();
+    for ( int i = 0; i < 50000; i++ ) {
+      first.add( i );
+      second.add( 50000 + i );
+    }
+    first.merge( second );
+    assertEquals( 100000L, first.getCount() );
+
+    // The rank error is well under 5%
+    //
+    assertEquals( 50000.0, first.getQuantile( 0.5 ), 5000.0 );
+    assertEquals( 95000.0, first.getQuantile( 0.95 ), 5000.0 );
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    first.write( new DataOutputStream( out ) );
+    QuantileSketch copy = QuantileSketch.read( new DataInputStream( new ByteArrayInputStream( out.toByteArray() ) ) );
+    assertEquals( first.getQuantile( 0.5 ), copy.getQuantile( 0.5 ) );
+  }
+
+  @Test
+  public void quantileSketchSizeTest() throws IOException {
+    QuantileSketch sketch = new QuantileSketch();
+    int previousSize = 0;
+    for ( int n = 1; n <= 1000000; n++ ) {
+      sketch.add( n );
+      if ( n == 100000 ) {
+        previousSize = serializedSize( sketch );
+      }
+    }
+
+    // Only a level is added when the number of values doubles, the size stays logarithmic
+    //
+    int size = serializedSize( sketch );
+    assertTrue( "Sketch of 1M values takes " + size + " bytes", size < 32 * 1024 );
+    assertTrue( "Sketch grew from " + previousSize + " to " + size + " bytes", size < previousSize * 2 );
+    assertEquals( 500000.0, sketch.getQuantile( 0.5 ), 50000.0 );
+  }
+
+  @Test
+  public void bloomFilterTest() {
+    BloomFilter bloomFilter = new BloomFilter( 10000, 0.01 );
+    for ( long i = 0; i < 10000; i++ ) {
+      bloomFilter.add( HyperLogLog.hashLong( i ) );
+    }
+
+    // No false negatives
+    //
+    for ( long i = 0; i < 10000; i++ ) {
+      assertTrue( bloomFilter.mightContain( HyperLogLog.hashLong( i ) ) );
+    }
+
+    // The false positive rate is close to the target
+    //
+    int falsePositives = 0;
+    for ( long i = 10000; i < 110000; i++ ) {
+      if ( bloomFilter.mightContain( HyperLogLog.hashLong( i ) ) ) {
+        falsePositives++;
+      }
+    }
+    assertEquals( 0.01, falsePositives / 100000.0, 0.005 );
+
+    // Merged filters contain the keys of both
+    //
+    BloomFilter other = new BloomFilter( 10000, 0.01 );
+    other.add( HyperLogLog.hashString( "other" ) );
+    bloomFilter.merge( other );
+    assertTrue( bloomFilter.mightContain( HyperLogLog.hashString( "other" ) ) );
+    assertTrue( bloomFilter.mightContain( HyperLogLog.hashLong( 0L ) ) );
+  }
+
+  private static int serializedSize( QuantileSketch sketch ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    sketch.write( new DataOutputStream( out ) );
+    return out.size();
+  }
+}
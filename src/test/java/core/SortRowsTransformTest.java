@@ -0,0 +1,161 @@
+package core;
+
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.ListCoder;
+import org.apache.beam.sdk.transforms.ApproximateQuantiles;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.DoFnTester;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.junit.Test;
+import org.kettle.beam.core.BeamKettle;
+import org.kettle.beam.core.KettleKey;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleKeyCoder;
+import org.kettle.beam.core.fn.RangePartitionFn;
+import org.kettle.beam.core.fn.SortKeyFn;
+import org.kettle.beam.core.fn.SortRangeFn;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The functions of the SortRowsTransform one after the other: sort keys, quantiles, range partitioning and sorting every range.
+ */
+public class SortRowsTransformTest {
+
+  private static final int NR_RANGES = 4;
+  private static final int MAX_ROWS_IN_MEMORY = 3;
+
+  @Test
+  public void sortRangesTest() throws Exception {
+    List<KettleRow> rows = createRows();
+
+    // Sort on the state (ascending) and the id (descending)
+    //
+    List<Object[]> sortedRows = sortRows( rows, new String[] { "state", "id" }, new boolean[] { true, false }, false );
+
+    List<Object[]> expectedRows = new ArrayList<>();
+    for ( KettleRow row : rows ) {
+      expectedRows.add( row.getRow() );
+    }
+    expectedRows.sort( ( a, b ) -> {
+      int cmp = ( (String) a[ 0 ] ).compareTo( (String) b[ 0 ] );
+      return cmp != 0 ? cmp : Long.compare( (Long) b[ 1 ], (Long) a[ 1 ] );
+    } );
+
+    assertEquals( expectedRows.size(), sortedRows.size() );
+    for ( int i = 0; i < expectedRows.size(); i++ ) {
+      assertArrayEquals( expectedRows.get( i ), sortedRows.get( i ) );
+    }
+  }
+
+  @Test
+  public void uniqueRowsTest() throws Exception {
+
+    // Only the first row of every state
+    //
+    List<Object[]> sortedRows = sortRows( createRows(), new String[] { "state" }, new boolean[] { true }, true );
+
+    assertEquals( 6, sortedRows.size() );
+    for ( int i = 0; i < sortedRows.size(); i++ ) {
+      assertEquals( "state" + i, sortedRows.get( i )[ 0 ] );
+    }
+  }
+
+  /**
+   * @return 60 rows of 6 states, 10 rows each, in no particular order
+   */
+  private List<KettleRow> createRows() {
+    List<KettleRow> rows = new ArrayList<>();
+    for ( int i = 0; i < 60; i++ ) {
+      long id = ( i * 37L ) % 60;
+      rows.add( new KettleRow( new Object[] { "state" + ( id % 6 ), id } ) );
+    }
+    return rows;
+  }
+
+  /**
+   * Sort the rows in ranges, check the ranges and return the sorted rows of all the ranges in the order of the ranges.
+   */
+  private List<Object[]> sortRows( List<KettleRow> rows, String[] sortFields, boolean[] ascending, boolean onlyUnique ) throws Exception {
+    BeamKettle.init( new ArrayList<>(), new ArrayList<>() );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "state" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    String rowMetaJson = JsonRowMeta.toJson( rowMeta );
+
+    boolean[] caseSensitive = new boolean[ sortFields.length ];
+    Arrays.fill( caseSensitive, true );
+    DoFnTester<KettleRow, KV<KettleKey, KettleRow>> sortKeyTester = DoFnTester.of(
+      new SortKeyFn( rowMetaJson, sortFields, ascending, caseSensitive, "sort", new ArrayList<>(), new ArrayList<>() ) );
+    List<KV<KettleKey, KettleRow>> keyedRows = sortKeyTester.processBundle( rows );
+
+    // The quantiles of all the keys, no sampling
+    //
+    List<KettleKey> keys = new ArrayList<>();
+    for ( KV<KettleKey, KettleRow> keyedRow : keyedRows ) {
+      keys.add( keyedRow.getKey() );
+    }
+    List<KettleKey> quantiles = ApproximateQuantiles.ApproximateQuantilesCombineFn.<KettleKey>create( NR_RANGES + 1 ).apply( keys );
+
+    PCollectionView<List<List<KettleKey>>> quantilesView = Pipeline.create().apply( Create.empty( ListCoder.of( KettleKeyCoder.of() ) ) ).apply( View.asList() );
+    DoFnTester<KV<KettleKey, KettleRow>, KV<Integer, KV<KettleKey, KettleRow>>> rangeTester = DoFnTester.of( new RangePartitionFn( quantilesView ) );
+    rangeTester.setSideInput( quantilesView, GlobalWindow.INSTANCE, Collections.singletonList( quantiles ) );
+
+    Map<Integer, List<KV<KettleKey, KettleRow>>> ranges = new TreeMap<>();
+    for ( KV<Integer, KV<KettleKey, KettleRow>> rangeRow : rangeTester.processBundle( keyedRows ) ) {
+      ranges.computeIfAbsent( rangeRow.getKey(), range -> new ArrayList<>() ).add( rangeRow.getValue() );
+    }
+    assertTrue( ranges.size() > 1 );
+
+    // Range i only has keys below the keys of range i+1
+    //
+    KettleKey previousHighestKey = null;
+    for ( List<KV<KettleKey, KettleRow>> rangeRows : ranges.values() ) {
+      KettleKey lowestKey = null;
+      KettleKey highestKey = null;
+      for ( KV<KettleKey, KettleRow> rangeRow : rangeRows ) {
+        if ( lowestKey == null || rangeRow.getKey().compareTo( lowestKey ) < 0 ) {
+          lowestKey = rangeRow.getKey();
+        }
+        if ( highestKey == null || rangeRow.getKey().compareTo( highestKey ) > 0 ) {
+          highestKey = rangeRow.getKey();
+        }
+      }
+      if ( previousHighestKey != null ) {
+        assertTrue( previousHighestKey.compareTo( lowestKey ) < 0 );
+      }
+      previousHighestKey = highestKey;
+    }
+
+    // Sort every range with only a few rows in memory: the sorted runs spilled to disk are merged
+    //
+    List<Object[]> sortedRows = new ArrayList<>();
+    for ( Map.Entry<Integer, List<KV<KettleKey, KettleRow>>> range : ranges.entrySet() ) {
+      DoFnTester<KV<Integer, Iterable<KV<KettleKey, KettleRow>>>, KettleRow> sortRangeTester = DoFnTester.of(
+        new SortRangeFn( rowMetaJson, MAX_ROWS_IN_MEMORY, false, onlyUnique, "sort" ) );
+      Iterable<KV<KettleKey, KettleRow>> rangeRows = range.getValue();
+      for ( KettleRow sortedRow : sortRangeTester.processBundle( Collections.singletonList( KV.of( range.getKey(), rangeRows ) ) ) ) {
+        sortedRows.add( sortedRow.getRow() );
+      }
+    }
+    return sortedRows;
+  }
+}
@@ -0,0 +1,47 @@
+package core.coder;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.kettle.beam.core.coder.BloomFilterCoder;
+import org.kettle.beam.core.util.BloomFilter;
+import org.kettle.beam.core.util.HyperLogLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class BloomFilterCoderTest extends TestCase {
+
+  @Test
+  public void testEncode() throws IOException {
+    BloomFilter bloomFilter = new BloomFilter( 1000, 0.01 );
+    for ( long i = 0; i < 1000; i++ ) {
+      bloomFilter.add( HyperLogLog.hashLong( i * 7 ) );
+    }
+
+    BloomFilter copy = roundTrip( bloomFilter );
+    assertEquals( bloomFilter.getNrHashes(), copy.getNrHashes() );
+    assertEquals( bloomFilter.getNrBits(), copy.getNrBits() );
+    for ( long i = 0; i < 10000; i++ ) {
+      long hash = HyperLogLog.hashLong( i );
+      assertEquals( bloomFilter.mightContain( hash ), copy.mightContain( hash ) );
+    }
+  }
+
+  @Test
+  public void testEncodeEmpty() throws IOException {
+
+    // Runs of empty words are written as a count
+    //
+    BloomFilter bloomFilter = new BloomFilter( 100000, 0.01 );
+    BloomFilter copy = roundTrip( bloomFilter );
+    assertEquals( bloomFilter.getNrBits(), copy.getNrBits() );
+    assertFalse( copy.mightContain( HyperLogLog.hashLong( 42L ) ) );
+  }
+
+  private BloomFilter roundTrip( BloomFilter bloomFilter ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BloomFilterCoder.of().encode( bloomFilter, out );
+    return BloomFilterCoder.of().decode( new ByteArrayInputStream( out.toByteArray() ) );
+  }
+}
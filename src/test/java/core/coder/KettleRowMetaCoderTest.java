@@ -0,0 +1,83 @@
+package core.coder;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.kettle.beam.core.KettleRow;
+import org.kettle.beam.core.coder.KettleRowCoder;
+import org.kettle.beam.core.coder.KettleRowMetaCoder;
+import org.kettle.beam.core.util.JsonRowMeta;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Date;
+
+public class KettleRowMetaCoderTest extends TestCase {
+
+  private KettleRowMetaCoder kettleRowMetaCoder;
+
+  @Override protected void setUp() throws Exception {
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "city" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "updated" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "flag" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "total" ) );
+
+    kettleRowMetaCoder = new KettleRowMetaCoder( JsonRowMeta.toJson( rowMeta ) );
+  }
+
+  @Test
+  public void testEncode() throws IOException {
+
+    KettleRow row1 = new KettleRow( new Object[] { "AAA", "BBB", Long.valueOf( -100 ), Double.valueOf( 1.234 ), new Date( 876876868 ), Boolean.TRUE, new BigDecimal( "-12345.6789" ) } );
+    assertEquals( row1, roundTrip( kettleRowMetaCoder, row1 ) );
+  }
+
+  @Test
+  public void testEncodeNulls() throws IOException {
+
+    // Over-allocated rows keep their length
+    //
+    KettleRow row1 = new KettleRow( new Object[] { "AAA", null, Long.valueOf( 100 ), null, null, Boolean.FALSE, null, null, null } );
+    assertEquals( row1, roundTrip( kettleRowMetaCoder, row1 ) );
+
+    KettleRow nullRow = new KettleRow( null );
+    assertEquals( nullRow, roundTrip( kettleRowMetaCoder, nullRow ) );
+  }
+
+  @Test
+  public void testSmallerThanGenericCoder() throws IOException {
+
+    KettleRow row1 = new KettleRow( new Object[] { "AAA", "BBB", Long.valueOf( 100 ), Double.valueOf( 1.234 ), new Date( 876876868 ), null, null } );
+
+    int compactSize = encode( kettleRowMetaCoder, row1 ).length;
+    int genericSize = encode( new KettleRowCoder(), row1 ).length;
+
+    assertTrue( "Compact encoding of " + compactSize + " bytes should be smaller than " + genericSize, compactSize * 2 < genericSize );
+  }
+
+  private static byte[] encode( org.apache.beam.sdk.coders.Coder<KettleRow> coder, KettleRow row ) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    coder.encode( row, outputStream );
+    outputStream.flush();
+    outputStream.close();
+    return outputStream.toByteArray();
+  }
+
+  private static KettleRow roundTrip( org.apache.beam.sdk.coders.Coder<KettleRow> coder, KettleRow row ) throws IOException {
+    return coder.decode( new ByteArrayInputStream( encode( coder, row ) ) );
+  }
+}
@@ -2,7 +2,19 @@ package org.kettle.beam.transform;
 
 import org.junit.Test;
 import org.kettle.beam.util.BeamTransMetaUtil;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.TransHopMeta;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.userdefinedjavaclass.UserDefinedJavaClassDef;
+import org.pentaho.di.trans.steps.userdefinedjavaclass.UserDefinedJavaClassMeta;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class BasePipelineTest extends PipelineTestBase {
 
@@ -18,4 +30,49 @@ public class BasePipelineTest extends PipelineTestBase {
 
     createRunPipeline( transMeta );
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testValueClassPipeline() throws Exception {
+
+    TransMeta transMeta = BeamTransMetaUtil.generateBeamInputOutputTransMeta(
+      "io-value-class-output",
+      "INPUT",
+      "OUTPUT",
+      metaStore
+    );
+
+    // A generic step which puts a Double in a field declared as an Integer
+    //
+    UserDefinedJavaClassMeta javaClassMeta = new UserDefinedJavaClassMeta();
+    javaClassMeta.replaceDefinitions( Arrays.asList( new UserDefinedJavaClassDef( UserDefinedJavaClassDef.ClassType.TRANSFORM_CLASS, "Processor",
+      "public boolean processRow(StepMetaInterface smi, StepDataInterface sdi) throws KettleException {\n"
+        + "  Object[] r = getRow();\n"
+        + "  if (r == null) {\n"
+        + "    setOutputDone();\n"
+        + "    return false;\n"
+        + "  }\n"
+        + "  r = createOutputRow(r, data.outputRowMeta.size());\n"
+        + "  r[data.outputRowMeta.size() - 1] = Double.valueOf(1.5);\n"
+        + "  putRow(data.outputRowMeta, r);\n"
+        + "  return true;\n"
+        + "}\n" ) ) );
+    javaClassMeta.setFieldInfo( Arrays.asList( new UserDefinedJavaClassMeta.FieldInfo( "score", ValueMetaInterface.TYPE_INTEGER, -1, -1 ) ) );
+    StepMeta javaClassStepMeta = new StepMeta( "Java Class", javaClassMeta );
+    transMeta.addStep( javaClassStepMeta );
+
+    StepMeta dummyStepMeta = transMeta.findStep( "Dummy" );
+    StepMeta outputStepMeta = transMeta.findStep( "OUTPUT" );
+    transMeta.removeTransHop( transMeta.indexOfTransHop( transMeta.findTransHop( dummyStepMeta, outputStepMeta ) ) );
+    transMeta.addTransHop( new TransHopMeta( dummyStepMeta, javaClassStepMeta ) );
+    transMeta.addTransHop( new TransHopMeta( javaClassStepMeta, outputStepMeta ) );
+
+    File outputFolder = redirectOutput( transMeta );
+    createRunPipeline( transMeta );
+
+    List<String> lines = readOutputLines( outputFolder, "customers" );
+    assertEquals( 100, lines.size() );
+    for ( String line : lines ) {
+      assertTrue( line, line.endsWith( ",1.5" ) );
+    }
+  }
+}
@@ -1,8 +1,26 @@
 package org.kettle.beam.transform;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
+import org.kettle.beam.metastore.BeamJobConfig;
+import org.kettle.beam.metastore.RunnerType;
+import org.kettle.beam.steps.io.BeamInputMeta;
+import org.kettle.beam.util.BeamConst;
 import org.kettle.beam.util.BeamTransMetaUtil;
+import org.pentaho.di.trans.TransHopMeta;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.mergejoin.MergeJoinMeta;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class MergeJoinPipelineTest extends PipelineTestBase {
 
@@ -24,4 +42,204 @@ public class MergeJoinPipelineTest extends PipelineTestBase {
     }
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testBroadcastMergeJoinPipeline() throws Exception {
+
+    // Broadcasting the small state data to the customers gives the same rows as shuffling both sides
+    //
+    List<String> innerLines = runStateMergeJoinPipeline( "inputs-inner-merge-join-output", MergeJoinMeta.join_types[ 0 ], null, null );
+    List<String> broadcastInnerLines = runStateMergeJoinPipeline( "inputs-broadcast-inner-merge-join-output", MergeJoinMeta.join_types[ 0 ],
+      BeamConst.STRING_STEP_FLAG_BROADCAST, BeamConst.STRING_JOIN_SIDE_RIGHT );
+    assertEquals( innerLines, broadcastInnerLines );
+    assertTrue( innerLines.size() > 0 && innerLines.size() < 100 );
+
+    List<String> outerLines = runStateMergeJoinPipeline( "inputs-outer-merge-join-output", MergeJoinMeta.join_types[ 1 ], null, null );
+    List<String> broadcastOuterLines = runStateMergeJoinPipeline( "inputs-broadcast-outer-merge-join-output", MergeJoinMeta.join_types[ 1 ],
+      BeamConst.STRING_STEP_FLAG_BROADCAST, BeamConst.STRING_JOIN_SIDE_RIGHT );
+    assertEquals( outerLines, broadcastOuterLines );
+    assertEquals( 100, outerLines.size() );
+  }
+
+  @Test
+  public void testBloomFilterMergeJoinPipeline() throws Exception {
+
+    // Dropping the customers without a state in the state data before the shuffle doesn't change the inner join
+    //
+    List<String> innerLines = runStateMergeJoinPipeline( "inputs-inner-merge-join-output", MergeJoinMeta.join_types[ 0 ], null, null );
+    List<String> filteredLines = runStateMergeJoinPipeline( "inputs-bloom-filter-merge-join-output", MergeJoinMeta.join_types[ 0 ],
+      BeamConst.STRING_STEP_FLAG_BLOOM_FILTER, BeamConst.STRING_JOIN_SIDE_LEFT );
+    assertEquals( innerLines, filteredLines );
+    assertTrue( filteredLines.size() > 0 && filteredLines.size() < 100 );
+  }
+
+  @Test
+  public void testMergeJoinChainPipeline() throws Exception {
+
+    // The same joins once in a single CoGroupByKey and once one after the other with a step in between
+    //
+    List<String> chainLines = runMergeJoinChainPipeline( "inputs-merge-join-chain-output", false );
+    List<String> separateLines = runMergeJoinChainPipeline( "inputs-merge-join-separate-output", true );
+    assertEquals( separateLines, chainLines );
+
+    // All the fields of the customer, the same or null for the first (left outer) join and the same for the second (inner) join
+    //
+    assertEquals( 100, chainLines.size() );
+    int matched = 0;
+    for ( String line : chainLines ) {
+      String[] fields = line.split( ",", -1 );
+      assertEquals( 30, fields.length );
+      List<String> customer = Arrays.asList( fields ).subList( 0, 10 );
+      List<String> firstRight = Arrays.asList( fields ).subList( 10, 20 );
+      assertEquals( customer, Arrays.asList( fields ).subList( 20, 30 ) );
+      if ( customer.equals( firstRight ) ) {
+        matched++;
+      } else {
+        assertEquals( Collections.nCopies( 10, "" ), firstRight );
+      }
+    }
+    assertEquals( 50, matched );
+  }
+
+  /**
+   * Join the customers with the first 50 customers (left outer) and then with all the customers (inner) on the name.
+   * The key is neither the last field on the left nor the first field on the right.
+   *
+   * @param separate put a step between the joins so they're not done in a single CoGroupByKey
+   * @return the sorted output lines
+   */
+  private List<String> runMergeJoinChainPipeline( String transname, boolean separate ) throws Exception {
+
+    List<String> customers = FileUtils.readLines( new File( "src/test/resources/customers/customers-100.txt" ), StandardCharsets.UTF_8 );
+    File firstCustomers = new File( "/tmp/customers/io/customers-50.txt" );
+    FileUtils.writeLines( firstCustomers, customers.subList( 0, 50 ) );
+
+    TransMeta transMeta = BeamTransMetaUtil.generateMergeJoinTransMeta( transname, "INPUT", "OUTPUT", metaStore );
+
+    StepMeta rightInputStepMeta = transMeta.findStep( "INPUT Right" );
+    BeamInputMeta rightInputMeta = (BeamInputMeta) rightInputStepMeta.getStepMetaInterface();
+    rightInputMeta.setInputLocation( firstCustomers.getPath() );
+    rightInputMeta.setFileDescriptionName( BeamTransMetaUtil.createCustomersInputFileDefinition().getName() );
+
+    StepMeta mergeJoinStepMeta = transMeta.findStep( "Merge Join" );
+    MergeJoinMeta mergeJoin = (MergeJoinMeta) mergeJoinStepMeta.getStepMetaInterface();
+    mergeJoin.getKeyFields1()[0] = "name";
+    mergeJoin.getKeyFields2()[0] = "name";
+    mergeJoin.setJoinType( MergeJoinMeta.join_types[ 1 ] ); // LEFT OUTER
+    StepMeta outputStepMeta = transMeta.findStep( "OUTPUT" );
+    transMeta.removeTransHop( transMeta.indexOfTransHop( transMeta.findTransHop( mergeJoinStepMeta, outputStepMeta ) ) );
+
+    StepMeta leftStepMeta = mergeJoinStepMeta;
+    if ( separate ) {
+      leftStepMeta = new StepMeta( "Dummy", new DummyTransMeta() );
+      transMeta.addStep( leftStepMeta );
+      transMeta.addTransHop( new TransHopMeta( mergeJoinStepMeta, leftStepMeta ) );
+    }
+
+    BeamInputMeta secondInputMeta = new BeamInputMeta();
+    secondInputMeta.setInputLocation( "/tmp/customers/io/customers-100.txt" );
+    secondInputMeta.setFileDescriptionName( rightInputMeta.getFileDescriptionName() );
+    StepMeta secondInputStepMeta = new StepMeta( "INPUT Right 2", secondInputMeta );
+    secondInputStepMeta.setStepID( BeamConst.STRING_BEAM_INPUT_PLUGIN_ID );
+    transMeta.addStep( secondInputStepMeta );
+
+    MergeJoinMeta secondMergeJoin = new MergeJoinMeta();
+    secondMergeJoin.allocate( 1, 1 );
+    secondMergeJoin.getKeyFields1()[0] = "name";
+    secondMergeJoin.getKeyFields2()[0] = "name";
+    secondMergeJoin.setJoinType( MergeJoinMeta.join_types[ 0 ] ); // INNER
+    secondMergeJoin.getStepIOMeta().getInfoStreams().get(0).setStepMeta( leftStepMeta );
+    secondMergeJoin.getStepIOMeta().getInfoStreams().get(1).setStepMeta( secondInputStepMeta );
+    StepMeta secondMergeJoinStepMeta = new StepMeta("Merge Join 2", secondMergeJoin);
+    transMeta.addStep( secondMergeJoinStepMeta );
+    transMeta.addTransHop( new TransHopMeta( leftStepMeta, secondMergeJoinStepMeta ) );
+    transMeta.addTransHop( new TransHopMeta( secondInputStepMeta, secondMergeJoinStepMeta ) );
+    transMeta.addTransHop( new TransHopMeta( secondMergeJoinStepMeta, outputStepMeta ) );
+
+    File outputFolder = redirectOutput( transMeta );
+    try {
+      createRunPipeline( transMeta );
+    } catch(Exception e) {
+      e.printStackTrace();
+      throw e;
+    }
+    return readOutputLines( outputFolder, "merge-join" );
+  }
+
+  /**
+   * Join the customers with the first 20 states of the state data on the state: not every customer has a matching state.
+   *
+   * @param flag the optimization flag to set on the Merge Join step or null for a plain shuffled join
+   * @param side the side of the join the flag applies to
+   * @return the sorted output lines
+   */
+  private List<String> runStateMergeJoinPipeline( String transname, String joinType, String flag, String side ) throws Exception {
+
+    List<String> states = FileUtils.readLines( new File( "src/test/resources/customers/state-data.txt" ), StandardCharsets.UTF_8 );
+    File firstStates = new File( "/tmp/customers/io/state-data-20.txt" );
+    FileUtils.writeLines( firstStates, states.subList( 0, 20 ) );
+
+    TransMeta transMeta = BeamTransMetaUtil.generateMergeJoinTransMeta( transname, "INPUT", "OUTPUT", metaStore );
+
+    StepMeta rightInputStepMeta = transMeta.findStep( "INPUT Right" );
+    ( (BeamInputMeta) rightInputStepMeta.getStepMetaInterface() ).setInputLocation( firstStates.getPath() );
+
+    StepMeta mergeJoinStepMeta = transMeta.findStep( "Merge Join" );
+    ( (MergeJoinMeta) mergeJoinStepMeta.getStepMetaInterface() ).setJoinType( joinType );
+    if ( flag != null ) {
+      mergeJoinStepMeta.setAttribute( BeamConst.STRING_KETTLE_BEAM, flag, side );
+    }
+
+    File outputFolder = redirectOutput( transMeta );
+    try {
+      createRunPipeline( transMeta );
+    } catch(Exception e) {
+      e.printStackTrace();
+      throw e;
+    }
+    return readOutputLines( outputFolder, "merge-join" );
+  }
+
+  @Test
+  public void testSaltedInnerMergeJoinPipeline() throws Exception {
+    runSaltedMergeJoinPipeline( "inputs-salted-inner-merge-join-output", MergeJoinMeta.join_types[ 0 ] );
+  }
+
+  @Test
+  public void testSaltedOuterMergeJoinPipeline() throws Exception {
+    runSaltedMergeJoinPipeline( "inputs-salted-outer-merge-join-output", MergeJoinMeta.join_types[ 3 ] );
+  }
+
+  /**
+   * Salt the left side with every key forced to be hot.
+   * The state data gets a few rows without a population: a matching one and one which doesn't match.
+   */
+  private void runSaltedMergeJoinPipeline( String transname, String joinType ) throws Exception {
+
+    File stateData = new File( "/tmp/customers/io/state-data-nulls.txt" );
+    FileUtils.copyFile( new File( "src/test/resources/customers/state-data.txt" ), stateData );
+    FileUtils.write( stateData, "Alabama;\nAtlantis;\n", StandardCharsets.UTF_8, true );
+
+    TransMeta transMeta = BeamTransMetaUtil.generateMergeJoinTransMeta( transname, "INPUT", "OUTPUT", metaStore );
+
+    StepMeta rightInputStepMeta = transMeta.findStep( "INPUT Right" );
+    ( (BeamInputMeta) rightInputStepMeta.getStepMetaInterface() ).setInputLocation( stateData.getPath() );
+
+    StepMeta mergeJoinStepMeta = transMeta.findStep( "Merge Join" );
+    ( (MergeJoinMeta) mergeJoinStepMeta.getStepMetaInterface() ).setJoinType( joinType );
+    mergeJoinStepMeta.setAttribute( BeamConst.STRING_KETTLE_BEAM, BeamConst.STRING_STEP_FLAG_SALT, BeamConst.STRING_JOIN_SIDE_LEFT );
+
+    BeamJobConfig jobConfig = new BeamJobConfig();
+    jobConfig.setName( "Direct runner test" );
+    jobConfig.setRunnerTypeName( RunnerType.Direct.name() );
+    jobConfig.setJoinHotKeyMinRows( "1" );
+    jobConfig.setJoinHotKeySalts( "4" );
+
+    try {
+      createRunPipeline( transMeta, jobConfig );
+    } catch(Exception e) {
+      e.printStackTrace();
+      throw e;
+    }
+  }
+
+}
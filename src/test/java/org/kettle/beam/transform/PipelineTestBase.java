@@ -17,13 +17,18 @@ import org.kettle.beam.core.BeamKettle;
 import org.kettle.beam.metastore.BeamJobConfig;
 import org.kettle.beam.metastore.RunnerType;
 import org.kettle.beam.pipeline.TransMetaPipelineConverter;
+import org.kettle.beam.steps.io.BeamOutputMeta;
 import org.kettle.beam.util.BeamConst;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.metastore.api.IMetaStore;
 import org.pentaho.metastore.stores.memory.MemoryMetaStore;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class PipelineTestBase {
 
@@ -49,6 +54,15 @@ public class PipelineTestBase {
 
   @Ignore
   public void createRunPipeline( TransMeta transMeta ) throws Exception {
+    BeamJobConfig jobConfig = new BeamJobConfig();
+    jobConfig.setName("Direct runner test");
+    jobConfig.setRunnerTypeName( RunnerType.Direct.name() );
+
+    createRunPipeline( transMeta, jobConfig );
+  }
+
+  @Ignore
+  public void createRunPipeline( TransMeta transMeta, BeamJobConfig jobConfig ) throws Exception {
 
     /*
     FileOutputStream fos = new FileOutputStream( "/tmp/"+transMeta.getName()+".ktr" );
@@ -61,10 +75,6 @@ public class PipelineTestBase {
     pipelineOptions.setJobName( transMeta.getName() );
     pipelineOptions.setUserAgent( BeamConst.STRING_KETTLE_BEAM );
 
-    BeamJobConfig jobConfig = new BeamJobConfig();
-    jobConfig.setName("Direct runner test");
-    jobConfig.setRunnerTypeName( RunnerType.Direct.name() );
-
     // No extra plugins to load : null option
     TransMetaPipelineConverter converter = new TransMetaPipelineConverter( transMeta, metaStore, (String) null, jobConfig );
     Pipeline pipeline = converter.createPipeline( pipelineOptions );
@@ -79,4 +89,39 @@ public class PipelineTestBase {
       System.out.println( "Name: " + result.getName() + " Attempted: " + result.getAttempted() );
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Let the Beam Output steps write to a folder of the transformation only, so the output can be read back.
+   *
+   * @return the output folder
+   */
+  @Ignore
+  public File redirectOutput( TransMeta transMeta ) throws Exception {
+    File outputFolder = new File( "/tmp/customers/output/" + transMeta.getName() );
+    FileUtils.deleteDirectory( outputFolder );
+    for ( StepMeta stepMeta : transMeta.getSteps() ) {
+      if ( stepMeta.getStepMetaInterface() instanceof BeamOutputMeta ) {
+        ( (BeamOutputMeta) stepMeta.getStepMetaInterface() ).setOutputLocation( outputFolder.getPath() );
+      }
+    }
+    return outputFolder;
+  }
+
+  /**
+   * @return the sorted lines of the output files with the given prefix
+   */
+  @Ignore
+  public List<String> readOutputLines( File outputFolder, String filePrefix ) throws Exception {
+    List<String> lines = new ArrayList<>();
+    File[] files = outputFolder.listFiles();
+    if ( files != null ) {
+      for ( File file : files ) {
+        if ( file.isFile() && file.getName().startsWith( filePrefix ) ) {
+          lines.addAll( FileUtils.readLines( file, StandardCharsets.UTF_8 ) );
+        }
+      }
+    }
+    Collections.sort( lines );
+    return lines;
+  }
+}
@@ -0,0 +1,84 @@
+package org.kettle.beam.transform;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.kettle.beam.metastore.BeamJobConfig;
+import org.kettle.beam.metastore.RunnerType;
+import org.kettle.beam.util.BeamTransMetaUtil;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.steps.sort.SortRowsMeta;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class SortRowsPipelineTest extends PipelineTestBase {
+
+  @Test
+  public void testSortRowsPipeline() throws Exception {
+
+    TransMeta transMeta = BeamTransMetaUtil.generateSortRowsTransMeta(
+      "io-sort-output",
+      "INPUT",
+      "OUTPUT",
+      metaStore
+    );
+
+    try {
+      createRunPipeline( transMeta );
+    } catch(Exception e) {
+      e.printStackTrace();
+      throw e;
+    }
+  }
+
+  @Test
+  public void testSortRowsUniquePipeline() throws Exception {
+
+    TransMeta transMeta = BeamTransMetaUtil.generateSortRowsTransMeta(
+      "io-sort-unique-output",
+      "INPUT",
+      "OUTPUT",
+      metaStore
+    );
+
+    // Only the first customer of every state, sorted in a few ranges
+    //
+    SortRowsMeta sortRowsMeta = (SortRowsMeta) transMeta.findStep( "Sort Rows" ).getStepMetaInterface();
+    sortRowsMeta.allocate( 1 );
+    sortRowsMeta.getFieldName()[0] = "state";
+    sortRowsMeta.getAscending()[0] = true;
+    sortRowsMeta.getCaseSensitive()[0] = true;
+    sortRowsMeta.setOnlyPassingUniqueRows( true );
+
+    BeamJobConfig jobConfig = new BeamJobConfig();
+    jobConfig.setName( "Direct runner test" );
+    jobConfig.setRunnerTypeName( RunnerType.Direct.name() );
+    jobConfig.setSortRowsRanges( "4" );
+
+    File outputFolder = redirectOutput( transMeta );
+    try {
+      createRunPipeline( transMeta, jobConfig );
+    } catch(Exception e) {
+      e.printStackTrace();
+      throw e;
+    }
+
+    Set<String> states = new HashSet<>();
+    for ( String customer : FileUtils.readLines( new File( "src/test/resources/customers/customers-100.txt" ), StandardCharsets.UTF_8 ) ) {
+      states.add( customer.split( ";", -1 )[ 9 ] );
+    }
+
+    List<String> lines = readOutputLines( outputFolder, "sorted" );
+    Set<String> outputStates = new HashSet<>();
+    for ( String line : lines ) {
+      outputStates.add( line.split( ",", -1 )[ 9 ] );
+    }
+    assertEquals( states.size(), lines.size() );
+    assertEquals( states, outputStates );
+  }
+}
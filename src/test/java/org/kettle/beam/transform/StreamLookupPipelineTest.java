@@ -2,7 +2,19 @@ package org.kettle.beam.transform;
 
 import org.junit.Test;
 import org.kettle.beam.util.BeamTransMetaUtil;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.TransHopMeta;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.streamlookup.StreamLookupMeta;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
 
 public class StreamLookupPipelineTest extends PipelineTestBase {
 
@@ -24,4 +36,96 @@ public class StreamLookupPipelineTest extends PipelineTestBase {
     }
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testStreamLookupDuplicateKeysPipeline() throws Exception {
+
+    TransMeta transMeta = BeamTransMetaUtil.generateStreamLookupTransMeta(
+      "io-stream-lookup-duplicates-output",
+      "INPUT",
+      "OUTPUT",
+      metaStore
+    );
+
+    // Look up a name per state in all the customers: every state code has a lot of rows
+    //
+    StepMeta inputStepMeta = transMeta.findStep( "INPUT" );
+    StepMeta streamLookupStepMeta = transMeta.findStep( "Stream Lookup" );
+    StepMeta memoryGroupByStepMeta = transMeta.findStep( "rowsPerState" );
+    transMeta.removeTransHop( transMeta.indexOfTransHop( transMeta.findTransHop( memoryGroupByStepMeta, streamLookupStepMeta ) ) );
+    transMeta.removeTransHop( transMeta.indexOfTransHop( transMeta.findTransHop( inputStepMeta, memoryGroupByStepMeta ) ) );
+    transMeta.removeStep( transMeta.indexOfStep( memoryGroupByStepMeta ) );
+
+    StepMeta lookupRowsStepMeta = new StepMeta( "lookupRows", new DummyTransMeta() );
+    transMeta.addStep( lookupRowsStepMeta );
+    transMeta.addTransHop( new TransHopMeta( inputStepMeta, lookupRowsStepMeta ) );
+    transMeta.addTransHop( new TransHopMeta( lookupRowsStepMeta, streamLookupStepMeta ) );
+
+    StreamLookupMeta streamLookupMeta = (StreamLookupMeta) streamLookupStepMeta.getStepMetaInterface();
+    streamLookupMeta.getValue()[0] = "name";
+    streamLookupMeta.getValueName()[0] = "nameInState";
+    streamLookupMeta.getValueDefaultType()[0] = ValueMetaInterface.TYPE_STRING;
+    streamLookupMeta.getStepIOMeta().getInfoStreams().get(0).setStepMeta( lookupRowsStepMeta );
+
+    File outputFolder = redirectOutput( transMeta );
+    try {
+      createRunPipeline( transMeta );
+    } catch(Exception e) {
+      e.printStackTrace();
+      throw e;
+    }
+
+    // The highest name of all the customers in the same state wins
+    //
+    List<String> lines = readOutputLines( outputFolder, "stream-lookup" );
+    assertEquals( 100, lines.size() );
+    Map<String, String> highestNames = new HashMap<>();
+    for ( String line : lines ) {
+      String[] fields = line.split( ",", -1 );
+      String highestName = highestNames.get( fields[ 8 ] );
+      if ( highestName == null || fields[ 1 ].compareTo( highestName ) > 0 ) {
+        highestNames.put( fields[ 8 ], fields[ 1 ] );
+      }
+    }
+    for ( String line : lines ) {
+      String[] fields = line.split( ",", -1 );
+      assertEquals( 11, fields.length );
+      assertEquals( line, highestNames.get( fields[ 8 ] ), fields[ 10 ] );
+    }
+  }
+
+  @Test
+  public void testStreamLookupDefaultValuePipeline() throws Exception {
+
+    TransMeta transMeta = BeamTransMetaUtil.generateStreamLookupTransMeta(
+      "io-stream-lookup-default-output",
+      "INPUT",
+      "OUTPUT",
+      metaStore
+    );
+
+    // The state names never match the state codes so every row gets the default value
+    //
+    StreamLookupMeta streamLookupMeta = (StreamLookupMeta) transMeta.findStep( "Stream Lookup" ).getStepMetaInterface();
+    streamLookupMeta.getKeystream()[0] = "state";
+    streamLookupMeta.getValueDefault()[0] = "0";
+
+    File outputFolder = redirectOutput( transMeta );
+    try {
+      createRunPipeline( transMeta );
+    } catch(Exception e) {
+      e.printStackTrace();
+      throw e;
+    }
+
+    // The default is converted to the Integer of the output field, the output coder refuses a String
+    //
+    List<String> lines = readOutputLines( outputFolder, "stream-lookup" );
+    assertEquals( 100, lines.size() );
+    for ( String line : lines ) {
+      String[] fields = line.split( ",", -1 );
+      assertEquals( 11, fields.length );
+      assertEquals( line, "0", fields[ 10 ].trim() );
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+package org.kettle.beam.transform;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.kettle.beam.steps.io.BeamOutputMeta;
+import org.kettle.beam.util.BeamTransMetaUtil;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepErrorMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.uniquerows.UniqueRowsMeta;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class UniqueRowsPipelineTest extends PipelineTestBase {
+
+  @Test
+  public void testUniqueRowsPipeline() throws Exception {
+
+    TransMeta transMeta = BeamTransMetaUtil.generateUniqueRowsTransMeta(
+      "io-unique-output",
+      "INPUT",
+      "OUTPUT",
+      metaStore
+    );
+
+    File outputFolder = redirectOutput( transMeta );
+    try {
+      createRunPipeline( transMeta );
+    } catch(Exception e) {
+      e.printStackTrace();
+      throw e;
+    }
+
+    assertUniqueStates( readOutputLines( outputFolder, "unique" ), countCustomersPerState() );
+  }
+
+  @Test
+  public void testUniqueRowsDuplicatesPipeline() throws Exception {
+
+    TransMeta transMeta = BeamTransMetaUtil.generateUniqueRowsTransMeta(
+      "io-unique-duplicates-output",
+      "INPUT",
+      "OUTPUT",
+      metaStore
+    );
+
+    // Send the duplicates to another output with error handling
+    //
+    StepMeta uniqueRowsStepMeta = transMeta.findStep( "Unique Rows" );
+    UniqueRowsMeta uniqueRowsMeta = (UniqueRowsMeta) uniqueRowsStepMeta.getStepMetaInterface();
+    uniqueRowsMeta.setRejectDuplicateRow( true );
+    uniqueRowsMeta.setErrorDescription( "Duplicate state" );
+
+    BeamOutputMeta duplicatesOutputMeta = new BeamOutputMeta();
+    duplicatesOutputMeta.setOutputLocation( "/tmp/customers/output/" );
+    duplicatesOutputMeta.setFileDescriptionName( null );
+    duplicatesOutputMeta.setFilePrefix( "duplicates" );
+    duplicatesOutputMeta.setFileSuffix( ".csv" );
+    duplicatesOutputMeta.setWindowed( false );
+    StepMeta duplicatesOutputStepMeta = new StepMeta( "DUPLICATES", duplicatesOutputMeta );
+    duplicatesOutputStepMeta.setStepID( "BeamOutput" );
+    transMeta.addStep( duplicatesOutputStepMeta );
+    TransHopMeta errorHopMeta = new TransHopMeta( uniqueRowsStepMeta, duplicatesOutputStepMeta );
+    errorHopMeta.setErrorHop( true );
+    transMeta.addTransHop( errorHopMeta );
+
+    StepErrorMeta stepErrorMeta = new StepErrorMeta( transMeta, uniqueRowsStepMeta, duplicatesOutputStepMeta );
+    stepErrorMeta.setEnabled( true );
+    stepErrorMeta.setNrErrorsValuename( "nrErrors" );
+    stepErrorMeta.setErrorDescriptionsValuename( "errorDescription" );
+    stepErrorMeta.setErrorCodesValuename( "errorCode" );
+    uniqueRowsStepMeta.setStepErrorMeta( stepErrorMeta );
+
+    File outputFolder = redirectOutput( transMeta );
+    try {
+      createRunPipeline( transMeta );
+    } catch(Exception e) {
+      e.printStackTrace();
+      throw e;
+    }
+
+    Map<String, Integer> customersPerState = countCustomersPerState();
+    assertUniqueStates( readOutputLines( outputFolder, "unique" ), customersPerState );
+
+    // All the other customers of a state are duplicates with the error fields added
+    //
+    List<String> duplicateLines = readOutputLines( outputFolder, "duplicates" );
+    Map<String, Integer> duplicatesPerState = new HashMap<>();
+    for ( String line : duplicateLines ) {
+      String[] fields = line.split( ",", -1 );
+      assertEquals( line, 13, fields.length );
+      assertEquals( line, "1", fields[ 10 ].trim() );
+      assertEquals( line, "Duplicate state", fields[ 11 ] );
+      assertEquals( line, "UNR001", fields[ 12 ] );
+      duplicatesPerState.merge( fields[ 9 ].toLowerCase(), 1, Integer::sum );
+    }
+    assertEquals( 100 - customersPerState.size(), duplicateLines.size() );
+    for ( Map.Entry<String, Integer> entry : duplicatesPerState.entrySet() ) {
+      assertEquals( entry.getKey(), customersPerState.get( entry.getKey() ) - 1, (int) entry.getValue() );
+    }
+  }
+
+  /**
+   * One customer per state (case insensitive) with the number of customers in that state
+   */
+  private void assertUniqueStates( List<String> lines, Map<String, Integer> customersPerState ) {
+    assertEquals( customersPerState.size(), lines.size() );
+    Map<String, Integer> outputCustomersPerState = new HashMap<>();
+    for ( String line : lines ) {
+      String[] fields = line.split( ",", -1 );
+      assertEquals( line, 11, fields.length );
+      outputCustomersPerState.put( fields[ 9 ].toLowerCase(), Integer.valueOf( fields[ 10 ].trim() ) );
+    }
+    assertEquals( customersPerState, outputCustomersPerState );
+  }
+
+  private Map<String, Integer> countCustomersPerState() throws Exception {
+    Map<String, Integer> customersPerState = new HashMap<>();
+    for ( String customer : FileUtils.readLines( new File( "src/test/resources/customers/customers-100.txt" ), StandardCharsets.UTF_8 ) ) {
+      customersPerState.merge( customer.split( ";", -1 )[ 9 ].toLowerCase(), 1, Integer::sum );
+    }
+    return customersPerState;
+  }
+}
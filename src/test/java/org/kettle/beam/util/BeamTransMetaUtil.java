@@ -15,9 +15,11 @@ import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
 import org.pentaho.di.trans.steps.filterrows.FilterRowsMeta;
 import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
 import org.pentaho.di.trans.steps.mergejoin.MergeJoinMeta;
+import org.pentaho.di.trans.steps.sort.SortRowsMeta;
 import org.pentaho.di.trans.steps.streamlookup.StreamLookupMeta;
 import org.pentaho.di.trans.steps.switchcase.SwitchCaseMeta;
 import org.pentaho.di.trans.steps.switchcase.SwitchCaseTarget;
+import org.pentaho.di.trans.steps.uniquerows.UniqueRowsMeta;
 import org.pentaho.metastore.api.IMetaStore;
 import org.pentaho.metastore.persist.MetaStoreFactory;
 import org.pentaho.metastore.util.PentahoDefaults;
@@ -125,6 +127,105 @@ public class BeamTransMetaUtil {
   }
 
 
+  public static final TransMeta generateSortRowsTransMeta( String transname, String inputStepname, String outputStepname, IMetaStore metaStore ) throws Exception {
+
+    MetaStoreFactory<FileDefinition> factory = new MetaStoreFactory<>( FileDefinition.class, metaStore, PentahoDefaults.NAMESPACE );
+    FileDefinition customerFileDefinition = createCustomersInputFileDefinition();
+    factory.saveElement( customerFileDefinition );
+
+    TransMeta transMeta = new TransMeta(  );
+    transMeta.setName( transname );
+    transMeta.setMetaStore( metaStore );
+
+    // Add the io step
+    //
+    BeamInputMeta beamInputMeta = new BeamInputMeta();
+    beamInputMeta.setInputLocation( "/tmp/customers/io/customers-100.txt" );
+    beamInputMeta.setFileDescriptionName( customerFileDefinition.getName() );
+    StepMeta beamInputStepMeta = new StepMeta(inputStepname, beamInputMeta);
+    beamInputStepMeta.setStepID( BeamConst.STRING_BEAM_INPUT_PLUGIN_ID );
+    transMeta.addStep( beamInputStepMeta );
+
+    // Sort on state (ascending) and id (descending)
+    //
+    SortRowsMeta sortRowsMeta = new SortRowsMeta();
+    sortRowsMeta.allocate( 2 );
+    sortRowsMeta.getFieldName()[0] = "state";
+    sortRowsMeta.getAscending()[0] = true;
+    sortRowsMeta.getCaseSensitive()[0] = true;
+    sortRowsMeta.getFieldName()[1] = "id";
+    sortRowsMeta.getAscending()[1] = false;
+    sortRowsMeta.getCaseSensitive()[1] = true;
+    sortRowsMeta.setSortSize( "10" ); // Spill to disk
+    StepMeta sortRowsStepMeta = new StepMeta("Sort Rows", sortRowsMeta);
+    sortRowsStepMeta.setStepID( BeamConst.STRING_SORT_ROWS_PLUGIN_ID );
+    transMeta.addStep( sortRowsStepMeta );
+    transMeta.addTransHop(new TransHopMeta( beamInputStepMeta, sortRowsStepMeta ) );
+
+    // Add the output step
+    //
+    BeamOutputMeta beamOutputMeta = new BeamOutputMeta();
+    beamOutputMeta.setOutputLocation( "/tmp/customers/output/" );
+    beamOutputMeta.setFileDescriptionName( null );
+    beamOutputMeta.setFilePrefix( "sorted" );
+    beamOutputMeta.setFileSuffix( ".csv" );
+    beamOutputMeta.setWindowed( false ); // Not yet supported
+    StepMeta beamOutputStepMeta = new StepMeta(outputStepname, beamOutputMeta);
+    beamOutputStepMeta.setStepID( "BeamOutput" );
+    transMeta.addStep( beamOutputStepMeta );
+    transMeta.addTransHop(new TransHopMeta( sortRowsStepMeta, beamOutputStepMeta ) );
+
+    return transMeta;
+  }
+
+  public static final TransMeta generateUniqueRowsTransMeta( String transname, String inputStepname, String outputStepname, IMetaStore metaStore ) throws Exception {
+
+    MetaStoreFactory<FileDefinition> factory = new MetaStoreFactory<>( FileDefinition.class, metaStore, PentahoDefaults.NAMESPACE );
+    FileDefinition customerFileDefinition = createCustomersInputFileDefinition();
+    factory.saveElement( customerFileDefinition );
+
+    TransMeta transMeta = new TransMeta(  );
+    transMeta.setName( transname );
+    transMeta.setMetaStore( metaStore );
+
+    // Add the io step
+    //
+    BeamInputMeta beamInputMeta = new BeamInputMeta();
+    beamInputMeta.setInputLocation( "/tmp/customers/io/customers-100.txt" );
+    beamInputMeta.setFileDescriptionName( customerFileDefinition.getName() );
+    StepMeta beamInputStepMeta = new StepMeta(inputStepname, beamInputMeta);
+    beamInputStepMeta.setStepID( BeamConst.STRING_BEAM_INPUT_PLUGIN_ID );
+    transMeta.addStep( beamInputStepMeta );
+
+    // The distinct states (case insensitive) with the number of customers
+    //
+    UniqueRowsMeta uniqueRowsMeta = new UniqueRowsMeta();
+    uniqueRowsMeta.allocate( 1 );
+    uniqueRowsMeta.getCompareFields()[0] = "state";
+    uniqueRowsMeta.getCaseInsensitive()[0] = true;
+    uniqueRowsMeta.setCountRows( true );
+    uniqueRowsMeta.setCountField( "nrCustomers" );
+    StepMeta uniqueRowsStepMeta = new StepMeta("Unique Rows", uniqueRowsMeta);
+    uniqueRowsStepMeta.setStepID( BeamConst.STRING_UNIQUE_ROWS_PLUGIN_ID );
+    transMeta.addStep( uniqueRowsStepMeta );
+    transMeta.addTransHop(new TransHopMeta( beamInputStepMeta, uniqueRowsStepMeta ) );
+
+    // Add the output step
+    //
+    BeamOutputMeta beamOutputMeta = new BeamOutputMeta();
+    beamOutputMeta.setOutputLocation( "/tmp/customers/output/" );
+    beamOutputMeta.setFileDescriptionName( null );
+    beamOutputMeta.setFilePrefix( "unique" );
+    beamOutputMeta.setFileSuffix( ".csv" );
+    beamOutputMeta.setWindowed( false ); // Not yet supported
+    StepMeta beamOutputStepMeta = new StepMeta(outputStepname, beamOutputMeta);
+    beamOutputStepMeta.setStepID( "BeamOutput" );
+    transMeta.addStep( beamOutputStepMeta );
+    transMeta.addTransHop(new TransHopMeta( uniqueRowsStepMeta, beamOutputStepMeta ) );
+
+    return transMeta;
+  }
+
   public static final TransMeta generateFilterRowsTransMeta( String transname, String inputStepname, String outputStepname, IMetaStore metaStore ) throws Exception {
 
     MetaStoreFactory<FileDefinition> factory = new MetaStoreFactory<>( FileDefinition.class, metaStore, PentahoDefaults.NAMESPACE );